@@ -6,6 +6,7 @@ package ucar.nc2.iosp.bufr;
 
 import java.io.IOException;
 import java.util.Formatter;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
@@ -23,6 +24,7 @@ import ucar.nc2.Structure;
 import ucar.nc2.Variable;
 import ucar.nc2.constants.DataFormatType;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.iosp.FileSignature;
 import ucar.nc2.util.CancelTask;
 import ucar.unidata.io.RandomAccessFile;
 
@@ -59,6 +61,11 @@ public class BufrIosp2 extends AbstractIOServiceProvider {
     return MessageScanner.isValidFile(raf);
   }
 
+  @Override
+  public List<FileSignature> getFileSignatures() {
+    return Collections.singletonList(MessageScanner.signature);
+  }
+
   @Override
   public boolean isBuilder() {
     return true;
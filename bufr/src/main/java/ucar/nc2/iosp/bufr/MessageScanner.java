@@ -5,6 +5,7 @@
 package ucar.nc2.iosp.bufr;
 
 import java.nio.charset.StandardCharsets;
+import ucar.nc2.iosp.FileSignature;
 import ucar.unidata.io.RandomAccessFile;
 import ucar.unidata.io.KMPMatch;
 import java.io.*;
@@ -21,6 +22,10 @@ public class MessageScanner {
   private static org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MessageScanner.class);
 
   private static final KMPMatch matcher = new KMPMatch("BUFR".getBytes(StandardCharsets.UTF_8));
+  private static final int maxScan = 40 * 1000;
+
+  /** isValidFile() needs "BUFR" in the first maxScan bytes. */
+  public static final FileSignature signature = FileSignature.within(maxScan, "BUFR");
 
   /**
    * is this a valid BUFR file.
@@ -31,7 +36,7 @@ public class MessageScanner {
    */
   public static boolean isValidFile(ucar.unidata.io.RandomAccessFile raf) throws IOException {
     raf.seek(0);
-    if (!raf.searchForward(matcher, 40 * 1000))
+    if (!raf.searchForward(matcher, maxScan))
       return false; // must find "BUFR" in first 40k
     raf.skipBytes(4);
     BufrIndicatorSection is = new BufrIndicatorSection(raf);
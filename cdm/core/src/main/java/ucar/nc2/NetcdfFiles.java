@@ -21,8 +21,12 @@ import java.nio.channels.OverlappingFileLockException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -30,7 +34,9 @@ import javax.annotation.Nullable;
 import ucar.nc2.internal.iosp.netcdf3.N3headerNew;
 import ucar.nc2.internal.iosp.netcdf3.N3iospNew;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.iosp.FileSignature;
 import ucar.nc2.iosp.IOServiceProvider;
+import ucar.nc2.iosp.IospDetectionStats;
 import ucar.nc2.util.CancelTask;
 import ucar.nc2.util.DiskCache;
 import ucar.nc2.util.EscapeStrings;
@@ -57,6 +63,7 @@ public class NetcdfFiles {
   private static final List<String> possibleCompressedSuffixes = Arrays.asList("Z", "zip", "gzip", "gz", "bz2");
   private static boolean loadWarnings = false;
   private static boolean userLoads;
+  private static final Map<String, DetectionCounter> detectionCounters = new ConcurrentHashMap<>();
 
   // load core service providers
   static {
@@ -102,6 +109,13 @@ public class NetcdfFiles {
         log.info("Cant load class InMemoryRandomAccessFileProvider", e);
     }
 
+    try {
+      registerRandomAccessFileProvider("ucar.unidata.io.MMapRandomAccessFile$Provider");
+    } catch (Throwable e) {
+      if (loadWarnings)
+        log.info("Cant load class MMapRandomAccessFileProvider", e);
+    }
+
     // if a user explicitly registers an IOSP or RandomAccessFile implementation via
     // registerIOProvider or registerRandomAccessFileProvider, this ensures they are tried first,
     // even before the core implementations.
@@ -782,12 +796,14 @@ public class NetcdfFiles {
     if (NetcdfFile.debugSPI)
       log.info("NetcdfFile try to open = {}", raf.getLocation());
 
+    Probe probe = new Probe(raf);
+
     // Registered providers override defaults.
     for (IOServiceProvider registeredSpi : registeredProviders) {
       if (NetcdfFile.debugSPI)
         log.info(" try iosp = {}", registeredSpi.getClass().getName());
 
-      if (registeredSpi.isValidFile(raf)) {
+      if (probe.isValidFile(registeredSpi)) {
         // need a new instance for thread safety
         Class c = registeredSpi.getClass();
         try {
@@ -810,7 +826,7 @@ public class NetcdfFiles {
       Collections.sort(sortedIosps);
 
       for (IOServiceProvider loadedSpi : sortedIosps) {
-        if (loadedSpi.isValidFile(raf)) {
+        if (probe.isValidFile(loadedSpi)) {
           Class c = loadedSpi.getClass();
           try {
             return (IOServiceProvider) c.newInstance();
@@ -825,6 +841,101 @@ public class NetcdfFiles {
     return null;
   }
 
+  /**
+   * Get how often and for how long each IOServiceProvider was tried by open(), since the start or the last
+   * resetDetectionStats().
+   */
+  public static List<IospDetectionStats> getDetectionStats() {
+    List<IospDetectionStats> result = new ArrayList<>();
+    for (Map.Entry<String, DetectionCounter> entry : detectionCounters.entrySet()) {
+      DetectionCounter counter = entry.getValue();
+      result.add(new IospDetectionStats(entry.getKey(), counter.rejected.sum(), counter.calls.sum(),
+          counter.accepted.sum(), counter.nanos.sum()));
+    }
+    result.sort(Comparator.comparing(IospDetectionStats::getIospClassName));
+    return result;
+  }
+
+  /** Reset the counts returned by getDetectionStats(). */
+  public static void resetDetectionStats() {
+    detectionCounters.clear();
+  }
+
+  private static class DetectionCounter {
+    final LongAdder rejected = new LongAdder();
+    final LongAdder calls = new LongAdder();
+    final LongAdder accepted = new LongAdder();
+    final LongAdder nanos = new LongAdder();
+  }
+
+  // Reads the start of the file once, and checks it against the FileSignatures of each IOSP,
+  // so that isValidFile() is only called on IOSPs that may be able to open it.
+  private static class Probe {
+    private static final int HEAD_SIZE = 8 * 1024; // read this much to start
+    private static final int MAX_HEAD_SIZE = 64 * 1024; // signatures that go further are read on their own
+
+    private final ucar.unidata.io.RandomAccessFile raf;
+    private byte[] head;
+    private int headLength;
+
+    Probe(ucar.unidata.io.RandomAccessFile raf) {
+      this.raf = raf;
+    }
+
+    boolean isValidFile(IOServiceProvider spi) throws IOException {
+      DetectionCounter counter =
+          detectionCounters.computeIfAbsent(spi.getClass().getName(), k -> new DetectionCounter());
+      long start = System.nanoTime();
+      try {
+        List<FileSignature> signatures = spi.getFileSignatures();
+        if (signatures != null && !raf.isDirectory() && !matchesAny(signatures)) {
+          counter.rejected.increment();
+          return false;
+        }
+        counter.calls.increment();
+        boolean valid = spi.isValidFile(raf);
+        if (valid)
+          counter.accepted.increment();
+        return valid;
+      } finally {
+        counter.nanos.add(System.nanoTime() - start);
+      }
+    }
+
+    private boolean matchesAny(List<FileSignature> signatures) throws IOException {
+      long fileLength = raf.length();
+      for (FileSignature signature : signatures) {
+        long end = Math.min(signature.getEnd(), fileLength);
+        if (signature.getOffset() >= end)
+          continue;
+
+        if (end <= MAX_HEAD_SIZE) {
+          readHead((int) end);
+          if (signature.matches(head, 0, headLength))
+            return true;
+
+        } else { // far from the start, read just the bytes it needs
+          byte[] bytes = new byte[(int) (end - signature.getOffset())];
+          raf.seek(signature.getOffset());
+          raf.readFully(bytes);
+          if (signature.matches(bytes, signature.getOffset(), bytes.length))
+            return true;
+        }
+      }
+      return false;
+    }
+
+    // make sure the first want bytes of the file are in head
+    private void readHead(int want) throws IOException {
+      if (head != null && headLength >= want)
+        return;
+      headLength = (int) Math.min(raf.length(), Math.max(want, HEAD_SIZE));
+      head = new byte[headLength];
+      raf.seek(0);
+      raf.readFully(head);
+    }
+  }
+
   public static NetcdfFile build(IOServiceProvider spi, ucar.unidata.io.RandomAccessFile raf, String location,
       ucar.nc2.util.CancelTask cancelTask) throws IOException {
 
@@ -7,13 +7,16 @@ package ucar.nc2.dt.grid;
 
 import ucar.nc2.dataset.CoordinateAxis2D;
 import ucar.ma2.ArrayDouble;
+import ucar.ma2.DataType;
 import ucar.ma2.MAMath;
+import ucar.unidata.geoloc.LatLonCellIndex;
 
 /**
  * 2D Coordinate System has lat(x,y) and lon(x,y).
  * This class implements finding the index (i,j) from (lat, lon) coord.
  * This is for "one-off" computation, not a systematic lookup table for all points in a pixel array.
- * Hueristic search of the 2D space for the cell that contains the point.
+ * The cell that contains the point is found with a {@link LatLonCellIndex}, built the first time it is needed;
+ * the hueristic search of the 2D space is only used for a best guess when the point is not in the grid.
  *
  * @author caron
  * @since Jul 10, 2009
@@ -27,6 +30,7 @@ public class GridCoordinate2D {
   private final int nrows, ncols;
   private ArrayDouble.D2 latEdge, lonEdge;
   private MAMath.MinMax latMinMax, lonMinMax;
+  private LatLonCellIndex index;
 
   GridCoordinate2D(CoordinateAxis2D latCoord, CoordinateAxis2D lonCoord) {
     this.latCoord = latCoord;
@@ -40,12 +44,14 @@ public class GridCoordinate2D {
     ncols = shape[1];
   }
 
-  private void findBounds() {
+  private synchronized void findBounds() {
     if (lonMinMax != null)
       return;
 
     lonEdge = lonCoord.getEdges();
     latEdge = latCoord.getEdges();
+    index = new LatLonCellIndex((double[]) latEdge.get1DJavaArray(DataType.DOUBLE),
+        (double[]) lonEdge.get1DJavaArray(DataType.DOUBLE), nrows, ncols);
 
     // assume missing values have been converted to NaNs
     latMinMax = MAMath.getMinMax(latEdge);
@@ -86,8 +92,20 @@ public class GridCoordinate2D {
     return false;
   }
 
+  /**
+   * Find the index of the cell that contains the given lat,lon point.
+   *
+   * @param wantLat lat of point
+   * @param wantLon lon of point
+   * @param rectIndex return (row,col) index, or best guess here. may not be null
+   *
+   * @return false if not in the grid.
+   */
   public boolean findCoordElement(double wantLat, double wantLon, int[] rectIndex) {
-    return findCoordElementNoForce(wantLat, wantLon, rectIndex);
+    findBounds();
+    if (index.findCell(wantLat, wantLon, rectIndex))
+      return true;
+    return findCoordElementNoForce(wantLat, wantLon, rectIndex); // best guess
   }
 
 
@@ -5,17 +5,110 @@
 
 package ucar.nc2.filter;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
-
-// TODO: Still to be implemented
+/**
+ * Filter implementation of the Blosc meta-compressor, following the c-blosc 1.x frame format as written by
+ * <a href="https://numcodecs.readthedocs.io/en/stable/blosc.html">NumCodecs</a>.
+ * <p>
+ * A Blosc frame is split into blocks that are compressed independently, after an optional byte or bit shuffle.
+ * Decoding supports the blosclz, lz4, lz4hc and zlib compressors; encoding supports lz4, lz4hc and zlib.
+ * The snappy and zstd compressors are not supported. Blocks are decoded in parallel if an Executor has been set.
+ */
 public class Blosc extends Filter {
 
   private static final String name = "blosc";
 
   private static final int id = 32001;
 
-  public Blosc(Map<String, Object> properties) {}
+  public static class Keys {
+    public static final String CNAME_KEY = "cname";
+    public static final String CLEVEL_KEY = "clevel";
+    public static final String SHUFFLE_KEY = "shuffle";
+    public static final String BLOCKSIZE_KEY = "blocksize";
+  }
+
+  // shuffle modes, as defined by NumCodecs
+  public static final int AUTOSHUFFLE = -1;
+  public static final int NOSHUFFLE = 0;
+  public static final int SHUFFLE = 1;
+  public static final int BITSHUFFLE = 2;
+
+  // header layout and flags
+  private static final int HEADER_SIZE = 16;
+  private static final int VERSION_FORMAT = 2;
+  private static final int VERSION_LZ = 1;
+  private static final int FLAG_SHUFFLE = 0x01;
+  private static final int FLAG_MEMCPYED = 0x02;
+  private static final int FLAG_BITSHUFFLE = 0x04;
+  private static final int FLAG_DONT_SPLIT = 0x10;
+
+  // compressor codes stored in the top 3 bits of the flags
+  private static final int BLOSCLZ_FORMAT = 0;
+  private static final int LZ4_FORMAT = 1;
+  private static final int SNAPPY_FORMAT = 2;
+  private static final int ZLIB_FORMAT = 3;
+  private static final int ZSTD_FORMAT = 4;
+
+  private static final int MIN_BUFFERSIZE = 128; // smaller buffers are stored uncompressed
+  private static final int MAX_SPLITS = 16; // larger typesizes are not split into streams
+  private static final int DEFAULT_BLOCKSIZE = 1 << 18;
+
+  private static final String DEFAULT_CNAME = "lz4";
+  private static final int DEFAULT_CLEVEL = 5;
+
+  // experimental multithreading
+  private static Executor executor;
+
+  /**
+   * Decode the blocks of a frame in parallel. The calling thread decodes the blocks that the executor has not yet
+   * started, so it is safe to decode from a task running in the same executor.
+   *
+   * @param exec decodes blocks, or null to decode serially on the calling thread (the default)
+   */
+  public static void setExecutor(Executor exec) {
+    executor = exec;
+  }
+
+  private final String cname;
+  private final int clevel;
+  private final int shuffle;
+  private final int blocksize;
+  private final int typesize;
+
+  public Blosc(Map<String, Object> properties) {
+    Object cnameObj = properties.get(Keys.CNAME_KEY);
+    this.cname = cnameObj == null ? DEFAULT_CNAME : cnameObj.toString();
+    this.clevel = getInt(properties, Keys.CLEVEL_KEY, DEFAULT_CLEVEL);
+    this.shuffle = getInt(properties, Keys.SHUFFLE_KEY, SHUFFLE);
+    this.blocksize = getInt(properties, Keys.BLOCKSIZE_KEY, 0);
+    this.typesize = Math.max(1, getInt(properties, Filters.Keys.ELEM_SIZE, 1));
+    if (clevel < 0 || clevel > 9) {
+      throw new IllegalArgumentException("Invalid compression level: " + clevel);
+    }
+  }
+
+  private static int getInt(Map<String, Object> properties, String key, int defaultValue) {
+    Object value = properties.get(key);
+    if (value instanceof Number) {
+      return ((Number) value).intValue();
+    } else if (value instanceof String) {
+      return Integer.parseInt((String) value);
+    }
+    return defaultValue;
+  }
 
   @Override
   public String getName() {
@@ -27,14 +120,650 @@ public class Blosc extends Filter {
     return id;
   }
 
+  ////////////////////////////////////////////////////
+  // encode
+
   @Override
-  public byte[] encode(byte[] dataIn) {
-    return new byte[0];
+  public byte[] encode(byte[] dataIn) throws IOException {
+    int compformat = getCompressorFormat(cname);
+    if (compformat != LZ4_FORMAT && compformat != ZLIB_FORMAT) {
+      throw new IOException("Blosc: encoding with compressor '" + cname + "' is not supported");
+    }
+
+    int flags = compformat << 5;
+    int doshuffle = shuffle == AUTOSHUFFLE ? (typesize == 1 ? BITSHUFFLE : SHUFFLE) : shuffle;
+    if (doshuffle == SHUFFLE) {
+      flags |= FLAG_SHUFFLE;
+    } else if (doshuffle == BITSHUFFLE) {
+      flags |= FLAG_BITSHUFFLE;
+    }
+
+    int nbytes = dataIn.length;
+    if (nbytes < MIN_BUFFERSIZE || clevel == 0) {
+      return memcpyed(dataIn, flags);
+    }
+
+    int bsize = blocksize > 0 ? blocksize : DEFAULT_BLOCKSIZE;
+    bsize = Math.min(bsize, nbytes);
+    if (bsize > typesize) {
+      bsize -= bsize % typesize;
+    }
+    int nblocks = nbytes / bsize + (nbytes % bsize > 0 ? 1 : 0);
+    if (!splitBlock(typesize, bsize)) {
+      flags |= FLAG_DONT_SPLIT;
+    }
+
+    // worst case is every stream stored uncompressed, with its 4 byte size
+    byte[] out = new byte[HEADER_SIZE + 4 * nblocks + nbytes + 4 * nblocks * Math.min(typesize, MAX_SPLITS)];
+    byte[] shuffled = new byte[bsize];
+    int pos = HEADER_SIZE + 4 * nblocks;
+    for (int b = 0; b < nblocks; b++) {
+      putInt(out, HEADER_SIZE + 4 * b, pos);
+      int start = b * bsize;
+      int len = Math.min(bsize, nbytes - start);
+      boolean leftover = len < bsize;
+
+      // shuffle
+      if ((flags & FLAG_SHUFFLE) != 0) {
+        shuffle(typesize, len, dataIn, start, shuffled, 0);
+      } else if ((flags & FLAG_BITSHUFFLE) != 0) {
+        bitshuffle(typesize, len, dataIn, start, shuffled, 0);
+      } else {
+        System.arraycopy(dataIn, start, shuffled, 0, len);
+      }
+
+      // compress each stream
+      int nsplits = ((flags & FLAG_DONT_SPLIT) == 0 && !leftover) ? typesize : 1;
+      int neblock = len / nsplits;
+      for (int j = 0; j < nsplits; j++) {
+        int cbytes = compformat == LZ4_FORMAT ? LZ4.compress(shuffled, j * neblock, neblock, out, pos + 4)
+            : zlibCompress(shuffled, j * neblock, neblock, out, pos + 4, clevel);
+        if (cbytes <= 0 || cbytes >= neblock) {
+          // incompressible, store as is
+          System.arraycopy(shuffled, j * neblock, out, pos + 4, neblock);
+          cbytes = neblock;
+        }
+        putInt(out, pos, cbytes);
+        pos += 4 + cbytes;
+      }
+      if (pos > nbytes + HEADER_SIZE) {
+        return memcpyed(dataIn, flags); // compression did not pay off
+      }
+    }
+
+    writeHeader(out, flags, nbytes, bsize, pos);
+    return Arrays.copyOf(out, pos);
+  }
+
+  private byte[] memcpyed(byte[] dataIn, int flags) {
+    byte[] out = new byte[HEADER_SIZE + dataIn.length];
+    writeHeader(out, flags | FLAG_MEMCPYED, dataIn.length, dataIn.length, out.length);
+    System.arraycopy(dataIn, 0, out, HEADER_SIZE, dataIn.length);
+    return out;
   }
 
+  private void writeHeader(byte[] out, int flags, int nbytes, int bsize, int cbytes) {
+    out[0] = VERSION_FORMAT;
+    out[1] = VERSION_LZ;
+    out[2] = (byte) flags;
+    out[3] = (byte) typesize;
+    putInt(out, 4, nbytes);
+    putInt(out, 8, bsize);
+    putInt(out, 12, cbytes);
+  }
+
+  private static int zlibCompress(byte[] src, int srcPos, int len, byte[] dest, int destPos, int level) {
+    Deflater deflater = new Deflater(level);
+    try {
+      deflater.setInput(src, srcPos, len);
+      deflater.finish();
+      // leave room to detect output that is no smaller than the input
+      int n = deflater.deflate(dest, destPos, len);
+      return deflater.finished() ? n : -1;
+    } finally {
+      deflater.end();
+    }
+  }
+
+  ////////////////////////////////////////////////////
+  // decode
+
   @Override
-  public byte[] decode(byte[] dataIn) {
-    return new byte[0];
+  public byte[] decode(byte[] dataIn) throws IOException {
+    if (dataIn.length < HEADER_SIZE) {
+      throw new IOException("Blosc: buffer too small for header");
+    }
+    final int version = dataIn[0] & 0xff;
+    final int flags = dataIn[2] & 0xff;
+    final int frameTypesize = dataIn[3] & 0xff;
+    final int nbytes = getInt(dataIn, 4);
+    final int bsize = getInt(dataIn, 8);
+    final int cbytes = getInt(dataIn, 12);
+    if (nbytes < 0 || cbytes > dataIn.length) {
+      throw new IOException("Blosc: invalid header");
+    }
+
+    byte[] dataOut = new byte[nbytes];
+    if (nbytes == 0) {
+      return dataOut;
+    }
+    if ((flags & FLAG_MEMCPYED) != 0) {
+      if (nbytes + HEADER_SIZE > dataIn.length) {
+        throw new IOException("Blosc: truncated buffer");
+      }
+      System.arraycopy(dataIn, HEADER_SIZE, dataOut, 0, nbytes);
+      return dataOut;
+    }
+    if (bsize <= 0) {
+      throw new IOException("Blosc: invalid block size " + bsize);
+    }
+
+    final int compformat = (flags & 0xe0) >> 5;
+    if (compformat == SNAPPY_FORMAT || compformat == ZSTD_FORMAT || compformat > ZSTD_FORMAT) {
+      throw new IOException("Blosc: compressor " + getCompressorName(compformat) + " is not supported");
+    }
+
+    int nblocks = nbytes / bsize + (nbytes % bsize > 0 ? 1 : 0);
+    if (executor == null || nblocks == 1) {
+      byte[] tmp = new byte[bsize];
+      for (int b = 0; b < nblocks; b++) {
+        decodeBlock(dataIn, dataOut, b, nblocks, version, flags, frameTypesize, bsize, compformat, tmp);
+      }
+      return dataOut;
+    }
+
+    // decode blocks in parallel, each into its own part of dataOut
+    List<FutureTask<Void>> tasks = new ArrayList<>(nblocks);
+    for (int b = 0; b < nblocks; b++) {
+      final int block = b;
+      FutureTask<Void> task = new FutureTask<>(() -> {
+        decodeBlock(dataIn, dataOut, block, nblocks, version, flags, frameTypesize, bsize, compformat, new byte[bsize]);
+        return null;
+      });
+      try {
+        executor.execute(task);
+      } catch (RejectedExecutionException e) {
+        // run below, on this thread
+      }
+      tasks.add(task);
+    }
+    try {
+      for (FutureTask<Void> task : tasks) {
+        // run blocks that the executor has not started here, so that this doesnt wait for a busy executor,
+        // or deadlock if this thread is one of its workers; run() does nothing if the block is already started
+        task.run();
+        task.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while decoding Blosc blocks");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException(cause);
+    }
+    return dataOut;
+  }
+
+  private static void decodeBlock(byte[] src, byte[] dest, int block, int nblocks, int version, int flags,
+      int typesize, int bsize, int compformat, byte[] tmp) throws IOException {
+    int destPos = block * bsize;
+    int len = Math.min(bsize, dest.length - destPos);
+    boolean leftover = len < bsize;
+    boolean doshuffle = (flags & FLAG_SHUFFLE) != 0 && typesize > 1;
+    boolean dobitshuffle = (flags & FLAG_BITSHUFFLE) != 0 && len >= typesize;
+
+    // decompress into tmp if the block must be unshuffled afterwards
+    byte[] target = (doshuffle || dobitshuffle) ? tmp : dest;
+    int targetPos = (doshuffle || dobitshuffle) ? 0 : destPos;
+
+    int nsplits = ((flags & FLAG_DONT_SPLIT) == 0 && !leftover && splitBlock(typesize, bsize)) ? typesize : 1;
+    int neblock = len / nsplits;
+    int pos = getInt(src, HEADER_SIZE + 4 * block);
+    for (int j = 0; j < nsplits; j++) {
+      if (pos + 4 > src.length) {
+        throw new IOException("Blosc: truncated buffer");
+      }
+      int cbytes = getInt(src, pos);
+      pos += 4;
+      if (cbytes < 0 || pos + cbytes > src.length) {
+        throw new IOException("Blosc: truncated buffer");
+      }
+      if (cbytes == neblock) {
+        System.arraycopy(src, pos, target, targetPos, neblock);
+      } else {
+        int n;
+        switch (compformat) {
+          case BLOSCLZ_FORMAT:
+            n = BloscLZ.decompress(src, pos, cbytes, target, targetPos, neblock);
+            break;
+          case LZ4_FORMAT:
+            n = LZ4.decompress(src, pos, cbytes, target, targetPos, neblock);
+            break;
+          case ZLIB_FORMAT:
+            n = zlibDecompress(src, pos, cbytes, target, targetPos, neblock);
+            break;
+          default:
+            throw new IOException("Blosc: compressor " + getCompressorName(compformat) + " is not supported");
+        }
+        if (n != neblock) {
+          throw new IOException("Blosc: corrupted block " + block + " of " + nblocks);
+        }
+      }
+      pos += cbytes;
+      targetPos += neblock;
+    }
+
+    if (doshuffle) {
+      unshuffle(typesize, len, tmp, 0, dest, destPos);
+    } else if (dobitshuffle) {
+      bitunshuffle(typesize, len, tmp, 0, dest, destPos, version);
+    }
+  }
+
+  private static int zlibDecompress(byte[] src, int srcPos, int len, byte[] dest, int destPos, int maxout)
+      throws IOException {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(src, srcPos, len);
+      int n = 0;
+      while (n < maxout && !inflater.finished()) {
+        int count = inflater.inflate(dest, destPos + n, maxout - n);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        n += count;
+      }
+      return n;
+    } catch (DataFormatException e) {
+      throw new IOException(e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  ////////////////////////////////////////////////////
+  // helpers
+
+  /** Blocks are split into one stream per byte of the type, unless the type is large or the block is small */
+  private static boolean splitBlock(int typesize, int bsize) {
+    return typesize <= MAX_SPLITS && bsize / typesize >= MIN_BUFFERSIZE;
+  }
+
+  private static int getCompressorFormat(String cname) {
+    switch (cname) {
+      case "blosclz":
+        return BLOSCLZ_FORMAT;
+      case "lz4":
+      case "lz4hc":
+        return LZ4_FORMAT;
+      case "snappy":
+        return SNAPPY_FORMAT;
+      case "zlib":
+        return ZLIB_FORMAT;
+      case "zstd":
+        return ZSTD_FORMAT;
+      default:
+        throw new IllegalArgumentException("Blosc: unknown compressor " + cname);
+    }
+  }
+
+  private static String getCompressorName(int compformat) {
+    switch (compformat) {
+      case BLOSCLZ_FORMAT:
+        return "blosclz";
+      case LZ4_FORMAT:
+        return "lz4";
+      case SNAPPY_FORMAT:
+        return "snappy";
+      case ZLIB_FORMAT:
+        return "zlib";
+      case ZSTD_FORMAT:
+        return "zstd";
+      default:
+        return "unknown (" + compformat + ")";
+    }
+  }
+
+  private static int getInt(byte[] b, int pos) {
+    return (b[pos] & 0xff) | (b[pos + 1] & 0xff) << 8 | (b[pos + 2] & 0xff) << 16 | (b[pos + 3] & 0xff) << 24;
+  }
+
+  private static void putInt(byte[] b, int pos, int value) {
+    b[pos] = (byte) value;
+    b[pos + 1] = (byte) (value >>> 8);
+    b[pos + 2] = (byte) (value >>> 16);
+    b[pos + 3] = (byte) (value >>> 24);
+  }
+
+  private static long getLong(byte[] b, int pos) {
+    return (getInt(b, pos) & 0xffffffffL) | ((long) getInt(b, pos + 4)) << 32;
+  }
+
+  ////////////////////////////////////////////////////
+  // byte and bit shuffle
+
+  static void shuffle(int typesize, int len, byte[] src, int srcPos, byte[] dest, int destPos) {
+    int nelems = len / typesize;
+    for (int j = 0; j < typesize; j++) {
+      for (int i = 0; i < nelems; i++) {
+        dest[destPos + j * nelems + i] = src[srcPos + i * typesize + j];
+      }
+    }
+    int done = nelems * typesize;
+    System.arraycopy(src, srcPos + done, dest, destPos + done, len - done);
+  }
+
+  static void unshuffle(int typesize, int len, byte[] src, int srcPos, byte[] dest, int destPos) {
+    int nelems = len / typesize;
+    for (int j = 0; j < typesize; j++) {
+      for (int i = 0; i < nelems; i++) {
+        dest[destPos + i * typesize + j] = src[srcPos + j * nelems + i];
+      }
+    }
+    int done = nelems * typesize;
+    System.arraycopy(src, srcPos + done, dest, destPos + done, len - done);
+  }
+
+  /*
+   * Bit shuffle transposes the bits of each group of 8 elements, following the bitshuffle library used by c-blosc.
+   * Only a multiple of 8 elements is shuffled; in format version 2 a block that is not a multiple of 8 elements is not
+   * shuffled at all.
+   */
+  static void bitshuffle(int typesize, int len, byte[] src, int srcPos, byte[] dest, int destPos) {
+    int nelems = len / typesize;
+    if (nelems % 8 != 0) {
+      System.arraycopy(src, srcPos, dest, destPos, len);
+      return;
+    }
+    int nbyte = nelems * typesize;
+    byte[] tmp = new byte[nbyte];
+    // transpose bytes
+    shuffle(typesize, nbyte, src, srcPos, dest, destPos);
+    // transpose bits within bytes
+    int nbyteBitrow = nbyte / 8;
+    for (int i = 0; i < nbyteBitrow; i++) {
+      long x = transposeBits8x8(getLong(dest, destPos + i * 8));
+      for (int k = 0; k < 8; k++) {
+        tmp[k * nbyteBitrow + i] = (byte) x;
+        x >>>= 8;
+      }
+    }
+    // transpose bit rows
+    int nbyteRow = nelems / 8;
+    for (int i = 0; i < 8; i++) {
+      for (int j = 0; j < typesize; j++) {
+        System.arraycopy(tmp, (i * typesize + j) * nbyteRow, dest, destPos + (j * 8 + i) * nbyteRow, nbyteRow);
+      }
+    }
+    System.arraycopy(src, srcPos + nbyte, dest, destPos + nbyte, len - nbyte);
+  }
+
+  static void bitunshuffle(int typesize, int len, byte[] src, int srcPos, byte[] dest, int destPos, int version) {
+    int nelems = len / typesize;
+    if (version <= VERSION_FORMAT && nelems % 8 != 0) {
+      System.arraycopy(src, srcPos, dest, destPos, len);
+      return;
+    }
+    nelems -= nelems % 8;
+    int nbyte = nelems * typesize;
+    byte[] tmp = new byte[nbyte];
+    // transpose bit rows back into bytes
+    int nbyteRow = nelems / 8;
+    for (int i = 0; i < 8; i++) {
+      for (int j = 0; j < typesize; j++) {
+        for (int k = 0; k < nbyteRow; k++) {
+          tmp[k * 8 * typesize + j * 8 + i] = src[srcPos + (j * 8 + i) * nbyteRow + k];
+        }
+      }
+    }
+    // transpose bits of each group of 8 elements
+    for (int j = 0; j < 8 * typesize; j += 8) {
+      for (int i = 0; i + 8 * typesize - 1 < nbyte; i += 8 * typesize) {
+        long x = transposeBits8x8(getLong(tmp, i + j));
+        for (int k = 0; k < 8; k++) {
+          dest[destPos + i + j / 8 + k * typesize] = (byte) x;
+          x >>>= 8;
+        }
+      }
+    }
+    System.arraycopy(src, srcPos + nbyte, dest, destPos + nbyte, len - nbyte);
+  }
+
+  private static long transposeBits8x8(long x) {
+    long t = (x ^ (x >>> 7)) & 0x00AA00AA00AA00AAL;
+    x = x ^ t ^ (t << 7);
+    t = (x ^ (x >>> 14)) & 0x0000CCCC0000CCCCL;
+    x = x ^ t ^ (t << 14);
+    t = (x ^ (x >>> 28)) & 0x00000000F0F0F0F0L;
+    return x ^ t ^ (t << 28);
+  }
+
+  ////////////////////////////////////////////////////
+  // codecs
+
+  /**
+   * The LZ4 block format, see https://github.com/lz4/lz4/blob/dev/doc/lz4_Block_format.md
+   */
+  static class LZ4 {
+    private static final int MIN_MATCH = 4;
+    private static final int MF_LIMIT = 12; // last match must start this far from the end
+    private static final int LAST_LITERALS = 5; // last bytes are always literals
+    private static final int MAX_DISTANCE = 65535;
+    private static final int HASH_LOG = 12;
+
+    /**
+     * Compress src into dest, which must have room for len bytes.
+     *
+     * @return number of compressed bytes, or -1 if they do not fit in len bytes
+     */
+    static int compress(byte[] src, int srcPos, int len, byte[] dest, int destPos) {
+      int[] table = new int[1 << HASH_LOG];
+      Arrays.fill(table, -1);
+      int end = srcPos + len;
+      int destEnd = destPos + len;
+      int op = destPos;
+      int anchor = srcPos;
+      int ip = srcPos;
+      int mfLimit = end - MF_LIMIT;
+      int matchLimit = end - LAST_LITERALS;
+
+      while (ip < mfLimit) {
+        int seq = getInt(src, ip);
+        int h = (seq * -1640531535) >>> (32 - HASH_LOG);
+        int ref = table[h];
+        table[h] = ip;
+        if (ref < 0 || ip - ref > MAX_DISTANCE || getInt(src, ref) != seq) {
+          ip++;
+          continue;
+        }
+        int matchLen = MIN_MATCH;
+        while (ip + matchLen < matchLimit && src[ref + matchLen] == src[ip + matchLen]) {
+          matchLen++;
+        }
+        op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLen, dest, op, destEnd);
+        if (op < 0) {
+          return -1;
+        }
+        ip += matchLen;
+        anchor = ip;
+      }
+      op = writeSequence(src, anchor, end - anchor, 0, 0, dest, op, destEnd);
+      return op < 0 ? -1 : op - destPos;
+    }
+
+    private static int writeSequence(byte[] src, int litPos, int litLen, int offset, int matchLen, byte[] dest, int op,
+        int destEnd) {
+      if (op + 1 + litLen / 255 + 1 + litLen + 2 + matchLen / 255 + 1 > destEnd) {
+        return -1;
+      }
+      int token = Math.min(litLen, 15) << 4;
+      if (matchLen > 0) {
+        token |= Math.min(matchLen - MIN_MATCH, 15);
+      }
+      dest[op++] = (byte) token;
+      op = writeLength(litLen, dest, op);
+      System.arraycopy(src, litPos, dest, op, litLen);
+      op += litLen;
+      if (matchLen > 0) {
+        dest[op++] = (byte) offset;
+        dest[op++] = (byte) (offset >>> 8);
+        op = writeLength(matchLen - MIN_MATCH, dest, op);
+      }
+      return op;
+    }
+
+    private static int writeLength(int len, byte[] dest, int op) {
+      if (len >= 15) {
+        len -= 15;
+        while (len >= 255) {
+          dest[op++] = (byte) 255;
+          len -= 255;
+        }
+        dest[op++] = (byte) len;
+      }
+      return op;
+    }
+
+    /**
+     * Decompress len bytes of src into dest, writing no more than maxout bytes.
+     *
+     * @return number of decompressed bytes
+     */
+    static int decompress(byte[] src, int srcPos, int len, byte[] dest, int destPos, int maxout) throws IOException {
+      int ip = srcPos;
+      int end = srcPos + len;
+      int op = destPos;
+      int opEnd = destPos + maxout;
+      try {
+        while (ip < end) {
+          int token = src[ip++] & 0xff;
+          // literals
+          int litLen = token >>> 4;
+          if (litLen == 15) {
+            int b;
+            do {
+              b = src[ip++] & 0xff;
+              litLen += b;
+            } while (b == 255);
+          }
+          if (op + litLen > opEnd || ip + litLen > end) {
+            throw new IOException("LZ4: corrupted input");
+          }
+          System.arraycopy(src, ip, dest, op, litLen);
+          ip += litLen;
+          op += litLen;
+          if (ip >= end) {
+            break; // last sequence has no match
+          }
+
+          // match
+          int offset = (src[ip] & 0xff) | (src[ip + 1] & 0xff) << 8;
+          ip += 2;
+          int matchLen = token & 0x0f;
+          if (matchLen == 15) {
+            int b;
+            do {
+              b = src[ip++] & 0xff;
+              matchLen += b;
+            } while (b == 255);
+          }
+          matchLen += MIN_MATCH;
+          int ref = op - offset;
+          if (offset == 0 || ref < destPos || op + matchLen > opEnd) {
+            throw new IOException("LZ4: corrupted input");
+          }
+          copyMatch(dest, ref, op, matchLen);
+          op += matchLen;
+        }
+      } catch (ArrayIndexOutOfBoundsException e) {
+        throw new IOException("LZ4: corrupted input", e);
+      }
+      return op - destPos;
+    }
+  }
+
+  /**
+   * The BloscLZ format, a variant of FastLZ level 1.
+   */
+  static class BloscLZ {
+    private static final int MAX_DISTANCE = 8191;
+
+    /**
+     * Decompress len bytes of src into dest, writing no more than maxout bytes.
+     *
+     * @return number of decompressed bytes
+     */
+    static int decompress(byte[] src, int srcPos, int len, byte[] dest, int destPos, int maxout) throws IOException {
+      int ip = srcPos;
+      int end = srcPos + len;
+      int op = destPos;
+      int opEnd = destPos + maxout;
+      try {
+        int ctrl = src[ip++] & 31;
+        while (true) {
+          if (ctrl >= 32) {
+            // match
+            int matchLen = (ctrl >>> 5) - 1;
+            int ofs = (ctrl & 31) << 8;
+            if (matchLen == 7 - 1) {
+              int code;
+              do {
+                code = src[ip++] & 0xff;
+                matchLen += code;
+              } while (code == 255);
+            }
+            int code = src[ip++] & 0xff;
+            matchLen += 3;
+            int distance = ofs + code + 1;
+            if (code == 255 && ofs == (31 << 8)) {
+              // 16 bit distance
+              distance = ((src[ip] & 0xff) << 8) + (src[ip + 1] & 0xff) + MAX_DISTANCE + 1;
+              ip += 2;
+            }
+            int ref = op - distance;
+            if (ref < destPos || op + matchLen > opEnd) {
+              throw new IOException("BloscLZ: corrupted input");
+            }
+            copyMatch(dest, ref, op, matchLen);
+            op += matchLen;
+            if (ip >= end) {
+              break;
+            }
+            ctrl = src[ip++] & 0xff;
+          } else {
+            // literal run
+            ctrl++;
+            if (op + ctrl > opEnd || ip + ctrl > end) {
+              throw new IOException("BloscLZ: corrupted input");
+            }
+            System.arraycopy(src, ip, dest, op, ctrl);
+            ip += ctrl;
+            op += ctrl;
+            if (ip >= end) {
+              break;
+            }
+            ctrl = src[ip++] & 0xff;
+          }
+        }
+      } catch (ArrayIndexOutOfBoundsException e) {
+        throw new IOException("BloscLZ: corrupted input", e);
+      }
+      return op - destPos;
+    }
+  }
+
+  /** copy a match that may overlap its destination, byte by byte */
+  private static void copyMatch(byte[] dest, int ref, int op, int len) {
+    if (op - ref >= len) {
+      System.arraycopy(dest, ref, dest, op, len);
+    } else {
+      for (int i = 0; i < len; i++) {
+        dest[op + i] = dest[ref + i];
+      }
+    }
   }
 
   public static class Provider implements FilterProvider {
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.filter;
+
+import com.google.common.collect.MapMaker;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe pool of heap ByteBuffers, used to reuse the intermediate buffers of a filter chain.
+ * Buffers are kept in power of two size classes, and the pool holds at most a fixed number of bytes;
+ * buffers released beyond that are left to the garbage collector.
+ * Only buffers handed out by {@link #acquire(int)} are taken back, so releasing any other buffer is harmless.
+ */
+public class BufferPool {
+
+  private static final int MIN_POOLED_SIZE = 1024; // smaller buffers are cheap to allocate
+  private static final long DEFAULT_MAX_POOLED_BYTES = 64L * 1024 * 1024;
+
+  private static final BufferPool defaultPool = new BufferPool(DEFAULT_MAX_POOLED_BYTES);
+
+  /**
+   * @return the pool shared by the filter chains of the IOSPs
+   */
+  public static BufferPool getDefault() {
+    return defaultPool;
+  }
+
+  private final long maxPooledBytes;
+  private final AtomicLong pooledBytes = new AtomicLong();
+  private final Queue<ByteBuffer>[] sizeClasses;
+  // buffers handed out and not yet released, by identity; weak so that buffers never released are not leaked
+  private final Set<ByteBuffer> acquired = Collections.newSetFromMap(new MapMaker().weakKeys().makeMap());
+
+  /**
+   * @param maxPooledBytes maximum total capacity of the buffers held by the pool
+   */
+  @SuppressWarnings("unchecked")
+  public BufferPool(long maxPooledBytes) {
+    this.maxPooledBytes = maxPooledBytes;
+    this.sizeClasses = new Queue[32];
+    for (int i = 0; i < sizeClasses.length; i++) {
+      sizeClasses[i] = new ConcurrentLinkedQueue<>();
+    }
+  }
+
+  /**
+   * Get a buffer from the pool, or allocate one if none is available.
+   *
+   * @param size number of bytes needed
+   * @return a big endian heap buffer with position 0 and limit size; its capacity may be larger
+   */
+  public ByteBuffer acquire(int size) {
+    if (size < MIN_POOLED_SIZE) {
+      return ByteBuffer.allocate(size);
+    }
+    int sizeClass = sizeClass(size);
+    ByteBuffer bb = sizeClass < sizeClasses.length ? sizeClasses[sizeClass].poll() : null;
+    if (bb == null) {
+      // round up so the buffer can be reused for any size in its class
+      bb = ByteBuffer.allocate(sizeClass < 31 ? 1 << sizeClass : Integer.MAX_VALUE - 8);
+    } else {
+      pooledBytes.addAndGet(-bb.capacity());
+    }
+    bb.clear();
+    bb.order(ByteOrder.BIG_ENDIAN);
+    bb.limit(size);
+    acquired.add(bb);
+    return bb;
+  }
+
+  /**
+   * Return a buffer to the pool. The caller must not use it afterwards.
+   *
+   * @param bb a buffer obtained from {@link #acquire(int)}; null, or any other buffer, is ignored
+   */
+  public void release(ByteBuffer bb) {
+    if (bb == null || !acquired.remove(bb)) {
+      return; // not one of ours, or already released
+    }
+    if (pooledBytes.addAndGet(bb.capacity()) > maxPooledBytes) {
+      pooledBytes.addAndGet(-bb.capacity());
+      return;
+    }
+    sizeClasses[sizeClass(bb.capacity())].offer(bb);
+  }
+
+  /**
+   * @return total capacity of the buffers currently held by the pool
+   */
+  public long getPooledBytes() {
+    return pooledBytes.get();
+  }
+
+  // smallest n such that 2^n >= size
+  private static int sizeClass(int size) {
+    return 32 - Integer.numberOfLeadingZeros(size - 1);
+  }
+}
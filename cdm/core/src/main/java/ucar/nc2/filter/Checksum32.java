@@ -7,6 +7,10 @@ package ucar.nc2.filter;
 
 import com.google.common.primitives.Ints;
 
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Map;
 import java.util.zip.Adler32;
 import java.util.zip.CRC32;
@@ -85,7 +89,43 @@ public class Checksum32 extends Filter {
     return dataOut;
   }
 
+  @Override
+  public void decode(ByteBuffer src, ByteBuffer dst) throws IOException {
+    if (!src.hasArray()) {
+      super.decode(src, dst);
+      return;
+    }
+    int dataLength = src.remaining() - nbytes;
+    if (dst.remaining() < dataLength) {
+      throw new BufferOverflowException();
+    }
+    // Adler and CRC are supported by Zarr, which follows the NumCodec spec with a checksum before the data
+    // Fletcher is support by hdf5, which has the checksum after the data
+    int dataStart = src.position() + (this.type == CType.FLETCHER ? 0 : nbytes);
+    int checksumStart = this.type == CType.FLETCHER ? src.position() + dataLength : src.position();
+    // verify checksum
+    int checksum = (int) getChecksum(src.array(), src.arrayOffset() + dataStart, dataLength);
+    int i = src.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(checksumStart);
+    if (i != checksum) {
+      throw new RuntimeException("Checksum invalid");
+    }
+    // copy data
+    ByteBuffer data = src.duplicate();
+    data.limit(dataStart + dataLength).position(dataStart);
+    dst.put(data);
+    src.position(src.limit());
+  }
+
+  @Override
+  public int getDecodedSize(ByteBuffer src, int sizeHint) {
+    return src.remaining() - nbytes;
+  }
+
   private long getChecksum(byte[] data) {
+    return getChecksum(data, 0, data.length);
+  }
+
+  private long getChecksum(byte[] data, int offset, int length) {
     Checksum checksum;
     switch (type) {
       case ADLER:
@@ -99,7 +139,7 @@ public class Checksum32 extends Filter {
         checksum = new Fletcher32();
         break;
     }
-    checksum.update(data, 0, data.length);
+    checksum.update(data, offset, length);
     return checksum.getValue();
   }
 
@@ -117,7 +157,7 @@ public class Checksum32 extends Filter {
         throw new ArrayIndexOutOfBoundsException();
       }
 
-      int i = 0;
+      int i = off;
       int end = len / 2;
       while (end > 0) {
         int blocklen = end > 360 ? 360 : end;
@@ -134,7 +174,7 @@ public class Checksum32 extends Filter {
 
       // handle odd # of bytes
       if (len % 2 > 0) {
-        sum1 += (b[len - 1] & 0xff) << 8;
+        sum1 += (b[off + len - 1] & 0xff) << 8;
         sum2 += sum1;
         sum1 = (sum1 & 0xffff) + (sum1 >>> 16);
         sum2 = (sum2 & 0xffff) + (sum2 >>> 16);
@@ -8,7 +8,10 @@ package ucar.nc2.filter;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
@@ -27,6 +30,9 @@ public class Deflate extends Filter {
 
   private final int clevel; // compression level
 
+  // Inflaters hold native memory, so reuse one per thread rather than creating one per chunk
+  private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
   public Deflate(Map<String, Object> properties) {
     final Object levelObj = properties.get("level");
     if (levelObj == null) {
@@ -70,8 +76,11 @@ public class Deflate extends Filter {
   @Override
   public byte[] decode(byte[] dataIn) throws IOException {
     int len = Math.min(8 * dataIn.length, MAX_ARRAY_LEN);
+    Inflater inflater = inflaters.get();
+    inflater.reset();
+    // the stream does not end an Inflater it was given, so the thread's Inflater stays usable
     try (ByteArrayInputStream in = new ByteArrayInputStream(dataIn);
-        InflaterInputStream iis = new InflaterInputStream(in, new Inflater(), dataIn.length);
+        InflaterInputStream iis = new InflaterInputStream(in, inflater, Math.max(dataIn.length, 1));
         ByteArrayOutputStream os = new ByteArrayOutputStream(len)) {
 
       IO.copyB(iis, os, IO.default_socket_buffersize);
@@ -80,6 +89,45 @@ public class Deflate extends Filter {
     }
   }
 
+  @Override
+  public void decode(ByteBuffer src, ByteBuffer dst) throws IOException {
+    if (!src.hasArray() || !dst.hasArray()) {
+      super.decode(src, dst);
+      return;
+    }
+
+    Inflater inflater = inflaters.get();
+    inflater.reset();
+    inflater.setInput(src.array(), src.arrayOffset() + src.position(), src.remaining());
+    try {
+      while (!inflater.finished()) {
+        if (!dst.hasRemaining()) {
+          // the stream may end exactly at the end of dst; anything more will not fit
+          if (inflater.inflate(new byte[1]) > 0) {
+            throw new BufferOverflowException();
+          }
+          break;
+        }
+        int n = inflater.inflate(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("Deflate: truncated or corrupt data");
+        }
+        dst.position(dst.position() + n);
+      }
+    } catch (DataFormatException e) {
+      throw new IOException(e);
+    }
+    src.position(src.limit() - inflater.getRemaining());
+  }
+
+  /**
+   * The decoded size of deflated data is not stored, so this returns the caller's hint.
+   */
+  @Override
+  public int getDecodedSize(ByteBuffer src, int sizeHint) {
+    return sizeHint;
+  }
+
   public static class Provider implements FilterProvider {
 
     @Override
@@ -6,6 +6,8 @@
 package ucar.nc2.filter;
 
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Formatter;
 import java.util.Map;
@@ -23,6 +25,32 @@ public abstract class Filter {
 
   public abstract byte[] decode(byte[] dataIn) throws IOException;
 
+  /**
+   * Decode the remaining bytes of src into dst, without allocating intermediate arrays.
+   * Filters that can decode in place override this; the default adapts {@link #decode(byte[])}.
+   *
+   * @param src encoded data from its position to its limit; on return its position is past the consumed bytes
+   * @param dst receives the decoded data starting at its position; on return its position is past the written bytes
+   * @throws BufferOverflowException if dst does not have enough space remaining
+   */
+  public void decode(ByteBuffer src, ByteBuffer dst) throws IOException {
+    byte[] dataIn = new byte[src.remaining()];
+    src.get(dataIn);
+    dst.put(decode(dataIn));
+  }
+
+  /**
+   * The number of bytes that decoding src will produce, used to size the destination buffer for
+   * {@link #decode(ByteBuffer, ByteBuffer)}.
+   *
+   * @param src encoded data from its position to its limit, not modified
+   * @param sizeHint the decoded size expected by the caller, or -1 if unknown
+   * @return the decoded size, an upper bound on it, or -1 if it cannot be known before decoding
+   */
+  public int getDecodedSize(ByteBuffer src, int sizeHint) {
+    return -1;
+  }
+
   public String toString() {
     Formatter f = new Formatter();
     return f.format("Name: %s, ID: %d", getName(), getId()).toString();
@@ -5,6 +5,9 @@
 
 package ucar.nc2.filter;
 
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.ServiceLoader;
 
@@ -80,6 +83,45 @@ public class Filters {
     throw new UnknownFilterException(id);
   }
 
+  /**
+   * Apply one filter of a decoding chain to a buffer, without intermediate copies when the filter supports
+   * {@link Filter#decode(ByteBuffer, ByteBuffer)}. If src came from {@link BufferPool#acquire(int)} it is released
+   * to the pool, otherwise it is left alone, so a caller's buffer may be passed in and used again afterwards.
+   * Intermediate results come from the pool, while the last result is freshly allocated since it is handed to the
+   * caller.
+   *
+   * @param filter the filter to apply
+   * @param src encoded data, from its position to its limit
+   * @param sizeHint the expected decoded size, eg the size of a chunk, or -1 if unknown
+   * @param last true if this is the last filter of the chain
+   * @return the decoded data, from position 0 to its limit
+   */
+  public static ByteBuffer decode(Filter filter, ByteBuffer src, int sizeHint, boolean last) throws IOException {
+    BufferPool pool = BufferPool.getDefault();
+    int size = filter.getDecodedSize(src, sizeHint);
+    if (size >= 0) {
+      int start = src.position();
+      ByteBuffer dst = last ? ByteBuffer.allocate(size) : pool.acquire(size);
+      try {
+        filter.decode(src, dst);
+        pool.release(src);
+        dst.flip();
+        return dst;
+      } catch (BufferOverflowException e) {
+        // decoded size was underestimated, fall through to the array path
+        if (!last) {
+          pool.release(dst);
+        }
+        src.position(start);
+      }
+    }
+
+    byte[] in = new byte[src.remaining()];
+    src.get(in);
+    pool.release(src);
+    return ByteBuffer.wrap(filter.decode(in));
+  }
+
   /**
    * A filter which passes data through unchanged
    */
@@ -108,5 +150,15 @@ public class Filters {
     public byte[] decode(byte[] dataIn) {
       return dataIn;
     }
+
+    @Override
+    public void decode(ByteBuffer src, ByteBuffer dst) {
+      dst.put(src);
+    }
+
+    @Override
+    public int getDecodedSize(ByteBuffer src, int sizeHint) {
+      return src.remaining();
+    }
   }
 }
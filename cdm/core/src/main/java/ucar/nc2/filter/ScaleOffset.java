@@ -178,6 +178,33 @@ public class ScaleOffset extends Filter implements Enhancement {
     return FilterHelpers.arrayToBytes(out, dtype, dtypeOrder);
   }
 
+  @Override
+  public void decode(ByteBuffer src, ByteBuffer dst) {
+    if (scale == DEFAULT_SCALE && offset == DEFAULT_OFFSET) {
+      dst.put(src);
+      return;
+    }
+    int nElems = src.remaining() / astype.getSize();
+    if (dst.remaining() < nElems * dtype.getSize()) {
+      throw new BufferOverflowException();
+    }
+    ByteBuffer in = src.slice().order(astypeOrder);
+    ByteBuffer out = dst.slice().order(dtypeOrder);
+    for (int i = 0; i < nElems; i++) {
+      putValue(out, dtype, convert(getValue(in, astype)));
+    }
+    src.position(src.position() + in.position());
+    dst.position(dst.position() + out.position());
+  }
+
+  @Override
+  public int getDecodedSize(ByteBuffer src, int sizeHint) {
+    if (scale == DEFAULT_SCALE && offset == DEFAULT_OFFSET) {
+      return src.remaining();
+    }
+    return src.remaining() / astype.getSize() * dtype.getSize();
+  }
+
   public Array applyScaleOffset(Array in) {
     if (scale == DEFAULT_SCALE && offset == DEFAULT_OFFSET) {
       return in;
@@ -250,6 +277,62 @@ public class ScaleOffset extends Filter implements Enhancement {
     return defaultOrder;
   }
 
+  // read the next value, treating unsigned types as unsigned
+  private static double getValue(ByteBuffer in, DataType type) {
+    switch (type) {
+      case BYTE:
+        return in.get();
+      case UBYTE:
+        return in.get() & 0xff;
+      case SHORT:
+        return in.getShort();
+      case USHORT:
+        return in.getShort() & 0xffff;
+      case INT:
+        return in.getInt();
+      case UINT:
+        return in.getInt() & 0xffffffffL;
+      case LONG:
+        return in.getLong();
+      case ULONG:
+        return DataType.widenNumberIfNegative(in.getLong()).doubleValue();
+      case FLOAT:
+        return in.getFloat();
+      default:
+        return in.getDouble();
+    }
+  }
+
+  // narrow the value the same way decode(byte[]) does when storing it in an Array
+  private static void putValue(ByteBuffer out, DataType type, double value) {
+    switch (type) {
+      case BYTE:
+      case UBYTE:
+        out.put((byte) (int) value);
+        break;
+      case SHORT:
+      case USHORT:
+        out.putShort((short) (int) value);
+        break;
+      case INT:
+        out.putInt((int) value);
+        break;
+      case UINT:
+        out.putInt((int) (long) value);
+        break;
+      case LONG:
+      case ULONG:
+        out.putLong((long) value);
+        break;
+      case FLOAT:
+        out.putFloat((float) value);
+        break;
+      default:
+        out.putDouble(value);
+        break;
+    }
+  }
+
   public double applyScaleOffset(double value) {
     if (astype.isIntegral()) {
       return Math.round((value - offset) * scale);
@@ -5,6 +5,8 @@
 
 package ucar.nc2.filter;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 /**
@@ -81,6 +83,52 @@ public class Shuffle extends Filter {
     return result;
   }
 
+  @Override
+  public void decode(ByteBuffer src, ByteBuffer dst) {
+    int n = src.remaining();
+    if (n % elemSize != 0 || elemSize <= 1) {
+      dst.put(src);
+      return;
+    }
+    if (dst.remaining() < n) {
+      throw new BufferOverflowException();
+    }
+
+    int nElems = n / elemSize;
+    int srcPos = src.position();
+    int dstPos = dst.position();
+    if (src.hasArray() && dst.hasArray()) {
+      // work on the backing arrays, writing each element's bytes straight to their final place
+      byte[] in = src.array();
+      byte[] out = dst.array();
+      int inStart = src.arrayOffset() + srcPos;
+      int outStart = dst.arrayOffset() + dstPos;
+      for (int j = 0; j < elemSize; j++) {
+        int start = inStart + j * nElems;
+        int k = outStart + j;
+        for (int i = 0; i < nElems; i++, k += elemSize) {
+          out[k] = in[start + i];
+        }
+      }
+      src.position(srcPos + n);
+      dst.position(dstPos + n);
+      return;
+    }
+    for (int j = 0; j < elemSize; j++) {
+      int start = srcPos + j * nElems;
+      for (int i = 0; i < nElems; i++) {
+        dst.put(dstPos + (i * elemSize) + j, src.get(start + i));
+      }
+    }
+    src.position(srcPos + n);
+    dst.position(dstPos + n);
+  }
+
+  @Override
+  public int getDecodedSize(ByteBuffer src, int sizeHint) {
+    return src.remaining();
+  }
+
   public static class Provider implements FilterProvider {
 
     @Override
@@ -8,6 +8,8 @@ import ucar.unidata.geoloc.LatLonPoint;
 import ucar.unidata.geoloc.LatLonRect;
 import ucar.unidata.geoloc.Station;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +24,7 @@ import java.util.Map;
 public class StationHelper {
   private List<StationFeature> stations;
   private Map<String, StationFeature> stationHash;
+  private LatIndex latIndex; // lazily built, for subsetting by bounding box
   private static final boolean debug = false;
 
   public StationHelper() {
@@ -32,11 +35,13 @@ public class StationHelper {
   public void addStation(StationFeature s) {
     stations.add(s);
     stationHash.put(s.getName(), s);
+    latIndex = null;
   }
 
   public void setStations(List<StationFeature> nstations) {
     stations = new ArrayList<>();
     stationHash = new HashMap<>();
+    latIndex = null;
     for (StationFeature s : nstations)
       addStation(s);
   }
@@ -86,28 +91,89 @@ public class StationHelper {
     if (boundingBox == null)
       return getStations();
 
-    List<Station> result = new ArrayList<>();
-    for (StationFeature s : stations) {
-      LatLonPoint latlonPt = LatLonPoint.create(s.getLatitude(), s.getLongitude());
-      if (boundingBox.contains(latlonPt))
-        result.add(s);
-    }
-    return result;
+    return new ArrayList<>(getStationFeatures(boundingBox));
   }
 
   public List<StationFeature> getStationFeatures(LatLonRect boundingBox) {
     if (boundingBox == null)
       return stations;
 
-    List<StationFeature> result = new ArrayList<>();
-    for (StationFeature s : stations) {
-      LatLonPoint latlonPt = LatLonPoint.create(s.getLatitude(), s.getLongitude());
-      if (boundingBox.contains(latlonPt))
-        result.add(s);
-    }
+    int[] found = getLatIndex().find(boundingBox);
+    List<StationFeature> result = new ArrayList<>(found.length);
+    for (int i : found)
+      result.add(stations.get(i));
     return result;
   }
 
+  private synchronized LatIndex getLatIndex() {
+    if (latIndex == null)
+      latIndex = new LatIndex(stations);
+    return latIndex;
+  }
+
+  /*
+   * The stations sorted by latitude, so that a bounding box subset only tests the stations in its latitude band,
+   * instead of all of them.
+   */
+  private static class LatIndex {
+    private final double[] lats, lons; // sorted by latitude, NaNs last
+    private final int[] order; // index into stations of the sorted points
+
+    LatIndex(List<StationFeature> stations) {
+      int n = stations.size();
+      LatLonPoint[] points = new LatLonPoint[n];
+      Integer[] sorted = new Integer[n];
+      for (int i = 0; i < n; i++) {
+        StationFeature s = stations.get(i);
+        points[i] = LatLonPoint.create(s.getLatitude(), s.getLongitude());
+        sorted[i] = i;
+      }
+      Arrays.sort(sorted, Comparator.comparingDouble(i -> points[i].getLatitude()));
+
+      lats = new double[n];
+      lons = new double[n];
+      order = new int[n];
+      for (int i = 0; i < n; i++) {
+        order[i] = sorted[i];
+        lats[i] = points[order[i]].getLatitude();
+        lons[i] = points[order[i]].getLongitude();
+      }
+    }
+
+    // the indexes of the stations inside the bounding box, in their original order
+    int[] find(LatLonRect bb) {
+      double eps = 1.0e-9; // as in LatLonRect.contains()
+      int[] found = new int[order.length];
+      int n = 0;
+      int i = lowerBound(bb.getLatMin() - eps);
+      for (; i < lats.length && lats[i] <= bb.getLatMax() + eps; i++) {
+        if (bb.contains(lats[i], lons[i]))
+          found[n++] = order[i];
+      }
+      // stations with a missing latitude are only rejected by longitude
+      for (i = Math.max(i, lowerBound(Double.POSITIVE_INFINITY)); i < lats.length; i++) {
+        if (bb.contains(lats[i], lons[i]))
+          found[n++] = order[i];
+      }
+      found = Arrays.copyOf(found, n);
+      Arrays.sort(found);
+      return found;
+    }
+
+    // the first index with a latitude >= lat, or with a NaN latitude
+    private int lowerBound(double lat) {
+      int lo = 0, hi = lats.length;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (lats[mid] < lat)
+          lo = mid + 1;
+        else
+          hi = mid;
+      }
+      return lo;
+    }
+  }
+
   public StationFeature getStation(String name) {
     return stationHash.get(name);
   }
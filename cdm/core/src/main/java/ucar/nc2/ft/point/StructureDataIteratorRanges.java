@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.ft.point;
+
+import java.io.IOException;
+import ucar.ma2.ArrayStructure;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.StructureData;
+import ucar.ma2.StructureDataIterator;
+import ucar.nc2.Structure;
+
+/**
+ * A StructureDataIterator over ranges of contiguous records of a rank 1 Structure.
+ * Each range is read a buffer at a time, as in Structure.getStructureIterator(), rather than one record at a time.
+ */
+public class StructureDataIteratorRanges implements StructureDataIterator {
+  private static final int defaultBufferSize = 500 * 1000; // 500K bytes
+
+  private final Structure s;
+  private final int[] ranges;
+  private int readAtaTime;
+
+  private int rangeIndex; // current range is ranges[rangeIndex], ranges[rangeIndex+1]
+  private int nextRecno; // next record to return
+  private int currRecno;
+  private ArrayStructure as; // buffer holding records [readStart, readStart + as.getSize())
+  private int readStart;
+
+  /**
+   * @param s a rank 1 Structure
+   * @param ranges pairs of (first record, number of records), in the order to iterate
+   */
+  public StructureDataIteratorRanges(Structure s, int[] ranges) {
+    this.s = s;
+    this.ranges = ranges;
+    setBufferSize(-1);
+    reset();
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (rangeIndex < ranges.length && nextRecno >= ranges[rangeIndex] + ranges[rangeIndex + 1]) {
+      rangeIndex += 2;
+      if (rangeIndex < ranges.length)
+        nextRecno = ranges[rangeIndex];
+    }
+    return rangeIndex < ranges.length;
+  }
+
+  @Override
+  public StructureData next() throws IOException {
+    if (!hasNext())
+      throw new IllegalStateException("no more records");
+
+    if (as == null || nextRecno < readStart || nextRecno >= readStart + as.getSize()) {
+      int rangeEnd = ranges[rangeIndex] + ranges[rangeIndex + 1];
+      int need = Math.min(readAtaTime, rangeEnd - nextRecno);
+      try {
+        as = s.readStructure(nextRecno, need);
+      } catch (InvalidRangeException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+      readStart = nextRecno;
+    }
+
+    currRecno = nextRecno++;
+    return as.getStructureData(currRecno - readStart);
+  }
+
+  @Override
+  public StructureDataIterator reset() {
+    rangeIndex = 0;
+    nextRecno = (ranges.length > 0) ? ranges[0] : 0;
+    as = null;
+    return this;
+  }
+
+  @Override
+  public void setBufferSize(int bytes) {
+    int structureSize = Math.max(1, s.getElementSize());
+    if (bytes <= 0)
+      bytes = defaultBufferSize;
+    readAtaTime = Math.max(10, bytes / structureSize);
+  }
+
+  @Override
+  public int getCurrentRecno() {
+    return currRecno;
+  }
+
+}
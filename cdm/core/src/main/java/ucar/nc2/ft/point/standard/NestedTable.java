@@ -693,6 +693,25 @@ public class NestedTable {
     return root.getStructureDataIterator(cursor);
   }
 
+  // true if the obs are the rows of a single Structure, which can be read by row number; see PointTableIndex
+  boolean hasObsRows() {
+    return nlevels == 1 && root.getClass() == Table.TableStructure.class
+        && ((Table.TableStructure) root).struct.getRank() == 1;
+  }
+
+  int getNumberOfObsRows() {
+    return (int) ((Table.TableStructure) root).struct.getSize();
+  }
+
+  // iterate over some of the obs rows, given as pairs of (first row, number of rows); only if hasObsRows()
+  StructureDataIterator getObsDataIterator(int[] ranges) {
+    return ((Table.TableStructure) root).getStructureDataIterator(ranges);
+  }
+
+  NetcdfDataset getNetcdfDataset() {
+    return ds;
+  }
+
   //// Station or Station_Profile
   public StructureDataIterator getStationDataIterator() throws IOException {
     Table stationTable = root;
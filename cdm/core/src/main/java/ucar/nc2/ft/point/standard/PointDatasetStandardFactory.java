@@ -18,6 +18,7 @@ import ucar.nc2.ft.FeatureDataset;
 import ucar.nc2.ft.FeatureDatasetFactory;
 import ucar.nc2.ft.point.PointDatasetImpl;
 import ucar.nc2.time.CalendarDateUnit;
+import ucar.nc2.util.DiskCache2;
 
 /**
  * Standard handler for Point obs dataset based on a NetcdfDataset object.
@@ -34,6 +35,19 @@ public class PointDatasetStandardFactory implements FeatureDatasetFactory {
     showTables = debugFlags.isSet("PointDatasetStandardFactory/showTables");
   }
 
+  static DiskCache2 indexCache;
+
+  /**
+   * Set the cache for the spatio-temporal indexes of point feature collections. When set, subsetting a flat point
+   * collection by bounding box or date range builds an index of its rows on first use, persists it in the cache,
+   * and then only reads the rows that may match.
+   *
+   * @param cache cache the indexes here; null (the default) means dont index, and subsets filter all the points.
+   */
+  public static void setIndexCache(DiskCache2 cache) {
+    indexCache = cache;
+  }
+
   /**
    * Check if this is a POINT datatype. If so, a TableAnalyser is used to analyze its structure.
    * The TableAnalyser is reused when the dataset is opened.
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.ft.point.standard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import ucar.ma2.StructureData;
+import ucar.ma2.StructureDataIterator;
+import ucar.nc2.time.CalendarDateRange;
+import ucar.nc2.time.CalendarDateUnit;
+import ucar.nc2.util.DiskCache2;
+import ucar.unidata.geoloc.LatLonRect;
+
+/**
+ * A spatio-temporal index of the rows of a flat point feature table, so that a subset by lat/lon box and time
+ * range only reads the rows that may match.
+ * <p>
+ * The rows are divided into blocks of {@link #BLOCK_SIZE} consecutive rows, and the index holds the bounding box and
+ * time range of each block. A subset reads the blocks whose bounds intersect the request, as merged ranges of rows;
+ * the points still have to be filtered exactly. The index is built by reading the table once, and is persisted in
+ * a DiskCache2, where it is reused as long as the file has the same last modified time and number of rows.
+ */
+class PointTableIndex {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PointTableIndex.class);
+  private static final int MAGIC = 0x50544958; // "PTIX"
+  private static final int VERSION = 1;
+  static final int BLOCK_SIZE = 1024;
+
+  // bounds of block b are bounds[6*b .. 6*b+6) = minLat, maxLat, minLon, maxLon, minTime, maxTime
+  // time is in msecs since the epoch. A block with no valid points has min > max, a missing value makes the range
+  // infinite, since the filter cant be predicted.
+  private static final int NBOUNDS = 6;
+
+  /**
+   * Get the index of a point table, reading it from the cache if possible, else building and caching it.
+   *
+   * @param ft the point table, must have ft.hasObsRows()
+   * @param timeUnit time unit of the point features
+   * @param cache persist the index in this cache
+   */
+  static PointTableIndex factory(NestedTable ft, @Nullable CalendarDateUnit timeUnit, DiskCache2 cache)
+      throws IOException {
+    int nrows = ft.getNumberOfObsRows();
+    long lastModified = ft.getNetcdfDataset().getLastModified();
+    File cacheFile = (lastModified > 0) ? getCacheFile(ft, cache) : null;
+
+    if (cacheFile != null && cacheFile.exists()) {
+      PointTableIndex index = read(cacheFile, lastModified, nrows);
+      if (index != null) {
+        return index;
+      }
+    }
+
+    PointTableIndex index = build(ft, timeUnit, nrows);
+    if (cacheFile != null) {
+      try {
+        index.write(cacheFile, lastModified);
+      } catch (IOException e) {
+        logger.warn("Failed to write point index {}", cacheFile.getPath(), e);
+      }
+    }
+    return index;
+  }
+
+  @Nullable
+  private static File getCacheFile(NestedTable ft, DiskCache2 cache) {
+    String location = ft.getNetcdfDataset().getLocation();
+    if (location == null) {
+      return null;
+    }
+    if (location.startsWith("file:")) {
+      location = location.substring(5);
+    }
+    return cache.getCacheFile(location + "." + ft.getName().replaceAll("[^A-Za-z0-9_]", "") + ".ptidx");
+  }
+
+  static PointTableIndex build(NestedTable ft, @Nullable CalendarDateUnit timeUnit, int nrows) throws IOException {
+    PointTableIndex index = new PointTableIndex(nrows);
+    Cursor cursor = new Cursor(ft.getNumberOfLevels());
+    try (StructureDataIterator iter = ft.getObsDataIterator(cursor)) {
+      while (iter.hasNext()) {
+        StructureData sdata = iter.next();
+        int recnum = iter.getCurrentRecno();
+        if (recnum >= nrows) { // the table grew after it was opened
+          break;
+        }
+
+        // same as StandardPointFeatureIterator.makeFeature()
+        cursor.recnum[0] = recnum;
+        cursor.tableData[0] = sdata;
+        cursor.currentIndex = 0;
+        ft.addParentJoin(cursor);
+        if (ft.isTimeMissing(cursor) || ft.isMissing(cursor)) {
+          continue;
+        }
+
+        double obsTime = ft.getObsTime(cursor);
+        double millis = (timeUnit == null || Double.isNaN(obsTime)) ? Double.NaN
+            : timeUnit.makeCalendarDate(obsTime).getMillis();
+        int b = NBOUNDS * (recnum / BLOCK_SIZE);
+        index.extend(b, ft.getLatitude(cursor));
+        index.extend(b + 2, ft.getLongitude(cursor));
+        index.extend(b + 4, millis);
+      }
+    }
+    return index;
+  }
+
+  @Nullable
+  private static PointTableIndex read(File file, long lastModified, int nrows) {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != lastModified || in.readInt() != nrows
+          || in.readInt() != BLOCK_SIZE) {
+        return null;
+      }
+      PointTableIndex index = new PointTableIndex(nrows);
+      for (int i = 0; i < index.bounds.length; i++) {
+        index.bounds[i] = in.readDouble();
+      }
+      return index;
+    } catch (IOException e) {
+      return null; // rebuild it
+    }
+  }
+
+  private final int nrows;
+  private final double[] bounds;
+
+  private PointTableIndex(int nrows) {
+    this.nrows = nrows;
+    int nblocks = (nrows + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    this.bounds = new double[NBOUNDS * nblocks];
+    for (int i = 0; i < bounds.length; i += 2) {
+      bounds[i] = Double.POSITIVE_INFINITY;
+      bounds[i + 1] = Double.NEGATIVE_INFINITY;
+    }
+  }
+
+  private void extend(int i, double val) {
+    if (Double.isNaN(val)) {
+      bounds[i] = Double.NEGATIVE_INFINITY;
+      bounds[i + 1] = Double.POSITIVE_INFINITY;
+    } else {
+      bounds[i] = Math.min(bounds[i], val);
+      bounds[i + 1] = Math.max(bounds[i + 1], val);
+    }
+  }
+
+  private void write(File file, long lastModified) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(lastModified);
+      out.writeInt(nrows);
+      out.writeInt(BLOCK_SIZE);
+      for (double val : bounds) {
+        out.writeDouble(val);
+      }
+    }
+  }
+
+  /**
+   * Find the rows that may have points inside a bounding box and date range, as used by
+   * PointIteratorFiltered.SpaceAndTimeFilter.
+   *
+   * @param bb bounding box, or null for all
+   * @param dateRange date range, or null for all
+   * @return pairs of (first row, number of rows), in increasing order
+   */
+  int[] findRanges(@Nullable LatLonRect bb, @Nullable CalendarDateRange dateRange) {
+    // LatLonRect.contains() doesnt normalize longitudes, so neither do we
+    boolean useLon = bb != null && !bb.crossDateline() && !bb.containsAllLongitude();
+    double eps = 1.0e-9; // as in LatLonRect.contains()
+
+    int[] ranges = new int[8];
+    int n = 0;
+    int nblocks = bounds.length / NBOUNDS;
+    for (int block = 0; block < nblocks; block++) {
+      int b = NBOUNDS * block;
+      if (bounds[b] > bounds[b + 1]) {
+        continue; // no valid points
+      }
+      if (bb != null && (bounds[b + 1] + eps < bb.getLatMin() || bounds[b] - eps > bb.getLatMax())) {
+        continue;
+      }
+      if (useLon && (bounds[b + 3] < bb.getLonMin() || bounds[b + 2] > bb.getLonMax())) {
+        continue;
+      }
+      if (dateRange != null && (bounds[b + 5] < dateRange.getStart().getMillis()
+          || bounds[b + 4] > dateRange.getEnd().getMillis())) {
+        continue;
+      }
+
+      int start = block * BLOCK_SIZE;
+      int count = Math.min(BLOCK_SIZE, nrows - start);
+      if (n > 0 && ranges[n - 2] + ranges[n - 1] == start) {
+        ranges[n - 1] += count; // merge with the previous block
+      } else {
+        if (n == ranges.length) {
+          ranges = Arrays.copyOf(ranges, 2 * n);
+        }
+        ranges[n++] = start;
+        ranges[n++] = count;
+      }
+    }
+    return Arrays.copyOf(ranges, n);
+  }
+}
@@ -6,9 +6,14 @@
 package ucar.nc2.ft.point.standard;
 
 import java.io.IOException;
+import ucar.nc2.ft.PointFeatureCollection;
 import ucar.nc2.ft.PointFeatureIterator;
 import ucar.nc2.ft.point.PointCollectionImpl;
+import ucar.nc2.ft.point.PointIteratorFiltered;
+import ucar.nc2.time.CalendarDateRange;
 import ucar.nc2.time.CalendarDateUnit;
+import ucar.nc2.util.DiskCache2;
+import ucar.unidata.geoloc.LatLonRect;
 
 /**
  * Implementation of PointFeatureCollection using a NestedTable
@@ -18,6 +23,7 @@ import ucar.nc2.time.CalendarDateUnit;
  */
 public class StandardPointCollectionImpl extends PointCollectionImpl {
   private NestedTable ft;
+  private PointTableIndex index; // lazily built, see PointDatasetStandardFactory.setIndexCache()
 
   StandardPointCollectionImpl(NestedTable ft, CalendarDateUnit timeUnit, String altUnits) {
     super(ft.getName(), ft.getTimeName(), timeUnit, ft.getAltName(), altUnits);
@@ -33,4 +39,38 @@ public class StandardPointCollectionImpl extends PointCollectionImpl {
     return new StandardPointFeatureIterator(this, ft, timeUnit, ft.getObsDataIterator(tableData), tableData);
   }
 
+  @Override
+  public PointFeatureCollection subset(LatLonRect boundingBox, CalendarDateRange dateRange) {
+    DiskCache2 cache = PointDatasetStandardFactory.indexCache;
+    if (cache == null || (boundingBox == null && dateRange == null) || !ft.hasObsRows())
+      return super.subset(boundingBox, dateRange);
+    return new PointCollectionIndexedSubset(boundingBox, dateRange, cache);
+  }
+
+  private synchronized PointTableIndex getIndex(DiskCache2 cache) throws IOException {
+    if (index == null)
+      index = PointTableIndex.factory(ft, timeUnit, cache);
+    return index;
+  }
+
+  // only read the rows that the index says may be in the subset, then filter them
+  private class PointCollectionIndexedSubset extends PointCollectionSubset {
+    private final DiskCache2 cache;
+
+    PointCollectionIndexedSubset(LatLonRect filter_bb, CalendarDateRange filter_date, DiskCache2 cache) {
+      super(StandardPointCollectionImpl.this, filter_bb, filter_date);
+      this.cache = cache;
+    }
+
+    @Override
+    public PointFeatureIterator getPointFeatureIterator() throws IOException {
+      int[] ranges = getIndex(cache).findRanges(filter_bb, filter_date);
+      Cursor tableData = new Cursor(ft.getNumberOfLevels());
+      StandardPointFeatureIterator iter = new StandardPointFeatureIterator(StandardPointCollectionImpl.this, ft,
+          timeUnit, ft.getObsDataIterator(ranges), tableData);
+      iter.setCalculateBounds(null); // only some of the points are seen, so they dont give the collection bounds
+      return new PointIteratorFiltered(iter, filter_bb, filter_date);
+    }
+  }
+
 }
@@ -38,6 +38,7 @@ import ucar.nc2.dataset.StructurePseudo2Dim;
 import ucar.nc2.dataset.StructurePseudoDS;
 import ucar.nc2.dataset.VariableDS;
 import ucar.nc2.ft.point.StructureDataIteratorIndexed;
+import ucar.nc2.ft.point.StructureDataIteratorRanges;
 import ucar.nc2.ft.point.StructureDataIteratorLinked;
 
 /**
@@ -333,6 +334,12 @@ public abstract class Table {
       return new StructureDataIteratorMediated(struct.getStructureIterator(), new RestrictToColumns());
     }
 
+    // iterate over some of the rows, given as pairs of (first row, number of rows); struct must have rank 1
+    StructureDataIterator getStructureDataIterator(int[] ranges) {
+      return new StructureDataIteratorMediated(new StructureDataIteratorRanges(struct, ranges),
+          new RestrictToColumns());
+    }
+
     @Override
     public String getName() {
       return stype + "(" + struct.getShortName() + ")";
@@ -7,6 +7,7 @@ package ucar.nc2.ft2.coverage;
 import ucar.ma2.*;
 import ucar.nc2.constants.AxisType;
 import ucar.nc2.util.Optional;
+import ucar.unidata.geoloc.LatLonCellIndex;
 import ucar.unidata.geoloc.LatLonPoint;
 import ucar.unidata.geoloc.LatLonPoints;
 import ucar.unidata.geoloc.LatLonRect;
@@ -130,6 +131,35 @@ public class HorizCoordSys2D extends HorizCoordSys {
     return Optional.of(result);
   }
 
+  /**
+   * Find the indices of many points at once, eg the stations of a station extraction.
+   *
+   * @param x longitudes of the points
+   * @param y latitudes of the points
+   * @return for each point, the index of the grid cell that contains it, or empty if it is not in the grid
+   */
+  public List<Optional<CoordReturn>> findXYindexFromCoords(double[] x, double[] y) {
+    synchronized (this) {
+      if (edges == null)
+        edges = new Edges();
+    }
+    int[] cells = edges.findCoordElements(y, x);
+    List<Optional<CoordReturn>> results = new ArrayList<>(cells.length);
+    for (int cell : cells) {
+      if (cell < 0) {
+        results.add(Optional.empty("not in grid2D"));
+        continue;
+      }
+      CoordReturn result = new CoordReturn();
+      result.x = cell % ncols;
+      result.y = cell / ncols;
+      result.xcoord = getLonAxis2D().getCoord(result.y, result.x);
+      result.ycoord = getLatAxis2D().getCoord(result.y, result.x);
+      results.add(Optional.of(result));
+    }
+    return results;
+  }
+
   @Override
   public List<CoverageCoordAxis> getCoordAxes() {
     List<CoverageCoordAxis> result = new ArrayList<>();
@@ -144,13 +174,14 @@ public class HorizCoordSys2D extends HorizCoordSys {
       if (edges == null)
         edges = new Edges();
     }
-    return edges.computeBoundsExhaustive(llbb, horizStride);
+    return edges.computeBounds(llbb, horizStride);
   }
 
   // assume this class is instantiated when these edges are needed
   private class Edges {
     private ArrayDouble.D2 latEdge, lonEdge;
     private MAMath.MinMax latMinMax, lonMinMax;
+    private LatLonCellIndex index;
 
     Edges() {
       latEdge = (ArrayDouble.D2) latAxis2D.getCoordBoundsAsArray();
@@ -167,6 +198,9 @@ public class HorizCoordSys2D extends HorizCoordSys {
         lonEdge.setDouble(i, LatLonPoints.lonNormalFrom(nonVal, lonMinMax.min));
       }
 
+      index = new LatLonCellIndex((double[]) latEdge.get1DJavaArray(DataType.DOUBLE),
+          (double[]) lonEdge.get1DJavaArray(DataType.DOUBLE), nrows, ncols);
+
       if (debug)
         System.out.printf("Bounds (%d %d): lat= (%f,%f) lon = (%f,%f) %n", nrows, ncols, latMinMax.min, latMinMax.max,
             lonMinMax.min, lonMinMax.max);
@@ -177,80 +211,25 @@ public class HorizCoordSys2D extends HorizCoordSys {
      *
      * @param wantLat lat of point
      * @param wantLon lon of point
-     * @param rectIndex return (row,col) index, or best guess here. may not be null
+     * @param rectIndex return (row,col) index here. may not be null
      * @return false if not in the grid.
      */
     public boolean findCoordElement(double wantLat, double wantLon, int[] rectIndex) {
       double wantLonNormal = LatLonPoints.lonNormalFrom(wantLon, lonMinMax.min);
-      return findCoordElementNoForce(wantLat, wantLonNormal, rectIndex);
-    }
-
-    private boolean findCoordElementNoForce(double wantLat, double wantLon, int[] rectIndex) {
-      if (wantLat < latMinMax.min)
-        return false;
-      if (wantLat > latMinMax.max)
-        return false;
-      if (wantLon < lonMinMax.min)
-        return false;
-      if (wantLon > lonMinMax.max)
-        return false;
-
-      double gradientLat = (latMinMax.max - latMinMax.min) / nrows;
-      double gradientLon = (lonMinMax.max - lonMinMax.min) / ncols;
-
-      double diffLat = wantLat - latMinMax.min;
-      double diffLon = wantLon - lonMinMax.min;
-
-      // initial guess
-      rectIndex[0] = (int) Math.round(diffLat / gradientLat); // row
-      rectIndex[1] = (int) Math.round(diffLon / gradientLon); // col
-
-      int count = 0;
-      while (true) {
-        count++;
-        if (debug)
-          System.out.printf("%nIteration %d %n", count);
-        if (contains(wantLat, wantLon, rectIndex))
-          return true;
-
-        if (!jump2(wantLat, wantLon, rectIndex))
-          return false;
-
-        // bouncing around
-        if (count > 10) {
-          // last ditch attempt
-          return incr(wantLat, wantLon, rectIndex);
-        }
-      }
+      return index.findCell(wantLat, wantLonNormal, rectIndex);
     }
 
     /**
-     * Is the point (lat,lon) contained in the (row, col) rectangle ?
+     * Find the cells that contain many points.
      *
-     * @param wantLat lat of point
-     * @param wantLon lon of point
-     * @param rectIndex rectangle row, col, will be clipped to [0, nrows), [0, ncols)
-     * @return true if contained
+     * @return for each point, row * ncols + col of the cell that contains it, or -1 if it is not in the grid
      */
-    private boolean containsOld(double wantLat, double wantLon, int[] rectIndex) {
-      rectIndex[0] = Math.max(Math.min(rectIndex[0], nrows - 1), 0);
-      rectIndex[1] = Math.max(Math.min(rectIndex[1], ncols - 1), 0);
-
-      int row = rectIndex[0];
-      int col = rectIndex[1];
-
-      if (debug)
-        System.out.printf(" (%d,%d) contains (%f,%f) in (lat=%f %f) (lon=%f %f) ?%n", rectIndex[0], rectIndex[1],
-            wantLat, wantLon, latEdge.get(row, col), latEdge.get(row + 1, col), lonEdge.get(row, col),
-            lonEdge.get(row, col + 1));
-
-      if (wantLat < latEdge.get(row, col))
-        return false;
-      if (wantLat > latEdge.get(row + 1, col))
-        return false;
-      if (wantLon < lonEdge.get(row, col))
-        return false;
-      return !(wantLon > lonEdge.get(row, col + 1));
+    int[] findCoordElements(double[] wantLat, double[] wantLon) {
+      double[] wantLonNormal = new double[wantLon.length];
+      for (int i = 0; i < wantLon.length; i++) {
+        wantLonNormal[i] = LatLonPoints.lonNormalFrom(wantLon[i], lonMinMax.min);
+      }
+      return index.findCells(wantLat, wantLonNormal);
     }
 
     /**
@@ -326,151 +305,8 @@ public class HorizCoordSys2D extends HorizCoordSys {
       return det > 0;
     }
 
-    private boolean jumpOld(double wantLat, double wantLon, int[] rectIndex) {
-      int row = Math.max(Math.min(rectIndex[0], nrows - 1), 0);
-      int col = Math.max(Math.min(rectIndex[1], ncols - 1), 0);
-      double gradientLat = latEdge.get(row + 1, col) - latEdge.get(row, col);
-      double gradientLon = lonEdge.get(row, col + 1) - lonEdge.get(row, col);
-
-      double diffLat = wantLat - latEdge.get(row, col);
-      double diffLon = wantLon - lonEdge.get(row, col);
-
-      int drow = (int) Math.round(diffLat / gradientLat);
-      int dcol = (int) Math.round(diffLon / gradientLon);
-
-      if (debug)
-        System.out.printf("   jump from %d %d (grad=%f %f) (diff=%f %f) (delta=%d %d)", row, col, gradientLat,
-            gradientLon, diffLat, diffLon, drow, dcol);
-
-      if ((drow == 0) && (dcol == 0)) {
-        if (debug)
-          System.out.printf("%n   incr:");
-        return incr(wantLat, wantLon, rectIndex);
-      } else {
-        rectIndex[0] = Math.max(Math.min(row + drow, nrows - 1), 0);
-        rectIndex[1] = Math.max(Math.min(col + dcol, ncols - 1), 0);
-        if (debug)
-          System.out.printf(" to (%d %d)%n", rectIndex[0], rectIndex[1]);
-        return (row != rectIndex[0]) || (col != rectIndex[1]); // nothing has changed
-      }
-
-    }
-
-    /**
-     * jump to a new row,col
-     *
-     * @param wantLat want this lat
-     * @param wantLon want this lon
-     * @param rectIndex starting row, col and replaced by new guess
-     * @return true if new guess, false if failure
-     */
-    /*
-     * choose x, y such that (matrix multiply) :
-     * 
-     * (wantx) = (fxx fxy) (x)
-     * (wanty) (fyx fyy) (y)
-     * 
-     * where fxx = d(fx)/dx ~= delta lon in lon direction
-     * where fxy = d(fx)/dy ~= delta lon in lat direction
-     * where fyx = d(fy)/dx ~= delta lat in lon direction
-     * where fyy = d(fy)/dy ~= delta lat in lat direction
-     * 
-     * 2 linear equations in 2 unknowns, solve in usual way
-     */
-    private boolean jump2(double wantLat, double wantLon, int[] rectIndex) {
-      int row = Math.max(Math.min(rectIndex[0], nrows - 1), 0);
-      int col = Math.max(Math.min(rectIndex[1], ncols - 1), 0);
-      double lat = latEdge.get(row, col);
-      double lon = lonEdge.get(row, col);
-      double diffLat = wantLat - lat;
-      double diffLon = wantLon - lon;
-
-      double dlatdy = latEdge.get(row + 1, col) - lat;
-      double dlatdx = latEdge.get(row, col + 1) - lat;
-      double dlondx = lonEdge.get(row, col + 1) - lon;
-      double dlondy = lonEdge.get(row + 1, col) - lon;
-
-      // solve for dlon
-
-      double dx = (diffLon - dlondy * diffLat / dlatdy) / (dlondx - dlatdx * dlondy / dlatdy);
-      // double dy = (diffLat - dlatdx * diffLon / dlondx) / (dlatdy - dlatdx * dlondy / dlondx);
-      double dy = (diffLat - dlatdx * dx) / dlatdy;
-
-      if (debug)
-        System.out.printf(
-            "   jump from %d %d (dlondx=%f dlondy=%f dlatdx=%f dlatdy=%f) (diffLat,Lon=%f %f) (deltalat,Lon=%f %f)",
-            row, col, dlondx, dlondy, dlatdx, dlatdy, diffLat, diffLon, dy, dx);
-
-      int drow = (int) Math.round(dy);
-      int dcol = (int) Math.round(dx);
-
-      if ((drow == 0) && (dcol == 0)) {
-        if (debug)
-          System.out.printf("%n   incr:");
-        return incr(wantLat, wantLon, rectIndex);
-      } else {
-        rectIndex[0] = Math.max(Math.min(row + drow, nrows - 1), 0);
-        rectIndex[1] = Math.max(Math.min(col + dcol, ncols - 1), 0);
-        if (debug)
-          System.out.printf(" to (%d %d)%n", rectIndex[0], rectIndex[1]);
-        return (row != rectIndex[0]) || (col != rectIndex[1]); // nothing has changed
-      }
-
-    }
-
-    private boolean incr(double wantLat, double wantLon, int[] rectIndex) {
-      int row = rectIndex[0];
-      int col = rectIndex[1];
-      double diffLat = wantLat - latEdge.get(row, col);
-      double diffLon = wantLon - lonEdge.get(row, col);
-
-      if (Math.abs(diffLat) > Math.abs(diffLon)) { // try lat first
-        rectIndex[0] = row + ((diffLat > 0) ? 1 : -1);
-        if (contains(wantLat, wantLon, rectIndex))
-          return true;
-        rectIndex[1] = col + ((diffLon > 0) ? 1 : -1);
-        if (contains(wantLat, wantLon, rectIndex))
-          return true;
-      } else {
-        rectIndex[1] = col + ((diffLon > 0) ? 1 : -1);
-        if (contains(wantLat, wantLon, rectIndex))
-          return true;
-        rectIndex[0] = row + ((diffLat > 0) ? 1 : -1);
-        if (contains(wantLat, wantLon, rectIndex))
-          return true;
-      }
-
-      // back to original, do box search
-      rectIndex[0] = row;
-      rectIndex[1] = col;
-      return box9(wantLat, wantLon, rectIndex);
-    }
-
-    // we think its got to be in one of the 9 boxes around rectIndex
-    private boolean box9(double wantLat, double wantLon, int[] rectIndex) {
-      int row = rectIndex[0];
-      int minrow = Math.max(row - 1, 0);
-      int maxrow = Math.min(row + 1, nrows);
-
-      int col = rectIndex[1];
-      int mincol = Math.max(col - 1, 0);
-      int maxcol = Math.min(col + 1, ncols);
-
-      if (debug)
-        System.out.printf("%n   box9:");
-      for (int i = minrow; i <= maxrow; i++)
-        for (int j = mincol; j <= maxcol; j++) {
-          rectIndex[0] = i;
-          rectIndex[1] = j;
-          if (contains(wantLat, wantLon, rectIndex))
-            return true;
-        }
-
-      return false;
-    }
-
     // return y, x ranges
-    Optional<List<RangeIterator>> computeBoundsExhaustive(LatLonRect rect, int horizStride) {
+    Optional<List<RangeIterator>> computeBounds(LatLonRect rect, int horizStride) {
       LatLonPoint llpt = rect.getLowerLeftPoint();
       LatLonPoint urpt = rect.getUpperRightPoint();
 
@@ -514,24 +350,12 @@ public class HorizCoordSys2D extends HorizCoordSys {
         maxRow = ny;
       }
 
-      // brute force, examine every point LOOK BAD
-      for (int row = 0; row <= ny; row++) {
-        for (int col = 0; col <= nx; col++) {
-          double lat = latEdge.get(row, col);
-          double lon = lonEdge.get(row, col);
-
-          if ((lat >= miny) && (lat <= maxy) && (lon >= minx) && (lon <= maxx)) {
-            if (col > maxCol)
-              maxCol = col;
-            if (col < minCol)
-              minCol = col;
-            if (row > maxRow)
-              maxRow = row;
-            if (row < minRow)
-              minRow = row;
-          }
-        }
-      }
+      int[] bounds = {minRow, maxRow, minCol, maxCol};
+      index.findEdgeBounds(miny, maxy, minx, maxx, bounds);
+      minRow = bounds[0];
+      maxRow = bounds[1];
+      minCol = bounds[2];
+      maxCol = bounds[3];
 
       try {
         List<RangeIterator> list = new ArrayList<>();
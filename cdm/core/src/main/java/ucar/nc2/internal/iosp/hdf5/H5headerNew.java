@@ -57,6 +57,7 @@ import ucar.nc2.internal.iosp.hdf5.H5objects.MessageFilter;
 import ucar.nc2.internal.iosp.hdf5.H5objects.MessageType;
 import ucar.nc2.internal.iosp.hdf5.H5objects.StructureMember;
 import ucar.nc2.write.NetcdfFileFormat;
+import ucar.nc2.iosp.FileSignature;
 import ucar.nc2.iosp.IospHelper;
 import ucar.nc2.iosp.Layout;
 import ucar.nc2.iosp.LayoutRegular;
@@ -115,6 +116,7 @@ public class H5headerNew implements H5headerIF, HdfHeaderIF {
   private static final byte[] magic = {(byte) 0x89, 'H', 'D', 'F', '\r', '\n', 0x1a, '\n'};
   private static final String magicString = new String(magic, StandardCharsets.UTF_8);
   private static final long maxHeaderPos = 50000; // header's gotta be within this
+  static final List<FileSignature> signatures = FileSignature.atPowersOfTwo(maxHeaderPos, magic);
   private static final boolean transformReference = true;
 
   public static boolean isValidFile(RandomAccessFile raf) throws IOException {
@@ -6,8 +6,6 @@ package ucar.nc2.internal.iosp.hdf5;
 
 import com.google.common.primitives.Ints;
 import com.google.common.primitives.Longs;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -17,13 +15,14 @@ import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
 import ucar.ma2.Section;
 import ucar.nc2.Variable;
+import ucar.nc2.filter.BufferPool;
 import ucar.nc2.filter.Filter;
 import ucar.nc2.filter.Filters;
 import ucar.nc2.filter.UnknownFilterException;
+import ucar.nc2.iosp.ChunkCache;
 import ucar.nc2.iosp.LayoutBB;
 import ucar.nc2.iosp.LayoutBBTiled;
 import ucar.nc2.iosp.hdf5.DataBTree;
-import ucar.nc2.util.IO;
 import ucar.unidata.io.RandomAccessFile;
 
 /**
@@ -53,6 +52,11 @@ public class H5tiledLayoutBB implements LayoutBB {
   private int[] chunkSize; // from the StorageLayout message (exclude the elemSize)
   private int elemSize; // last dimension of the StorageLayout message
   private int nChunkDims;
+  private int chunkBytes; // size of an uncompressed chunk in bytes
+
+  private ChunkCache chunkCache; // shared cache of decoded chunks, null if disabled
+  private String varName;
+  private long lastModified;
 
   private boolean debug;
 
@@ -78,6 +82,11 @@ public class H5tiledLayoutBB implements LayoutBB {
     assert vinfo.btree != null;
 
     this.raf = raf;
+    this.chunkCache = ChunkCache.getDefault();
+    if (chunkCache != null) {
+      this.varName = v2.getFullName();
+      this.lastModified = raf.getLastModified();
+    }
     this.filters = new Filter[filterProps.length];
     for (int i = 0; i < filterProps.length; i++) {
       // add var info to filter props
@@ -107,6 +116,11 @@ public class H5tiledLayoutBB implements LayoutBB {
     this.chunkSize = new int[nChunkDims];
     System.arraycopy(vinfo.storageSize, 0, chunkSize, 0, nChunkDims);
     this.elemSize = vinfo.storageSize[vinfo.storageSize.length - 1]; // last one is always the elements size
+    long nbytes = 1;
+    for (int size : vinfo.storageSize) {
+      nbytes *= size;
+    }
+    this.chunkBytes = (int) Math.min(nbytes, DataChunk.MAX_ARRAY_LEN);
 
     // create the data chunk iterator
     DataBTree.DataChunkIterator iter = vinfo.btree.getDataChunkIteratorFilter(this.want);
@@ -179,7 +193,7 @@ public class H5tiledLayoutBB implements LayoutBB {
 
   private class DataChunk implements LayoutBBTiled.DataChunk {
     // Copied from ArrayList.
-    private static final int MAX_ARRAY_LEN = Integer.MAX_VALUE - 8;
+    static final int MAX_ARRAY_LEN = Integer.MAX_VALUE - 8;
 
     DataBTree.DataChunk delegate;
 
@@ -217,27 +231,42 @@ public class H5tiledLayoutBB implements LayoutBB {
     }
 
     public ByteBuffer getByteBuffer() throws IOException {
+      if (chunkCache != null) {
+        return chunkCache.get(raf.getLocation(), lastModified, varName, delegate.filePos, this::readChunk);
+      }
+      return readChunk();
+    }
+
+    private ByteBuffer readChunk() throws IOException {
       try {
-        // read the data
-        byte[] data = new byte[delegate.size];
+        // find the last filter to apply, filters are applied backwards
+        int last = -1;
+        for (int i = 0; i < filters.length; i++) {
+          if (!isBitSet(delegate.filterMask, i)) {
+            last = i;
+            break;
+          }
+        }
+
+        // read the data; only intermediate buffers come from the pool, the result is handed to the caller
+        ByteBuffer data =
+            (last < 0) ? ByteBuffer.allocate(delegate.size) : BufferPool.getDefault().acquire(delegate.size);
         raf.seek(delegate.filePos);
-        raf.readFully(data);
+        raf.readFully(data.array(), data.arrayOffset(), delegate.size);
 
         // apply filters backwards
         for (int i = filters.length - 1; i >= 0; i--) {
-          Filter f = filters[i];
           if (isBitSet(delegate.filterMask, i)) {
             if (debug) {
               System.out.println("skip for chunk " + delegate);
             }
             continue;
           }
-          data = f.decode(data);
+          data = Filters.decode(filters[i], data, chunkBytes, i == last);
         }
 
-        ByteBuffer result = ByteBuffer.wrap(data);
-        result.order(byteOrder);
-        return result;
+        data.order(byteOrder);
+        return data;
       } catch (OutOfMemoryError e) {
         Error oom = new OutOfMemoryError("Ran out of memory trying to read HDF5 filtered chunk. Either increase the "
             + "JVM's heap size (use the -Xmx switch) or reduce the size of the dataset's chunks (use nccopy -c).");
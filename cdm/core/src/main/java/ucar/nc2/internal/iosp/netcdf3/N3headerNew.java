@@ -76,6 +76,7 @@ public class N3headerNew {
   Dimension udim; // the unlimited dimension
   private List<Vinfo> vars = new ArrayList<>();
   long dataStart = Long.MAX_VALUE; // where the data starts
+  boolean isTruncated; // file is shorter than the header says, missing data reads as zeros
 
   private final Charset valueCharset;
 
@@ -323,6 +324,7 @@ public class N3headerNew {
       else {
         // log.info("File is truncated calculated size= "+calcSize+" actual = "+actualSize);
         raf.setExtendMode();
+        isTruncated = true;
       }
     }
 
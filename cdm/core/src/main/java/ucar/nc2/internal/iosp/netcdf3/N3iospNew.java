@@ -25,11 +25,13 @@ import ucar.nc2.iosp.AbstractIOServiceProvider;
 import ucar.nc2.iosp.IOServiceProvider;
 import ucar.nc2.iosp.IospHelper;
 import ucar.nc2.iosp.Layout;
+import ucar.nc2.iosp.LayoutBBMapped;
 import ucar.nc2.iosp.LayoutRegular;
 import ucar.nc2.iosp.LayoutRegularSegmented;
 import ucar.nc2.internal.iosp.netcdf3.N3headerNew.Vinfo;
 import ucar.nc2.util.CancelTask;
 import ucar.nc2.write.NetcdfFileFormat;
+import ucar.unidata.io.MMapRandomAccessFile;
 import ucar.unidata.io.RandomAccessFile;
 import javax.annotation.Nullable;
 
@@ -180,7 +182,18 @@ public class N3iospNew extends AbstractIOServiceProvider implements IOServicePro
       return Array.factory(dataType, section.getShape());
     }
 
-    Object data = readData(layout, dataType);
+    Object data;
+    if (raf instanceof MMapRandomAccessFile && !header.isTruncated) {
+      // straight from the mapping, and safe to call from several threads
+      data = IospHelper.readDataFill(new LayoutBBMapped(layout, raf), dataType, null);
+    } else {
+      RandomAccessFile reader = getDataReader();
+      try {
+        data = readData(reader, layout, dataType);
+      } finally {
+        releaseDataReader(reader);
+      }
+    }
     return Array.factory(dataType, section.getShape(), data);
   }
 
@@ -255,6 +268,7 @@ public class N3iospNew extends AbstractIOServiceProvider implements IOServicePro
 
   @Override
   public void close() throws java.io.IOException {
+    closeDataReaders();
     if (raf != null) {
       if (header != null) {
         long size = header.calcFileSize();
@@ -329,12 +343,13 @@ public class N3iospNew extends AbstractIOServiceProvider implements IOServicePro
   /**
    * Read data subset from file for a variable, create primitive array.
    *
+   * @param reader read from this, see getDataReader()
    * @param index handles skipping around in the file.
    * @param dataType dataType of the variable
    * @return primitive array with data read in
    */
-  private Object readData(Layout index, DataType dataType) throws java.io.IOException {
-    return IospHelper.readDataFill(raf, index, dataType, null, -1);
+  private Object readData(RandomAccessFile reader, Layout index, DataType dataType) throws java.io.IOException {
+    return IospHelper.readDataFill(reader, index, dataType, null, -1);
   }
 
   /**
@@ -408,20 +423,25 @@ public class N3iospNew extends AbstractIOServiceProvider implements IOServicePro
     ArrayStructureBB structureArray = new ArrayStructureBB(members, new int[] {recordRange.length()});
 
     // loop over records
-    byte[] result = structureArray.getByteBuffer().array();
-    int count = 0;
-    for (int recnum : recordRange) {
-      if (debugRecord)
-        System.out.println(" read record " + recnum);
-      raf.seek(header.recStart + recnum * header.recsize); // where the record starts
-
-      if (recnum != header.numrecs - 1) {
-        raf.readFully(result, (int) (count * header.recsize), (int) header.recsize);
-      } else {
-        // "wart" allows file to be one byte short. since its always padding, we allow
-        raf.read(result, (int) (count * header.recsize), (int) header.recsize);
+    RandomAccessFile reader = getDataReader();
+    try {
+      byte[] result = structureArray.getByteBuffer().array();
+      int count = 0;
+      for (int recnum : recordRange) {
+        if (debugRecord)
+          System.out.println(" read record " + recnum);
+        reader.seek(header.recStart + recnum * header.recsize); // where the record starts
+
+        if (recnum != header.numrecs - 1) {
+          reader.readFully(result, (int) (count * header.recsize), (int) header.recsize);
+        } else {
+          // "wart" allows file to be one byte short. since its always padding, we allow
+          reader.read(result, (int) (count * header.recsize), (int) header.recsize);
+        }
+        count++;
       }
-      count++;
+    } finally {
+      releaseDataReader(reader);
     }
 
     return structureArray;
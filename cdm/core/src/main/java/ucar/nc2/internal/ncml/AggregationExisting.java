@@ -6,21 +6,13 @@
 package ucar.nc2.internal.ncml;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.nio.channels.FileChannel;
-import java.nio.channels.FileLock;
-import java.nio.channels.OverlappingFileLockException;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import org.jdom2.Element;
-import thredds.client.catalog.Catalog;
 import thredds.inventory.MFile;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
@@ -34,6 +26,8 @@ import ucar.nc2.constants.CF;
 import ucar.nc2.constants._Coordinate;
 import ucar.nc2.dataset.NetcdfDataset;
 import ucar.nc2.dataset.VariableDS;
+import ucar.nc2.internal.ncml.AggregationIndexProto.CachedValues;
+import ucar.nc2.internal.ncml.AggregationIndexProto.NestedDataset;
 import ucar.nc2.util.CancelTask;
 
 /**
@@ -170,23 +164,12 @@ class AggregationExisting extends AggregationOuter {
 
   /**
    * Persist info (ncoords, coordValues) from joinExisting, since that can be expensive to
-   * recreate.
+   * recreate. Only the datasets that are new or have changed since the last write are added to the index.
    */
   public void persistWrite() throws IOException {
-    if (diskCache2 == null) {
-      return;
-    }
-
-    String cacheName = getCacheName();
-    if (cacheName == null) {
-      return;
-    }
-    if (cacheName.startsWith("file:")) { // LOOK HACK
-      cacheName = cacheName.substring(5);
-    }
-    File cacheFile = diskCache2.getCacheFile(cacheName);
+    File cacheFile = getCacheFile();
     if (cacheFile == null) {
-      throw new IllegalStateException();
+      return;
     }
 
     // only write out if something changed after the cache file was last written, or if the file has been deleted
@@ -201,74 +184,34 @@ class AggregationExisting extends AggregationOuter {
       }
     }
 
-    // Get a file channel for the file
-    try (FileOutputStream fos = new FileOutputStream(cacheFile);
-        FileChannel channel = fos.getChannel();
-        PrintWriter out = new PrintWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8))) {
-
-      // Try acquiring the lock without blocking. This method returns
-      // null or throws an exception if the file is already locked.
-      FileLock lock;
-      try {
-        lock = channel.tryLock();
-      } catch (OverlappingFileLockException e) {
-        // File is already locked in this thread or virtual machine
-        return; // give up
-      }
-      if (lock == null) {
-        return;
-      }
-
-      out.print("<?xml version='1.0' encoding='UTF-8'?>\n");
-      out.print("<aggregation xmlns='http://www.unidata.ucar.edu/namespaces/netcdf/ncml-2.2' version='3' ");
-      out.print("type='" + type + "' ");
-      if (dimName != null) {
-        out.print("dimName='" + dimName + "' ");
-      }
-      if (datasetManager.getRecheck() != null) {
-        out.print("recheckEvery='" + datasetManager.getRecheck() + "' ");
+    List<NestedDataset> records = new ArrayList<>();
+    for (AggDataset dataset : getDatasets()) {
+      AggDatasetOuter dod = (AggDatasetOuter) dataset;
+      if (dod.getId() == null) {
+        logger.warn("id is null");
+        continue;
       }
-      out.print(">\n");
-
-      List<AggDataset> nestedDatasets = getDatasets();
-      for (AggDataset dataset : nestedDatasets) {
-        AggDatasetOuter dod = (AggDatasetOuter) dataset;
-        if (dod.getId() == null) {
-          logger.warn("id is null");
-        }
 
-        out.print("  <netcdf id='" + dod.getId() + "' ");
-        out.print("ncoords='" + dod.getNcoords(null) + "' >\n");
-
-        for (CacheVar pv : cacheList) {
-          Array data = pv.getData(dod.getId());
-          if (data != null) {
-            out.print("    <cache varName='" + pv.varName + "' >");
-            while (data.hasNext()) {
-              out.printf("%s ", data.next());
-            }
-            out.print("</cache>\n");
-            if (logger.isDebugEnabled()) {
-              logger.debug(
-                  " wrote array = " + pv.varName + " nelems= " + data.getSize() + " for " + dataset.getLocation());
-            }
+      MFile mfile = dod.getMFile();
+      NestedDataset.Builder record = AggregationIndex.makeRecord(dod.getId(), dod.getNcoords(null),
+          mfile == null ? 0 : mfile.getLastModified());
+      for (CacheVar pv : cacheList) {
+        Array data = pv.getData(dod.getId());
+        if (data != null) {
+          AggregationIndex.addValues(record, pv.varName, data);
+          if (logger.isDebugEnabled()) {
+            logger.debug(
+                " wrote array = " + pv.varName + " nelems= " + data.getSize() + " for " + dataset.getLocation());
           }
         }
-        out.print("  </netcdf>\n");
-      }
-
-      out.print("</aggregation>\n");
-
-      long time = datasetManager.getLastScanned();
-      if (time == 0) {
-        time = System.currentTimeMillis(); // no scans (eg all static) will have a 0
       }
+      records.add(record.build());
+    }
 
-      if (!cacheFile.setLastModified(time)) {
-        logger.warn("FAIL to set lastModified on {}", cacheFile.getPath());
-      }
+    // if the index was locked by someone else, stay dirty so that the next call tries again
+    boolean written = AggregationIndex.write(cacheFile, type.toString(), dimName, records);
+    if (written) {
       cacheDirty = false;
-
       if (logger.isDebugEnabled()) {
         logger.debug("Aggregation persisted = " + cacheFile.getPath() + " lastModified= "
             + new Date(datasetManager.getLastScanned()));
@@ -276,58 +219,35 @@ class AggregationExisting extends AggregationOuter {
     }
   }
 
-  // read info from the persistent XML file, if it exists
+  // read info from the persistent index file, if it exists
   protected void persistRead() {
-    if (diskCache2 == null) {
-      return;
-    }
-
-    String cacheName = getCacheName();
-    if (cacheName == null) {
-      return;
-    }
-    if (cacheName.startsWith("file:")) // LOOK
-    {
-      cacheName = cacheName.substring(5);
-    }
-
-    File cacheFile = diskCache2.getCacheFile(cacheName);
+    File cacheFile = getCacheFile();
     if (cacheFile == null) {
-      throw new IllegalStateException();
-    }
-    if (!cacheFile.exists()) {
       return;
     }
-    long lastWritten = cacheFile.lastModified();
 
     if (logger.isDebugEnabled()) {
-      logger.debug(" Try to Read cache {} " + cacheFile.getPath());
+      logger.debug(" Try to Read cache {}", cacheFile.getPath());
     }
 
-    Element aggElem;
-    try {
-      aggElem = ucar.nc2.util.xml.Parse.readRootElement("file:" + cacheFile.getPath());
-    } catch (IOException e) {
+    AggregationIndex index = AggregationIndex.read(cacheFile, type.toString(), dimName);
+    if (index == null) {
       if (debugCache) {
-        System.out.println(" No cache for " + cacheName + " - " + e.getMessage());
+        System.out.println(" No cache for " + cacheFile.getPath());
       }
+      // dont read old cache files, recreate; persistWrite() must replace it even if nothing else changes
+      cacheDirty = true;
       return;
     }
 
-    String version = aggElem.getAttributeValue("version");
-    if (!"3".equals(version)) {
-      return; // dont read old cache files, recreate
-    }
-
     // use a map to find datasets to avoid O(n**2) searching
     Map<String, AggDataset> map = new HashMap<>();
     for (AggDataset ds : getDatasets()) {
       map.put(ds.getId(), ds);
     }
 
-    List<Element> ncList = aggElem.getChildren("netcdf", Catalog.ncmlNS);
-    for (Element netcdfElemNested : ncList) {
-      String id = netcdfElemNested.getAttributeValue("id");
+    for (NestedDataset record : index.getDatasets()) {
+      String id = record.getId();
       AggDatasetOuter dod = (AggDatasetOuter) map.get(id);
 
       if (null == dod) {
@@ -342,7 +262,7 @@ class AggregationExisting extends AggregationOuter {
       }
 
       MFile mfile = dod.getMFile();
-      if (mfile != null && mfile.getLastModified() > lastWritten) { // skip datasets that have changed
+      if (mfile != null && mfile.getLastModified() != record.getLastModified()) { // skip datasets that have changed
         if (logger.isDebugEnabled()) {
           logger.debug(" dataset was changed= {}", mfile);
         }
@@ -350,37 +270,23 @@ class AggregationExisting extends AggregationOuter {
       }
 
       if (dod.ncoord == 0) {
-        String ncoordsS = netcdfElemNested.getAttributeValue("ncoords");
-        try {
-          dod.ncoord = Integer.parseInt(ncoordsS);
-          if (logger.isDebugEnabled()) {
-            logger.debug(" Read the cache; ncoords = {}", dod.ncoord);
-          }
-        } catch (NumberFormatException e) {
-          logger.error("bad ncoord attribute on dataset=" + id);
+        dod.ncoord = record.getNcoords();
+        if (logger.isDebugEnabled()) {
+          logger.debug(" Read the cache; ncoords = {}", dod.ncoord);
         }
       }
 
       // if (dod.coordValue != null) continue; // allow ncml to override
 
-      List<Element> cacheElemList = netcdfElemNested.getChildren("cache", Catalog.ncmlNS);
-      for (Element cacheElemNested : cacheElemList) {
-        String varName = cacheElemNested.getAttributeValue("varName");
+      for (CachedValues values : record.getValuesList()) {
+        String varName = values.getVarName();
         CacheVar pv = findCacheVariable(varName);
         if (pv != null) {
-          String sdata = cacheElemNested.getText();
-          if (sdata.isEmpty()) {
-            continue;
-          }
-          if (logger.isDebugEnabled()) {
-            logger.debug(" read data for var = " + varName + " size= " + sdata.length());
-          }
-
-          // long start = System.nanoTime();
-          String[] vals = sdata.split(" ");
-
           try {
-            Array data = Array.makeArray(pv.dtype, vals);
+            Array data = AggregationIndex.getValues(values, pv.dtype);
+            if (data.getSize() == 0) {
+              continue;
+            }
             pv.putData(id, data);
             countCacheUse++;
 
@@ -396,8 +302,27 @@ class AggregationExisting extends AggregationOuter {
 
   }
 
-  // name to use in the DiskCache2 for the persistent XML info.
-  // Document root is aggregation
+  // the persistent index file in the DiskCache2, or null if there is none
+  private File getCacheFile() {
+    if (diskCache2 == null) {
+      return null;
+    }
+
+    String cacheName = getCacheName();
+    if (cacheName == null) {
+      return null;
+    }
+    if (cacheName.startsWith("file:")) { // LOOK HACK
+      cacheName = cacheName.substring(5);
+    }
+    File cacheFile = diskCache2.getCacheFile(cacheName);
+    if (cacheFile == null) {
+      throw new IllegalStateException();
+    }
+    return cacheFile;
+  }
+
+  // name to use in the DiskCache2 for the persistent index.
 
   // has the name getCacheName()
   private String getCacheName() {
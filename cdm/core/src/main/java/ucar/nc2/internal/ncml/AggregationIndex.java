@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.internal.ncml;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.IndexIterator;
+import ucar.nc2.internal.ncml.AggregationIndexProto.CachedValues;
+import ucar.nc2.internal.ncml.AggregationIndexProto.Header;
+import ucar.nc2.internal.ncml.AggregationIndexProto.NestedDataset;
+
+/**
+ * The persistence file of a joinExisting aggregation, holding for each nested dataset its number of coordinates,
+ * the last modified time of its file, and the values of the cached variables (eg the aggregation coordinate).
+ * Reading it lets a large aggregation be reopened without opening its nested datasets.
+ * <p>
+ * The file holds magic bytes, a {@link Header} and one length-delimited {@link NestedDataset} record per
+ * nested dataset. When datasets are added or change, only their records are appended; a later record for
+ * the same dataset replaces an earlier one. The file is rewritten when the replaced records outnumber the
+ * live ones.
+ */
+public class AggregationIndex {
+  private static final byte[] MAGIC = "CDMAGGIX".getBytes(StandardCharsets.US_ASCII);
+  private static final int VERSION = 1;
+
+  /**
+   * Read an index file.
+   *
+   * @param file the index file
+   * @param type aggregation type, must match the one the file was written with
+   * @param dimName aggregation dimension, must match the one the file was written with
+   * @return the index, or null if the file does not exist, is not a valid index (eg an older XML persistence file)
+   *         or was written for a different aggregation
+   */
+  @Nullable
+  public static AggregationIndex read(File file, String type, String dimName) {
+    if (!file.exists()) {
+      return null;
+    }
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+      AggregationIndex index = readFrom(in);
+      return (index != null && index.header.equals(makeHeader(type, dimName))) ? index : null;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Write the records of the nested datasets to an index file. If the file already holds an index for the same
+   * aggregation, only the records that are missing or have changed are appended. If another process or thread
+   * holds the lock on the file, nothing is written.
+   *
+   * @param file the index file, created if needed
+   * @param type aggregation type
+   * @param dimName aggregation dimension
+   * @param datasets records of all the nested datasets of the aggregation
+   * @return true if anything was written
+   */
+  public static boolean write(File file, String type, String dimName, List<NestedDataset> datasets)
+      throws IOException {
+    Header header = makeHeader(type, dimName);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      // Try acquiring the lock without blocking; it is released when the channel is closed
+      FileLock lock;
+      try {
+        lock = channel.tryLock();
+      } catch (OverlappingFileLockException e) {
+        return false; // File is already locked in this thread or virtual machine
+      }
+      if (lock == null) {
+        return false;
+      }
+
+      AggregationIndex existing = null;
+      if (channel.size() > 0) {
+        try {
+          // dont close the stream, it would close the channel
+          existing = readFrom(new BufferedInputStream(Channels.newInputStream(channel)));
+        } catch (IOException e) {
+          existing = null; // corrupt or truncated, rewrite it
+        }
+      }
+
+      List<NestedDataset> toWrite = datasets;
+      boolean append = existing != null && existing.header.equals(header);
+      if (append) {
+        toWrite = new ArrayList<>();
+        for (NestedDataset record : datasets) {
+          if (!record.equals(existing.records.get(record.getId()))) {
+            toWrite.add(record);
+          }
+        }
+        if (toWrite.isEmpty()) {
+          return false;
+        }
+        int replaced = existing.nrecords + toWrite.size() - datasets.size();
+        if (replaced > datasets.size()) {
+          append = false;
+          toWrite = datasets;
+        }
+      }
+
+      if (append) {
+        channel.position(channel.size());
+      } else {
+        channel.truncate(0);
+        channel.position(0);
+      }
+      OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+      if (!append) {
+        out.write(MAGIC);
+        header.writeDelimitedTo(out);
+      }
+      for (NestedDataset record : toWrite) {
+        record.writeDelimitedTo(out);
+      }
+      out.flush();
+      return true;
+    }
+  }
+
+  /**
+   * Make the record of a nested dataset, to which the cached values are added with {@link #addValues}.
+   *
+   * @param id id of the nested dataset
+   * @param ncoords number of coordinates along the aggregation dimension
+   * @param lastModified last modified time of the file of the nested dataset, or 0 if not known
+   */
+  public static NestedDataset.Builder makeRecord(String id, int ncoords, long lastModified) {
+    return NestedDataset.newBuilder().setId(id).setNcoords(ncoords).setLastModified(lastModified);
+  }
+
+  /** Add the values of a cached variable to the record of a nested dataset. */
+  public static void addValues(NestedDataset.Builder record, String varName, Array data) {
+    CachedValues.Builder values = CachedValues.newBuilder().setVarName(varName);
+    DataType dtype = data.getDataType();
+    IndexIterator iter = data.getIndexIterator();
+    if (dtype.isIntegral()) {
+      while (iter.hasNext()) {
+        values.addLvalues(iter.getLongNext());
+      }
+    } else if (dtype.isFloatingPoint()) {
+      while (iter.hasNext()) {
+        values.addDvalues(iter.getDoubleNext());
+      }
+    } else {
+      while (iter.hasNext()) {
+        values.addSvalues(iter.next().toString());
+      }
+    }
+    record.addValues(values);
+  }
+
+  /**
+   * Get the values of a cached variable from the record of a nested dataset.
+   *
+   * @param values the cached values
+   * @param dtype data type of the cached variable
+   * @return one dimensional array of the values
+   */
+  public static Array getValues(CachedValues values, DataType dtype) {
+    if (values.getSvaluesCount() > 0) {
+      return Array.makeArray(dtype, values.getSvaluesList().toArray(new String[0]));
+    }
+    if (values.getDvaluesCount() > 0) {
+      Array data = Array.factory(dtype, new int[] {values.getDvaluesCount()});
+      IndexIterator iter = data.getIndexIterator();
+      for (double val : values.getDvaluesList()) {
+        iter.setDoubleNext(val);
+      }
+      return data;
+    }
+    Array data = Array.factory(dtype, new int[] {values.getLvaluesCount()});
+    IndexIterator iter = data.getIndexIterator();
+    for (long val : values.getLvaluesList()) {
+      iter.setLongNext(val);
+    }
+    return data;
+  }
+
+  private static Header makeHeader(String type, String dimName) {
+    return Header.newBuilder().setVersion(VERSION).setType(type).setDimName(dimName == null ? "" : dimName).build();
+  }
+
+  // returns null if its not an index file; throws IOException if its corrupt
+  @Nullable
+  private static AggregationIndex readFrom(InputStream in) throws IOException {
+    byte[] magic = new byte[MAGIC.length];
+    int n = 0;
+    while (n < magic.length) {
+      int count = in.read(magic, n, magic.length - n);
+      if (count < 0) {
+        return null;
+      }
+      n += count;
+    }
+    if (!Arrays.equals(magic, MAGIC)) {
+      return null;
+    }
+    Header header = Header.parseDelimitedFrom(in);
+    if (header == null || header.getVersion() != VERSION) {
+      return null;
+    }
+
+    AggregationIndex index = new AggregationIndex(header);
+    NestedDataset record;
+    while ((record = NestedDataset.parseDelimitedFrom(in)) != null) {
+      index.records.put(record.getId(), record);
+      index.nrecords++;
+    }
+    return index;
+  }
+
+  private final Header header;
+  private final Map<String, NestedDataset> records = new LinkedHashMap<>();
+  private int nrecords; // number of records in the file, including replaced ones
+
+  private AggregationIndex(Header header) {
+    this.header = header;
+  }
+
+  /** @return the latest record of each nested dataset in the file */
+  public Collection<NestedDataset> getDatasets() {
+    return records.values();
+  }
+}
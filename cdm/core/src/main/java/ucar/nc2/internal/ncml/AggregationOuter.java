@@ -16,6 +16,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
 import thredds.inventory.MFile;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
@@ -405,8 +406,10 @@ abstract class AggregationOuter extends Aggregation implements ProxyReader {
     if (debug)
       System.out.println("   agg wants range=" + mainv.getFullName() + "(" + joinRange + ")");
 
-    // LOOK: could multithread here
     List<AggDataset> nestedDatasets = getDatasets();
+    if (executor != null)
+      return readSectionParallel(mainv, dtype, sectionData, nestedDatasets, joinRange, ranges, cancelTask);
+
     for (AggDataset nested : nestedDatasets) {
       AggDatasetOuter dod = (AggDatasetOuter) nested;
       Range nestedJoinRange = dod.getNestedJoinRange(joinRange);
@@ -511,6 +514,96 @@ abstract class AggregationOuter extends Aggregation implements ProxyReader {
     return allData;
   }
 
+  /*
+   * Read the pieces of a section from the nested datasets on the executor, with at most maxReadsInFlight reads
+   * at a time. Each piece is copied into its own slot of sectionData, so pieces may complete in any order.
+   */
+  private Array readSectionParallel(Variable mainv, DataType dtype, Array sectionData, List<AggDataset> nestedDatasets,
+      Range joinRange, List<Range> ranges, CancelTask cancelTask) throws IOException, InvalidRangeException {
+    List<Range> innerSection = ranges.subList(1, ranges.size());
+    long innerSize = new Section(innerSection).computeSize();
+
+    List<SectionReaderTask> tasks = new ArrayList<>();
+    long destPos = 0;
+    for (AggDataset nested : nestedDatasets) {
+      AggDatasetOuter dod = (AggDatasetOuter) nested;
+      Range nestedJoinRange = dod.getNestedJoinRange(joinRange);
+      if (nestedJoinRange == null)
+        continue;
+
+      List<Range> nestedSection;
+      if ((type == Type.joinNew) || (type == Type.forecastModelRunCollection)) {
+        nestedSection = innerSection;
+      } else {
+        nestedSection = new ArrayList<>(ranges);
+        nestedSection.set(0, nestedJoinRange);
+      }
+      tasks.add(new SectionReaderTask(dod, mainv, nestedSection, dtype, sectionData, destPos, cancelTask));
+      destPos += nestedJoinRange.length() * innerSize;
+    }
+
+    CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+    List<Future<Void>> futures = new ArrayList<>();
+    int submitted = 0;
+    try {
+      for (int done = 0; done < tasks.size(); done++) {
+        while (submitted < tasks.size() && submitted - done < maxReadsInFlight)
+          futures.add(completionService.submit(tasks.get(submitted++)));
+        completionService.take().get();
+        if ((cancelTask != null) && cancelTask.isCancel())
+          return null;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      if (cause instanceof InvalidRangeException)
+        throw (InvalidRangeException) cause;
+      throw new IOException(cause);
+    } finally {
+      // dont interrupt running reads, which would close the channel of a shared file
+      for (Future<Void> f : futures)
+        f.cancel(false);
+    }
+
+    return sectionData;
+  }
+
+  private static class SectionReaderTask implements Callable<Void> {
+    AggDatasetOuter dod;
+    Variable mainv;
+    List<Range> section;
+    DataType dtype;
+    Array sectionData;
+    long destPos;
+    CancelTask cancelTask;
+
+    SectionReaderTask(AggDatasetOuter dod, Variable mainv, List<Range> section, DataType dtype, Array sectionData,
+        long destPos, CancelTask cancelTask) {
+      this.dod = dod;
+      this.mainv = mainv;
+      this.section = section;
+      this.dtype = dtype;
+      this.sectionData = sectionData;
+      this.destPos = destPos;
+      this.cancelTask = cancelTask;
+    }
+
+    public Void call() throws Exception {
+      if ((cancelTask != null) && cancelTask.isCancel())
+        return null;
+      Array varData = dod.read(mainv, cancelTask, section);
+      if (varData == null) // cancelled
+        return null;
+      varData = MAMath.convert(varData, dtype); // just in case it needs to be converted
+      Array.arraycopy(varData, 0, sectionData, (int) destPos, (int) varData.getSize());
+      return null;
+    }
+  }
+
   private static class ReaderTask implements Callable<Result> {
     AggDataset ds;
     Variable mainv;
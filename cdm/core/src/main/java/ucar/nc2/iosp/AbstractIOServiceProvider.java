@@ -25,6 +25,8 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.channels.WritableByteChannel;
 import java.util.Formatter;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Abstract base class for IOSP implementations that provides default implementations
@@ -44,6 +46,19 @@ import java.util.Formatter;
  * </ol>
  */
 public abstract class AbstractIOServiceProvider implements IOServiceProvider {
+  private static volatile boolean concurrentReads;
+
+  /**
+   * Allow IOSPs that support it to read the data for each readData() call through its own positional reader of the
+   * file, so that one open file can serve readData() calls from several threads at once. Default is off, since each
+   * call then starts with an empty buffer.
+   *
+   * @see RandomAccessFile#newPositionalReader()
+   */
+  public static void setConcurrentReads(boolean b) {
+    concurrentReads = b;
+  }
+
   /**
    * Subclasses that use AbstractIOServiceProvider.open(...) or .close()
    * should use this (instead of their own private variable).
@@ -52,6 +67,9 @@ public abstract class AbstractIOServiceProvider implements IOServiceProvider {
   protected String location;
   protected int rafOrder = RandomAccessFile.BIG_ENDIAN;
 
+  // positional readers from getDataReader() that have not been released yet
+  private final Set<RandomAccessFile> dataReaders = ConcurrentHashMap.newKeySet();
+
   // In general, ncfile doesnt exist until after open is called.
   // That argues for open() changing to a builder.
   protected NetcdfFile ncfile;
@@ -86,6 +104,7 @@ public abstract class AbstractIOServiceProvider implements IOServiceProvider {
 
   @Override
   public void close() throws java.io.IOException {
+    closeDataReaders();
     if (raf != null)
       raf.close();
     raf = null;
@@ -93,6 +112,7 @@ public abstract class AbstractIOServiceProvider implements IOServiceProvider {
 
   // release any resources like file handles
   public void release() throws IOException {
+    closeDataReaders();
     if (raf != null)
       raf.close();
     raf = null;
@@ -104,6 +124,40 @@ public abstract class AbstractIOServiceProvider implements IOServiceProvider {
     raf.order(rafOrder);
   }
 
+  /**
+   * The RandomAccessFile to use for one readData() call. If concurrent reads are on, and raf is a local read only
+   * file, this is a new positional reader of raf, otherwise it is raf itself. Pass it to releaseDataReader() when the
+   * call is done.
+   *
+   * @see #setConcurrentReads(boolean)
+   */
+  protected RandomAccessFile getDataReader() throws IOException {
+    RandomAccessFile local = raf;
+    if (concurrentReads && local != null) {
+      RandomAccessFile reader = local.newPositionalReader();
+      if (reader != null) {
+        dataReaders.add(reader);
+        return reader;
+      }
+    }
+    return local;
+  }
+
+  /** Close a reader from getDataReader(), unless it is raf itself. */
+  protected void releaseDataReader(RandomAccessFile reader) throws IOException {
+    if (reader != null && dataReaders.remove(reader))
+      reader.close();
+  }
+
+  /**
+   * Close the readers from getDataReader() that are still in use. Subclasses that override close() or release()
+   * without calling super should call this.
+   */
+  protected void closeDataReaders() throws IOException {
+    for (RandomAccessFile reader : dataReaders)
+      releaseDataReader(reader);
+  }
+
   // default implementation, reads into an Array, then writes to WritableByteChannel
   // subclasses should override if possible
   // LOOK DataOutputStream uses big-endian
@@ -8,6 +8,7 @@ package ucar.nc2.iosp;
 import ucar.unidata.io.RandomAccessFile;
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Helper for reading data that has been bit packed.
@@ -30,6 +31,8 @@ public class BitReader {
   private byte bitBuf;
   private int bitPos; // Current bit position in bitBuf.
 
+  private byte[] scratch; // bulk reads from raf
+
   // for testing
   public BitReader(byte[] test) {
     this.data = test;
@@ -121,7 +124,7 @@ public class BitReader {
       assert shift >= 0;
 
       // put it there
-      result |= myBits << shift;
+      result |= (long) myBits << shift;
 
       // -- put bit to result ----------------------
       // update information on what we consumed
@@ -132,6 +135,126 @@ public class BitReader {
     return result;
   }
 
+  /**
+   * Read the next count values of nb bits each, as unsigned ints. Same as calling (int) bits2UInt(nb) count times,
+   * but the packed bytes are read in bulk, and unpacked with a loop specialized for the common widths of
+   * 8, 12, 16 and 24 bits when the values start on a byte boundary.
+   *
+   * Values of 32 bits with the high bit set come out negative; use bits2UInt() if they need to be unsigned.
+   *
+   * @param nb the number of bits in each value, must be 0 <= nb <= 32.
+   * @param dest put the values here
+   * @param off starting at dest[off]
+   * @param count number of values
+   * @throws java.io.IOException on read error
+   * @throws IllegalArgumentException if nb is not in 0..32
+   */
+  public void readUInts(int nb, int[] dest, int off, int count) throws IOException {
+    if (nb < 0 || nb > 32)
+      throw new IllegalArgumentException("Cant read " + nb + " bit values as ints");
+
+    if (count <= 0) {
+      return;
+    }
+    if (nb == 0) {
+      Arrays.fill(dest, off, off + count, 0);
+      return;
+    }
+    long needBits = (long) nb * count - bitPos; // bits needed beyond those left in bitBuf
+    if (needBits <= 0) {
+      for (int i = 0; i < count; i++)
+        dest[off + i] = (int) bits2UInt(nb);
+      return;
+    }
+
+    int nbytes = (int) ((needBits + BIT_LENGTH - 1) / BIT_LENGTH);
+    byte[] buf;
+    int bufPos;
+    if (raf != null) {
+      if (scratch == null || scratch.length < nbytes)
+        scratch = new byte[nbytes];
+      buf = scratch;
+      bufPos = 0;
+      raf.readFully(buf, 0, nbytes);
+    } else {
+      if (dataPos + nbytes > data.length)
+        throw new EOFException();
+      buf = data;
+      bufPos = dataPos;
+      dataPos += nbytes;
+    }
+
+    if (bitPos == 0) {
+      switch (nb) {
+        case 8:
+          unpack8(buf, bufPos, dest, off, count);
+          break;
+        case 12:
+          unpack12(buf, bufPos, dest, off, count);
+          break;
+        case 16:
+          unpack16(buf, bufPos, dest, off, count);
+          break;
+        case 24:
+          unpack24(buf, bufPos, dest, off, count);
+          break;
+        default:
+          unpack(buf, bufPos, 0, 0, nb, dest, off, count);
+      }
+    } else {
+      unpack(buf, bufPos, bitBuf & (BYTE_BITMASK >> (BIT_LENGTH - bitPos)), bitPos, nb, dest, off, count);
+    }
+
+    // the unused bits of the last byte are read next
+    bitPos = (int) (nbytes * (long) BIT_LENGTH - needBits);
+    bitBuf = (bitPos == 0) ? 0 : buf[bufPos + nbytes - 1];
+  }
+
+  // general case: shift bytes into a 64 bit accumulator, which starts with accBits bits in acc
+  private static void unpack(byte[] buf, int pos, long acc, int accBits, int nb, int[] dest, int off, int count) {
+    long mask = (1L << nb) - 1;
+    for (int i = 0; i < count; i++) {
+      while (accBits < nb) {
+        acc = (acc << BIT_LENGTH) | (buf[pos++] & BYTE_BITMASK);
+        accBits += BIT_LENGTH;
+      }
+      accBits -= nb;
+      dest[off + i] = (int) ((acc >>> accBits) & mask);
+    }
+  }
+
+  private static void unpack8(byte[] buf, int pos, int[] dest, int off, int count) {
+    for (int i = 0; i < count; i++)
+      dest[off + i] = buf[pos + i] & BYTE_BITMASK;
+  }
+
+  private static void unpack12(byte[] buf, int pos, int[] dest, int off, int count) {
+    int npairs = count / 2;
+    for (int i = 0; i < npairs; i++) {
+      int b0 = buf[pos + 3 * i] & BYTE_BITMASK;
+      int b1 = buf[pos + 3 * i + 1] & BYTE_BITMASK;
+      int b2 = buf[pos + 3 * i + 2] & BYTE_BITMASK;
+      dest[off + 2 * i] = (b0 << 4) | (b1 >>> 4);
+      dest[off + 2 * i + 1] = ((b1 & 0x0F) << 8) | b2;
+    }
+    if (count % 2 != 0) {
+      int b0 = buf[pos + 3 * npairs] & BYTE_BITMASK;
+      int b1 = buf[pos + 3 * npairs + 1] & BYTE_BITMASK;
+      dest[off + count - 1] = (b0 << 4) | (b1 >>> 4);
+    }
+  }
+
+  private static void unpack16(byte[] buf, int pos, int[] dest, int off, int count) {
+    for (int i = 0; i < count; i++)
+      dest[off + i] = ((buf[pos + 2 * i] & BYTE_BITMASK) << 8) | (buf[pos + 2 * i + 1] & BYTE_BITMASK);
+  }
+
+  private static void unpack24(byte[] buf, int pos, int[] dest, int off, int count) {
+    for (int i = 0; i < count; i++)
+      dest[off + i] = ((buf[pos + 3 * i] & BYTE_BITMASK) << 16) | ((buf[pos + 3 * i + 1] & BYTE_BITMASK) << 8)
+          | (buf[pos + 3 * i + 2] & BYTE_BITMASK);
+  }
+
   /**
    * Read the next nb bits and return an Signed Long .
    *
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Formatter;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import javax.annotation.Nullable;
+
+/**
+ * A process-wide cache of decompressed and unfiltered data chunks, shared by the tiled layouts
+ * (HDF5 / netCDF-4 and Zarr), so that repeated reads of the same chunks skip the I/O and decoding.
+ * The cache is bounded by the total size in bytes of the chunks it holds, evicting the least recently used ones.
+ * <p>
+ * Chunks are keyed by file location, last modified time of the file, variable and chunk position,
+ * so chunks of a file that has been modified since they were cached are never returned; they age out of the cache.
+ * <p>
+ * The cache is disabled by default; enable it with {@link #setDefault(ChunkCache)}.
+ */
+public class ChunkCache {
+
+  private static ChunkCache defaultCache;
+
+  /**
+   * Set the cache used by the tiled layouts.
+   *
+   * @param cache the cache shared by all files; if null, chunk caching is disabled
+   */
+  public static synchronized void setDefault(@Nullable ChunkCache cache) {
+    defaultCache = cache;
+  }
+
+  /**
+   * @return the cache used by the tiled layouts, or null if chunk caching is disabled
+   */
+  @Nullable
+  public static synchronized ChunkCache getDefault() {
+    return defaultCache;
+  }
+
+  private final long maxBytes;
+  private final Cache<Key, ByteBuffer> cache;
+
+  /**
+   * @param maxBytes maximum total size in bytes of the cached chunks
+   */
+  public ChunkCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+    // Guava divides maximumWeight among the segments, so with more than one a chunk larger than a segment's share is
+    // evicted as soon as it is added
+    this.cache = CacheBuilder.newBuilder().concurrencyLevel(1).maximumWeight(maxBytes)
+        .weigher((Key key, ByteBuffer bb) -> bb.capacity()).recordStats().build();
+  }
+
+  /**
+   * Get a decoded chunk, loading it and adding it to the cache if it is not already there.
+   * The returned buffer is a view of the cached chunk, with its own position and limit;
+   * callers must not change its contents.
+   *
+   * @param location location of the file
+   * @param lastModified last modified time of the file, see {@link ucar.nc2.util.cache.FileCacheable#getLastModified}
+   * @param varName full name of the variable
+   * @param chunkPos position of the chunk, unique within the variable, eg its file offset or chunk number
+   * @param loader reads and decodes the chunk on a cache miss
+   * @return the decoded chunk, positioned at 0, with the byte order the loader set
+   * @throws IOException if the loader fails
+   */
+  public ByteBuffer get(String location, long lastModified, String varName, long chunkPos,
+      Callable<ByteBuffer> loader) throws IOException {
+    ByteBuffer bb;
+    try {
+      bb = cache.get(new Key(location, lastModified, varName, chunkPos), loader);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException(cause);
+    }
+    return bb.duplicate().order(bb.order());
+  }
+
+  /**
+   * Get a decoded chunk if it is in the cache.
+   *
+   * @return a view of the cached chunk as in {@link #get(String, long, String, long, Callable)}, or null
+   */
+  @Nullable
+  public ByteBuffer getIfPresent(String location, long lastModified, String varName, long chunkPos) {
+    ByteBuffer bb = cache.getIfPresent(new Key(location, lastModified, varName, chunkPos));
+    return bb == null ? null : bb.duplicate().order(bb.order());
+  }
+
+  /**
+   * Add a decoded chunk to the cache. The cache keeps a reference to bb, so the caller must not change it afterwards.
+   */
+  public void put(String location, long lastModified, String varName, long chunkPos, ByteBuffer bb) {
+    cache.put(new Key(location, lastModified, varName, chunkPos), bb);
+  }
+
+  /**
+   * Remove all chunks of a file from the cache.
+   *
+   * @param location location of the file
+   */
+  public void invalidate(String location) {
+    cache.asMap().keySet().removeIf(key -> key.location.equals(location));
+  }
+
+  /** Remove all chunks from the cache. */
+  public void clearCache() {
+    cache.invalidateAll();
+  }
+
+  /** @return maximum total size in bytes of the cached chunks */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /** @return total size in bytes of the cached chunks */
+  public long getCachedBytes() {
+    long total = 0;
+    for (ByteBuffer bb : cache.asMap().values()) {
+      total += bb.capacity();
+    }
+    return total;
+  }
+
+  /** @return number of chunks in the cache */
+  public long getCachedChunks() {
+    return cache.size();
+  }
+
+  /** @return number of lookups that found the chunk in the cache */
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  /** @return number of lookups that did not find the chunk in the cache */
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  /** @return number of chunks evicted to stay within the size bound */
+  public long getEvictionCount() {
+    return cache.stats().evictionCount();
+  }
+
+  public void showStats(Formatter format) {
+    CacheStats stats = cache.stats();
+    format.format("ChunkCache: chunks=%d bytes=%d max=%d hits=%d misses=%d hitRate=%.3f evictions=%d%n",
+        getCachedChunks(), getCachedBytes(), maxBytes, stats.hitCount(), stats.missCount(), stats.hitRate(),
+        stats.evictionCount());
+  }
+
+  private static class Key {
+    private final String location;
+    private final long lastModified;
+    private final String varName;
+    private final long chunkPos;
+
+    Key(String location, long lastModified, String varName, long chunkPos) {
+      this.location = location;
+      this.lastModified = lastModified;
+      this.varName = varName;
+      this.chunkPos = chunkPos;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return lastModified == key.lastModified && chunkPos == key.chunkPos && location.equals(key.location)
+          && varName.equals(key.varName);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(location, lastModified, varName, chunkPos);
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A magic number that a file of some format contains near its start, either at a fixed offset, or
+ * anywhere in the first searchLength bytes. IOServiceProviders declare these with getFileSignatures(), so that
+ * NetcdfFiles can skip isValidFile() for files that cant be theirs.
+ * A match is only a hint: isValidFile() still makes the decision.
+ *
+ * @see IOServiceProvider#getFileSignatures()
+ */
+@Immutable
+public class FileSignature {
+
+  /** The magic number is at this offset in the file. */
+  public static FileSignature at(long offset, byte[] magic) {
+    return new FileSignature(offset, 1, magic);
+  }
+
+  /** The magic number, as UTF-8 bytes, is at this offset in the file. */
+  public static FileSignature at(long offset, String magic) {
+    return at(offset, magic.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * The magic number is at offset 0, 512, 1024, 2048, ... up to but not including maxOffset, as with the superblock of
+   * HDF4 and HDF5 files.
+   */
+  public static List<FileSignature> atPowersOfTwo(long maxOffset, byte[] magic) {
+    List<FileSignature> result = new ArrayList<>();
+    for (long offset = 0; offset < maxOffset; offset = (offset == 0) ? 512 : 2 * offset) {
+      result.add(at(offset, magic));
+    }
+    return result;
+  }
+
+  /** The magic number starts somewhere in the first searchLength bytes of the file. */
+  public static FileSignature within(int searchLength, byte[] magic) {
+    return new FileSignature(0, searchLength, magic);
+  }
+
+  /** The magic number, as UTF-8 bytes, starts somewhere in the first searchLength bytes of the file. */
+  public static FileSignature within(int searchLength, String magic) {
+    return within(searchLength, magic.getBytes(StandardCharsets.UTF_8));
+  }
+
+  ////////////////////////////////////////////////////////////////////
+
+  private final long offset;
+  private final int searchLength;
+  private final byte[] magic;
+
+  private FileSignature(long offset, int searchLength, byte[] magic) {
+    if (magic.length == 0 || searchLength < 1 || offset < 0)
+      throw new IllegalArgumentException("empty FileSignature");
+    this.offset = offset;
+    this.searchLength = searchLength;
+    this.magic = magic.clone();
+  }
+
+  /** First file position where the magic number may start. */
+  public long getOffset() {
+    return offset;
+  }
+
+  /** One past the last file position that the magic number may occupy. */
+  public long getEnd() {
+    return offset + searchLength - 1 + magic.length;
+  }
+
+  /**
+   * See if the magic number is in some bytes of the file.
+   *
+   * @param bytes bytes of the file
+   * @param bytesOffset file position of bytes[0]
+   * @param nbytes number of valid bytes
+   * @return true if the magic number is found where expected, in the given bytes.
+   */
+  public boolean matches(byte[] bytes, long bytesOffset, int nbytes) {
+    long last = Math.min(offset + searchLength, bytesOffset + nbytes - magic.length + 1);
+    for (long start = Math.max(offset, bytesOffset); start < last; start++) {
+      if (matchesAt(bytes, (int) (start - bytesOffset))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean matchesAt(byte[] bytes, int pos) {
+    for (int i = 0; i < magic.length; i++) {
+      if (bytes[pos + i] != magic[i])
+        return false;
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (byte b : magic) {
+      if (b >= 0x20 && b < 0x7f)
+        sb.append((char) b);
+      else
+        sb.append(String.format("\\x%02x", b & 0xff));
+    }
+    return (searchLength == 1) ? String.format("'%s' at %d", sb, offset)
+        : String.format("'%s' within %d", sb, searchLength);
+  }
+}
@@ -7,6 +7,7 @@ package ucar.nc2.iosp;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.channels.WritableByteChannel;
+import java.util.List;
 import javax.annotation.Nullable;
 import ucar.ma2.Section;
 import ucar.ma2.InvalidRangeException;
@@ -47,6 +48,17 @@ public interface IOServiceProvider extends Comparable<IOServiceProvider> {
    */
   boolean isValidFile(RandomAccessFile raf) throws IOException;
 
+  /**
+   * Magic numbers, one of which is in every file that this IOSP can open. If none of them are found in the start
+   * of the file, isValidFile() is not called. This lets NetcdfFiles.open() skip IOSPs whose isValidFile() is slow.
+   *
+   * @return magic numbers, or null (the default) to always call isValidFile().
+   */
+  @Nullable
+  default List<FileSignature> getFileSignatures() {
+    return null;
+  }
+
   /**
    * Open existing file, and populate ncfile with it. This method is only called by the
    * NetcdfFile constructor on itself. The provided NetcdfFile object will be empty
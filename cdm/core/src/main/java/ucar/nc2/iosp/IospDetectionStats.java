@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * How often, and for how long, NetcdfFiles.open() tried an IOServiceProvider on a file.
+ *
+ * @see ucar.nc2.NetcdfFiles#getDetectionStats()
+ */
+@Immutable
+public class IospDetectionStats {
+  private final String iospClassName;
+  private final long rejected, calls, accepted, nanos;
+
+  public IospDetectionStats(String iospClassName, long rejected, long calls, long accepted, long nanos) {
+    this.iospClassName = iospClassName;
+    this.rejected = rejected;
+    this.calls = calls;
+    this.accepted = accepted;
+    this.nanos = nanos;
+  }
+
+  /** Class name of the IOServiceProvider. */
+  public String getIospClassName() {
+    return iospClassName;
+  }
+
+  /** Number of files skipped because none of the FileSignatures matched. */
+  public long getRejected() {
+    return rejected;
+  }
+
+  /** Number of calls to isValidFile(). */
+  public long getCalls() {
+    return calls;
+  }
+
+  /** Number of calls to isValidFile() that returned true. */
+  public long getAccepted() {
+    return accepted;
+  }
+
+  /** Total time spent checking signatures and in isValidFile(), in nanoseconds. */
+  public long getNanos() {
+    return nanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%-50s rejected= %d isValidFile= %d accepted= %d time= %.3f msecs", iospClassName, rejected,
+        calls, accepted, nanos / 1.0e6);
+  }
+}
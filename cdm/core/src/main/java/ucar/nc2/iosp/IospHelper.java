@@ -315,9 +315,7 @@ public class IospHelper {
           continue;
         }
         bb.position(chunk.getSrcElem());
-        int pos = (int) chunk.getDestElem();
-        for (int i = 0; i < chunk.getNelems(); i++)
-          pa[pos++] = bb.get();
+        bb.get(pa, (int) chunk.getDestElem(), chunk.getNelems());
       }
       // return (dataType == DataType.CHAR) ? convertByteToChar(pa) : pa;
       if (dataType == DataType.CHAR) {
@@ -337,9 +335,7 @@ public class IospHelper {
           continue;
         }
         buff.position(chunk.getSrcElem());
-        int pos = (int) chunk.getDestElem();
-        for (int i = 0; i < chunk.getNelems(); i++)
-          pa[pos++] = buff.get();
+        buff.get(pa, (int) chunk.getDestElem(), chunk.getNelems());
       }
       return pa;
 
@@ -353,9 +349,7 @@ public class IospHelper {
           continue;
         }
         buff.position(chunk.getSrcElem());
-        int pos = (int) chunk.getDestElem();
-        for (int i = 0; i < chunk.getNelems(); i++)
-          pa[pos++] = buff.get();
+        buff.get(pa, (int) chunk.getDestElem(), chunk.getNelems());
       }
       return pa;
 
@@ -369,9 +363,7 @@ public class IospHelper {
           continue;
         }
         buff.position(chunk.getSrcElem());
-        int pos = (int) chunk.getDestElem();
-        for (int i = 0; i < chunk.getNelems(); i++)
-          pa[pos++] = buff.get();
+        buff.get(pa, (int) chunk.getDestElem(), chunk.getNelems());
       }
       return pa;
 
@@ -385,9 +377,7 @@ public class IospHelper {
           continue;
         }
         buff.position(chunk.getSrcElem());
-        int pos = (int) chunk.getDestElem();
-        for (int i = 0; i < chunk.getNelems(); i++)
-          pa[pos++] = buff.get();
+        buff.get(pa, (int) chunk.getDestElem(), chunk.getNelems());
       }
       return pa;
 
@@ -401,9 +391,7 @@ public class IospHelper {
           continue;
         }
         buff.position(chunk.getSrcElem());
-        int pos = (int) chunk.getDestElem();
-        for (int i = 0; i < chunk.getNelems(); i++)
-          pa[pos++] = buff.get();
+        buff.get(pa, (int) chunk.getDestElem(), chunk.getNelems());
       }
       return pa;
 
@@ -418,9 +406,7 @@ public class IospHelper {
           continue;
         }
         bb.position(chunk.getSrcElem() * recsize);
-        int pos = (int) chunk.getDestElem() * recsize;
-        for (int i = 0; i < chunk.getNelems() * recsize; i++)
-          pa[pos++] = bb.get();
+        bb.get(pa, (int) chunk.getDestElem() * recsize, chunk.getNelems() * recsize);
       }
       return pa;
     } else if (dataType == DataType.STRING) {
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp;
+
+import java.io.IOException;
+import java.nio.*;
+import ucar.unidata.io.RandomAccessFile;
+
+/**
+ * Turns a Layout of file positions into a LayoutBB, whose chunks are the bytes of the file from
+ * RandomAccessFile.readByteBuffer(). For a memory mapped file these are views of the mapping,
+ * so the data goes straight from the mapping into the result array.
+ * The file position is not used, so several threads may read the same file through their own LayoutBBMapped.
+ *
+ * @see ucar.unidata.io.MMapRandomAccessFile
+ */
+public class LayoutBBMapped implements LayoutBB {
+  private final Layout layout;
+  private final RandomAccessFile raf;
+
+  /**
+   * Constructor.
+   *
+   * @param layout the chunks to read, with their positions in the file
+   * @param raf read from this file, in its current byte order
+   */
+  public LayoutBBMapped(Layout layout, RandomAccessFile raf) {
+    this.layout = layout;
+    this.raf = raf;
+  }
+
+  @Override
+  public long getTotalNelems() {
+    return layout.getTotalNelems();
+  }
+
+  @Override
+  public int getElemSize() {
+    return layout.getElemSize();
+  }
+
+  @Override
+  public boolean hasNext() {
+    return layout.hasNext();
+  }
+
+  @Override
+  public LayoutBB.Chunk next() {
+    Layout.Chunk chunk = layout.next();
+    try {
+      return new Chunk(chunk, raf.readByteBuffer(chunk.getSrcPos(), chunk.getNelems() * layout.getElemSize()));
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "LayoutBBMapped{" + layout + "}";
+  }
+
+  // the buffer holds exactly the bytes of the chunk, so the source element is always 0
+  private static class Chunk implements LayoutBB.Chunk {
+    private final Layout.Chunk delegate;
+    private final ByteBuffer bb;
+
+    Chunk(Layout.Chunk delegate, ByteBuffer bb) {
+      this.delegate = delegate;
+      this.bb = bb;
+    }
+
+    public int getSrcElem() {
+      return 0;
+    }
+
+    public long getSrcPos() {
+      return delegate.getSrcPos();
+    }
+
+    public int getNelems() {
+      return delegate.getNelems();
+    }
+
+    public long getDestElem() {
+      return delegate.getDestElem();
+    }
+
+    public ByteBuffer getByteBuffer() {
+      return bb;
+    }
+
+    public ShortBuffer getShortBuffer() {
+      return bb.asShortBuffer();
+    }
+
+    public IntBuffer getIntBuffer() {
+      return bb.asIntBuffer();
+    }
+
+    public LongBuffer getLongBuffer() {
+      return bb.asLongBuffer();
+    }
+
+    public FloatBuffer getFloatBuffer() {
+      return bb.asFloatBuffer();
+    }
+
+    public DoubleBuffer getDoubleBuffer() {
+      return bb.asDoubleBuffer();
+    }
+
+    @Override
+    public String toString() {
+      return delegate.toString();
+    }
+  }
+}
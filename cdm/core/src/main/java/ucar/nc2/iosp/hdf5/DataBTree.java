@@ -5,7 +5,10 @@
 
 package ucar.nc2.iosp.hdf5;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
 import ucar.ma2.Section;
 import ucar.nc2.iosp.LayoutTiled;
 import ucar.nc2.util.Misc;
@@ -37,6 +40,19 @@ public class DataBTree {
   private static final boolean debugChunkOrder = false;
   private static java.io.PrintStream debugOut = System.out;
 
+  private static final int DEFAULT_MAX_CACHED_ENTRIES = 100 * 1000;
+  private static volatile int maxCachedEntries = DEFAULT_MAX_CACHED_ENTRIES;
+
+  /**
+   * Set the size of the node cache of each DataBTree created afterwards.
+   * Parsed nodes are kept so that repeated reads of a variable do not re-read its btree from the file.
+   *
+   * @param maxEntries maximum number of node entries (about one per chunk) cached per variable; 0 disables caching.
+   */
+  public static void setMaxCachedEntries(int maxEntries) {
+    maxCachedEntries = maxEntries;
+  }
+
   private final H5headerIF h5;
   private final MemTracker memTracker;
 
@@ -46,16 +62,47 @@ public class DataBTree {
 
   private Object owner;
 
+  private final int maxEntries;
+  private Cache<Long, NodeContents> nodeCache; // created lazily, null if caching is disabled
+
   public DataBTree(H5headerIF h5, long rootNodeAddress, int[] varShape, int[] storageSize, MemTracker memTracker) {
     this.h5 = h5;
     this.rootNodeAddress = rootNodeAddress;
     this.tiling = new Tiling(varShape, storageSize);
     this.ndimStorage = storageSize.length;
     this.memTracker = memTracker;
+    this.maxEntries = maxCachedEntries;
 
     wantType = 1;
   }
 
+  // Get the parsed node at this address, from the cache if possible
+  private NodeContents getNodeContents(long address, long parent) throws IOException {
+    if (maxEntries <= 0) {
+      return new NodeContents(address, parent);
+    }
+    synchronized (this) {
+      if (nodeCache == null) {
+        nodeCache = CacheBuilder.newBuilder().maximumWeight(maxEntries)
+            .weigher((Long key, NodeContents node) -> node.nentries + 1).build();
+      }
+    }
+    try {
+      return nodeCache.get(address, () -> new NodeContents(address, parent));
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  // number of nodes in the cache, for testing
+  synchronized long getCachedNodes() {
+    return nodeCache == null ? 0 : nodeCache.size();
+  }
+
   RandomAccessFile getRandomAccessFile() {
     return h5.getRandomAccessFile();
   }
@@ -90,7 +137,7 @@ public class DataBTree {
      */
     DataChunkIteratorNoFilter(Section want, int nChunkDim) throws IOException {
       this.nChunkDim = nChunkDim;
-      root = new Node(rootNodeAddress, -1); // should we cache the nodes ???
+      root = new Node(rootNodeAddress, -1);
       int[] wantOrigin = (want != null) ? want.getOrigin() : null;
       root.first(wantOrigin);
     }
@@ -127,7 +174,7 @@ public class DataBTree {
      * @throws IOException on error
      */
     DataChunkIterator(Section want) throws IOException {
-      root = new Node(rootNodeAddress, -1); // should we cache the nodes ???
+      root = new Node(rootNodeAddress, -1);
       wantOrigin = (want != null) ? want.getOrigin() : null;
       root.first(wantOrigin);
     }
@@ -141,11 +188,10 @@ public class DataBTree {
     }
   }
 
-  // Btree nodes
-  class Node {
-    private long address;
-    private int level, nentries;
-    private Node currentNode;
+  // Btree nodes, as read from the file. These are immutable, so can be shared by iterators.
+  private class NodeContents {
+    private final long address;
+    private final int level, nentries;
 
     // level 0 only
     private List<DataChunk> myEntries;
@@ -155,9 +201,7 @@ public class DataBTree {
     // "For raw data chunk nodes, the child pointer is the address of a single raw data chunk"
     private long[] childPointer; // long[nentries];
 
-    private int currentEntry; // track iteration; LOOK this seems fishy - why not an iterator ??
-
-    Node(long address, long parent) throws IOException {
+    NodeContents(long address, long parent) throws IOException {
       if (debugDataBtree)
         debugOut.println("\n--> DataBTree read tree at address=" + address + " parent= " + parent + " owner= " + owner);
 
@@ -216,6 +260,28 @@ public class DataBTree {
         }
       }
     }
+  }
+
+  // iterates over the chunks of a btree node and its children
+  class Node {
+    private final long address;
+    private final int level, nentries;
+    private final List<DataChunk> myEntries;
+    private final int[][] offset;
+    private final long[] childPointer;
+    private Node currentNode;
+
+    private int currentEntry; // track iteration; LOOK this seems fishy - why not an iterator ??
+
+    Node(long address, long parent) throws IOException {
+      NodeContents contents = getNodeContents(address, parent);
+      this.address = address;
+      this.level = contents.level;
+      this.nentries = contents.nentries;
+      this.myEntries = contents.myEntries;
+      this.offset = contents.offset;
+      this.childPointer = contents.childPointer;
+    }
 
     // this finds the first entry we dont want to skip.
     // entry i goes from [offset(i),offset(i+1))
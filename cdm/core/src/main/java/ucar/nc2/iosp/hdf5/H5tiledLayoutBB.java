@@ -10,15 +10,23 @@ import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
 import ucar.ma2.Section;
 import ucar.nc2.Variable;
+import ucar.nc2.filter.BufferPool;
+import ucar.nc2.filter.Checksum32;
+import ucar.nc2.filter.Deflate;
+import ucar.nc2.filter.Filter;
+import ucar.nc2.filter.Filters;
+import ucar.nc2.filter.Shuffle;
+import ucar.nc2.iosp.ChunkCache;
 import ucar.nc2.iosp.LayoutBB;
 import ucar.nc2.iosp.LayoutBBTiled;
-import ucar.nc2.util.IO;
 import ucar.unidata.io.RandomAccessFile;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Iterator to read/write subsets of an array.
@@ -40,12 +48,18 @@ public class H5tiledLayoutBB implements LayoutBB {
 
   private RandomAccessFile raf;
   private H5header.Filter[] filters;
+  private Filter[] decoders; // decoder for each filter, null if the filter is not supported
   private ByteOrder byteOrder;
 
   private Section want;
   private int[] chunkSize; // from the StorageLayout message (exclude the elemSize)
   private int elemSize; // last dimension of the StorageLayout message
   private int nChunkDims;
+  private int chunkBytes; // size of an uncompressed chunk in bytes
+
+  private ChunkCache chunkCache; // shared cache of decoded chunks, null if disabled
+  private String varName;
+  private long lastModified;
 
   private boolean debug;
 
@@ -71,7 +85,16 @@ public class H5tiledLayoutBB implements LayoutBB {
     assert vinfo.btree != null;
 
     this.raf = raf;
+    this.chunkCache = ChunkCache.getDefault();
+    if (chunkCache != null) {
+      this.varName = v2.getFullName();
+      this.lastModified = raf.getLastModified();
+    }
     this.filters = filters;
+    this.decoders = new Filter[filters.length];
+    for (int i = 0; i < filters.length; i++) {
+      decoders[i] = makeDecoder(filters[i]);
+    }
     this.byteOrder = byteOrder;
 
     // we have to translate the want section into the same rank as the storageSize, in order to be able to call
@@ -89,6 +112,11 @@ public class H5tiledLayoutBB implements LayoutBB {
     this.chunkSize = new int[nChunkDims];
     System.arraycopy(vinfo.storageSize, 0, chunkSize, 0, nChunkDims);
     this.elemSize = vinfo.storageSize[vinfo.storageSize.length - 1]; // last one is always the elements size
+    long nbytes = 1;
+    for (int size : vinfo.storageSize) {
+      nbytes *= size;
+    }
+    this.chunkBytes = (int) Math.min(nbytes, DataChunk.MAX_ARRAY_LEN);
 
     // create the data chunk iterator
     DataBTree.DataChunkIterator iter = vinfo.btree.getDataChunkIteratorFilter(this.want);
@@ -113,6 +141,21 @@ public class H5tiledLayoutBB implements LayoutBB {
       System.out.println(" H5tiledLayout: " + this);
   }
 
+  private static Filter makeDecoder(H5header.Filter f) {
+    Map<String, Object> props = new HashMap<>();
+    switch (f.id) {
+      case 1:
+        return new Deflate(props);
+      case 2:
+        props.put(Filters.Keys.ELEM_SIZE, f.data[0]);
+        return new Shuffle(props);
+      case 3:
+        return new StripChecksum();
+      default:
+        return null;
+    }
+  }
+
   public long getTotalNelems() {
     return delegate.getTotalNelems();
   }
@@ -161,7 +204,7 @@ public class H5tiledLayoutBB implements LayoutBB {
 
   private class DataChunk implements ucar.nc2.iosp.LayoutBBTiled.DataChunk {
     // Copied from ArrayList.
-    private static final int MAX_ARRAY_LEN = Integer.MAX_VALUE - 8;
+    static final int MAX_ARRAY_LEN = Integer.MAX_VALUE - 8;
 
     DataBTree.DataChunk delegate;
 
@@ -199,37 +242,46 @@ public class H5tiledLayoutBB implements LayoutBB {
     }
 
     public ByteBuffer getByteBuffer() throws IOException {
+      if (chunkCache != null) {
+        return chunkCache.get(raf.getLocation(), lastModified, varName, delegate.filePos, this::readChunk);
+      }
+      return readChunk();
+    }
+
+    private ByteBuffer readChunk() throws IOException {
       try {
-        // read the data
-        byte[] data = new byte[delegate.size];
+        // find the last filter to apply, filters are applied backwards
+        int last = -1;
+        for (int i = 0; i < filters.length; i++) {
+          if (!isBitSet(delegate.filterMask, i)) {
+            last = i;
+            break;
+          }
+        }
+
+        // read the data; only intermediate buffers come from the pool, the result is handed to the caller
+        ByteBuffer data =
+            (last < 0) ? ByteBuffer.allocate(delegate.size) : BufferPool.getDefault().acquire(delegate.size);
         raf.seek(delegate.filePos);
-        raf.readFully(data);
+        raf.readFully(data.array(), data.arrayOffset(), delegate.size);
 
         // apply filters backwards
         for (int i = filters.length - 1; i >= 0; i--) {
-          H5header.Filter f = filters[i];
           if (isBitSet(delegate.filterMask, i)) {
             if (debug)
               System.out.println("skip for chunk " + delegate);
             continue;
           }
-          if (f.id == 1) {
-            data = inflate(data);
-          } else if (f.id == 2) {
-            data = shuffle(data, f.data[0]);
-          } else if (f.id == 3) {
-            data = checkfletcher32(data);
-            /*
-             * } else if (f.id == 307) {
-             * data = unbzip2(data);
-             */
-          } else
-            throw new RuntimeException("Unknown filter type=" + f.id);
+          if (decoders[i] == null)
+            throw new RuntimeException("Unknown filter type=" + filters[i].id);
+          int sizeIn = data.remaining();
+          data = Filters.decode(decoders[i], data, chunkBytes, i == last);
+          if (debug || debugFilter)
+            System.out.printf(" %s bytes in= %d bytes out= %d%n", decoders[i].getName(), sizeIn, data.remaining());
         }
 
-        ByteBuffer result = ByteBuffer.wrap(data);
-        result.order(byteOrder);
-        return result;
+        data.order(byteOrder);
+        return data;
       } catch (OutOfMemoryError e) {
         Error oom = new OutOfMemoryError("Ran out of memory trying to read HDF5 filtered chunk. Either increase the "
             + "JVM's heap size (use the -Xmx switch) or reduce the size of the dataset's chunks (use nccopy -c).");
@@ -238,33 +290,6 @@ public class H5tiledLayoutBB implements LayoutBB {
       }
     }
 
-    /**
-     * inflate data
-     *
-     * @param compressed compressed data
-     * @return uncompressed data
-     * @throws IOException on I/O error
-     */
-    private byte[] inflate(byte[] compressed) throws IOException {
-      // run it through the Inflator
-      java.util.zip.Inflater inflater = new java.util.zip.Inflater();
-      try (ByteArrayInputStream in = new ByteArrayInputStream(compressed)) {
-
-        java.util.zip.InflaterInputStream inflatestream =
-            new java.util.zip.InflaterInputStream(in, inflater, inflatebuffersize);
-        int len = Math.min(8 * compressed.length, MAX_ARRAY_LEN);
-        ByteArrayOutputStream out = new ByteArrayOutputStream(len); // Fixes KXL-349288
-        IO.copyB(inflatestream, out, len);
-
-        byte[] uncomp = out.toByteArray();
-        if (debug || debugFilter)
-          System.out.println(" inflate bytes in= " + compressed.length + " bytes out= " + uncomp.length);
-        return uncomp;
-      } finally {
-        inflater.end();
-      }
-    }
-
     /*
      * private byte[] unbzip2(byte[] compressed) throws IOException {
      * int max = 20 * compressed.length;
@@ -288,51 +313,53 @@ public class H5tiledLayoutBB implements LayoutBB {
      * }
      */
 
-    // just strip off the 4-byte fletcher32 checksum at the end
-    private byte[] checkfletcher32(byte[] org) {
-      byte[] result = new byte[org.length - 4];
-      System.arraycopy(org, 0, result, 0, result.length);
-      if (debug)
-        System.out.println(" checkfletcher32 bytes in= " + org.length + " bytes out= " + result.length);
-      return result;
+    boolean isBitSet(int val, int bitno) {
+      return ((val >>> bitno) & 1) != 0;
     }
 
-    private byte[] shuffle(byte[] data, int n) {
-      if (debug)
-        System.out.println(" shuffle bytes in= " + data.length + " n= " + n);
+  }
 
-      assert data.length % n == 0;
-      if (n <= 1)
-        return data;
+  // just strip off the 4-byte fletcher32 checksum at the end, without checking it
+  private static class StripChecksum extends Filter {
+    private static final int nbytes = 4;
+    private final Filter fletcher32 = new Checksum32(Checksum32.CType.FLETCHER);
 
-      int m = data.length / n;
-      int[] count = new int[n];
-      for (int k = 0; k < n; k++)
-        count[k] = k * m;
-
-      byte[] result = new byte[data.length];
-      /*
-       * for (int i = 0; i < data.length; i += n) {
-       * for (int k = 0; k < n; k++) {
-       * result[count[k]++] = data[i + k];
-       * }
-       * }
-       */
-
-      for (int i = 0; i < m; i++) {
-        for (int j = 0; j < n; j++) {
-          result[i * n + j] = data[i + count[j]];
-        }
-      }
+    @Override
+    public String getName() {
+      return "fletcher32";
+    }
 
-      return result;
+    @Override
+    public int getId() {
+      return 3;
     }
 
-    boolean isBitSet(int val, int bitno) {
-      return ((val >>> bitno) & 1) != 0;
+    @Override
+    public byte[] encode(byte[] dataIn) throws IOException {
+      return fletcher32.encode(dataIn); // appends the checksum
     }
 
-  }
+    @Override
+    public byte[] decode(byte[] dataIn) {
+      return Arrays.copyOf(dataIn, dataIn.length - nbytes);
+    }
+
+    @Override
+    public void decode(ByteBuffer src, ByteBuffer dst) {
+      int dataLength = src.remaining() - nbytes;
+      if (dst.remaining() < dataLength) {
+        throw new BufferOverflowException();
+      }
+      ByteBuffer data = src.duplicate();
+      data.limit(data.position() + dataLength);
+      dst.put(data);
+      src.position(src.limit());
+    }
 
+    @Override
+    public int getDecodedSize(ByteBuffer src, int sizeHint) {
+      return src.remaining() - nbytes;
+    }
+  }
 
 }
@@ -511,20 +511,25 @@ public abstract class N3iosp extends AbstractIOServiceProvider implements IOServ
 
     // note dependency on raf; should probably defer to subclass
     // loop over records
-    byte[] result = structureArray.getByteBuffer().array();
-    int count = 0;
-    for (int recnum : recordRange) {
-      if (debugRecord)
-        System.out.println(" read record " + recnum);
-      raf.seek(header.recStart + recnum * header.recsize); // where the record starts
-
-      if (recnum != header.numrecs - 1)
-        raf.readFully(result, (int) (count * header.recsize), (int) header.recsize);
-      else
-        raf.read(result, (int) (count * header.recsize), (int) header.recsize); // "wart" allows file to be one byte
-                                                                                // short. since its always padding, we
-                                                                                // allow
-      count++;
+    RandomAccessFile reader = getDataReader();
+    try {
+      byte[] result = structureArray.getByteBuffer().array();
+      int count = 0;
+      for (int recnum : recordRange) {
+        if (debugRecord)
+          System.out.println(" read record " + recnum);
+        reader.seek(header.recStart + recnum * header.recsize); // where the record starts
+
+        if (recnum != header.numrecs - 1) {
+          reader.readFully(result, (int) (count * header.recsize), (int) header.recsize);
+        } else {
+          // "wart" allows file to be one byte short. since its always padding, we allow
+          reader.read(result, (int) (count * header.recsize), (int) header.recsize);
+        }
+        count++;
+      }
+    } finally {
+      releaseDataReader(reader);
     }
 
     return structureArray;
@@ -957,6 +962,7 @@ public abstract class N3iosp extends AbstractIOServiceProvider implements IOServ
 
   @Override
   public void close() throws java.io.IOException {
+    closeDataReaders();
     if (raf != null) {
       long size = header.calcFileSize();
       raf.setMinLength(size);
@@ -8,6 +8,7 @@ import java.nio.charset.StandardCharsets;
 import ucar.ma2.*;
 import ucar.nc2.iosp.Layout;
 import ucar.nc2.iosp.IospHelper;
+import ucar.unidata.io.RandomAccessFile;
 import java.nio.channels.WritableByteChannel;
 
 
@@ -32,7 +33,12 @@ public class N3raf extends N3iosp {
    * @return primitive array with data read in
    */
   protected Object readData(Layout index, DataType dataType) throws java.io.IOException {
-    return IospHelper.readDataFill(raf, index, dataType, null, -1);
+    RandomAccessFile reader = getDataReader();
+    try {
+      return IospHelper.readDataFill(reader, index, dataType, null, -1);
+    } finally {
+      releaseDataReader(reader);
+    }
   }
 
   /**
@@ -115,9 +115,31 @@ public abstract class Aggregation implements AggregationIF {
 
   // experimental multithreading
   protected static Executor executor;
+  protected static int maxReadsInFlight;
 
+  /**
+   * Read the nested datasets of an aggregation in parallel on the given Executor,
+   * with at most twice as many section reads in flight as there are processors.
+   *
+   * @param exec reads nested datasets, or null to read them serially (the default)
+   */
   public static void setExecutor(Executor exec) {
+    setExecutor(exec, 2 * Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Read the nested datasets of an aggregation in parallel on the given Executor.
+   *
+   * @param exec reads nested datasets, or null to read them serially (the default)
+   * @param maxInFlight maximum number of nested datasets read at the same time for a section read,
+   *        which bounds the number of open files and the memory use; must be positive
+   * @throws IllegalArgumentException if maxInFlight is not positive
+   */
+  public static void setExecutor(Executor exec, int maxInFlight) {
+    if (maxInFlight <= 0)
+      throw new IllegalArgumentException("maxInFlight must be positive, was " + maxInFlight);
     executor = exec;
+    maxReadsInFlight = maxInFlight;
   }
 
   public static void setTypicalDatasetMode(String mode) {
@@ -11,6 +11,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Formatter;
 import java.util.List;
 import java.util.Optional;
@@ -30,6 +31,7 @@ import ucar.nc2.NetcdfFile;
 import ucar.nc2.Structure;
 import ucar.nc2.Variable;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.iosp.FileSignature;
 import ucar.nc2.util.CancelTask;
 import ucar.nc2.util.IO;
 import ucar.unidata.io.RandomAccessFile;
@@ -41,6 +43,8 @@ import ucar.unidata.io.RandomAccessFile;
 public class NcStreamIosp extends AbstractIOServiceProvider {
   private static Logger logger = LoggerFactory.getLogger(NcStreamIosp.class);
   private static final boolean debug = false;
+  private static final List<FileSignature> signatures =
+      Collections.singletonList(FileSignature.at(0, NcStream.MAGIC_START));
 
   public boolean isValidFile(RandomAccessFile raf) throws IOException {
     // fail fast on directory
@@ -55,6 +59,11 @@ public class NcStreamIosp extends AbstractIOServiceProvider {
     return test(b, NcStream.MAGIC_HEADER) || test(b, NcStream.MAGIC_DATA); // immed followed by one of these
   }
 
+  @Override
+  public List<FileSignature> getFileSignatures() {
+    return signatures;
+  }
+
   public String getFileTypeId() {
     return "ncstream";
   }
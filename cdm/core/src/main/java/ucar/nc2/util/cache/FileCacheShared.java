@@ -0,0 +1,487 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.util.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import ucar.nc2.dataset.DatasetUrl;
+import ucar.nc2.time.CalendarDateFormatter;
+import ucar.nc2.util.CancelTask;
+
+/**
+ * Keep a cache of open FileCacheable objects that are shared by all users, instead of locked to one user at a time
+ * as in FileCache. There is at most one open object for each hashKey. When several threads want the same key that is
+ * not in the cache, one of them opens it and the others wait for that open, then share the result.
+ * <p/>
+ * This is only suitable for FileCacheables that can be used by several threads at the same time, for example a
+ * read only NetcdfFile whose IOSP reads through AbstractIOServiceProvider.getDataReader() with concurrent reads on.
+ * <ol>
+ * <li>acquire() on a key that is in the cache takes no locks, just an atomic increment of the reference count.
+ * <li>Each acquire() must be matched by one close() of the FileCacheable, which calls release().
+ * <li>When the total weight of the cached objects goes over maxWeight, the least recently used ones that are not in
+ * use are closed, in the calling thread. The default weight is 1 for each object; use a weigher to limit for example
+ * the total size of the files.
+ * <li>If the FileCacheable is acquired from the cache, getLastModified() is used to see if it has changed. If so, it is
+ * removed from the cache, and closed when the last user releases it.
+ * <li>Unlike FileCache, FileCacheable.release() and reacquire() are not called, since other users may be reading.
+ * Files in the cache stay open until they are evicted.
+ * </ol>
+ * Hit, miss and open latency counts are available from getStats().
+ */
+@ThreadSafe
+public class FileCacheShared implements FileCacheIF {
+  private static final org.slf4j.Logger cacheLog = org.slf4j.LoggerFactory.getLogger("cacheLogger");
+
+  private final String name;
+  private final long maxWeight;
+  private final ToLongFunction<FileCacheable> weigher;
+
+  private final AtomicBoolean disabled = new AtomicBoolean(false);
+  private final AtomicBoolean evicting = new AtomicBoolean(false);
+  private final ConcurrentHashMap<Object, Entry> cache = new ConcurrentHashMap<>(); // by hashKey
+  private final ConcurrentHashMap<FileCacheable, Entry> files = new ConcurrentHashMap<>(); // all open files
+  private final AtomicLong totalWeight = new AtomicLong();
+
+  // stats
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong waits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong openNanos = new AtomicLong();
+  private final AtomicLong maxOpenNanos = new AtomicLong();
+
+  /**
+   * Constructor, where each object has weight 1, so maxWeight is the number of objects.
+   *
+   * @param name of file cache
+   * @param maxWeight close the least recently used objects that are not in use when there are more than this many.
+   */
+  public FileCacheShared(String name, long maxWeight) {
+    this(name, maxWeight, ncfile -> 1);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param name of file cache
+   * @param maxWeight close the least recently used objects that are not in use when their total weight is more than
+   *        this.
+   * @param weigher weight of an object, called once when it is added to the cache.
+   */
+  public FileCacheShared(String name, long maxWeight, ToLongFunction<FileCacheable> weigher) {
+    this.name = name;
+    this.maxWeight = maxWeight;
+    this.weigher = weigher;
+  }
+
+  @Override
+  public void enable() {
+    disabled.set(false);
+  }
+
+  /** Disable the cache, and close all files, even those in use. */
+  @Override
+  public void disable() {
+    disabled.set(true);
+    clearCache(true);
+  }
+
+  @Override
+  public FileCacheable acquire(FileFactory factory, DatasetUrl durl) throws IOException {
+    return acquire(factory, durl.trueurl, durl, -1, null, null);
+  }
+
+  /**
+   * Acquire a FileCacheable from the cache, shared with any other users.
+   * If not already in cache, open it with the FileFactory, and put in cache. If another thread is already opening it,
+   * wait for that open instead.
+   * <p/>
+   * App should call FileCacheable.close when done, and the file is then released instead of closed.
+   *
+   * @param factory use this factory to open the file if not in the cache; may not be null
+   * @param hashKey unique key for this file. If null, the location will be used
+   * @param location file location, may also used as the cache name, will be passed to the FileFactory
+   * @param buffer_size RandomAccessFile buffer size, if <= 0, use default size
+   * @param cancelTask user can cancel, ok to be null.
+   * @param spiObject passed to the factory if object needs to be recreated
+   * @return FileCacheable corresponding to location, or null if cancelled.
+   * @throws IOException on error, including an error in an open that this call waited for.
+   */
+  @Override
+  public FileCacheable acquire(FileFactory factory, Object hashKey, DatasetUrl location, int buffer_size,
+      CancelTask cancelTask, Object spiObject) throws IOException {
+    if (null == hashKey)
+      hashKey = location.trueurl;
+    if (null == hashKey)
+      throw new IllegalArgumentException();
+
+    if (disabled.get())
+      return factory.open(location, buffer_size, cancelTask, spiObject);
+
+    while (true) {
+      Entry entry = cache.get(hashKey);
+      if (entry == null) {
+        Entry mine = new Entry(hashKey);
+        entry = cache.putIfAbsent(hashKey, mine);
+        if (entry == null) {
+          return open(mine, factory, location, buffer_size, cancelTask, spiObject);
+        }
+      }
+
+      boolean inFlight = !entry.opened.isDone();
+      FileCacheable ncfile = entry.await();
+      if (!entry.tryAcquire())
+        continue; // it was closed in the meantime, try again
+
+      if (ncfile.getLastModified() != entry.lastModified) {
+        if (cacheLog.isDebugEnabled())
+          cacheLog.debug("FileCacheShared " + name + ": acquire from cache " + hashKey + " was changed; discard");
+        remove(entry);
+        release(ncfile);
+        continue;
+      }
+
+      (inFlight ? waits : hits).incrementAndGet();
+      entry.lastAccessed = System.currentTimeMillis();
+      return ncfile;
+    }
+  }
+
+  private FileCacheable open(Entry entry, FileFactory factory, DatasetUrl location, int buffer_size,
+      CancelTask cancelTask, Object spiObject) throws IOException {
+    misses.incrementAndGet();
+    long start = System.nanoTime();
+    FileCacheable ncfile;
+    try {
+      ncfile = factory.open(location, buffer_size, cancelTask, spiObject);
+      if (ncfile == null)
+        throw new IOException("FileCacheShared " + name + " factory returned null for " + location);
+    } catch (IOException | RuntimeException e) {
+      failures.incrementAndGet();
+      cache.remove(entry.hashKey, entry);
+      entry.opened.completeExceptionally(e);
+      throw e;
+    }
+    long took = System.nanoTime() - start;
+    openNanos.addAndGet(took);
+    maxOpenNanos.accumulateAndGet(took, Math::max);
+
+    entry.lastModified = ncfile.getLastModified();
+    entry.lastAccessed = System.currentTimeMillis();
+    entry.weight = weigher.applyAsLong(ncfile);
+    files.put(ncfile, entry);
+    totalWeight.addAndGet(entry.weight);
+    ncfile.setFileCache(this);
+    entry.opened.complete(ncfile);
+    if (cacheLog.isDebugEnabled())
+      cacheLog.debug("FileCacheShared " + name + " add to cache " + entry.hashKey);
+
+    // user may have canceled: leave it in the cache, unused
+    if ((cancelTask != null) && (cancelTask.isCancel())) {
+      release(ncfile);
+      return null;
+    }
+
+    if (totalWeight.get() > maxWeight)
+      evict();
+    return ncfile;
+  }
+
+  /**
+   * Release the file, that is, one user is done with it. The file stays open in the cache.
+   * Normally applications need not call this, just close the file as usual.
+   *
+   * @param ncfile release this file.
+   * @return true if file was in cache, false if it was not
+   */
+  @Override
+  public boolean release(FileCacheable ncfile) throws IOException {
+    if (ncfile == null)
+      return false;
+
+    Entry entry = files.get(ncfile);
+    if (entry == null) {
+      if (disabled.get()) {
+        ncfile.setFileCache(null); // prevent infinite loops
+        ncfile.close();
+      }
+      return false;
+    }
+
+    entry.lastAccessed = System.currentTimeMillis();
+    int refs = entry.refs.decrementAndGet();
+    if (refs < 0) {
+      cacheLog.warn("FileCacheShared " + name + " release " + ncfile.getLocation() + " not acquired");
+      entry.refs.incrementAndGet();
+      return true;
+    }
+
+    if (refs == 0) {
+      if (entry.removed) {
+        close(entry);
+      } else if (totalWeight.get() > maxWeight) {
+        evict();
+      }
+    }
+    return true;
+  }
+
+  /** Remove the file for this key from the cache. It is closed now if not in use, otherwise when it is released. */
+  @Override
+  public void eject(Object hashKey) {
+    Entry entry = cache.get(hashKey);
+    if (entry != null && entry.opened.isDone())
+      remove(entry);
+  }
+
+  /**
+   * Remove all cache entries.
+   *
+   * @param force if true, close them even if they are currently in use.
+   */
+  @Override
+  public void clearCache(boolean force) {
+    for (Entry entry : new ArrayList<>(files.values())) {
+      if (force && entry.refs.get() > 0) {
+        cacheLog.warn("FileCacheShared " + name + " force close file in use= " + entry.hashKey);
+        entry.refs.set(0);
+      }
+      remove(entry);
+    }
+  }
+
+  // remove from the cache, and close if not in use
+  private void remove(Entry entry) {
+    entry.removed = true;
+    cache.remove(entry.hashKey, entry);
+    close(entry);
+  }
+
+  // close if not in use, return true if this call closed it
+  private boolean close(Entry entry) {
+    if (!entry.refs.compareAndSet(0, -1))
+      return false; // in use, or already closed
+    cache.remove(entry.hashKey, entry);
+    FileCacheable ncfile = entry.opened.getNow(null);
+    if (ncfile == null)
+      return true;
+    files.remove(ncfile);
+    totalWeight.addAndGet(-entry.weight);
+    try {
+      ncfile.setFileCache(null); // unhook the caching
+      ncfile.close();
+    } catch (IOException e) {
+      cacheLog.error("FileCacheShared " + name + " close failed on " + ncfile.getLocation(), e);
+    }
+    return true;
+  }
+
+  // close least recently used files that are not in use, until under maxWeight
+  private void evict() {
+    if (!evicting.compareAndSet(false, true))
+      return; // another thread is doing it
+
+    try {
+      List<Entry> idle = new ArrayList<>();
+      for (Entry entry : files.values()) {
+        if (entry.refs.get() == 0) {
+          idle.add(entry);
+        }
+      }
+      // lastAccessed may change while sorting, so sort on a copy
+      long[] sortKeys = new long[idle.size()];
+      Integer[] order = new Integer[idle.size()];
+      for (int i = 0; i < order.length; i++) {
+        order[i] = i;
+        sortKeys[i] = idle.get(i).lastAccessed;
+      }
+      Arrays.sort(order, Comparator.comparingLong(i -> sortKeys[i]));
+
+      for (int i : order) {
+        if (totalWeight.get() <= maxWeight)
+          break;
+        if (close(idle.get(i)))
+          evictions.incrementAndGet();
+      }
+    } finally {
+      evicting.set(false);
+    }
+  }
+
+  /** Current counts of cache hits, misses, and the time spent opening files. */
+  public Stats getStats() {
+    return new Stats(hits.get(), waits.get(), misses.get(), failures.get(), evictions.get(), openNanos.get(),
+        maxOpenNanos.get(), files.size(), totalWeight.get());
+  }
+
+  @Override
+  public void resetTracking() {
+    // no tracking
+  }
+
+  @Override
+  public void showTracking(Formatter format) {
+    // no tracking
+  }
+
+  @Override
+  public void showCache(Formatter format) {
+    format.format("%nFileCacheShared %s (maxWeight=%d):%n", name, maxWeight);
+    format.format(" users   weight lastAccess                   location %n");
+    for (String s : showCache())
+      format.format("%s%n", s);
+    showStats(format);
+  }
+
+  @Override
+  public void showStats(Formatter format) {
+    format.format("  %s%n", getStats());
+  }
+
+  @Override
+  public List<String> showCache() {
+    List<Entry> all = new ArrayList<>(files.values());
+    all.sort(Comparator.comparingLong(e -> e.lastAccessed));
+    List<String> result = new ArrayList<>(all.size());
+    for (Entry entry : all) {
+      result.add(entry.toString());
+    }
+    return result;
+  }
+
+  private static class Entry {
+    final Object hashKey;
+    final CompletableFuture<FileCacheable> opened = new CompletableFuture<>();
+    final AtomicInteger refs = new AtomicInteger(1); // number of users, starting with the opener; -1 when closed
+    volatile boolean removed; // no longer in the cache, close when no longer in use
+    volatile long lastAccessed;
+    long lastModified;
+    long weight;
+
+    Entry(Object hashKey) {
+      this.hashKey = hashKey;
+    }
+
+    // wait for the open to finish
+    FileCacheable await() throws IOException {
+      try {
+        return opened.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted waiting for " + hashKey, e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException)
+          throw (IOException) cause;
+        if (cause instanceof RuntimeException)
+          throw (RuntimeException) cause;
+        throw new IOException(cause);
+      }
+    }
+
+    // add a user, unless it has been closed
+    boolean tryAcquire() {
+      while (true) {
+        int n = refs.get();
+        if (n < 0)
+          return false;
+        if (refs.compareAndSet(n, n + 1))
+          return true;
+      }
+    }
+
+    public String toString() {
+      return String.format("%6d %8d %s == %s", refs.get(), weight,
+          CalendarDateFormatter.toDateTimeStringISO(lastAccessed), hashKey);
+    }
+  }
+
+  /** A snapshot of the cache statistics. */
+  @Immutable
+  public static class Stats {
+    private final long hits, waits, misses, failures, evictions, openNanos, maxOpenNanos, nfiles, weight;
+
+    Stats(long hits, long waits, long misses, long failures, long evictions, long openNanos, long maxOpenNanos,
+        long nfiles, long weight) {
+      this.hits = hits;
+      this.waits = waits;
+      this.misses = misses;
+      this.failures = failures;
+      this.evictions = evictions;
+      this.openNanos = openNanos;
+      this.maxOpenNanos = maxOpenNanos;
+      this.nfiles = nfiles;
+      this.weight = weight;
+    }
+
+    /** Number of acquires that found the file open in the cache. */
+    public long getHits() {
+      return hits;
+    }
+
+    /** Number of acquires that waited for another thread to open the file. */
+    public long getWaits() {
+      return waits;
+    }
+
+    /** Number of acquires that opened the file, including failed opens. */
+    public long getMisses() {
+      return misses;
+    }
+
+    /** Number of opens that failed. */
+    public long getFailures() {
+      return failures;
+    }
+
+    /** Number of files closed to keep under the maximum weight. */
+    public long getEvictions() {
+      return evictions;
+    }
+
+    /** Total time spent in successful opens, in nanoseconds. */
+    public long getOpenNanos() {
+      return openNanos;
+    }
+
+    /** Longest time spent in one open, in nanoseconds. */
+    public long getMaxOpenNanos() {
+      return maxOpenNanos;
+    }
+
+    /** Number of open files in the cache. */
+    public long getNumberOfFiles() {
+      return nfiles;
+    }
+
+    /** Total weight of the open files in the cache. */
+    public long getWeight() {
+      return weight;
+    }
+
+    @Override
+    public String toString() {
+      long opens = misses - failures;
+      double avgMsecs = (opens == 0) ? 0 : openNanos / 1.0e6 / opens;
+      return String.format("hits= %d waits= %d miss= %d failed= %d evicted= %d nfiles= %d weight= %d"
+          + " avgOpen= %.3f msecs maxOpen= %.3f msecs", hits, waits, misses, failures, evictions, nfiles, weight,
+          avgMsecs, maxOpenNanos / 1.0e6);
+    }
+  }
+}
@@ -25,9 +25,10 @@ import ucar.nc2.Variable;
 import ucar.nc2.util.CancelTask;
 
 /**
- * Utility class for copying a NetcdfFile object, or parts of one, to a netcdf-3 or netcdf-4 disk file.
+ * Utility class for copying a NetcdfFile object, or parts of one, to a netcdf-3, netcdf-4 or zarr disk file.
  * This handles the entire CDM model (groups, etc) if you are writing to netcdf-4.
- * If copying from an extended model to classic model, Strings are converted to Chars; nested groups are not allowed.
+ * If copying from an extended model to classic model, Strings are converted to Chars; nested groups are not allowed,
+ * except when writing zarr.
  * <p/>
  * The fileIn may be an NcML file which has a referenced dataset in the location URL, the underlying data (modified by
  * the NcML) is written to the new file. If the NcML does not have a referenced dataset, then the new file is filled
@@ -64,7 +65,9 @@ public class NetcdfCopier {
     this.extended = getOutputFormat().isExtendedModel();
 
     // Try to do some checking
-    if (!fileIn.getRootGroup().getGroups().isEmpty() && !extended) {
+    // zarr has nested groups, but otherwise follows the classic model
+    boolean hasGroups = extended || getOutputFormat() == NetcdfFileFormat.ZARR;
+    if (!fileIn.getRootGroup().getGroups().isEmpty() && !hasGroups) {
       throw new IllegalStateException("Input file has nested groups: cannot write to format= " + getOutputFormat());
     }
   }
@@ -121,6 +121,7 @@ public enum NetcdfFileFormat {
   NETCDF4(3, "netcdf-4"), // This is really just HDF-5, dont know yet if its written by netcdf4.
   NETCDF4_CLASSIC(4, "netcdf-4 classic"), // psuedo format I think
   NETCDF3_64BIT_DATA(5, "netcdf-5"), // from PnetCDF project
+  ZARR(10, "zarr"), // NC_FORMATX_ZARR; written by the cdm-zarr module
 
   NCSTREAM(42, "ncstream"); // No assigned version, not part of C library.
 
@@ -27,7 +27,7 @@ import ucar.nc2.iosp.IOServiceProvider;
 import ucar.nc2.iosp.IOServiceProviderWriter;
 
 /**
- * Writes Netcdf 3 or 4 formatted files to disk.
+ * Writes Netcdf 3, Netcdf 4 or Zarr formatted files to disk.
  * Note that there is no redefine mode. Once you call build(), you cannot add new metadata, you can only write data.
  *
  * <pre>
@@ -103,6 +103,11 @@ public class NetcdfFormatWriter implements Closeable {
       return this;
     }
 
+    /**
+     * Use this IOServiceProvider to write a new file, for example a ZarrIosp configured with a compressor.
+     * It must implement IOServiceProviderWriter. If not set, the IOSP is chosen from the format.
+     * The chunker, if set, is passed to its setChunker method.
+     */
     public Builder setIosp(IOServiceProvider iosp) {
       this.iosp = iosp;
       return this;
@@ -157,7 +162,7 @@ public class NetcdfFormatWriter implements Closeable {
       return this;
     }
 
-    /** Nc4Chunking, used only for netcdf4 */
+    /** Nc4Chunking, used only for netcdf4 and zarr */
     public Builder setChunker(Nc4Chunking chunker) {
       this.chunker = chunker;
       return this;
@@ -277,6 +282,7 @@ public class NetcdfFormatWriter implements Closeable {
   private final long preallocateSize;
   private final Nc4Chunking chunker;
   private final boolean useJna;
+  private final IOServiceProvider iosp;
 
   private final Group rootGroup;
   private final NetcdfFile ncout;
@@ -294,6 +300,7 @@ public class NetcdfFormatWriter implements Closeable {
     this.preallocateSize = builder.preallocateSize;
     this.chunker = builder.chunker;
     this.useJna = builder.useJna || format.isNetcdf4Format();
+    this.iosp = builder.iosp;
 
     this.ncout = NetcdfFile.builder().setRootGroup(builder.rootGroup).setLocation(builder.location).build();
     this.rootGroup = this.ncout.getRootGroup();
@@ -310,7 +317,33 @@ public class NetcdfFormatWriter implements Closeable {
       existingRaf = null;
     }
 
-    if (useJna) {
+    if (iosp instanceof IOServiceProviderWriter) {
+      spiw = (IOServiceProviderWriter) iosp;
+      if (chunker != null) {
+        try {
+          Method method = iosp.getClass().getMethod("setChunker", Nc4Chunking.class);
+          method.invoke(iosp, chunker);
+        } catch (NoSuchMethodException e) {
+          // this IOSP does not chunk
+        } catch (ReflectiveOperationException e) {
+          throw new IllegalArgumentException(iosp.getClass().getName() + " cannot use chunker err= " + e.getMessage());
+        }
+      }
+    } else if (format == NetcdfFileFormat.ZARR) {
+      String className = "ucar.nc2.iosp.zarr.ZarrIosp";
+      IOServiceProviderWriter spi;
+      try {
+        Class iospClass = this.getClass().getClassLoader().loadClass(className);
+        spi = (IOServiceProviderWriter) iospClass.getConstructor().newInstance();
+
+        Method method = iospClass.getMethod("setChunker", Nc4Chunking.class);
+        method.invoke(spi, chunker);
+      } catch (Throwable e) {
+        throw new IllegalArgumentException(className + " is not available, cdm-zarr must be on the classpath; err= "
+            + e.getMessage());
+      }
+      spiw = spi;
+    } else if (useJna) {
       String className = "ucar.nc2.jni.netcdf.Nc4Iosp";
       IOServiceProviderWriter spi;
       try {
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.unidata.geoloc;
+
+/**
+ * A spatial index over the cells of a 2D (curvilinear) lat/lon grid, such as a swath or a tripolar ocean grid.
+ * It finds the cell that contains a point, or the cell edges inside a lat/lon box, without searching the whole grid.
+ * <p>
+ * The lat/lon plane spanned by the grid is divided into buckets holding about one cell each, and every cell is
+ * registered in the buckets its bounding box overlaps, so a point lookup only tests the few cells of one bucket.
+ * Each valid edge point is also registered in the bucket it falls in, so that the edges inside a box are found even
+ * when they only belong to cells with a missing corner.
+ * Longitudes are used as given: points must be normalized the same way as the grid edges.
+ * The index is immutable and may be shared between threads.
+ */
+public class LatLonCellIndex {
+  private final double[] latEdge, lonEdge; // (nrows+1, ncols+1), row major
+  private final int nrows, ncols;
+  private double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+  private double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+  private final int nLatBuckets, nLonBuckets;
+  private final double latScale, lonScale; // buckets per degree
+  private final int[] bucketStart; // the cells of bucket b are cells[bucketStart[b] .. bucketStart[b+1])
+  private final int[] cells; // row * ncols + col
+  private final int[] edgeStart; // the edge points of bucket b are edges[edgeStart[b] .. edgeStart[b+1])
+  private final int[] edges; // row * (ncols+1) + col
+
+  /**
+   * Build the index.
+   *
+   * @param latEdge latitudes of the cell edges, (nrows+1) * (ncols+1) values in row major order; missing values are NaN
+   * @param lonEdge longitudes of the cell edges, same shape as latEdge
+   * @param nrows number of rows of cells
+   * @param ncols number of columns of cells
+   */
+  public LatLonCellIndex(double[] latEdge, double[] lonEdge, int nrows, int ncols) {
+    if (latEdge.length != (nrows + 1) * (ncols + 1) || lonEdge.length != latEdge.length) {
+      throw new IllegalArgumentException("edges must have (nrows+1) * (ncols+1) values");
+    }
+    this.latEdge = latEdge;
+    this.lonEdge = lonEdge;
+    this.nrows = nrows;
+    this.ncols = ncols;
+
+    for (int i = 0; i < latEdge.length; i++) {
+      if (!Double.isNaN(latEdge[i]) && !Double.isNaN(lonEdge[i])) {
+        minLat = Math.min(minLat, latEdge[i]);
+        maxLat = Math.max(maxLat, latEdge[i]);
+        minLon = Math.min(minLon, lonEdge[i]);
+        maxLon = Math.max(maxLon, lonEdge[i]);
+      }
+    }
+
+    int ncells = nrows * ncols;
+    if (ncells == 0 || minLat > maxLat) { // no valid points
+      nLatBuckets = nLonBuckets = 1;
+      latScale = lonScale = 0;
+      bucketStart = edgeStart = new int[2];
+      cells = edges = new int[0];
+      return;
+    }
+
+    // about one cell per bucket, keeping the buckets roughly square in degrees
+    double latRange = Math.max(maxLat - minLat, 1.0e-6);
+    double lonRange = Math.max(maxLon - minLon, 1.0e-6);
+    nLatBuckets = (int) Math.max(1, Math.min(ncells, Math.round(Math.sqrt(ncells * latRange / lonRange))));
+    nLonBuckets = Math.max(1, ncells / nLatBuckets);
+    latScale = nLatBuckets / latRange;
+    lonScale = nLonBuckets / lonRange;
+
+    // count the cells in each bucket, then fill them in
+    int nbuckets = nLatBuckets * nLonBuckets;
+    bucketStart = new int[nbuckets + 1];
+    int[] bbox = new int[4];
+    for (int cell = 0; cell < ncells; cell++) {
+      if (cellBuckets(cell, bbox)) {
+        for (int i = bbox[0]; i <= bbox[1]; i++) {
+          for (int j = bbox[2]; j <= bbox[3]; j++) {
+            bucketStart[i * nLonBuckets + j + 1]++;
+          }
+        }
+      }
+    }
+    for (int b = 0; b < nbuckets; b++) {
+      bucketStart[b + 1] += bucketStart[b];
+    }
+    cells = new int[bucketStart[nbuckets]];
+    int[] next = new int[nbuckets];
+    System.arraycopy(bucketStart, 0, next, 0, nbuckets);
+    for (int cell = 0; cell < ncells; cell++) {
+      if (cellBuckets(cell, bbox)) {
+        for (int i = bbox[0]; i <= bbox[1]; i++) {
+          for (int j = bbox[2]; j <= bbox[3]; j++) {
+            cells[next[i * nLonBuckets + j]++] = cell;
+          }
+        }
+      }
+    }
+
+    // the same for the edge points, each in one bucket
+    edgeStart = new int[nbuckets + 1];
+    for (int e = 0; e < latEdge.length; e++) {
+      if (!Double.isNaN(latEdge[e]) && !Double.isNaN(lonEdge[e])) {
+        edgeStart[latBucket(latEdge[e]) * nLonBuckets + lonBucket(lonEdge[e]) + 1]++;
+      }
+    }
+    for (int b = 0; b < nbuckets; b++) {
+      edgeStart[b + 1] += edgeStart[b];
+    }
+    edges = new int[edgeStart[nbuckets]];
+    System.arraycopy(edgeStart, 0, next, 0, nbuckets);
+    for (int e = 0; e < latEdge.length; e++) {
+      if (!Double.isNaN(latEdge[e]) && !Double.isNaN(lonEdge[e])) {
+        edges[next[latBucket(latEdge[e]) * nLonBuckets + lonBucket(lonEdge[e])]++] = e;
+      }
+    }
+  }
+
+  /**
+   * Find the cell that contains a point.
+   *
+   * @param lat latitude of the point
+   * @param lon longitude of the point, normalized the same way as the grid edges
+   * @param rectIndex return (row, col) of the cell here, if found
+   * @return false if the point is not in any cell of the grid
+   */
+  public boolean findCell(double lat, double lon, int[] rectIndex) {
+    int cell = findCell(lat, lon);
+    if (cell < 0) {
+      return false;
+    }
+    rectIndex[0] = cell / ncols;
+    rectIndex[1] = cell % ncols;
+    return true;
+  }
+
+  /**
+   * Find the cells that contain many points, eg the stations of a station extraction.
+   *
+   * @param lats latitudes of the points
+   * @param lons longitudes of the points, normalized the same way as the grid edges
+   * @return for each point, row * ncols + col of the cell that contains it, or -1 if it is not in the grid
+   */
+  public int[] findCells(double[] lats, double[] lons) {
+    int[] result = new int[lats.length];
+    for (int i = 0; i < lats.length; i++) {
+      result[i] = findCell(lats[i], lons[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Find the range of the cell edges that lie inside a lat/lon box, including the edges of cells with a missing
+   * corner. The bounds are only extended, so callers can preset them.
+   *
+   * @param bounds {minRow, maxRow, minCol, maxCol} of the edges, with rows in [0, nrows] and columns in [0, ncols];
+   *        extended to include every edge inside the box
+   */
+  public void findEdgeBounds(double minLat, double maxLat, double minLon, double maxLon, int[] bounds) {
+    if (edges.length == 0 || minLat > maxLat || minLon > maxLon || maxLat < this.minLat || minLat > this.maxLat
+        || maxLon < this.minLon || minLon > this.maxLon) {
+      return;
+    }
+    int minI = latBucket(minLat), maxI = latBucket(maxLat);
+    int minJ = lonBucket(minLon), maxJ = lonBucket(maxLon);
+    for (int i = minI; i <= maxI; i++) {
+      for (int j = minJ; j <= maxJ; j++) {
+        int b = i * nLonBuckets + j;
+        for (int k = edgeStart[b]; k < edgeStart[b + 1]; k++) {
+          int e = edges[k];
+          double lat = latEdge[e];
+          double lon = lonEdge[e];
+          if ((lat >= minLat) && (lat <= maxLat) && (lon >= minLon) && (lon <= maxLon)) {
+            int r = e / (ncols + 1);
+            int c = e % (ncols + 1);
+            bounds[0] = Math.min(bounds[0], r);
+            bounds[1] = Math.max(bounds[1], r);
+            bounds[2] = Math.min(bounds[2], c);
+            bounds[3] = Math.max(bounds[3], c);
+          }
+        }
+      }
+    }
+  }
+
+  private int findCell(double lat, double lon) {
+    if (!(lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon)) { // also rejects NaN
+      return -1;
+    }
+    int b = latBucket(lat) * nLonBuckets + lonBucket(lon);
+    for (int k = bucketStart[b]; k < bucketStart[b + 1]; k++) {
+      if (contains(cells[k], lat, lon)) {
+        return cells[k];
+      }
+    }
+    return -1;
+  }
+
+  private int latBucket(double lat) {
+    return Math.max(0, Math.min((int) ((lat - minLat) * latScale), nLatBuckets - 1));
+  }
+
+  private int lonBucket(double lon) {
+    return Math.max(0, Math.min((int) ((lon - minLon) * lonScale), nLonBuckets - 1));
+  }
+
+  // the range of buckets {minI, maxI, minJ, maxJ} overlapped by the bounding box of a cell; false if it has a missing
+  // corner, or no area, since contains() would then find every point on the line or point it collapsed to
+  private boolean cellBuckets(int cell, int[] bbox) {
+    int e = (cell / ncols) * (ncols + 1) + cell % ncols;
+    int[] corners = {e, e + 1, e + ncols + 2, e + ncols + 1};
+    double cellMinLat = Double.MAX_VALUE, cellMaxLat = -Double.MAX_VALUE;
+    double cellMinLon = Double.MAX_VALUE, cellMaxLon = -Double.MAX_VALUE;
+    double area2 = 0; // twice the signed area, by the shoelace formula
+    for (int i = 0; i < 4; i++) {
+      double lat = latEdge[corners[i]];
+      double lon = lonEdge[corners[i]];
+      if (Double.isNaN(lat) || Double.isNaN(lon)) {
+        return false;
+      }
+      int next = corners[(i + 1) % 4];
+      area2 += lon * latEdge[next] - lonEdge[next] * lat;
+      cellMinLat = Math.min(cellMinLat, lat);
+      cellMaxLat = Math.max(cellMaxLat, lat);
+      cellMinLon = Math.min(cellMinLon, lon);
+      cellMaxLon = Math.max(cellMaxLon, lon);
+    }
+    if (area2 == 0) {
+      return false;
+    }
+    bbox[0] = latBucket(cellMinLat);
+    bbox[1] = latBucket(cellMaxLat);
+    bbox[2] = lonBucket(cellMinLon);
+    bbox[3] = lonBucket(cellMaxLon);
+    return true;
+  }
+
+  /*
+   * Is the point inside the (convex) quadrilateral of the cell? Tracing around its corners, the triangles made with
+   * the point must all have the same orientation, see GridCoordinate2D.contains(). A point on an edge is inside.
+   */
+  private boolean contains(int cell, double lat, double lon) {
+    int e = (cell / ncols) * (ncols + 1) + cell % ncols;
+    int[] corners = {e, e + 1, e + ncols + 2, e + ncols + 1};
+    boolean hasPositive = false, hasNegative = false;
+    for (int i = 0; i < 4; i++) {
+      int c0 = corners[i];
+      int c1 = corners[(i + 1) % 4];
+      double x0 = lonEdge[c0], y0 = latEdge[c0];
+      double x1 = lonEdge[c1], y1 = latEdge[c1];
+      double det = (x1 - x0) * (lat - y0) - (y1 - y0) * (lon - x0);
+      if (det > 0) {
+        hasPositive = true;
+      } else if (det < 0) {
+        hasNegative = true;
+      }
+    }
+    // all zero only if the cell has collapsed to a line through the point
+    return hasPositive != hasNegative;
+  }
+}
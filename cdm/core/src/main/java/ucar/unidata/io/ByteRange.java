@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.unidata.io;
+
+import javax.annotation.concurrent.Immutable;
+
+/** A range of bytes in a file, as read by {@link RandomAccessFile#readVectored}. */
+@Immutable
+public class ByteRange {
+  private final long offset;
+  private final int length;
+
+  /**
+   * @param offset start of the range in the file
+   * @param length number of bytes in the range
+   */
+  public ByteRange(long offset, int length) {
+    if (offset < 0 || length < 0) {
+      throw new IllegalArgumentException("Invalid byte range " + offset + ", length " + length);
+    }
+    this.offset = offset;
+    this.length = length;
+  }
+
+  /** Start of the range in the file. */
+  public long getOffset() {
+    return offset;
+  }
+
+  /** Number of bytes in the range. */
+  public int getLength() {
+    return length;
+  }
+
+  /** End of the range in the file, exclusive. */
+  public long getEnd() {
+    return offset + length;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ByteRange)) {
+      return false;
+    }
+    ByteRange other = (ByteRange) o;
+    return offset == other.offset && length == other.length;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Long.hashCode(offset) + length;
+  }
+
+  @Override
+  public String toString() {
+    return "ByteRange{" + offset + ", " + length + '}';
+  }
+}
@@ -50,6 +50,14 @@ public class InMemoryRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
     // do nothing
   }
 
+  @Override
+  public RandomAccessFile newPositionalReader() {
+    // the data is never modified, so it can be shared
+    RandomAccessFile reader = new InMemoryRandomAccessFile(location, buffer);
+    reader.bigEndian = bigEndian;
+    return reader;
+  }
+
   @Override
   protected int read_(long pos, byte[] b, int offset, int len) {
     len = Math.min(len, (int) (buffer.length - pos));
@@ -4,99 +4,165 @@
  */
 package ucar.unidata.io;
 
-import java.io.*;
-import java.nio.channels.FileChannel;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import ucar.unidata.io.spi.RandomAccessFileProvider;
 
 /**
- * Use NIO MappedByteBuffer to implement a RandomAccessFile.
- * Limited to 2G size. Not currently used - NOT UP TO DATE DO NOT USE
- * 
- * @deprecated not part of public API.
+ * A read only RandomAccessFile of a local file that is memory mapped. The file is mapped in segments, so it may be
+ * larger than 2 GB. The usual read methods copy from the mapping into the buffer instead of calling the OS,
+ * and readByteBuffer() and readVectored() return read only views of the mapping, without copying.
+ * <p>
+ * Open with NetcdfFiles.open("mmap:" + filename), or construct directly.
+ * The mapping is released by the garbage collector, some time after the file is closed and
+ * all views of it are gone.
  */
-@Deprecated
 public class MMapRandomAccessFile extends RandomAccessFile {
+  private static final String prefix = "mmap:";
+  static final int defaultSegmentSize = 1 << 30;
 
-  private MappedByteBuffer source;
+  private final int segmentSize;
+  private final long fileLength;
+  private MappedByteBuffer[] segments;
 
   /**
-   * Constructor for in-memory "files"
-   * 
-   * @param location used as a name
-   * @param mode the open mode
-   * @throws java.io.IOException on error
+   * Constructor.
+   *
+   * @param location location of the file
+   * @param mode must be "r"
+   * @throws IOException on open error
    */
   public MMapRandomAccessFile(String location, String mode) throws IOException {
-    super(location, mode, 1);
-    FileChannel channel = file.getChannel();
-    source = channel.map(readonly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, (long) 0,
-        channel.size());
-    // channel.close();
-
-    bufferStart = 0;
-    dataSize = (int) channel.size();
-    dataEnd = channel.size();
-    filePosition = 0;
-    buffer = null;
-    endOfFile = false;
+    this(location, mode, defaultBufferSize);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param location location of the file
+   * @param mode must be "r"
+   * @param bufferSize size of buffer used by the read methods
+   * @throws IOException on open error
+   */
+  public MMapRandomAccessFile(String location, String mode, int bufferSize) throws IOException {
+    this(location, mode, bufferSize, defaultSegmentSize);
   }
 
+  // the segment size can be set for testing
+  MMapRandomAccessFile(String location, String mode, int bufferSize, int segmentSize) throws IOException {
+    super(location, checkReadOnly(mode), bufferSize);
+    this.segmentSize = segmentSize;
 
-  public void flush() {
-    if (bufferModified) {
-      source.force();
-      bufferModified = false;
+    FileChannel channel = file.getChannel();
+    fileLength = channel.size();
+    int nsegs = (int) ((fileLength + segmentSize - 1) / segmentSize);
+    segments = new MappedByteBuffer[nsegs];
+    for (int i = 0; i < nsegs; i++) {
+      long start = (long) i * segmentSize;
+      segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, fileLength - start));
     }
   }
 
-  public long length() {
-    return dataEnd;
+  private static String checkReadOnly(String mode) {
+    if (!"r".equals(mode))
+      throw new IllegalArgumentException("MMapRandomAccessFile is read only, mode = " + mode);
+    return mode;
   }
 
-  public void seek(long pos) {
-    filePosition = pos;
-    if (filePosition < dataEnd)
-      source.position((int) filePosition);
-    else
-      endOfFile = true;
+  @Override
+  public synchronized void close() throws IOException {
+    super.close();
+    if (file == null) // really closed, not just released to the cache
+      segments = new MappedByteBuffer[0];
   }
 
-  public void unread() {
-    seek(filePosition - 1);
+  @Override
+  public long length() {
+    return fileLength;
   }
 
-  public int read() {
-    // If the file position is within the data, return the byte...
-    if (filePosition < dataEnd) {
-      filePosition++;
-      return source.get() & 0xff;
-
-    } else {
+  @Override
+  protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
+    if (pos >= fileLength) {
       return -1;
     }
+    len = (int) Math.min(len, fileLength - pos);
+    int done = 0;
+    while (done < len) {
+      ByteBuffer seg = segment(pos + done);
+      int n = Math.min(len - done, seg.remaining());
+      seg.get(b, offset + done, n);
+      done += n;
+    }
+    return len;
   }
 
-  public int readBytes(byte[] dst, int offset, int length) {
-    if (endOfFile)
-      return -1;
-
-    length = (int) Math.min(length, dataEnd - filePosition);
-    if (length > 0) {
-      source.get(dst, offset, length);
-      filePosition += length;
+  // a view of the segment holding pos, positioned at pos
+  private ByteBuffer segment(long pos) throws IOException {
+    MappedByteBuffer[] segs = segments;
+    int index = (int) (pos / segmentSize);
+    if (index >= segs.length) {
+      throw new IOException("File closed or read past end of " + location);
     }
-    return length;
+    ByteBuffer seg = segs[index].duplicate();
+    seg.position((int) (pos % segmentSize));
+    return seg;
   }
 
-  public void write(int b) {
-    source.put((byte) b);
-    filePosition++;
-    bufferModified = true;
+  /**
+   * Views of the mapping for each range, without copying. Only a range that crosses a segment boundary is copied.
+   * The returned buffers are read only, and are in the current byte order.
+   */
+  @Override
+  public List<ByteBuffer> readVectored(List<ByteRange> ranges) throws IOException {
+    ByteOrder order = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+    List<ByteBuffer> result = new ArrayList<>(ranges.size());
+    for (ByteRange range : ranges) {
+      if (range.getEnd() > fileLength) {
+        throw new EOFException("Reading " + location + " at " + range + " file length = " + fileLength);
+      }
+      if (range.getLength() == 0) {
+        result.add(ByteBuffer.allocate(0).asReadOnlyBuffer().order(order));
+        continue;
+      }
+      ByteBuffer seg = segment(range.getOffset());
+      if (seg.remaining() >= range.getLength()) {
+        seg.limit(seg.position() + range.getLength());
+        result.add(seg.slice().order(order));
+      } else {
+        byte[] data = new byte[range.getLength()];
+        read_(range.getOffset(), data, 0, data.length);
+        result.add(ByteBuffer.wrap(data).asReadOnlyBuffer().order(order));
+      }
+    }
+    return result;
   }
 
-  public void writeBytes(byte[] dst, int offset, int length) {
-    source.put(dst, offset, length);
-    filePosition += length;
-  }
+  /** Hook for service provider interface RandomAccessFileProvider, opens locations starting with "mmap:". */
+  public static class Provider implements RandomAccessFileProvider {
 
+    @Override
+    public boolean isOwnerOf(String location) {
+      return location.startsWith(prefix);
+    }
+
+    @Override
+    public RandomAccessFile open(String location) throws IOException {
+      return open(location, defaultBufferSize);
+    }
+
+    @Override
+    public RandomAccessFile open(String location, int bufferSize) throws IOException {
+      String filename = location.substring(prefix.length());
+      if (filename.startsWith("file:"))
+        filename = filename.substring(5);
+      return new MMapRandomAccessFile(filename, "r", bufferSize);
+    }
+  }
 }
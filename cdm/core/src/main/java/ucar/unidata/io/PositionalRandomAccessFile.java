@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read only RandomAccessFile that shares a FileChannel with the other positional readers of an open local file,
+ * but has its own file position and buffer. It only uses positional reads on the channel, so any number of these can
+ * read the same file at the same time from different threads. Closing it does not close the channel, it only stops
+ * the reader from reading.
+ * <p>
+ * A FileChannel is closed when a thread blocked in it is interrupted. So the readers do not use the channel of the
+ * file that they were made from, and if one reader is interrupted, the others reopen the shared channel and go on.
+ *
+ * @see RandomAccessFile#newPositionalReader()
+ */
+class PositionalRandomAccessFile extends RandomAccessFile {
+
+  /** The channel shared by the positional readers of one file, reopened when an interrupt closes it. */
+  static class SharedChannel implements Closeable {
+    private final String path;
+    private FileChannel channel;
+    private boolean closed;
+
+    SharedChannel(String path) {
+      this.path = path;
+    }
+
+    synchronized FileChannel get() throws IOException {
+      if (closed)
+        throw new ClosedChannelException();
+      if (channel == null || !channel.isOpen())
+        channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+      return channel;
+    }
+
+    /**
+     * Positional read into bb, like FileChannel.read(ByteBuffer, long), reopening the channel if another thread was
+     * interrupted while using it.
+     */
+    int read(ByteBuffer bb, long pos) throws IOException {
+      while (true) {
+        try {
+          return get().read(bb, pos);
+        } catch (ClosedByInterruptException e) {
+          throw e; // this thread was interrupted
+        } catch (ClosedChannelException e) {
+          // another reader was interrupted, try again on a new channel
+        }
+      }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      closed = true;
+      if (channel != null)
+        channel.close();
+    }
+  }
+
+  private final SharedChannel channel;
+  private volatile boolean closed;
+
+  PositionalRandomAccessFile(String location, SharedChannel channel, int bufferSize) {
+    super(bufferSize);
+    this.location = location;
+    this.channel = channel;
+  }
+
+  @Override
+  public long length() throws IOException {
+    while (true) {
+      try {
+        return channel.get().size();
+      } catch (ClosedByInterruptException e) {
+        throw e; // this thread was interrupted
+      } catch (ClosedChannelException e) {
+        // another reader was interrupted, try again on a new channel
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    closed = true;
+    super.close();
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (bufferModified)
+      throw new IOException("Positional reader of " + location + " is read only");
+  }
+
+  @Override
+  public RandomAccessFile newPositionalReader() {
+    RandomAccessFile reader = new PositionalRandomAccessFile(location, channel, buffer.length);
+    reader.bigEndian = bigEndian;
+    return reader;
+  }
+
+  @Override
+  protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
+    if (closed)
+      throw new ClosedChannelException();
+    ByteBuffer bb = ByteBuffer.wrap(b, offset, len);
+    while (bb.hasRemaining()) {
+      if (channel.read(bb, pos + bb.position() - offset) < 0)
+        break;
+    }
+    int n = bb.position() - offset;
+    return (n == 0 && len > 0) ? -1 : n;
+  }
+
+  @Override
+  public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
+    if (closed)
+      throw new ClosedChannelException();
+    long need = nbytes;
+    while (need > 0) {
+      long count;
+      try {
+        count = channel.get().transferTo(offset, need, dest);
+      } catch (ClosedByInterruptException e) {
+        throw e; // this thread was interrupted
+      } catch (ClosedChannelException e) {
+        if (!dest.isOpen())
+          throw e;
+        continue; // another reader was interrupted, try again on a new channel
+      }
+      if (count == 0)
+        break; // EOF condition
+      need -= count;
+      offset += count;
+    }
+    return nbytes - need;
+  }
+}
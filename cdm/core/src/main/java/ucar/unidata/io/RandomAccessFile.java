@@ -18,6 +18,7 @@ import ucar.nc2.util.cache.FileFactory;
 import ucar.unidata.util.StringUtil2;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.WritableByteChannel;
 import java.util.*;
@@ -228,6 +229,10 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
   protected java.io.RandomAccessFile file;
   protected java.nio.channels.FileChannel fileChannel;
 
+  // channel of the positional readers and readVectored(), separate from fileChannel so that interrupting a reader
+  // cant close this file
+  private PositionalRandomAccessFile.SharedChannel positionalChannel;
+
   /**
    * The offset in bytes from the file start, of the next read or
    * write operation.
@@ -438,6 +443,10 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
     }
 
     // Close the underlying file object.
+    if (positionalChannel != null) {
+      positionalChannel.close();
+      positionalChannel = null;
+    }
     file.close();
     file = null; // help the gc
   }
@@ -732,6 +741,109 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
   }
 
 
+  /**
+   * Read a set of byte ranges, eg all the chunks or records that an IOSP needs, with one call.
+   * Local files are read with positional reads on the channel of the positional readers, bypassing the buffer, so
+   * interrupting a reading thread does not close this file; subclasses may merge and parallelize the reads. The file position is not changed.
+   *
+   * @param ranges the byte ranges to read; they may be in any order, and may overlap
+   * @return a buffer for each range, in the same order as ranges, from position 0 to the range's length, in the
+   *         current byte order
+   * @throws EOFException if a range extends past the end of the file
+   * @throws IOException if an I/O error occurs.
+   */
+  public List<ByteBuffer> readVectored(List<ByteRange> ranges) throws IOException {
+    ByteBuffer[] result = new ByteBuffer[ranges.size()];
+    ByteOrder byteOrder = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+    if (file == null) {
+      // not a local file, read through the buffer
+      long savePosition = filePosition;
+      for (int i = 0; i < result.length; i++) {
+        ByteRange range = ranges.get(i);
+        byte[] data = new byte[range.getLength()];
+        seek(range.getOffset());
+        readFully(data);
+        result[i] = ByteBuffer.wrap(data).order(byteOrder);
+      }
+      seek(savePosition);
+      return Arrays.asList(result);
+    }
+
+    flush(); // positional reads do not see the buffer
+    PositionalRandomAccessFile.SharedChannel channel = getPositionalChannel();
+
+    // read in file order
+    Integer[] order = new Integer[result.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.comparingLong(i -> ranges.get(i).getOffset()));
+    for (int i : order) {
+      ByteRange range = ranges.get(i);
+      ByteBuffer bb = ByteBuffer.allocate(range.getLength());
+      long pos = range.getOffset();
+      while (bb.hasRemaining()) {
+        int n = channel.read(bb, pos + bb.position());
+        if (n < 0) {
+          throw new EOFException("Reading " + location + " at " + range + " file length = " + length());
+        }
+      }
+      if (debugAccess) {
+        debug_nseeks.incrementAndGet();
+        debug_nbytes.addAndGet(range.getLength());
+      }
+      bb.flip();
+      result[i] = bb.order(byteOrder);
+    }
+    return Arrays.asList(result);
+  }
+
+  /**
+   * Read nbytes at the given file offset into a ByteBuffer in the current byte order. The file position is not
+   * changed. A memory mapped file returns a read only view of the mapping, without copying.
+   *
+   * @param pos start here in the file
+   * @param nbytes the number of bytes to read
+   * @return a buffer from position 0 to nbytes
+   * @throws EOFException if the range extends past the end of the file
+   * @throws IOException if an I/O error occurs.
+   * @see #readVectored(List)
+   */
+  public ByteBuffer readByteBuffer(long pos, int nbytes) throws IOException {
+    return readVectored(Collections.singletonList(new ByteRange(pos, nbytes))).get(0);
+  }
+
+  /**
+   * Get a reader of this file that has its own file position and buffer, and reads with positional reads on the
+   * file channel. It shares no mutable state with this object, so several threads can read the file at the same time
+   * from one open file, each through its own reader. Closing the reader does not close this file, and the reader
+   * can not be used after this file is closed.
+   * <p>
+   * The readers share a channel of their own, not the one of this file. So interrupting a thread that is reading,
+   * eg with Future.cancel(true), fails that read only: this file and the other readers are not affected.
+   *
+   * @return a new reader in the current byte order, or null if this is not a local file opened read only.
+   * @throws IOException if an I/O error occurs.
+   */
+  public RandomAccessFile newPositionalReader() throws IOException {
+    if (file == null || !readonly) {
+      return null;
+    }
+    PositionalRandomAccessFile.SharedChannel shared = getPositionalChannel();
+    RandomAccessFile reader =
+        new PositionalRandomAccessFile(location, shared, (buffer == null) ? defaultBufferSize : buffer.length);
+    reader.bigEndian = bigEndian;
+    return reader;
+  }
+
+  // the channel for positional reads, opened on first use
+  private synchronized PositionalRandomAccessFile.SharedChannel getPositionalChannel() {
+    if (positionalChannel == null) {
+      positionalChannel = new PositionalRandomAccessFile.SharedChannel(location);
+    }
+    return positionalChannel;
+  }
+
   /**
    * Read directly from file, without going through the buffer.
    * All reading goes through here or readToByteChannel;
@@ -1124,8 +1236,17 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readShort(short[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readShort();
+    while (n > 0) {
+      ByteBuffer bb = bufferedSpan(2, n);
+      if (bb == null) {
+        pa[start++] = readShort();
+        n--;
+      } else {
+        int count = bb.remaining() / 2;
+        bb.asShortBuffer().get(pa, start, count);
+        start += count;
+        n -= count;
+      }
     }
   }
 
@@ -1283,8 +1404,17 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readInt(int[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readInt();
+    while (n > 0) {
+      ByteBuffer bb = bufferedSpan(4, n);
+      if (bb == null) {
+        pa[start++] = readInt();
+        n--;
+      } else {
+        int count = bb.remaining() / 4;
+        bb.asIntBuffer().get(pa, start, count);
+        start += count;
+        n -= count;
+      }
     }
   }
 
@@ -1357,8 +1487,17 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readLong(long[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readLong();
+    while (n > 0) {
+      ByteBuffer bb = bufferedSpan(8, n);
+      if (bb == null) {
+        pa[start++] = readLong();
+        n--;
+      } else {
+        int count = bb.remaining() / 8;
+        bb.asLongBuffer().get(pa, start, count);
+        start += count;
+        n -= count;
+      }
     }
   }
 
@@ -1394,8 +1533,17 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readFloat(float[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = Float.intBitsToFloat(readInt());
+    while (n > 0) {
+      ByteBuffer bb = bufferedSpan(4, n);
+      if (bb == null) {
+        pa[start++] = Float.intBitsToFloat(readInt());
+        n--;
+      } else {
+        int count = bb.remaining() / 4;
+        bb.asFloatBuffer().get(pa, start, count);
+        start += count;
+        n -= count;
+      }
     }
   }
 
@@ -1431,9 +1579,47 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readDouble(double[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = Double.longBitsToDouble(readLong());
+    while (n > 0) {
+      ByteBuffer bb = bufferedSpan(8, n);
+      if (bb == null) {
+        pa[start++] = Double.longBitsToDouble(readLong());
+        n--;
+      } else {
+        int count = bb.remaining() / 8;
+        bb.asDoubleBuffer().get(pa, start, count);
+        start += count;
+        n -= count;
+      }
+    }
+  }
+
+  /**
+   * Wrap as many whole elements of the buffer as are available at the file position, up to max, and move
+   * the file position past them. The array reads decode these in bulk instead of a byte at a time.
+   *
+   * @param elemSize size of one element in bytes
+   * @param max at most this many elements
+   * @return a view in the file's byte order, or null if not even one element is in the buffer, in which case
+   *         the caller reads one element the usual way.
+   */
+  private ByteBuffer bufferedSpan(int elemSize, int max) throws IOException {
+    if (buffer == null) { // subclass that does not use the buffer
+      return null;
+    }
+    if (filePosition >= dataEnd) {
+      if (endOfFile) {
+        return null;
+      }
+      seek(filePosition);
+    }
+    int pos = (int) (filePosition - bufferStart);
+    int count = Math.min(max, (int) (dataEnd - filePosition) / elemSize);
+    if (pos < 0 || count <= 0) {
+      return null;
     }
+    int len = count * elemSize;
+    filePosition += len;
+    return ByteBuffer.wrap(buffer, pos, len).slice().order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
   }
 
   /**
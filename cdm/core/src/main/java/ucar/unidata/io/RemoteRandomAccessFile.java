@@ -5,15 +5,29 @@
 
 package ucar.unidata.io;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.WritableByteChannel;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import javax.annotation.Nonnull;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,7 +48,32 @@ public abstract class RemoteRandomAccessFile extends ucar.unidata.io.RandomAcces
   protected final String url;
   private final boolean readCacheEnabled;
   private final int readCacheBlockSize;
-  private final LoadingCache<Long, byte[]> readCache;
+  private final Cache<Long, byte[]> readCache;
+
+  private static Executor executor;
+  private static int readAheadBlocks;
+
+  /**
+   * Set an executor for reading separate runs of cache blocks in parallel, and for reading ahead in the background.
+   *
+   * @param exec the executor; if null, remote reads are done on the calling thread, one at a time
+   */
+  public static void setExecutor(Executor exec) {
+    executor = exec;
+  }
+
+  /**
+   * Set how many cache blocks are read ahead when a file is read sequentially. Blocks that are read ahead are
+   * read in the background if an executor has been set, otherwise together with the blocks being read.
+   *
+   * @param nblocks number of cache blocks to read ahead; 0 disables read ahead
+   */
+  public static void setReadAheadBlocks(int nblocks) {
+    readAheadBlocks = nblocks;
+  }
+
+  private final Map<Long, Future<?>> readAheads = new ConcurrentHashMap<>(); // blocks being read ahead
+  private long lastBlockRead = -1; // last cache block of the previous read, to detect sequential reading
 
   protected RemoteRandomAccessFile(String url, int bufferSize, long maxRemoteCacheSize) {
     super(bufferSize);
@@ -63,17 +102,13 @@ public abstract class RemoteRandomAccessFile extends ucar.unidata.io.RandomAcces
     }
   }
 
-  private LoadingCache<Long, byte[]> initCache(long maximumNumberOfCacheBlocks, java.time.Duration timeToLive) {
+  private Cache<Long, byte[]> initCache(long maximumNumberOfCacheBlocks, java.time.Duration timeToLive) {
     CacheBuilder<Object, Object> cb =
         CacheBuilder.newBuilder().maximumSize(maximumNumberOfCacheBlocks).expireAfterWrite(timeToLive);
     if (debugAccess) {
       cb.recordStats();
     }
-    return cb.build(new CacheLoader<Long, byte[]>() {
-      public byte[] load(@Nonnull Long key) throws IOException {
-        return readRemoteCacheSizedChunk(key);
-      }
-    });
+    return cb.build();
   }
 
   /**
@@ -110,131 +145,263 @@ public abstract class RemoteRandomAccessFile extends ucar.unidata.io.RandomAcces
     // We basically treat the entire remote file or object as a series of non-overlapping blocks of size
     // readCacheBlockSize. Each of these blocks are assigned a number (0 - N) starting from position 0 in the
     // remote file or object, and that number is used as the key of the cache.
-    // Here, we compute the first and last cache block that we need to read from based on the desired position in the
-    // file and the length of read.
+    // Don't read past the end of the file, or past the end of the destination array.
+    len = Math.toIntExact(Math.min(len, Math.min(length() - pos, buff.length - offset)));
+    if (len <= 0) {
+      return 0;
+    }
     long firstCacheBlockNumber = pos / readCacheBlockSize;
-    long lastCacheBlockNumber = (pos + len) / readCacheBlockSize;
+    long lastCacheBlockNumber = (pos + len - 1) / readCacheBlockSize;
+    Map<Long, byte[]> blocks = getCacheBlocks(firstCacheBlockNumber, lastCacheBlockNumber);
+
+    // copy from each cache block, starting at the effective location of pos in the first one
     int totalBytesRead = 0;
-    int currentOffsetIntoBuffer = offset;
-
-    // Read cacheBlock containing pos, and fill the buffer from the effective location of pos in the cache block
-    // up to the smaller of these three lengths: 1. bytes remaining in the cache block, 2. bytes remaining in the file,
-    // or 3. bytes remaining in the destination array.
-    totalBytesRead += readCacheBlockPartial(pos, buff, currentOffsetIntoBuffer, true);
-    currentOffsetIntoBuffer += totalBytesRead;
-    // If we have read everything we have been asked to read, skip the rest of the read logic.
-    // Otherwise, keep going.
-    if ((totalBytesRead < len) && (firstCacheBlockNumber != lastCacheBlockNumber)) {
-      // Now fill the buffer using whole cache blocks, up until the last cache block (as reading from the last cache
-      // block might be a partial read).
-      // LOOK: might benefit from concurrency? Need to see how often we end up inside this while statement.
-      // Initial testing shows this only happens for small readCacheBlockSize (which is equal to the read buffer size)
-      // when reading netCDF-4 files, but I think might depend on the specific IOSP in use.
-      long currentCacheBlockNumber = firstCacheBlockNumber + 1;
-      while (currentCacheBlockNumber < lastCacheBlockNumber) {
-        totalBytesRead += readCacheBlockFull(currentCacheBlockNumber, currentOffsetIntoBuffer, buff);
-        currentOffsetIntoBuffer += readCacheBlockSize;
-        currentCacheBlockNumber += 1;
+    for (long blockNumber = firstCacheBlockNumber; blockNumber <= lastCacheBlockNumber; blockNumber++) {
+      byte[] src = blocks.get(blockNumber);
+      if (src == null) {
+        break; // remote service returned less than asked for, so this block was not read
       }
-      logger.debug("Number of full cache block reads: {}", currentCacheBlockNumber - firstCacheBlockNumber - 1);
-
-      // If there are still bytes to read, read last cacheBlock from the start of the cache block to the
-      // smaller of these two lengths: 1. bytes remaining in the file, or 2. bytes remaining in the destination array.
-      if (totalBytesRead < len) {
-        totalBytesRead += readCacheBlockPartial(pos + totalBytesRead, buff, currentOffsetIntoBuffer, false);
+      int offsetIntoCacheBlock = Math.toIntExact(pos + totalBytesRead - blockNumber * readCacheBlockSize);
+      int sizeToCopy = Math.min(src.length - offsetIntoCacheBlock, len - totalBytesRead);
+      if (sizeToCopy <= 0) {
+        break; // remote service returned less than asked for
       }
+      System.arraycopy(src, offsetIntoCacheBlock, buff, offset + totalBytesRead, sizeToCopy);
+      totalBytesRead += sizeToCopy;
     }
-
     return totalBytesRead;
   }
 
-  private int readCacheBlockPartial(long pos, byte[] buff, int positionInBuffer, boolean fillForward)
-      throws IOException {
+  /**
+   * Get a series of cache blocks, reading the missing ones from the remote service with as few requests as possible.
+   * Adjacent missing blocks are read with a single request, and if an executor has been set, separate runs of missing
+   * blocks are read in parallel. If reading looks sequential, the blocks following the last one are read ahead.
+   */
+  private Map<Long, byte[]> getCacheBlocks(long firstCacheBlockNumber, long lastCacheBlockNumber) throws IOException {
+    // wait for any read ahead of the blocks we need
+    for (long blockNumber = firstCacheBlockNumber; blockNumber <= lastCacheBlockNumber; blockNumber++) {
+      Future<?> pending = readAheads.get(blockNumber);
+      if (pending != null) {
+        await(pending, true);
+      }
+    }
 
-    long cacheBlockNumber = pos / readCacheBlockSize;
+    // sequential if this read starts in or just after the last block of the previous one
+    boolean sequential =
+        firstCacheBlockNumber == lastBlockRead || firstCacheBlockNumber == lastBlockRead + 1 && lastBlockRead >= 0;
+    lastBlockRead = lastCacheBlockNumber;
+    long lastBlockInFile = (length() - 1) / readCacheBlockSize;
+    long lastBlockWanted = lastCacheBlockNumber;
+    if (sequential && readAheadBlocks > 0) {
+      lastBlockWanted = Math.min(lastCacheBlockNumber + readAheadBlocks, lastBlockInFile);
+    }
 
-    // read in the cache block
-    byte[] src;
-    try {
-      src = readCache.get(cacheBlockNumber);
-    } catch (ExecutionException ee) {
-      throw new IOException("Error obtaining data from the remote data read cache.", ee);
+    List<Long> blockNumbers = new ArrayList<>();
+    Set<Long> pending = new HashSet<>(); // blocks being read ahead; look before the cache, as they finish into it
+    for (long blockNumber = firstCacheBlockNumber; blockNumber <= lastBlockWanted; blockNumber++) {
+      blockNumbers.add(blockNumber);
+      if (blockNumber > lastCacheBlockNumber && readAheads.containsKey(blockNumber)) {
+        pending.add(blockNumber);
+      }
     }
+    Map<Long, byte[]> blocks = new HashMap<>(readCache.getAllPresent(blockNumbers));
 
-    // Careful - we are doing a partial read from the cache block. The pos in the file is some offset into the cache
-    // block, so let's start by calculating the pos of the first block
-    long posCacheBlockStart = cacheBlockNumber * readCacheBlockSize;
-
-    // Now, there are two possible cases. We either need to read from this position in the cache block to the end of
-    // the cache block (i.e. "fill buffer forward from the offset into the cache block"), or read from the beginning
-    // of the cache block up to the offset in the cache block (useful if reading last cache block in a series of cache
-    // blocks). Basically,the question is where do we start reading in the cache block, and what size read do we use?
-    int offsetIntoCacheBlock;
-    int sizeToCopy;
-    if (fillForward) {
-      // .....size to copy (assuming we will want to read until the end of the cache block)
-      // .....<-------->
-      // X ---|------- X
-      // ^____^
-      // ..|
-      // Offset Into Cache Block
-      offsetIntoCacheBlock = Math.toIntExact(pos - posCacheBlockStart);
-      sizeToCopy = readCacheBlockSize - offsetIntoCacheBlock;
-    } else {
-      // size to copy
-      // <---->
-      // X ---|------- X
-      // ^
-      // Offset Into Cache Block
-      offsetIntoCacheBlock = 0;
-      sizeToCopy = Math.toIntExact(pos - posCacheBlockStart);
+    // group the missing blocks into runs of adjacent blocks
+    List<long[]> runs = new ArrayList<>();
+    long[] run = null;
+    for (long blockNumber : blockNumbers) {
+      if (blocks.containsKey(blockNumber) || pending.contains(blockNumber)) {
+        run = null;
+      } else if (run == null) {
+        run = new long[] {blockNumber, blockNumber};
+        runs.add(run);
+      } else {
+        run[1] = blockNumber;
+      }
+    }
+    if (runs.isEmpty()) {
+      return blocks;
+    }
+
+    // read ahead only blocks are read in the background if possible; otherwise only if they extend a needed run
+    Executor exec = executor;
+    List<FutureTask<Map<Long, byte[]>>> needed = new ArrayList<>();
+    for (long[] r : runs) {
+      long start = r[0];
+      long end = r[1];
+      if (start > lastCacheBlockNumber) {
+        if (exec != null) {
+          readAhead(exec, start, end);
+        }
+      } else {
+        needed.add(new FutureTask<>(() -> readRemoteCacheBlocks(start, end)));
+      }
+    }
+
+    // read the runs, in parallel if possible, using this thread for the first one
+    if (exec != null) {
+      for (int i = 1; i < needed.size(); i++) {
+        exec.execute(needed.get(i));
+      }
+    }
+    for (int i = 0; i < needed.size(); i++) {
+      if (i == 0 || exec == null) {
+        needed.get(i).run();
+      }
+    }
+    for (FutureTask<Map<Long, byte[]>> task : needed) {
+      blocks.putAll(await(task, false));
     }
+    return blocks;
+  }
 
-    // We don't want to read past the end of the file, so let's check sizeToCopy against how much of the file
-    // is left to read
-    long toEof = length() - pos;
-    sizeToCopy = Math.toIntExact(Math.min(sizeToCopy, toEof));
-
-    // Finally, check to make sure we are not reading more than buff will hold
-    sizeToCopy = Math.toIntExact(Math.min(sizeToCopy, buff.length - positionInBuffer));
-
-    // Copy byte array fulfilling the request as obtained from the cache into the destination buffer
-    logger.debug("Requested {} bytes from the cache block (cache block size upper limit: {} bytes.)", sizeToCopy,
-        readCacheBlockSize);
-    logger.debug("Actual size of the cache block: {} bytes.", src.length);
-    logger.debug("Offset into cache block to begin copy: {} bytes.", offsetIntoCacheBlock);
-    logger.debug("Total size of the destination buffer: {} bytes.", buff.length);
-    logger.debug("Position in buffer to place the copy from the cache: {} bytes.", positionInBuffer);
-    logger.debug("Trying to fit {} bytes from the cache into {} bytes of the destination.",
-        src.length - offsetIntoCacheBlock, buff.length - positionInBuffer);
-    System.arraycopy(src, offsetIntoCacheBlock, buff, positionInBuffer, sizeToCopy);
-    return sizeToCopy;
+  // read blocks in the background, putting them in the cache
+  private void readAhead(Executor exec, long start, long end) {
+    FutureTask<Map<Long, byte[]>> task = new FutureTask<Map<Long, byte[]>>(() -> readRemoteCacheBlocks(start, end)) {
+      @Override
+      protected void done() {
+        for (long blockNumber = start; blockNumber <= end; blockNumber++) {
+          readAheads.remove(blockNumber);
+        }
+      }
+    };
+    for (long blockNumber = start; blockNumber <= end; blockNumber++) {
+      readAheads.put(blockNumber, task);
+    }
+    exec.execute(task);
   }
 
-  private int readCacheBlockFull(long cacheBlockNumber, int positionInBuffer, byte[] buff) throws IOException {
-    byte[] src;
+  private <T> T await(Future<T> task, boolean ignoreFailure) throws IOException {
     try {
-      src = readCache.get(cacheBlockNumber);
-    } catch (ExecutionException ee) {
-      throw new IOException("Error obtaining data from the remote data read cache.", ee);
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while reading " + url);
+    } catch (CancellationException e) {
+      return null;
+    } catch (ExecutionException e) {
+      if (ignoreFailure) {
+        logger.debug("Read ahead of {} failed", url, e.getCause());
+        return null;
+      }
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException("Error obtaining data from the remote data read cache.", cause);
     }
-    System.arraycopy(src, 0, buff, positionInBuffer, readCacheBlockSize);
-    return readCacheBlockSize;
   }
 
   /**
-   * read a readCacheBlockSize chunk of the remote file
+   * Read a run of adjacent readCacheBlockSize chunks of the remote file with one request, and put them in the cache.
    */
-  private byte[] readRemoteCacheSizedChunk(Long cacheBlockNumber) throws IOException {
-    long position = cacheBlockNumber * readCacheBlockSize;
+  private Map<Long, byte[]> readRemoteCacheBlocks(long firstCacheBlockNumber, long lastCacheBlockNumber)
+      throws IOException {
+    long position = firstCacheBlockNumber * readCacheBlockSize;
     long toEOF = length() - position;
-    // if size to EOF less than readCacheBlockSize, just read to EOF
-    long bytesToRead = toEOF < readCacheBlockSize ? toEOF : readCacheBlockSize;
-    int bytes = Math.toIntExact(bytesToRead);
-    byte[] buffer = new byte[bytes];
+    // if size to EOF less than the run, just read to EOF
+    long bytesToRead = Math.min(toEOF, (lastCacheBlockNumber - firstCacheBlockNumber + 1) * readCacheBlockSize);
+    byte[] buffer = new byte[Math.toIntExact(bytesToRead)];
+    int bytesRead = 0;
+    while (bytesRead < buffer.length) {
+      int n = readRemote(position + bytesRead, buffer, bytesRead, buffer.length - bytesRead);
+      if (n <= 0) {
+        break;
+      }
+      bytesRead += n;
+    }
+    logger.debug("Read {} cache blocks with one request", lastCacheBlockNumber - firstCacheBlockNumber + 1);
 
-    readRemote(position, buffer, 0, bytes);
-    return buffer;
+    Map<Long, byte[]> result = new HashMap<>();
+    for (long blockNumber = firstCacheBlockNumber; blockNumber <= lastCacheBlockNumber; blockNumber++) {
+      int from = Math.toIntExact((blockNumber - firstCacheBlockNumber) * readCacheBlockSize);
+      if (from >= bytesRead) {
+        break;
+      }
+      byte[] block = Arrays.copyOfRange(buffer, from, Math.min(from + readCacheBlockSize, bytesRead));
+      readCache.put(blockNumber, block);
+      result.put(blockNumber, block);
+    }
+    return result;
+  }
+
+  /**
+   * Read a set of byte ranges. Ranges that overlap or are less than a buffer apart are merged and read with one
+   * request; if an executor has been set, the merged ranges are read in parallel.
+   */
+  @Override
+  public List<ByteBuffer> readVectored(List<ByteRange> ranges) throws IOException {
+    // merge nearby ranges, in file order
+    List<ByteRange> sorted = new ArrayList<>(ranges);
+    sorted.sort(Comparator.comparingLong(ByteRange::getOffset));
+    int maxGap = buffer.length;
+    List<ByteRange> merged = new ArrayList<>();
+    long start = -1;
+    long end = -1;
+    for (ByteRange range : sorted) {
+      if (start >= 0 && range.getOffset() - end <= maxGap) {
+        end = Math.max(end, range.getEnd());
+      } else {
+        if (start >= 0) {
+          merged.add(new ByteRange(start, Math.toIntExact(end - start)));
+        }
+        start = range.getOffset();
+        end = range.getEnd();
+      }
+    }
+    if (start >= 0) {
+      merged.add(new ByteRange(start, Math.toIntExact(end - start)));
+    }
+
+    // read the merged ranges, in parallel if possible, using this thread for the first one
+    Executor exec = executor;
+    List<FutureTask<byte[]>> tasks = new ArrayList<>();
+    for (ByteRange range : merged) {
+      FutureTask<byte[]> task = new FutureTask<>(() -> readRange(range));
+      tasks.add(task);
+      if (exec != null && tasks.size() > 1) {
+        exec.execute(task);
+      }
+    }
+    for (int i = 0; i < tasks.size(); i++) {
+      if (i == 0 || exec == null) {
+        tasks.get(i).run();
+      }
+    }
+    byte[][] data = new byte[merged.size()][];
+    for (int i = 0; i < tasks.size(); i++) {
+      data[i] = await(tasks.get(i), false);
+    }
+
+    // slice each range out of the merged range that holds it
+    long[] mergedStarts = new long[merged.size()];
+    for (int i = 0; i < mergedStarts.length; i++) {
+      mergedStarts[i] = merged.get(i).getOffset();
+    }
+    ByteOrder order = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+    List<ByteBuffer> result = new ArrayList<>(ranges.size());
+    for (ByteRange range : ranges) {
+      int i = Arrays.binarySearch(mergedStarts, range.getOffset());
+      if (i < 0) {
+        i = -i - 2; // the last merged range starting before this one
+      }
+      int from = Math.toIntExact(range.getOffset() - merged.get(i).getOffset());
+      result.add(ByteBuffer.wrap(Arrays.copyOfRange(data[i], from, from + range.getLength())).order(order));
+    }
+    return result;
+  }
+
+  private byte[] readRange(ByteRange range) throws IOException {
+    byte[] data = new byte[range.getLength()];
+    int done = 0;
+    while (done < data.length) {
+      int n = read_(range.getOffset() + done, data, done, data.length - done);
+      if (n <= 0) {
+        throw new EOFException("Reading " + url + " at " + range + " file length = " + length());
+      }
+      done += n;
+    }
+    return data;
   }
 
   @Override
@@ -250,6 +417,9 @@ public abstract class RemoteRandomAccessFile extends ucar.unidata.io.RandomAcces
 
   @Override
   public void close() throws IOException {
+    for (Future<?> pending : readAheads.values()) {
+      pending.cancel(false);
+    }
     closeRemote();
     super.close();
     // clean out the cache when closing the Remote Random Access File
@@ -11,11 +11,18 @@ import org.junit.Test;
 import ucar.unidata.io.RandomAccessFile;
 
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
 
 public class TestFilters {
 
@@ -108,6 +115,126 @@ public class TestFilters {
     assertThat(out3).isEqualTo(decoded_data);
   }
 
+  @Test
+  public void testBlosc() throws IOException {
+    Map<String, Object> props = new HashMap<>();
+    props.put("id", "blosc");
+    props.put(Filters.Keys.ELEM_SIZE, Integer.BYTES);
+    for (String cname : new String[] {"lz4", "zlib"}) {
+      for (int shuffle : new int[] {Blosc.NOSHUFFLE, Blosc.SHUFFLE, Blosc.BITSHUFFLE}) {
+        props.put("cname", cname);
+        props.put("shuffle", shuffle);
+        // small blocks, so the data spans several blocks including a leftover block
+        props.put("blocksize", 1000);
+        Filter filter = new Blosc(props);
+        byte[] encoded = filter.encode(decoded_data);
+        assertThat(filter.decode(encoded)).isEqualTo(decoded_data);
+      }
+    }
+
+    // decode blocks in parallel
+    ExecutorService exec = Executors.newFixedThreadPool(2);
+    try {
+      Blosc.setExecutor(exec);
+      Filter filter = new Blosc(props);
+      assertThat(filter.decode(filter.encode(decoded_data))).isEqualTo(decoded_data);
+    } finally {
+      Blosc.setExecutor(null);
+      exec.shutdownNow();
+    }
+
+    // buffers too small to compress are copied
+    byte[] small = new byte[] {1, 2, 3, 4, 5, 6, 7, 8};
+    Filter filter = new Blosc(props);
+    byte[] encoded = filter.encode(small);
+    assertThat(encoded.length).isEqualTo(small.length + 16);
+    assertThat(filter.decode(encoded)).isEqualTo(small);
+  }
+
+  // frames in the c-blosc 1.x format, 32K blocks with a leftover block, compressed with the reference lz4 and zlib
+  @Test
+  public void testBloscReference() throws IOException {
+    Map<String, Object> props = new HashMap<>();
+    props.put("id", "blosc");
+    props.put(Filters.Keys.ELEM_SIZE, Integer.BYTES);
+    Filter filter = new Blosc(props);
+    for (String filename : new String[] {"blosc_lz4_shuffle", "blosc_lz4_bitshuffle", "blosc_zlib_noshuffle"}) {
+      assertThat(filter.decode(readAsByteArray(filename))).isEqualTo(decoded_data);
+    }
+  }
+
+  // decoding in a task of the executor itself must not wait for a free thread
+  @Test
+  public void testBloscNestedExecutor() throws Exception {
+    Map<String, Object> props = new HashMap<>();
+    props.put("id", "blosc");
+    props.put(Filters.Keys.ELEM_SIZE, Integer.BYTES);
+    Filter filter = new Blosc(props);
+    byte[] encoded = readAsByteArray("blosc_lz4_shuffle");
+    ExecutorService exec = Executors.newSingleThreadExecutor();
+    try {
+      Blosc.setExecutor(exec);
+      Future<byte[]> decoded = exec.submit(() -> filter.decode(encoded));
+      assertThat(decoded.get(10, TimeUnit.SECONDS)).isEqualTo(decoded_data);
+
+      // or for an executor that is shut down
+      exec.shutdown();
+      assertThat(filter.decode(encoded)).isEqualTo(decoded_data);
+    } finally {
+      Blosc.setExecutor(null);
+      exec.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testDecodeChain() throws IOException {
+    Map<String, Object> props = new HashMap<>();
+    props.put("id", "shuffle");
+    props.put(Filters.Keys.ELEM_SIZE, Integer.BYTES);
+    Filter shuffle = new Shuffle(props);
+    Filter deflate = new Deflate(new HashMap<>());
+    byte[] encoded = deflate.encode(shuffle.encode(decoded_data));
+
+    byte[] copy = encoded.clone();
+    ByteBuffer bb = Filters.decode(deflate, ByteBuffer.wrap(encoded), decoded_data.length, false);
+    bb = Filters.decode(shuffle, bb, decoded_data.length, true);
+    assertThat(bb.capacity()).isEqualTo(decoded_data.length);
+    assertThat(toArray(bb)).isEqualTo(decoded_data);
+
+    // the input belongs to the caller, so later decodes must not write into it
+    Filters.decode(deflate, ByteBuffer.wrap(copy), decoded_data.length, false);
+    assertThat(encoded).isEqualTo(copy);
+
+    // an underestimated size falls back to decoding arrays
+    bb = Filters.decode(deflate, ByteBuffer.wrap(encoded), 10, true);
+    assertThat(toArray(bb)).isEqualTo(shuffle.encode(decoded_data));
+  }
+
+  @Test
+  public void testBufferPoolOwnership() {
+    BufferPool pool = new BufferPool(1 << 20);
+
+    // a caller's buffer that looks like a pooled one is not taken
+    ByteBuffer mine = ByteBuffer.wrap(new byte[4096]);
+    pool.release(mine);
+    assertThat(pool.getPooledBytes()).isEqualTo(0);
+
+    ByteBuffer bb = pool.acquire(3000);
+    assertThat(bb.capacity()).isEqualTo(4096);
+    pool.release(bb);
+    assertThat(pool.getPooledBytes()).isEqualTo(4096);
+    pool.release(bb); // twice is ignored
+    assertThat(pool.getPooledBytes()).isEqualTo(4096);
+    assertThat(pool.acquire(4000)).isSameInstanceAs(bb);
+    assertThat(pool.getPooledBytes()).isEqualTo(0);
+  }
+
+  private static byte[] toArray(ByteBuffer bb) {
+    byte[] result = new byte[bb.remaining()];
+    bb.get(result);
+    return result;
+  }
+
   private void testEncodeDecode(Filter filter, String filename) throws IOException {
     // test encode
     byte[] out = filter.encode(decoded_data);
@@ -117,6 +244,27 @@ public class TestFilters {
     // test decode
     byte[] decoded = filter.decode(encoded);
     assertThat(decoded).isEqualTo(decoded_data);
+
+    // test decode between buffers
+    ByteBuffer src = ByteBuffer.wrap(encoded);
+    int size = filter.getDecodedSize(src, decoded_data.length);
+    assertThat(size).isAtLeast(decoded_data.length);
+    ByteBuffer dst = BufferPool.getDefault().acquire(size);
+    filter.decode(src, dst);
+    assertThat(src.hasRemaining()).isFalse();
+    dst.flip();
+    byte[] out2 = new byte[dst.remaining()];
+    dst.get(out2);
+    assertThat(out2).isEqualTo(decoded_data);
+    BufferPool.getDefault().release(dst);
+
+    // destination too small
+    try {
+      filter.decode(ByteBuffer.wrap(encoded), ByteBuffer.allocate(decoded_data.length - 1));
+      fail();
+    } catch (BufferOverflowException e) {
+      // expected
+    }
   }
 
   @Test
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.ft.point.standard;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.constants.FeatureType;
+import ucar.nc2.ft.FeatureDatasetFactoryManager;
+import ucar.nc2.ft.FeatureDatasetPoint;
+import ucar.nc2.ft.PointFeature;
+import ucar.nc2.ft.PointFeatureCollection;
+import ucar.nc2.time.CalendarDate;
+import ucar.nc2.time.CalendarDateRange;
+import ucar.nc2.time.CalendarPeriod;
+import ucar.nc2.util.DiskCache2;
+import ucar.nc2.write.NetcdfFormatWriter;
+import ucar.unidata.geoloc.LatLonPoint;
+import ucar.unidata.geoloc.LatLonRect;
+
+public class TestPointTableIndex {
+  private static final int NOBS = 5000;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void resetIndexCache() {
+    PointDatasetStandardFactory.setIndexCache(null);
+  }
+
+  // a CF point dataset of a track that moves north over time, while hopping around in longitude
+  private String makePointFile() throws IOException, InvalidRangeException {
+    String filename = tempFolder.newFile("points.nc").getAbsolutePath();
+    NetcdfFormatWriter.Builder writerb = NetcdfFormatWriter.createNewNetcdf3(filename).setFill(false);
+    writerb.addAttribute(new Attribute("featureType", "point"));
+    writerb.addAttribute(new Attribute("Conventions", "CF-1.6"));
+    writerb.addDimension("obs", NOBS);
+    writerb.addVariable("time", DataType.DOUBLE, "obs")
+        .addAttribute(new Attribute("units", "hours since 2000-01-01T00:00:00Z"));
+    writerb.addVariable("lat", DataType.DOUBLE, "obs").addAttribute(new Attribute("units", "degrees_north"));
+    writerb.addVariable("lon", DataType.DOUBLE, "obs").addAttribute(new Attribute("units", "degrees_east"));
+    writerb.addVariable("temp", DataType.FLOAT, "obs").addAttribute(new Attribute("coordinates", "time lat lon"));
+
+    double[] time = new double[NOBS];
+    double[] lat = new double[NOBS];
+    double[] lon = new double[NOBS];
+    float[] temp = new float[NOBS];
+    for (int i = 0; i < NOBS; i++) {
+      time[i] = i;
+      lat[i] = -60 + 120.0 * i / NOBS;
+      lon[i] = -170 + 340.0 * ((7 * i) % 100) / 100;
+      temp[i] = i;
+    }
+    try (NetcdfFormatWriter writer = writerb.build()) {
+      writer.write("time", Array.makeFromJavaArray(time, false));
+      writer.write("lat", Array.makeFromJavaArray(lat, false));
+      writer.write("lon", Array.makeFromJavaArray(lon, false));
+      writer.write("temp", Array.makeFromJavaArray(temp, false));
+    }
+    return filename;
+  }
+
+  private static List<Float> readSubset(String filename, LatLonRect bb, CalendarDateRange dateRange)
+      throws IOException {
+    try (FeatureDatasetPoint fd =
+        (FeatureDatasetPoint) FeatureDatasetFactoryManager.open(FeatureType.POINT, filename, null, new Formatter())) {
+      PointFeatureCollection pfc = (PointFeatureCollection) fd.getPointFeatureCollectionList().get(0);
+      List<Float> result = new ArrayList<>();
+      for (PointFeature pf : pfc.subset(bb, dateRange)) {
+        result.add(pf.getFeatureData().getScalarFloat("temp"));
+      }
+      return result;
+    }
+  }
+
+  private List<File> findIndexFiles() throws IOException {
+    try (Stream<Path> paths = Files.walk(tempFolder.getRoot().toPath())) {
+      return paths.map(Path::toFile).filter(f -> f.getName().endsWith(".ptidx")).collect(Collectors.toList());
+    }
+  }
+
+  @Test
+  public void testSubsetMatchesFilter() throws IOException, InvalidRangeException {
+    String filename = makePointFile();
+    LatLonRect bb = new LatLonRect(LatLonPoint.create(-10, -100), LatLonPoint.create(20, 50));
+    CalendarDate start = CalendarDate.parseISOformat(null, "2000-02-01T00:00:00Z");
+    CalendarDateRange dateRange = CalendarDateRange.of(start, start.add(30, CalendarPeriod.Field.Day));
+
+    List<Float> expectBB = readSubset(filename, bb, null);
+    List<Float> expectBoth = readSubset(filename, bb, dateRange);
+    List<Float> expectTime = readSubset(filename, null, dateRange);
+    assertThat(expectBB).isNotEmpty();
+    assertThat(expectTime).isNotEmpty();
+    assertThat(findIndexFiles()).isEmpty();
+
+    DiskCache2 cache = new DiskCache2(tempFolder.newFolder("cache").getPath(), false, 0, 0);
+    cache.setAlwaysUseCache(true);
+    PointDatasetStandardFactory.setIndexCache(cache);
+
+    assertThat(readSubset(filename, bb, null)).containsExactlyElementsIn(expectBB).inOrder();
+    assertThat(findIndexFiles()).hasSize(1);
+
+    // the second time the index is read from the cache
+    assertThat(readSubset(filename, bb, dateRange)).containsExactlyElementsIn(expectBoth).inOrder();
+    assertThat(readSubset(filename, null, dateRange)).containsExactlyElementsIn(expectTime).inOrder();
+    assertThat(findIndexFiles()).hasSize(1);
+
+    // a box that crosses the dateline
+    LatLonRect crossing = new LatLonRect(LatLonPoint.create(-30, 160), LatLonPoint.create(30, -160));
+    List<Float> crossingResult = readSubset(filename, crossing, null);
+    PointDatasetStandardFactory.setIndexCache(null);
+    assertThat(crossingResult).containsExactlyElementsIn(readSubset(filename, crossing, null)).inOrder();
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.ncml;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.nc2.internal.ncml.AggregationIndexProto.NestedDataset;
+
+public class TestAggregationIndex {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static NestedDataset makeRecord(String id, int ncoords, long lastModified) {
+    NestedDataset.Builder record = AggregationIndex.makeRecord(id, ncoords, lastModified);
+    AggregationIndex.addValues(record, "time", Array.makeArray(DataType.DOUBLE, ncoords, lastModified, 0.5));
+    AggregationIndex.addValues(record, "run", Array.makeArray(DataType.STRING, new String[] {"a", "b"}));
+    return record.build();
+  }
+
+  private static NestedDataset find(AggregationIndex index, String id) {
+    for (NestedDataset record : index.getDatasets()) {
+      if (record.getId().equals(id)) {
+        return record;
+      }
+    }
+    return null;
+  }
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    File file = new File(tempFolder.getRoot(), "agg.idx");
+    List<NestedDataset> records = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      records.add(makeRecord("file" + i, 3, 100 + i));
+    }
+    assertThat(AggregationIndex.write(file, "joinExisting", "time", records)).isTrue();
+
+    AggregationIndex index = AggregationIndex.read(file, "joinExisting", "time");
+    assertThat(index).isNotNull();
+    assertThat(index.getDatasets()).containsExactlyElementsIn(records).inOrder();
+
+    NestedDataset record = find(index, "file2");
+    assertThat(record.getNcoords()).isEqualTo(3);
+    assertThat(record.getLastModified()).isEqualTo(102L);
+    Array time = AggregationIndex.getValues(record.getValues(0), DataType.DOUBLE);
+    assertThat((double[]) time.copyTo1DJavaArray()).isEqualTo(new double[] {102, 102.5, 103});
+    Array run = AggregationIndex.getValues(record.getValues(1), DataType.STRING);
+    assertThat(run.getObject(1)).isEqualTo("b");
+
+    // written for another aggregation
+    assertThat(AggregationIndex.read(file, "joinExisting", "other")).isNull();
+  }
+
+  @Test
+  public void testAppend() throws IOException {
+    File file = new File(tempFolder.getRoot(), "agg.idx");
+    List<NestedDataset> records = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      records.add(makeRecord("file" + i, 3, 100 + i));
+    }
+    assertThat(AggregationIndex.write(file, "joinExisting", "time", records)).isTrue();
+    long length = file.length();
+
+    // nothing changed
+    assertThat(AggregationIndex.write(file, "joinExisting", "time", records)).isFalse();
+    assertThat(file.length()).isEqualTo(length);
+
+    // a new file and a changed file are appended
+    records.add(makeRecord("file4", 2, 200));
+    records.set(1, makeRecord("file1", 5, 300));
+    assertThat(AggregationIndex.write(file, "joinExisting", "time", records)).isTrue();
+    assertThat(file.length()).isGreaterThan(length);
+
+    AggregationIndex index = AggregationIndex.read(file, "joinExisting", "time");
+    assertThat(index.getDatasets()).hasSize(5);
+    assertThat(find(index, "file1").getNcoords()).isEqualTo(5);
+    assertThat(find(index, "file4").getLastModified()).isEqualTo(200L);
+  }
+
+  @Test
+  public void testReplacesOldFile() throws IOException {
+    File file = new File(tempFolder.getRoot(), "agg.idx");
+    String xml = "<?xml version='1.0' encoding='UTF-8'?>\n<aggregation/>";
+    Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+    assertThat(AggregationIndex.read(file, "joinExisting", "time")).isNull();
+
+    List<NestedDataset> records = new ArrayList<>();
+    records.add(makeRecord("file0", 3, 100));
+    assertThat(AggregationIndex.write(file, "joinExisting", "time", records)).isTrue();
+    assertThat(AggregationIndex.read(file, "joinExisting", "time").getDatasets()).containsExactlyElementsIn(records);
+  }
+}
@@ -5,9 +5,12 @@
 
 package ucar.nc2.iosp;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.Random;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -63,4 +66,44 @@ public class TestBitReader {
     assertEquals(6, (int) bu.bits2UInt(8));
   }
 
+  // readUInts must give the same values as bits2UInt, for all widths and starting bit positions
+  @Test
+  public void testReadUInts() throws IOException {
+    Random random = new Random(17);
+    byte[] bits = new byte[1000];
+    random.nextBytes(bits);
+    for (int lead = 0; lead < 9; lead++) {
+      for (int nb = 0; nb <= 32; nb++) {
+        int count = 150 + random.nextInt(50);
+        BitReader expectReader = new BitReader(bits);
+        BitReader bu = new BitReader(bits);
+        expectReader.bits2UInt(lead);
+        bu.bits2UInt(lead);
+
+        int[] expect = new int[count];
+        for (int i = 0; i < count; i++)
+          expect[i] = (int) expectReader.bits2UInt(nb);
+        int[] result = new int[count];
+        bu.readUInts(nb, result, 0, count);
+        assertArrayEquals("lead=" + lead + " nb=" + nb, expect, result);
+
+        // and continues from the right place
+        assertEquals(expectReader.bits2UInt(11), bu.bits2UInt(11));
+      }
+    }
+  }
+
+  // values of 32 bits or more are unsigned, and only bits2UInt can read them
+  @Test
+  public void testWideValues() throws IOException {
+    byte[] bits =
+        {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xfe, (byte) 0x80, 0x12, 0x34, 0x56, 0x78, (byte) 0x9a};
+    BitReader reader = new BitReader(bits);
+    assertEquals(0xfffffffeL, reader.bits2UInt(32));
+    assertEquals(0x80123456789aL, reader.bits2UInt(48));
+
+    BitReader bu = new BitReader(bits);
+    assertThrows(IllegalArgumentException.class, () -> bu.readUInts(33, new int[1], 0, 1));
+  }
+
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestChunkCache {
+
+  private static final String LOCATION = "file.nc";
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private ByteBuffer load(int size) {
+    loads.incrementAndGet();
+    ByteBuffer bb = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    bb.putInt(0, size);
+    return bb;
+  }
+
+  @Test
+  public void testHitsAndMisses() throws IOException {
+    ChunkCache cache = new ChunkCache(1000);
+    ByteBuffer first = cache.get(LOCATION, 1, "var", 0, () -> load(100));
+    ByteBuffer second = cache.get(LOCATION, 1, "var", 0, () -> load(100));
+    assertThat(loads.get()).isEqualTo(1);
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(1);
+
+    // callers get independent views with the loader's byte order
+    assertThat(second.order()).isEqualTo(ByteOrder.LITTLE_ENDIAN);
+    first.position(50);
+    assertThat(second.position()).isEqualTo(0);
+    assertThat(second.getInt(0)).isEqualTo(100);
+
+    // other variables, chunks and files are different entries
+    cache.get(LOCATION, 1, "other", 0, () -> load(100));
+    cache.get(LOCATION, 1, "var", 100, () -> load(100));
+    cache.get("file2.nc", 1, "var", 0, () -> load(100));
+    assertThat(loads.get()).isEqualTo(4);
+    assertThat(cache.getCachedChunks()).isEqualTo(4);
+    assertThat(cache.getCachedBytes()).isEqualTo(400);
+
+    cache.invalidate(LOCATION);
+    assertThat(cache.getCachedChunks()).isEqualTo(1);
+    assertThat(cache.getIfPresent("file2.nc", 1, "var", 0)).isNotNull();
+    cache.clearCache();
+    assertThat(cache.getCachedChunks()).isEqualTo(0);
+  }
+
+  @Test
+  public void testModifiedFile() throws IOException {
+    ChunkCache cache = new ChunkCache(1000);
+    cache.get(LOCATION, 1, "var", 0, () -> load(100));
+    assertThat(cache.getIfPresent(LOCATION, 2, "var", 0)).isNull();
+    ByteBuffer reloaded = cache.get(LOCATION, 2, "var", 0, () -> load(200));
+    assertThat(reloaded.getInt(0)).isEqualTo(200);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    ChunkCache cache = new ChunkCache(1000);
+    for (int i = 0; i < 50; i++) {
+      cache.get(LOCATION, 1, "var", i, () -> load(100));
+    }
+    assertThat(cache.getCachedBytes()).isAtMost(1000L);
+    assertThat(cache.getEvictionCount()).isAtLeast(40L);
+  }
+
+  @Test
+  public void testLargeChunk() throws IOException {
+    ChunkCache cache = new ChunkCache(1000);
+    cache.get(LOCATION, 1, "var", 0, () -> load(900));
+    assertThat(cache.getIfPresent(LOCATION, 1, "var", 0)).isNotNull();
+    assertThat(cache.getCachedBytes()).isEqualTo(900);
+    assertThat(cache.getEvictionCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testLoaderFails() {
+    ChunkCache cache = new ChunkCache(1000);
+    try {
+      cache.get(LOCATION, 1, "var", 0, () -> {
+        throw new IOException("bad chunk");
+      });
+      fail();
+    } catch (IOException e) {
+      assertThat(e.getMessage()).isEqualTo("bad chunk");
+    }
+    assertThat(cache.getCachedChunks()).isEqualTo(0);
+  }
+}
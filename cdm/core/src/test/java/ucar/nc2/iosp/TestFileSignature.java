@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import org.junit.Test;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.internal.iosp.hdf5.H5iospNew;
+import ucar.unidata.util.test.TestDir;
+
+public class TestFileSignature {
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testAt() {
+    FileSignature sig = FileSignature.at(2, "ABC");
+    assertThat(sig.getEnd()).isEqualTo(5);
+    assertThat(sig.matches(bytes("xxABCxx"), 0, 7)).isTrue();
+    assertThat(sig.matches(bytes("xABCxxx"), 0, 7)).isFalse();
+    assertThat(sig.matches(bytes("xxAB"), 0, 4)).isFalse(); // too short
+
+    // bytes from the middle of the file
+    assertThat(sig.matches(bytes("ABC"), 2, 3)).isTrue();
+    assertThat(sig.matches(bytes("ABC"), 3, 3)).isFalse();
+  }
+
+  @Test
+  public void testWithin() {
+    FileSignature sig = FileSignature.within(4, "GRIB");
+    assertThat(sig.getEnd()).isEqualTo(7);
+    assertThat(sig.matches(bytes("GRIBxxx"), 0, 7)).isTrue();
+    assertThat(sig.matches(bytes("xxxGRIB"), 0, 7)).isTrue();
+    assertThat(sig.matches(bytes("xxxxGRIB"), 0, 8)).isFalse(); // starts too late
+    assertThat(sig.matches(bytes("xxxGRIB"), 0, 6)).isFalse(); // only the valid bytes count
+  }
+
+  @Test
+  public void testAtPowersOfTwo() {
+    List<FileSignature> sigs = FileSignature.atPowersOfTwo(3000, bytes("HDF"));
+    assertThat(sigs).hasSize(4);
+    assertThat(sigs.get(3).getOffset()).isEqualTo(2048);
+  }
+
+  @Test
+  public void testDetectionSkipsIsValidFile() throws IOException {
+    NetcdfFiles.resetDetectionStats();
+    try (NetcdfFile ncfile = NetcdfFiles.open(TestDir.cdmLocalTestDataDir + "example1.nc")) {
+      assertThat(ncfile.getFileTypeId()).isEqualTo("NetCDF");
+    }
+    Optional<IospDetectionStats> hdf5 = NetcdfFiles.getDetectionStats().stream()
+        .filter(s -> s.getIospClassName().equals(H5iospNew.class.getName())).findFirst();
+    assertThat(hdf5.isPresent()).isTrue();
+    // the netcdf-3 file doesnt have the HDF5 magic number, so isValidFile() is not needed
+    assertThat(hdf5.get().getRejected()).isAtLeast(1);
+  }
+}
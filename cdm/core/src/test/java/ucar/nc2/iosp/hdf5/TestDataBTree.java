@@ -3,6 +3,8 @@ package ucar.nc2.iosp.hdf5;
 import static com.google.common.truth.Truth.assertThat;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.lang.invoke.MethodHandles;
 import org.junit.After;
 import org.junit.Before;
@@ -10,6 +12,7 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ucar.nc2.iosp.hdf5.H5header.Vinfo;
+import ucar.ma2.Array;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
 import ucar.unidata.util.test.TestDir;
@@ -51,4 +54,35 @@ public class TestDataBTree {
     netcdfFile.close();
     assertThat(bTree.getRandomAccessFile()).isNull();
   }
+
+  @Test
+  public void shouldCacheNodes() throws IOException {
+    final Variable variable = netcdfFile.findVariable("data");
+    final DataBTree bTree = ((Vinfo) variable.getSPobject()).btree;
+
+    Array first = variable.read();
+    assertThat(bTree.getCachedNodes()).isGreaterThan(0L);
+    Array second = variable.read();
+    assertThat(second.toString()).isEqualTo(first.toString());
+
+    // iterating over the cached nodes gives the same chunks as reading them from the file
+    List<Long> cached = chunkPositions(bTree);
+    DataBTree.setMaxCachedEntries(0);
+    try (NetcdfFile uncachedFile = NetcdfFile.open(TEST_FILE)) {
+      DataBTree uncached = ((Vinfo) uncachedFile.findVariable("data").getSPobject()).btree;
+      assertThat(chunkPositions(uncached)).isEqualTo(cached);
+      assertThat(uncached.getCachedNodes()).isEqualTo(0L);
+    } finally {
+      DataBTree.setMaxCachedEntries(100 * 1000);
+    }
+  }
+
+  private List<Long> chunkPositions(DataBTree bTree) throws IOException {
+    List<Long> result = new ArrayList<>();
+    DataBTree.DataChunkIterator iter = bTree.getDataChunkIteratorFilter(null);
+    while (iter.hasNext()) {
+      result.add(iter.next().filePos);
+    }
+    return result;
+  }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.netcdf3;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.util.CompareNetcdf2;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.util.test.TestDir;
+
+/** One open netcdf-3 file serves readData calls from several threads, when concurrent reads are on. */
+public class TestN3iospConcurrentReads {
+
+  /** The legacy IOSP, with a message that hands out a data reader without releasing it. */
+  public static class DataReaderIosp extends N3raf {
+    static final String DATA_READER = "DataReader";
+
+    @Override
+    public Object sendIospMessage(Object message) {
+      if (DATA_READER.equals(message)) {
+        try {
+          return getDataReader();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      return super.sendIospMessage(message);
+    }
+  }
+
+  @After
+  public void resetConcurrentReads() {
+    AbstractIOServiceProvider.setConcurrentReads(false);
+  }
+
+  @SuppressWarnings("deprecation")
+  private void checkConcurrentReads(NetcdfFile ncfile) throws Exception {
+    Map<String, Array> expected = new HashMap<>();
+    for (Variable v : ncfile.getVariables()) {
+      v.setCaching(false); // every read goes to the iosp
+      expected.put(v.getFullName(), v.read());
+    }
+
+    AbstractIOServiceProvider.setConcurrentReads(true);
+    ExecutorService exec = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        for (Variable v : ncfile.getVariables()) {
+          results.add(exec.submit(
+              () -> CompareNetcdf2.compareData(v.getFullName(), expected.get(v.getFullName()), v.read())));
+        }
+      }
+      for (Future<Boolean> result : results) {
+        assertThat(result.get()).isTrue();
+      }
+    } finally {
+      exec.shutdown();
+    }
+  }
+
+  @Test
+  public void testConcurrentReadsMatchSerial() throws Exception {
+    try (NetcdfFile ncfile = NetcdfFiles.open(TestDir.cdmLocalTestDataDir + "example1.nc")) {
+      checkConcurrentReads(ncfile);
+    }
+  }
+
+  @Test
+  public void testLegacyIospConcurrentReadsMatchSerial() throws Exception {
+    try (NetcdfFile ncfile =
+        NetcdfFile.open(TestDir.cdmLocalTestDataDir + "example1.nc", N3raf.class.getName(), -1, null, null)) {
+      checkConcurrentReads(ncfile);
+    }
+  }
+
+  @Test
+  public void testCloseClosesDataReaders() throws Exception {
+    AbstractIOServiceProvider.setConcurrentReads(true);
+    RandomAccessFile reader;
+    // a small buffer, so that reads at other positions go to the file
+    try (NetcdfFile ncfile =
+        NetcdfFile.open(TestDir.cdmLocalTestDataDir + "example1.nc", DataReaderIosp.class.getName(), 16, null, null)) {
+      reader = (RandomAccessFile) ncfile.sendIospMessage(DataReaderIosp.DATA_READER);
+      assertThat(reader).isNotNull();
+      reader.seek(100);
+      assertThat(reader.read()).isAtLeast(0);
+    }
+
+    try {
+      reader.seek(200);
+      reader.read();
+      fail();
+    } catch (IOException expected) {
+      // the reader was closed with the file
+    }
+  }
+}
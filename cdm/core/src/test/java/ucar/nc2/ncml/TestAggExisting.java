@@ -7,6 +7,8 @@ package ucar.nc2.ncml;
 import static com.google.common.truth.Truth.assertThat;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -160,6 +162,21 @@ public class TestAggExisting {
     logger.debug(" testNcmlDatasetWcoords.closed ");
   }
 
+  @Test
+  public void testNcmlParallelRead() throws IOException, InvalidRangeException {
+    String filename = "file:./" + TestNcmlRead.topDir + "aggExisting.xml";
+
+    ExecutorService exec = Executors.newFixedThreadPool(2);
+    try (NetcdfFile ncfile = NetcdfDataset.openDataset(filename, true, null)) {
+      Aggregation.setExecutor(exec, 2);
+      testReadData(ncfile);
+      testReadSlice(ncfile);
+    } finally {
+      Aggregation.setExecutor(null);
+      exec.shutdownNow();
+    }
+  }
+
   // remove test - now we get a coordinate initialized to missing data, but at least testCoordsAdded works!
   // @Test
   public void testNoCoords() throws IOException {
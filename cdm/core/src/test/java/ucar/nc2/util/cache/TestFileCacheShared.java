@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.util.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.nc2.dataset.DatasetUrl;
+import ucar.nc2.util.CancelTask;
+
+/** Test FileCacheShared */
+public class TestFileCacheShared {
+
+  private static class FakeFile implements FileCacheable {
+    final String location;
+    long lastModified;
+    FileCacheIF cache;
+    boolean closed;
+
+    FakeFile(String location) {
+      this.location = location;
+    }
+
+    @Override
+    public String getLocation() {
+      return location;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      if (cache != null) {
+        if (cache.release(this))
+          return;
+      }
+      closed = true;
+    }
+
+    @Override
+    public long getLastModified() {
+      return lastModified;
+    }
+
+    @Override
+    public synchronized void setFileCache(FileCacheIF fileCache) {
+      this.cache = fileCache;
+    }
+
+    @Override
+    public void release() {}
+
+    @Override
+    public void reacquire() {}
+  }
+
+  // counts the opens, and can be made to wait until released
+  private static class FakeFactory implements FileFactory {
+    final AtomicInteger opens = new AtomicInteger();
+    final CountDownLatch go;
+    final List<FakeFile> opened = new ArrayList<>();
+
+    FakeFactory(CountDownLatch go) {
+      this.go = go;
+    }
+
+    @Override
+    public synchronized FileCacheable open(DatasetUrl location, int buffer_size, CancelTask cancelTask,
+        Object iospMessage) throws IOException {
+      opens.incrementAndGet();
+      try {
+        go.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      if (location.trueurl.startsWith("bad"))
+        throw new IOException("cant open " + location.trueurl);
+      FakeFile result = new FakeFile(location.trueurl);
+      opened.add(result);
+      return result;
+    }
+  }
+
+  private static DatasetUrl url(String location) {
+    return DatasetUrl.create(null, location);
+  }
+
+  @Test
+  public void testSingleOpen() throws Exception {
+    FileCacheShared cache = new FileCacheShared("testSingleOpen", 10);
+    CountDownLatch go = new CountDownLatch(1);
+    FakeFactory factory = new FakeFactory(go);
+
+    int nthreads = 8;
+    ExecutorService pool = Executors.newFixedThreadPool(nthreads);
+    try {
+      List<Future<FileCacheable>> results = new ArrayList<>();
+      for (int i = 0; i < nthreads; i++) {
+        results.add(pool.submit(() -> cache.acquire(factory, url("one"))));
+      }
+      Thread.sleep(100);
+      go.countDown();
+
+      FileCacheable first = results.get(0).get();
+      for (Future<FileCacheable> result : results) {
+        assertThat(result.get()).isSameInstanceAs(first);
+      }
+      assertThat(factory.opens.get()).isEqualTo(1);
+
+      FileCacheShared.Stats stats = cache.getStats();
+      assertThat(stats.getMisses()).isEqualTo(1);
+      assertThat(stats.getHits() + stats.getWaits()).isEqualTo(nthreads - 1);
+      assertThat(stats.getNumberOfFiles()).isEqualTo(1);
+
+      // stays open until all users are done, and then stays in the cache
+      for (int i = 0; i < nthreads; i++) {
+        first.close();
+      }
+      assertThat(((FakeFile) first).closed).isFalse();
+      assertThat(cache.acquire(factory, url("one"))).isSameInstanceAs(first);
+      assertThat(factory.opens.get()).isEqualTo(1);
+      first.close();
+
+      cache.clearCache(false);
+      assertThat(((FakeFile) first).closed).isTrue();
+      assertThat(cache.getStats().getNumberOfFiles()).isEqualTo(0);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testFailedOpen() throws Exception {
+    FileCacheShared cache = new FileCacheShared("testFailedOpen", 10);
+    FakeFactory factory = new FakeFactory(new CountDownLatch(0));
+    Assert.assertThrows(IOException.class, () -> cache.acquire(factory, url("bad")));
+    Assert.assertThrows(IOException.class, () -> cache.acquire(factory, url("bad")));
+    assertThat(factory.opens.get()).isEqualTo(2);
+    assertThat(cache.getStats().getFailures()).isEqualTo(2);
+    assertThat(cache.getStats().getNumberOfFiles()).isEqualTo(0);
+  }
+
+  @Test
+  public void testEvictByWeight() throws Exception {
+    // weight is the length of the location
+    FileCacheShared cache = new FileCacheShared("testEvictByWeight", 10, f -> f.getLocation().length());
+    FakeFactory factory = new FakeFactory(new CountDownLatch(0));
+
+    FileCacheable inUse = cache.acquire(factory, url("aaaa"));
+    FileCacheable idle = cache.acquire(factory, url("bbbb"));
+    idle.close();
+    assertThat(cache.getStats().getWeight()).isEqualTo(8);
+
+    // over the limit: the idle file is closed, not the one in use
+    FileCacheable big = cache.acquire(factory, url("cccccc"));
+    assertThat(((FakeFile) idle).closed).isTrue();
+    assertThat(((FakeFile) inUse).closed).isFalse();
+    assertThat(cache.getStats().getEvictions()).isEqualTo(1);
+    assertThat(cache.getStats().getWeight()).isEqualTo(10);
+
+    // in use files may go over the limit, until they are released
+    FileCacheable more = cache.acquire(factory, url("dd"));
+    assertThat(cache.getStats().getWeight()).isEqualTo(12);
+    inUse.close();
+    assertThat(((FakeFile) inUse).closed).isTrue();
+    assertThat(cache.getStats().getWeight()).isEqualTo(8);
+
+    big.close();
+    more.close();
+    cache.clearCache(true);
+    assertThat(cache.getStats().getWeight()).isEqualTo(0);
+  }
+
+  @Test
+  public void testChangedFile() throws Exception {
+    FileCacheShared cache = new FileCacheShared("testChangedFile", 10);
+    FakeFactory factory = new FakeFactory(new CountDownLatch(0));
+
+    FakeFile first = (FakeFile) cache.acquire(factory, url("one"));
+    first.lastModified = 42;
+
+    // still in use, so not closed until released
+    FakeFile second = (FakeFile) cache.acquire(factory, url("one"));
+    assertThat(second).isNotSameInstanceAs(first);
+    assertThat(factory.opens.get()).isEqualTo(2);
+    assertThat(first.closed).isFalse();
+    first.close();
+    assertThat(first.closed).isTrue();
+
+    second.close();
+    assertThat(cache.acquire(factory, url("one"))).isSameInstanceAs(second);
+    second.close();
+    assertThat(cache.showCache()).hasSize(1);
+  }
+
+  @Test
+  public void testEject() throws Exception {
+    FileCacheShared cache = new FileCacheShared("testEject", 10);
+    FakeFactory factory = new FakeFactory(new CountDownLatch(0));
+
+    FakeFile first = (FakeFile) cache.acquire(factory, url("one"));
+    cache.eject("one");
+    assertThat(first.closed).isFalse();
+    first.close();
+    assertThat(first.closed).isTrue();
+
+    FakeFile second = (FakeFile) cache.acquire(factory, url("one"));
+    assertThat(second).isNotSameInstanceAs(first);
+    second.close();
+    cache.eject("one");
+    assertThat(second.closed).isTrue();
+  }
+}
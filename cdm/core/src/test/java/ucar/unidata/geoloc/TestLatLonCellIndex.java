@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.geoloc;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class TestLatLonCellIndex {
+  private static final int NROWS = 40;
+  private static final int NCOLS = 60;
+
+  // a curvilinear grid: rotated by 30 degrees and sheared, so rows and columns dont follow lat and lon
+  private static double[][] makeEdges() {
+    double[] lat = new double[(NROWS + 1) * (NCOLS + 1)];
+    double[] lon = new double[lat.length];
+    double angle = Math.toRadians(30);
+    for (int row = 0; row <= NROWS; row++) {
+      for (int col = 0; col <= NCOLS; col++) {
+        double x = col + 0.002 * row * row;
+        double y = row;
+        lon[row * (NCOLS + 1) + col] = -120 + 0.5 * (x * Math.cos(angle) - y * Math.sin(angle));
+        lat[row * (NCOLS + 1) + col] = 20 + 0.5 * (x * Math.sin(angle) + y * Math.cos(angle));
+      }
+    }
+    return new double[][] {lat, lon};
+  }
+
+  // is the point on the same side of all edges of the cell
+  private static boolean contains(double[][] edges, int row, int col, double lat, double lon) {
+    int e = row * (NCOLS + 1) + col;
+    int[] corners = {e, e + 1, e + NCOLS + 2, e + NCOLS + 1};
+    int sign = 0;
+    for (int i = 0; i < 4; i++) {
+      int c0 = corners[i], c1 = corners[(i + 1) % 4];
+      double det = (edges[1][c1] - edges[1][c0]) * (lat - edges[0][c0])
+          - (edges[0][c1] - edges[0][c0]) * (lon - edges[1][c0]);
+      int s = (int) Math.signum(det);
+      if (s != 0 && sign != 0 && s != sign) {
+        return false;
+      }
+      if (s != 0) {
+        sign = s;
+      }
+    }
+    return true;
+  }
+
+  @Test
+  public void testFindCell() {
+    double[][] edges = makeEdges();
+    LatLonCellIndex index = new LatLonCellIndex(edges[0], edges[1], NROWS, NCOLS);
+
+    Random random = new Random(42);
+    int[] rectIndex = new int[2];
+    int found = 0;
+    for (int i = 0; i < 2000; i++) {
+      double lat = 15 + 30 * random.nextDouble();
+      double lon = -130 + 40 * random.nextDouble();
+      if (index.findCell(lat, lon, rectIndex)) {
+        assertThat(contains(edges, rectIndex[0], rectIndex[1], lat, lon)).isTrue();
+        found++;
+      } else {
+        for (int row = 0; row < NROWS; row++) {
+          for (int col = 0; col < NCOLS; col++) {
+            assertThat(contains(edges, row, col, lat, lon)).isFalse();
+          }
+        }
+      }
+    }
+    assertThat(found).isGreaterThan(0);
+
+    // the center of a cell
+    int e = 10 * (NCOLS + 1) + 20;
+    double lat = (edges[0][e] + edges[0][e + NCOLS + 2]) / 2;
+    double lon = (edges[1][e] + edges[1][e + NCOLS + 2]) / 2;
+    assertThat(index.findCell(lat, lon, rectIndex)).isTrue();
+    assertThat(rectIndex).isEqualTo(new int[] {10, 20});
+    assertThat(index.findCells(new double[] {lat, Double.NaN, 80}, new double[] {lon, lon, lon}))
+        .isEqualTo(new int[] {10 * NCOLS + 20, -1, -1});
+  }
+
+  @Test
+  public void testMissingValues() {
+    double[][] edges = makeEdges();
+    edges[0][5 * (NCOLS + 1) + 5] = Double.NaN;
+    LatLonCellIndex index = new LatLonCellIndex(edges[0], edges[1], NROWS, NCOLS);
+
+    // the four cells around the missing point are not in the index
+    int e = 4 * (NCOLS + 1) + 4;
+    double lat = (edges[0][e] + edges[0][e + NCOLS + 2]) / 2;
+    double lon = (edges[1][e] + edges[1][e + NCOLS + 2]) / 2;
+    assertThat(index.findCell(lat, lon, new int[2])).isFalse();
+  }
+
+  @Test
+  public void testCollapsedCell() {
+    double[][] edges = makeEdges();
+    // collapse cell (10, 20) to its center, so cell (10, 21) next to it becomes a triangle with a corner there
+    int e = 10 * (NCOLS + 1) + 20;
+    double centerLat = (edges[0][e] + edges[0][e + NCOLS + 2]) / 2;
+    double centerLon = (edges[1][e] + edges[1][e + NCOLS + 2]) / 2;
+    for (int corner : new int[] {e, e + 1, e + NCOLS + 1, e + NCOLS + 2}) {
+      edges[0][corner] = centerLat;
+      edges[1][corner] = centerLon;
+    }
+    LatLonCellIndex index = new LatLonCellIndex(edges[0], edges[1], NROWS, NCOLS);
+
+    // a point of the triangle, close to the collapsed cell
+    double lat = centerLat + 0.01 * (edges[0][e + 2] + edges[0][e + NCOLS + 3] - 2 * centerLat);
+    double lon = centerLon + 0.01 * (edges[1][e + 2] + edges[1][e + NCOLS + 3] - 2 * centerLon);
+    assertThat(contains(edges, 10, 21, lat, lon)).isTrue();
+    int[] rectIndex = new int[2];
+    assertThat(index.findCell(lat, lon, rectIndex)).isTrue();
+    assertThat(rectIndex).isEqualTo(new int[] {10, 21});
+
+    // the collapsed cell does not contain its own point either
+    assertThat(index.findCell(centerLat, centerLon, rectIndex)).isTrue();
+    assertThat(rectIndex).isNotEqualTo(new int[] {10, 20});
+  }
+
+  // the range of the edges inside the box, by looking at all of them
+  private static int[] findEdgeBounds(double[][] edges, double minLat, double maxLat, double minLon, double maxLon) {
+    int[] bounds = {Integer.MAX_VALUE, -1, Integer.MAX_VALUE, -1};
+    for (int row = 0; row <= NROWS; row++) {
+      for (int col = 0; col <= NCOLS; col++) {
+        double lat = edges[0][row * (NCOLS + 1) + col];
+        double lon = edges[1][row * (NCOLS + 1) + col];
+        if (lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon) {
+          bounds[0] = Math.min(bounds[0], row);
+          bounds[1] = Math.max(bounds[1], row);
+          bounds[2] = Math.min(bounds[2], col);
+          bounds[3] = Math.max(bounds[3], col);
+        }
+      }
+    }
+    return bounds;
+  }
+
+  @Test
+  public void testFindEdgeBounds() {
+    double[][] edges = makeEdges();
+    LatLonCellIndex index = new LatLonCellIndex(edges[0], edges[1], NROWS, NCOLS);
+
+    double minLat = 25, maxLat = 30, minLon = -115, maxLon = -105;
+    int[] expected = findEdgeBounds(edges, minLat, maxLat, minLon, maxLon);
+    assertThat(expected[1]).isAtLeast(0);
+
+    int[] bounds = {Integer.MAX_VALUE, -1, Integer.MAX_VALUE, -1};
+    index.findEdgeBounds(minLat, maxLat, minLon, maxLon, bounds);
+    assertThat(bounds).isEqualTo(expected);
+
+    // no intersection leaves the bounds alone
+    int[] none = {Integer.MAX_VALUE, -1, Integer.MAX_VALUE, -1};
+    index.findEdgeBounds(60, 70, minLon, maxLon, none);
+    assertThat(none).isEqualTo(new int[] {Integer.MAX_VALUE, -1, Integer.MAX_VALUE, -1});
+  }
+
+  @Test
+  public void testFindEdgeBoundsMissingValues() {
+    double[][] edges = makeEdges();
+    double minLat = 25, maxLat = 30, minLon = -115, maxLon = -105;
+    int[] full = findEdgeBounds(edges, minLat, maxLat, minLon, maxLon);
+
+    // the rows next to the last row inside the box are missing, so the edges of that row are only in cells with a
+    // missing corner
+    int lastRow = full[1];
+    for (int col = 0; col <= NCOLS; col++) {
+      edges[0][(lastRow - 1) * (NCOLS + 1) + col] = Double.NaN;
+      if (lastRow < NROWS) {
+        edges[0][(lastRow + 1) * (NCOLS + 1) + col] = Double.NaN;
+      }
+    }
+    LatLonCellIndex index = new LatLonCellIndex(edges[0], edges[1], NROWS, NCOLS);
+    int[] bounds = {Integer.MAX_VALUE, -1, Integer.MAX_VALUE, -1};
+    index.findEdgeBounds(minLat, maxLat, minLon, maxLon, bounds);
+    assertThat(bounds).isEqualTo(findEdgeBounds(edges, minLat, maxLat, minLon, maxLon));
+    assertThat(bounds[1]).isEqualTo(lastRow);
+
+    // every cell has a missing corner, but the valid edges are still found
+    edges = makeEdges();
+    for (int e = 0; e < edges[0].length; e++) {
+      if ((e / (NCOLS + 1) + e % (NCOLS + 1)) % 2 == 1) {
+        edges[1][e] = Double.NaN;
+      }
+    }
+    index = new LatLonCellIndex(edges[0], edges[1], NROWS, NCOLS);
+    assertThat(index.findCell(27, -110, new int[2])).isFalse();
+    bounds = new int[] {Integer.MAX_VALUE, -1, Integer.MAX_VALUE, -1};
+    index.findEdgeBounds(minLat, maxLat, minLon, maxLon, bounds);
+    assertThat(bounds).isEqualTo(findEdgeBounds(edges, minLat, maxLat, minLon, maxLon));
+    assertThat(bounds[1]).isAtLeast(0);
+  }
+}
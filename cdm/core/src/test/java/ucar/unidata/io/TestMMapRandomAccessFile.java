@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.util.CompareNetcdf2;
+import ucar.unidata.util.test.TestDir;
+
+public class TestMMapRandomAccessFile {
+  // small segments, so that reads cross segment boundaries
+  private static final int SEGMENT_SIZE = 100;
+  private static final int LENGTH = 1000;
+
+  @ClassRule
+  public static final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static String makeFile(byte[] bytes) throws IOException {
+    File file = tempFolder.newFile();
+    Files.write(file.toPath(), bytes);
+    return file.getAbsolutePath();
+  }
+
+  private static byte[] makeBytes() {
+    byte[] bytes = new byte[LENGTH];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) (i * 7 + 3);
+    }
+    return bytes;
+  }
+
+  @Test
+  public void testRead() throws IOException {
+    byte[] bytes = makeBytes();
+    try (RandomAccessFile raf = new MMapRandomAccessFile(makeFile(bytes), "r", 64, SEGMENT_SIZE)) {
+      assertThat(raf.length()).isEqualTo(LENGTH);
+
+      byte[] all = new byte[LENGTH];
+      raf.readFully(all);
+      assertThat(all).isEqualTo(bytes);
+      assertThat(raf.read()).isEqualTo(-1);
+
+      raf.order(ByteOrder.LITTLE_ENDIAN);
+      raf.seek(97);
+      int[] ints = new int[200];
+      raf.readInt(ints, 0, ints.length);
+      ByteBuffer expected = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+      for (int i = 0; i < ints.length; i++) {
+        assertThat(ints[i]).isEqualTo(expected.getInt(97 + 4 * i));
+      }
+    }
+  }
+
+  @Test
+  public void testReadVectored() throws IOException {
+    byte[] bytes = makeBytes();
+    try (RandomAccessFile raf = new MMapRandomAccessFile(makeFile(bytes), "r", 64, SEGMENT_SIZE)) {
+      raf.seek(10);
+      // within a segment, across a segment boundary, empty, and the end of the file
+      List<ByteRange> ranges = Arrays.asList(new ByteRange(210, 50), new ByteRange(250, 300), new ByteRange(500, 0),
+          new ByteRange(LENGTH - 10, 10));
+      List<ByteBuffer> result = raf.readVectored(ranges);
+      for (int i = 0; i < ranges.size(); i++) {
+        ByteRange range = ranges.get(i);
+        ByteBuffer bb = result.get(i);
+        assertThat(bb.isReadOnly()).isTrue();
+        assertThat(bb.remaining()).isEqualTo(range.getLength());
+        byte[] data = new byte[range.getLength()];
+        bb.get(data);
+        assertThat(data).isEqualTo(Arrays.copyOfRange(bytes, (int) range.getOffset(), (int) range.getEnd()));
+      }
+      assertThat(raf.getFilePointer()).isEqualTo(10);
+
+      ByteBuffer bb = raf.readByteBuffer(8, 4);
+      assertThat(bb.getInt()).isEqualTo(ByteBuffer.wrap(bytes).getInt(8));
+
+      // the views are in the byte order of the file
+      raf.order(RandomAccessFile.LITTLE_ENDIAN);
+      ByteBuffer little = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+      for (ByteBuffer view : raf.readVectored(ranges)) {
+        assertThat(view.order()).isEqualTo(ByteOrder.LITTLE_ENDIAN);
+      }
+      assertThat(raf.readVectored(ranges).get(1).getInt()).isEqualTo(little.getInt(250));
+      assertThat(raf.readByteBuffer(8, 4).getInt()).isEqualTo(little.getInt(8));
+
+      Assert.assertThrows(java.io.EOFException.class, () -> raf.readByteBuffer(LENGTH - 2, 4));
+    }
+  }
+
+  @Test
+  public void testReadOnly() throws IOException {
+    String filename = makeFile(makeBytes());
+    Assert.assertThrows(IllegalArgumentException.class, () -> new MMapRandomAccessFile(filename, "rw"));
+  }
+
+  @Test
+  public void testOpenNetcdf() throws IOException {
+    String filename = TestDir.cdmLocalTestDataDir + "example1.nc";
+    try (NetcdfFile org = NetcdfFiles.open(filename); NetcdfFile mapped = NetcdfFiles.open("mmap:" + filename)) {
+      Formatter f = new Formatter();
+      CompareNetcdf2 compare = new CompareNetcdf2(f, false, false, true);
+      boolean ok = compare.compare(org, mapped);
+      if (!ok)
+        System.out.printf("%s%n", f);
+      assertThat(ok).isTrue();
+    }
+  }
+}
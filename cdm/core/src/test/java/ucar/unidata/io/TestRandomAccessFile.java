@@ -8,9 +8,19 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -249,6 +259,68 @@ public class TestRandomAccessFile {
     assertThat(arraysMatch(buff, UTF8_BYTES, offset, 0, len)).isTrue();
   }
 
+  @Test
+  public void testReadVectored() throws IOException {
+    List<ByteRange> ranges = Arrays.asList(new ByteRange(30, 4), new ByteRange(0, 5), new ByteRange(2, 8));
+    byte[][] expected = new byte[][] {"This".getBytes(StandardCharsets.UTF_8),
+        "Hello".getBytes(StandardCharsets.UTF_8), "llo worl".getBytes(StandardCharsets.UTF_8)};
+
+    testFile.seek(7);
+    List<ByteBuffer> result = testFile.readVectored(ranges);
+    assertThat(testFile.getFilePointer()).isEqualTo(7L);
+    assertThat(result).hasSize(3);
+    for (int i = 0; i < expected.length; i++) {
+      assertThat(result.get(i).order()).isEqualTo(ByteOrder.BIG_ENDIAN);
+      byte[] data = new byte[result.get(i).remaining()];
+      result.get(i).get(data);
+      assertThat(data).isEqualTo(expected[i]);
+    }
+
+    // the buffers are in the byte order of the file, like readByteBuffer()
+    testFile.order(RandomAccessFile.LITTLE_ENDIAN);
+    try {
+      ByteBuffer little = testFile.readVectored(ranges).get(1);
+      assertThat(little.order()).isEqualTo(ByteOrder.LITTLE_ENDIAN);
+      assertThat(little.getInt()).isEqualTo(ByteBuffer.wrap(expected[1]).order(ByteOrder.LITTLE_ENDIAN).getInt());
+      assertThat(testFile.readByteBuffer(0, 5).order()).isEqualTo(ByteOrder.LITTLE_ENDIAN);
+    } finally {
+      testFile.order(RandomAccessFile.BIG_ENDIAN);
+    }
+
+    // not a local file
+    try (RandomAccessFile inMemory = new InMemoryRandomAccessFile("test", UTF8_BYTES)) {
+      inMemory.order(RandomAccessFile.LITTLE_ENDIAN);
+      List<ByteBuffer> fromMemory = inMemory.readVectored(ranges);
+      assertThat(fromMemory.get(2)).isEqualTo(ByteBuffer.wrap(expected[2]));
+      assertThat(fromMemory.get(2).order()).isEqualTo(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // past end of file
+    Assert.assertThrows(EOFException.class, () -> {
+      testFile.readVectored(Collections.singletonList(new ByteRange(TEST_FILE_LENGTH - 2, 4)));
+    });
+  }
+
+  @Test
+  public void testReadVectoredInterrupted() throws IOException {
+    List<ByteRange> ranges = Collections.singletonList(new ByteRange(0, (int) TEST_FILE_LENGTH));
+
+    // a read on an interrupted thread fails
+    Thread.currentThread().interrupt();
+    try {
+      Assert.assertThrows(ClosedByInterruptException.class, () -> testFile.readVectored(ranges));
+    } finally {
+      Thread.interrupted();
+    }
+
+    // but the file can still be read
+    ByteBuffer bb = testFile.readVectored(ranges).get(0);
+    assertThat(bb).isEqualTo(ByteBuffer.wrap(UTF8_BYTES));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    testFile.readToByteChannel(Channels.newChannel(out), 0, TEST_FILE_LENGTH);
+    assertThat(out.toByteArray()).isEqualTo(UTF8_BYTES);
+  }
+
   @Test
   public void testSkipBytes() throws IOException {
     testFile.seek(0);
@@ -394,6 +466,161 @@ public class TestRandomAccessFile {
     assertThat(compareDoubles(outDouble[1], DATA_AS_BE_DOUBLES[2])).isTrue();
   }
 
+  @Test
+  public void testReadArraysAcrossBuffers() throws IOException {
+    // an odd offset and the small buffer size means values straddle the buffer boundaries
+    int n = 1000;
+    byte[] bytes = new byte[3 + 8 * n];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) (i * 31 + 7);
+    }
+    String filename = tempFolder.newFile().getAbsolutePath();
+    java.nio.file.Files.write(java.nio.file.Paths.get(filename), bytes);
+
+    for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+      ByteBuffer bb = ByteBuffer.wrap(bytes, 3, 8 * n).slice().order(order);
+      try (RandomAccessFile raf = new RandomAccessFile(filename, "r", TEST_BUFFER_SIZE)) {
+        raf.order(order);
+
+        short[] shorts = new short[4 * n];
+        raf.seek(3);
+        raf.readShort(shorts, 0, shorts.length);
+        for (int i = 0; i < shorts.length; i++) {
+          assertThat(shorts[i]).isEqualTo(bb.getShort(2 * i));
+        }
+
+        int[] ints = new int[2 * n + 1];
+        raf.seek(3);
+        raf.readInt(ints, 1, 2 * n);
+        for (int i = 0; i < 2 * n; i++) {
+          assertThat(ints[i + 1]).isEqualTo(bb.getInt(4 * i));
+        }
+
+        float[] floats = new float[2 * n];
+        raf.seek(3);
+        raf.readFloat(floats, 0, floats.length);
+        for (int i = 0; i < floats.length; i++) {
+          assertThat(Float.floatToRawIntBits(floats[i])).isEqualTo(bb.getInt(4 * i));
+        }
+
+        long[] longs = new long[n];
+        raf.seek(3);
+        raf.readLong(longs, 0, n);
+        for (int i = 0; i < n; i++) {
+          assertThat(longs[i]).isEqualTo(bb.getLong(8 * i));
+        }
+
+        double[] doubles = new double[n];
+        raf.seek(3);
+        raf.readDouble(doubles, 0, n);
+        for (int i = 0; i < n; i++) {
+          assertThat(Double.doubleToRawLongBits(doubles[i])).isEqualTo(bb.getLong(8 * i));
+        }
+        assertThat(raf.getFilePointer()).isEqualTo(bytes.length);
+
+        // past the end of the file
+        raf.seek(bytes.length - 12);
+        Assert.assertThrows(EOFException.class, () -> raf.readDouble(doubles, 0, 2));
+      }
+    }
+  }
+
+  @Test
+  public void testPositionalReader() throws IOException {
+    testFile.order(ByteOrder.LITTLE_ENDIAN);
+    testFile.seek(5);
+    RandomAccessFile reader = testFile.newPositionalReader();
+    assertThat(reader).isNotNull();
+    assertThat(reader.getFilePointer()).isEqualTo(0);
+    assertThat(reader.length()).isEqualTo(TEST_FILE_LENGTH);
+    assertThat(reader.readInt()).isEqualTo(DATA_AS_LE_INTS[0]);
+
+    // reading through the reader does not move the file
+    byte[] buff = new byte[(int) TEST_FILE_LENGTH];
+    reader.seek(0);
+    reader.readFully(buff);
+    assertThat(buff).isEqualTo(UTF8_BYTES);
+    assertThat(reader.read()).isEqualTo(-1);
+    assertThat(testFile.getFilePointer()).isEqualTo(5);
+    reader.close();
+
+    // not for files open for writing
+    try (RandomAccessFile writeFile =
+        new RandomAccessFile(tempFolder.newFile().getAbsolutePath(), "rw", TEST_BUFFER_SIZE)) {
+      assertThat(writeFile.newPositionalReader()).isNull();
+    }
+  }
+
+  @Test
+  public void testPositionalReaderInterrupted() throws Exception {
+    RandomAccessFile interrupted = testFile.newPositionalReader();
+    RandomAccessFile other = testFile.newPositionalReader();
+    byte[] buff = new byte[(int) TEST_FILE_LENGTH];
+    other.seek(0);
+    other.readFully(buff);
+
+    // a read on an interrupted thread fails, and closes the channel it was using
+    Thread.currentThread().interrupt();
+    try {
+      interrupted.seek(0);
+      Assert.assertThrows(ClosedByInterruptException.class, () -> interrupted.readFully(buff));
+    } finally {
+      Thread.interrupted();
+    }
+
+    // but not for the other readers, nor for the file itself
+    Arrays.fill(buff, (byte) 0);
+    other.seek(0);
+    other.readFully(buff);
+    assertThat(buff).isEqualTo(UTF8_BYTES);
+    Arrays.fill(buff, (byte) 0);
+    testFile.seek(0);
+    testFile.readFully(buff);
+    assertThat(buff).isEqualTo(UTF8_BYTES);
+    Arrays.fill(buff, (byte) 0);
+    interrupted.seek(0);
+    interrupted.readFully(buff);
+    assertThat(buff).isEqualTo(UTF8_BYTES);
+
+    // cancel a reader while others are reading
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      CountDownLatch started = new CountDownLatch(1);
+      Future<?> cancelled = pool.submit(() -> {
+        RandomAccessFile reader = testFile.newPositionalReader();
+        byte[] b = new byte[(int) TEST_FILE_LENGTH];
+        started.countDown();
+        while (true) {
+          reader.seek(0);
+          reader.readFully(b);
+        }
+      });
+      List<Future<Boolean>> readers = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        readers.add(pool.submit(() -> {
+          RandomAccessFile reader = testFile.newPositionalReader();
+          byte[] b = new byte[(int) TEST_FILE_LENGTH];
+          for (int n = 0; n < 20000; n++) {
+            Arrays.fill(b, (byte) 0);
+            reader.seek(0);
+            reader.readFully(b);
+            if (!Arrays.equals(b, UTF8_BYTES))
+              return false;
+          }
+          return true;
+        }));
+      }
+      started.await();
+      Thread.sleep(10);
+      cancelled.cancel(true);
+      for (Future<Boolean> reader : readers) {
+        assertThat(reader.get()).isTrue();
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
   @Test
   public void testReadStringUTF8() throws IOException {
     // read line
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.unidata.io;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Test;
+
+/** Test the read cache of RemoteRandomAccessFile, using an in-memory "remote" file */
+public class TestRemoteRandomAccessFile {
+  private static final int BLOCK_SIZE = 100;
+  private static final int FILE_SIZE = 2050;
+
+  private static class MemoryRemoteFile extends RemoteRandomAccessFile {
+    private final byte[] contents;
+    private final List<long[]> requests = Collections.synchronizedList(new ArrayList<>());
+
+    MemoryRemoteFile(byte[] contents) {
+      super("mem://test", BLOCK_SIZE, 100 * BLOCK_SIZE);
+      this.contents = contents;
+    }
+
+    @Override
+    public int readRemote(long pos, byte[] buff, int offset, int len) {
+      requests.add(new long[] {pos, len});
+      int n = (int) Math.min(len, contents.length - pos);
+      System.arraycopy(contents, (int) pos, buff, offset, n);
+      return n;
+    }
+
+    @Override
+    public void closeRemote() {}
+
+    @Override
+    public long length() {
+      return contents.length;
+    }
+  }
+
+  private final byte[] contents = new byte[FILE_SIZE];
+  private final ExecutorService exec = Executors.newFixedThreadPool(2);
+
+  public TestRemoteRandomAccessFile() {
+    for (int i = 0; i < contents.length; i++) {
+      contents[i] = (byte) (i * 31);
+    }
+  }
+
+  @After
+  public void reset() {
+    RemoteRandomAccessFile.setExecutor(null);
+    RemoteRandomAccessFile.setReadAheadBlocks(0);
+    exec.shutdownNow();
+  }
+
+  private byte[] read(MemoryRemoteFile raf, long pos, int len) throws IOException {
+    byte[] result = new byte[len];
+    int n = raf.read_(pos, result, 0, len);
+    assertThat(n).isEqualTo(len);
+    assertThat(result).isEqualTo(Arrays.copyOfRange(contents, (int) pos, (int) pos + len));
+    return result;
+  }
+
+  @Test
+  public void testCoalesceAdjacentBlocks() throws IOException {
+    try (MemoryRemoteFile raf = new MemoryRemoteFile(contents)) {
+      // spans blocks 1-9 with one request
+      read(raf, 150, 800);
+      assertThat(raf.requests).hasSize(1);
+      assertThat(raf.requests.get(0)).isEqualTo(new long[] {100, 900});
+
+      // blocks 2-5 are cached, block 10 is read
+      read(raf, 250, 800);
+      assertThat(raf.requests).hasSize(2);
+      assertThat(raf.requests.get(1)).isEqualTo(new long[] {1000, 100});
+
+      // the last block is short
+      read(raf, 2000, 50);
+      assertThat(raf.requests.get(2)).isEqualTo(new long[] {2000, 50});
+    }
+  }
+
+  @Test
+  public void testShortRead() throws IOException {
+    // the remote service says the file is longer than what it returns
+    try (MemoryRemoteFile raf = new MemoryRemoteFile(contents) {
+      @Override
+      public long length() {
+        return FILE_SIZE + 3 * BLOCK_SIZE;
+      }
+    }) {
+      // blocks 19-23 are asked for, but the read stops in block 20
+      byte[] result = new byte[400];
+      int n = raf.read_(1900, result, 0, result.length);
+      assertThat(n).isEqualTo(FILE_SIZE - 1900);
+      assertThat(Arrays.copyOf(result, n)).isEqualTo(Arrays.copyOfRange(contents, 1900, FILE_SIZE));
+      assertThat(raf.requests.get(0)).isEqualTo(new long[] {1900, 400});
+    }
+  }
+
+  @Test
+  public void testParallelRuns() throws IOException {
+    RemoteRandomAccessFile.setExecutor(exec);
+    try (MemoryRemoteFile raf = new MemoryRemoteFile(contents)) {
+      read(raf, 300, 100);
+      read(raf, 600, 100);
+      raf.requests.clear();
+
+      // missing runs 0-2, 4-5 and 7-9 are read separately
+      read(raf, 0, 1000);
+      assertThat(raf.requests).hasSize(3);
+    }
+  }
+
+  @Test
+  public void testReadAhead() throws IOException {
+    RemoteRandomAccessFile.setReadAheadBlocks(3);
+    try (MemoryRemoteFile raf = new MemoryRemoteFile(contents)) {
+      // once reading is sequential, missing blocks are read 4 at a time
+      for (int pos = 0; pos < 900; pos += 50) {
+        read(raf, pos, 50);
+      }
+      assertThat(raf.requests).hasSize(3);
+      assertThat(raf.requests.get(1)).isEqualTo(new long[] {100, 400});
+
+      // random access does not read ahead
+      raf.requests.clear();
+      read(raf, 1500, 50);
+      assertThat(raf.requests.get(0)).isEqualTo(new long[] {1500, 100});
+    }
+  }
+
+  @Test
+  public void testBackgroundReadAhead() throws IOException {
+    RemoteRandomAccessFile.setExecutor(exec);
+    RemoteRandomAccessFile.setReadAheadBlocks(3);
+    try (MemoryRemoteFile raf = new MemoryRemoteFile(contents)) {
+      for (int pos = 0; pos < FILE_SIZE; pos += 50) {
+        read(raf, pos, Math.min(50, FILE_SIZE - pos));
+      }
+      // every block is read exactly once
+      long total = 0;
+      synchronized (raf.requests) {
+        for (long[] request : raf.requests) {
+          total += request[1];
+        }
+      }
+      assertThat(total).isEqualTo((long) FILE_SIZE);
+    }
+  }
+
+  @Test
+  public void testReadVectored() throws IOException {
+    RemoteRandomAccessFile.setExecutor(exec);
+    try (MemoryRemoteFile raf = new MemoryRemoteFile(contents)) {
+      raf.order(RandomAccessFile.LITTLE_ENDIAN);
+      List<ByteRange> ranges = Arrays.asList(new ByteRange(1500, 20), new ByteRange(10, 20), new ByteRange(100, 30),
+          new ByteRange(1550, 10), new ByteRange(20, 5));
+      List<ByteBuffer> result = raf.readVectored(ranges);
+      for (int i = 0; i < ranges.size(); i++) {
+        ByteRange range = ranges.get(i);
+        int start = (int) range.getOffset();
+        assertThat(result.get(i)).isEqualTo(ByteBuffer.wrap(contents, start, range.getLength()));
+        assertThat(result.get(i).order()).isEqualTo(ByteOrder.LITTLE_ENDIAN);
+      }
+      // two groups of nearby ranges, read in parallel
+      assertThat(raf.requests).hasSize(2);
+    }
+  }
+}
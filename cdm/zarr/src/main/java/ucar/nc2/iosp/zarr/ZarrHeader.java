@@ -57,6 +57,7 @@ public class ZarrHeader {
     private RandomAccessDirectoryItem var;
     private ZArray zarray;
     private Map<Integer, Long> initializedChunks; // track any uninitialized chunks for var
+    private Map<Integer, Long> chunkOffsets; // byte position of each initialized chunk
     private List<Attribute> attrs; // list of variable attributes
     private long dataOffset; // byte position where data starts
 
@@ -74,6 +75,7 @@ public class ZarrHeader {
       this.var = var;
       this.attrs = null;
       this.initializedChunks = new HashMap<>();
+      this.chunkOffsets = new HashMap<>();
       this.dataOffset = -1;
       if (var != null) {
         try {
@@ -116,6 +118,7 @@ public class ZarrHeader {
         this.var = null; // skip rest of var is unrecognized files found
       }
       this.initializedChunks.put(index, item.length());
+      this.chunkOffsets.put(index, item.startIndex());
       // if data offset is uninitialized, set here
       if (this.dataOffset < 0) {
         this.dataOffset = item.startIndex();
@@ -130,7 +133,7 @@ public class ZarrHeader {
         return; // do nothing if no variable is in progress
       }
       try {
-        makeVariable(var, dataOffset, zarray, initializedChunks, attrs);
+        makeVariable(var, dataOffset, zarray, initializedChunks, chunkOffsets, attrs);
       } catch (ZarrFormatException ex) {
         logger.error(ex.getMessage());
       }
@@ -221,7 +224,8 @@ public class ZarrHeader {
    *
    */
   private void makeVariable(RandomAccessDirectoryItem item, long dataOffset, ZArray zarray,
-      Map<Integer, Long> initializedChunks, List<Attribute> attrs) throws ZarrFormatException {
+      Map<Integer, Long> initializedChunks, Map<Integer, Long> chunkOffsets, List<Attribute> attrs)
+      throws ZarrFormatException {
     // make new Variable
     Variable.Builder var = Variable.builder();
     String location = ZarrUtils.trimLocation(item.getLocation());
@@ -328,7 +332,7 @@ public class ZarrHeader {
 
     // create VInfo
     VInfo vinfo = new VInfo(chunks, zarray.getFillValue(), zarray.getCompressor(), zarray.getByteOrder(),
-        zarray.getOrder(), zarray.getSeparator(), zarray.getFilters(), dataOffset, initializedChunks);
+        zarray.getOrder(), zarray.getSeparator(), zarray.getFilters(), dataOffset, initializedChunks, chunkOffsets);
     var.setSPobject(vinfo);
 
     // Include some info from .zarray file in attributes for display when showing variable detail.
@@ -395,6 +399,9 @@ public class ZarrHeader {
     }
 
     int nDims = zarray.getShape().length;
+    if (nDims == 0) {
+      return fileName.equals("0") ? 0 : -1; // scalar
+    }
     // verify is data file, else return -1
     String pattern = String.format("([0-9]+%c){%d}[0-9]+", zarray.getSeparator().charAt(0), nDims - 1);
     if (!fileName.matches(pattern)) {
@@ -410,7 +417,8 @@ public class ZarrHeader {
     int[] shape = zarray.getShape();
     int[] chunkSize = zarray.getChunks();
     for (int i = 0; i < nDims; i++) {
-      nChunks[i] = (int) Math.ceil(shape[i] / chunkSize[i]);
+      // round up nchunks if not evenly divisible by chunk size
+      nChunks[i] = (shape[i] + chunkSize[i] - 1) / chunkSize[i];
     }
     return ZarrUtils.subscriptsToIndex(subs, nChunks);
   }
@@ -439,9 +447,10 @@ public class ZarrHeader {
     private final List<Filter> filters;
     private final long offset;
     private final Map<Integer, Long> initializedChunks;
+    private final Map<Integer, Long> chunkOffsets;
 
     VInfo(int[] chunks, Object fillValue, Filter compressor, ByteOrder byteOrder, ZArray.Order order, String separator,
-        List<Filter> filters, long offset, Map<Integer, Long> initializedChunks) {
+        List<Filter> filters, long offset, Map<Integer, Long> initializedChunks, Map<Integer, Long> chunkOffsets) {
       this.chunks = chunks;
       this.fillValue = fillValue;
       this.byteOrder = byteOrder;
@@ -451,6 +460,7 @@ public class ZarrHeader {
       this.filters = filters;
       this.offset = offset;
       this.initializedChunks = initializedChunks;
+      this.chunkOffsets = chunkOffsets;
     }
 
     public int[] getChunks() {
@@ -489,6 +499,10 @@ public class ZarrHeader {
       return this.initializedChunks;
     }
 
+    public Map<Integer, Long> getChunkOffsets() {
+      return this.chunkOffsets;
+    }
+
   }
 
 }
@@ -9,22 +9,30 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
 import ucar.ma2.Section;
+import ucar.ma2.StructureData;
+import ucar.nc2.Attribute;
 import ucar.nc2.Group;
 import ucar.nc2.NetcdfFile;
+import ucar.nc2.Structure;
 import ucar.nc2.Variable;
 import ucar.nc2.iosp.*;
 import ucar.nc2.util.CancelTask;
+import ucar.nc2.write.Nc4Chunking;
 import ucar.unidata.io.RandomAccessFile;
 import ucar.unidata.io.zarr.RandomAccessDirectory;
 
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * IOSP for reading/writing Zarr/NCZarr formats
  */
-public class ZarrIosp extends AbstractIOServiceProvider {
+public class ZarrIosp extends AbstractIOServiceProvider implements IOServiceProviderWriter {
 
   static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
@@ -33,6 +41,38 @@ public class ZarrIosp extends AbstractIOServiceProvider {
 
   private ZarrHeader header;
 
+  // writing
+  private ZarrWriter writer;
+  private Nc4Chunking chunker;
+  private Map<String, Object> compressor;
+  private List<Map<String, Object>> filters;
+
+  // experimental multithreading
+  private static Executor executor;
+  private static int maxChunksInFlight;
+
+  /**
+   * Decode chunks in parallel on the given Executor, with at most twice as many chunks in flight as there are
+   * processors. When writing, chunks are encoded and written on the same Executor.
+   *
+   * @param exec decodes chunks, or null to decode serially on the reading thread (the default)
+   */
+  public static void setExecutor(Executor exec) {
+    setExecutor(exec, 2 * Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Decode chunks in parallel on the given Executor.
+   * Chunk bytes are still read in order on the reading thread; only decompression and filtering run on the executor.
+   *
+   * @param exec decodes chunks, or null to decode serially on the reading thread (the default)
+   * @param maxInFlight maximum number of chunks read ahead of the consumer, which bounds memory use
+   */
+  public static void setExecutor(Executor exec, int maxInFlight) {
+    executor = exec;
+    maxChunksInFlight = maxInFlight;
+  }
+
   @Override
   public boolean isValidFile(RandomAccessFile raf) {
     return raf.isDirectory();
@@ -83,7 +123,7 @@ public class ZarrIosp extends AbstractIOServiceProvider {
     Object fillValue = getFillValue(vinfo, dataType);
 
     // create layout object
-    Layout layout = new ZarrLayoutBB(v2, section, this.raf);
+    Layout layout = new ZarrLayoutBB(v2, section, this.raf, executor, maxChunksInFlight);
     Object data = IospHelper.readDataFill((LayoutBB) layout, dataType, fillValue);
 
     Array array = Array.factory(dataType, section.getShape(), data);
@@ -150,6 +190,112 @@ public class ZarrIosp extends AbstractIOServiceProvider {
     return fillValue;
   }
 
+  //////////////////////////////////////////////////////////////////////////////////////
+  // write
+
+  /**
+   * Set the chunking and deflate strategy for new stores.
+   *
+   * @param chunker chunking strategy, or null for Nc4ChunkingDefault
+   */
+  public void setChunker(Nc4Chunking chunker) {
+    this.chunker = chunker;
+  }
+
+  /**
+   * Set the compressor for new stores, overriding the deflate level of the chunker.
+   *
+   * @param compressor numcodecs style properties, e.g. {"id": "blosc", "cname": "lz4", "clevel": 5, "shuffle": 1}
+   */
+  public void setCompressor(Map<String, Object> compressor) {
+    this.compressor = compressor;
+  }
+
+  /**
+   * Set the filters for new stores, applied before the compressor, overriding the shuffle setting of the chunker.
+   *
+   * @param filters numcodecs style properties of each filter, in the order they are applied when encoding
+   */
+  public void setFilters(List<Map<String, Object>> filters) {
+    this.filters = filters;
+  }
+
+  /**
+   * Create a new Zarr store and write the metadata of ncfile to it.
+   *
+   * @param filename directory to write, or a file ending in ".zip" to write a zip store
+   * @param ncfile get everything but data from here
+   * @param extra not used
+   * @param preallocateSize not used
+   * @param largeFile not used
+   */
+  @Override
+  public void create(String filename, NetcdfFile ncfile, int extra, long preallocateSize, boolean largeFile)
+      throws IOException {
+    this.location = filename;
+    this.writer = new ZarrWriter(filename, chunker, compressor, filters, executor, maxChunksInFlight);
+    writer.create(ncfile);
+  }
+
+  /** Not supported, an existing Zarr store cannot be opened for writing. */
+  @Override
+  public void openForWriting(RandomAccessFile raf, NetcdfFile ncfile, CancelTask cancelTask) {
+    throw new UnsupportedOperationException("Zarr stores can only be written when they are created");
+  }
+
+  @Override
+  public void setFill(boolean fill) {
+    if (writer != null) {
+      writer.setFill(fill);
+    }
+  }
+
+  @Override
+  public void writeData(Variable v2, Section section, Array values) throws IOException, InvalidRangeException {
+    getWriter().writeData(v2, section, values);
+  }
+
+  @Override
+  public int appendStructureData(Structure s, StructureData sdata) {
+    throw new UnsupportedOperationException("Zarr does not support Structures");
+  }
+
+  @Override
+  public boolean rewriteHeader(boolean largeFile) {
+    return false;
+  }
+
+  @Override
+  public void updateAttribute(Variable v2, Attribute att) throws IOException {
+    getWriter().updateAttribute(v2, att);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (writer != null) {
+      writer.flush();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (writer != null) {
+        writer.close();
+      }
+    } finally {
+      writer = null;
+      super.close();
+    }
+  }
+
+  private ZarrWriter getWriter() {
+    if (writer == null) {
+      throw new IllegalStateException("Zarr store was not created for writing");
+    }
+    return writer;
+  }
+
   @Override
   public long getLastModified() {
     if (raf == null) {
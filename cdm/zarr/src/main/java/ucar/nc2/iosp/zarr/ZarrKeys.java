@@ -25,5 +25,6 @@ public final class ZarrKeys {
   public static final String ORDER = "order";
   public static final String FILTERS = "filters";
   public static final String DIMENSION_SEPARATOR = "dimension_separator";
+  public static final String ZARR_FORMAT = "zarr_format";
 
 }
@@ -4,17 +4,26 @@ import ucar.ma2.Range;
 import ucar.ma2.Section;
 import ucar.nc2.Dimension;
 import ucar.nc2.Variable;
+import ucar.nc2.filter.BufferPool;
 import ucar.nc2.filter.Filter;
+import ucar.nc2.filter.Filters;
+import ucar.nc2.iosp.ChunkCache;
 import ucar.nc2.iosp.LayoutBB;
 import ucar.nc2.iosp.LayoutBBTiled;
 import ucar.unidata.io.RandomAccessFile;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * A tiled layout for Zarr formats that accommodates uncompressing and filtering data before returning
@@ -30,14 +39,34 @@ public class ZarrLayoutBB implements LayoutBB {
 
   private int[] chunkSize; // number of elements per chunks
   private int elemSize; // size of elements in bytes
+  private int chunkBytes; // size of a decoded chunk in bytes
   private int nChunks[]; // number of chunks per dimension
-  private int totalNChunks; // total number of chunks
   private boolean F_order = false; // F order storage?
   private Map<Integer, Long> initializedChunks; // set of chunks that exist as files and their compressed size
+  private Map<Integer, Long> chunkOffsets; // start position of each initialized chunk in raf
   private Filter compressor;
   private List<Filter> filters;
+  private ChunkCache chunkCache; // shared cache of decoded chunks, null if disabled
+  private String varName;
+  private long lastModified;
 
   public ZarrLayoutBB(Variable v2, Section wantSection, RandomAccessFile raf) {
+    this(v2, wantSection, raf, null, 0);
+  }
+
+  /**
+   * Create a layout that decodes chunks in parallel.
+   * Chunks are read from the raf in order on the calling thread, and up to maxChunksInFlight of them
+   * are decompressed and filtered on the executor ahead of the consumer.
+   *
+   * @param v2 the variable to read
+   * @param wantSection the wanted section of data
+   * @param raf the file to read from
+   * @param executor decodes the chunks; if null, chunks are decoded serially on the calling thread
+   * @param maxChunksInFlight maximum number of chunks read ahead and being decoded at once
+   */
+  public ZarrLayoutBB(Variable v2, Section wantSection, RandomAccessFile raf, Executor executor,
+      int maxChunksInFlight) {
     // var data info
     this.raf = raf;
     ZarrHeader.VInfo vinfo = (ZarrHeader.VInfo) v2.getSPobject();
@@ -45,19 +74,22 @@ public class ZarrLayoutBB implements LayoutBB {
     this.varOffset = vinfo.getOffset();
     this.compressor = vinfo.getCompressor();
     this.filters = vinfo.getFilters();
-
+    this.chunkCache = ChunkCache.getDefault();
+    if (chunkCache != null) {
+      this.varName = v2.getFullName();
+      this.lastModified = raf.getLastModified();
+    }
 
     // fill in chunk info
     this.chunkSize = vinfo.getChunks();
     int ndims = this.chunkSize.length;
     this.initializedChunks = vinfo.getInitializedChunks();
+    this.chunkOffsets = vinfo.getChunkOffsets();
     this.nChunks = new int[ndims];
-    this.totalNChunks = 1;
     for (int i = 0; i < ndims; i++) {
       Dimension dim = v2.getDimension(i);
       // round up nchunks if not evenly divisible by chunk size
-      this.nChunks[i] = (int) Math.ceil(dim.getLength() / this.chunkSize[i]);
-      this.totalNChunks *= nChunks[i];
+      this.nChunks[i] = (dim.getLength() + this.chunkSize[i] - 1) / this.chunkSize[i];
     }
 
     // transpose wantsSection and chunk shape if F order
@@ -77,9 +109,18 @@ public class ZarrLayoutBB implements LayoutBB {
     }
 
     this.elemSize = v2.getDataType().getSize();
+    long chunkElems = 1;
+    for (int size : this.chunkSize) {
+      chunkElems *= size;
+    }
+    this.chunkBytes = (int) Math.min(chunkElems * elemSize, Integer.MAX_VALUE - 8);
 
     // create delegate and chunk iterator
-    ZarrLayoutBB.DataChunkIterator iter = new ZarrLayoutBB.DataChunkIterator();
+    ZarrLayoutBB.DataChunkIterator chunks = new ZarrLayoutBB.DataChunkIterator();
+    LayoutBBTiled.DataChunkIterator iter = chunks;
+    if (executor != null && maxChunksInFlight > 0) {
+      iter = new PrefetchingChunkIterator(chunks, executor, maxChunksInFlight);
+    }
     delegate = new LayoutBBTiled(iter, chunkSize, elemSize, this.want);
   }
 
@@ -103,39 +144,129 @@ public class ZarrLayoutBB implements LayoutBB {
     return delegate.next();
   }
 
+  /**
+   * Iterates only over the chunks that intersect the wanted section, in increasing chunk number.
+   * Chunk subscripts are always in the variable's dimension order, even for F order storage.
+   */
   private class DataChunkIterator implements LayoutBBTiled.DataChunkIterator {
 
+    private int[] firstChunk; // first intersecting chunk in subscript coords
+    private int[] lastChunk; // last intersecting chunk in subscript coords
     private int[] currChunk; // current chunk in subscript coords
-    private int chunkNum; // current chunk as flat index
-    private long currOffset; // byte position of current chunk
-
+    private boolean done;
 
     DataChunkIterator() {
-      this.currChunk = new int[chunkSize.length];
-      this.chunkNum = 0;
-      this.currOffset = varOffset; // start at start of variable data
+      int ndims = nChunks.length;
+      this.firstChunk = new int[ndims];
+      this.lastChunk = new int[ndims];
+      for (int i = 0; i < ndims; i++) {
+        // want and chunkSize have been transposed if F order
+        int j = F_order ? ndims - i - 1 : i;
+        Range range = want.getRange(j);
+        this.firstChunk[i] = range.first() / chunkSize[j];
+        this.lastChunk[i] = Math.min(range.last() / chunkSize[j], nChunks[i] - 1);
+        if (this.firstChunk[i] > this.lastChunk[i]) {
+          this.done = true; // no chunks intersect
+        }
+      }
+      this.currChunk = this.firstChunk.clone();
     }
 
     public boolean hasNext() {
-      return this.chunkNum < totalNChunks;
+      return !this.done;
     }
 
-    public LayoutBBTiled.DataChunk next() {
-      DataChunk chunk = new ZarrLayoutBB.DataChunk(this.currChunk, this.chunkNum, this.currOffset);
+    public DataChunk next() {
+      int chunkNum = ZarrUtils.subscriptsToIndex(this.currChunk, nChunks);
+      long rafOffset = chunkOffsets.getOrDefault(chunkNum, varOffset);
+      DataChunk chunk = new ZarrLayoutBB.DataChunk(this.currChunk, chunkNum, rafOffset);
       incrementChunk();
       return chunk;
     }
 
     private void incrementChunk() {
-      // increment index from inner dimension outward
+      // increment index from inner dimension outward, staying inside the intersecting chunks
       int i = this.currChunk.length - 1;
-      while (this.currChunk[i] + 1 >= nChunks[i] && i > 0) {
-        this.currChunk[i] = 0;
+      while (i >= 0 && this.currChunk[i] >= this.lastChunk[i]) {
+        this.currChunk[i] = this.firstChunk[i];
         i--;
       }
-      this.currChunk[i]++;
-      this.currOffset += initializedChunks.getOrDefault(this.chunkNum, (long) 0);
-      this.chunkNum = ZarrUtils.subscriptsToIndex(this.currChunk, nChunks);
+      if (i < 0) {
+        this.done = true;
+      } else {
+        this.currChunk[i]++;
+      }
+    }
+  }
+
+  /**
+   * Reads chunks ahead of the consumer and decodes them on an Executor, returning them in the original order.
+   * Reading stays on the calling thread, so the raf is never accessed concurrently.
+   */
+  private static class PrefetchingChunkIterator implements LayoutBBTiled.DataChunkIterator {
+
+    private final DataChunkIterator chunks;
+    private final Executor executor;
+    private final int maxChunksInFlight;
+    private final Deque<PrefetchedChunk> inFlight = new ArrayDeque<>();
+
+    PrefetchingChunkIterator(DataChunkIterator chunks, Executor executor, int maxChunksInFlight) {
+      this.chunks = chunks;
+      this.executor = executor;
+      this.maxChunksInFlight = maxChunksInFlight;
+    }
+
+    public boolean hasNext() {
+      return !inFlight.isEmpty() || chunks.hasNext();
+    }
+
+    public LayoutBBTiled.DataChunk next() throws IOException {
+      // top up the window of chunks being decoded
+      while (inFlight.size() < maxChunksInFlight && chunks.hasNext()) {
+        DataChunk chunk = chunks.next();
+        ByteBuffer cached = chunk.getCached();
+        FutureTask<ByteBuffer> task;
+        if (cached != null) {
+          task = new FutureTask<>(() -> cached);
+          task.run();
+        } else {
+          ByteBuffer raw = chunk.readRaw();
+          task = new FutureTask<>(() -> chunk.decodeAndCache(raw));
+          executor.execute(task);
+        }
+        inFlight.add(new PrefetchedChunk(chunk.getOffset(), task));
+      }
+      return inFlight.poll();
+    }
+  }
+
+  private static class PrefetchedChunk implements LayoutBBTiled.DataChunk {
+
+    private final int[] offset;
+    private final FutureTask<ByteBuffer> task;
+
+    PrefetchedChunk(int[] offset, FutureTask<ByteBuffer> task) {
+      this.offset = offset;
+      this.task = task;
+    }
+
+    public int[] getOffset() {
+      return this.offset;
+    }
+
+    public ByteBuffer getByteBuffer() throws IOException {
+      try {
+        return task.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while decoding Zarr chunk");
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+        throw new IOException(cause);
+      }
     }
   }
 
@@ -160,31 +291,69 @@ public class ZarrLayoutBB implements LayoutBB {
     }
 
     public ByteBuffer getByteBuffer() throws IOException {
-      // read the data
-      byte[] data;
-      // if chunk does not exist as file, return empty buffer
+      if (chunkCache != null) {
+        return chunkCache.get(raf.getLocation(), lastModified, varName, chunkNum, () -> decode(readRaw()));
+      }
+      return decode(readRaw());
+    }
+
+    /**
+     * @return the decoded chunk if it is in the chunk cache, else null
+     */
+    ByteBuffer getCached() {
+      return chunkCache == null ? null : chunkCache.getIfPresent(raf.getLocation(), lastModified, varName, chunkNum);
+    }
+
+    /**
+     * Decode the stored bytes of this chunk and add the result to the chunk cache, if enabled.
+     */
+    ByteBuffer decodeAndCache(ByteBuffer data) throws IOException {
+      ByteBuffer result = decode(data);
+      if (chunkCache == null) {
+        return result;
+      }
+      chunkCache.put(raf.getLocation(), lastModified, varName, chunkNum, result);
+      return result.duplicate().order(result.order());
+    }
+
+    /**
+     * Read the stored bytes of this chunk into a buffer from the pool, which decode() returns to the pool.
+     *
+     * @return the compressed and filtered bytes, or null if the chunk does not exist as a file
+     */
+    ByteBuffer readRaw() throws IOException {
       long dataLength = initializedChunks.getOrDefault(chunkNum, (long) 0);
       if (dataLength == 0) {
+        return null;
+      }
+
+      ByteBuffer data = BufferPool.getDefault().acquire((int) dataLength);
+      raf.seek(this.rafOffset);
+      raf.readFully(data.array(), data.arrayOffset(), (int) dataLength);
+      return data;
+    }
+
+    /**
+     * Decompress and unfilter the stored bytes of this chunk. Does not touch the raf, so is safe to call from any
+     * thread.
+     */
+    ByteBuffer decode(ByteBuffer data) throws IOException {
+      // if chunk does not exist as file, return empty buffer
+      if (data == null) {
         ByteBuffer result = ByteBuffer.wrap(new byte[0]);
         result.order(byteOrder);
         return result;
       }
 
-      data = new byte[(int) dataLength];
-      raf.seek(this.rafOffset);
-      // raf.read(data, 0, (int)dataLength);
-      raf.readFully(data);
-
       // apply compressor
-      data = compressor.decode(data);
+      data = Filters.decode(compressor, data, chunkBytes, filters.isEmpty());
       // apply filters in reverse order
       for (int i = filters.size() - 1; i >= 0; i--) {
-        data = filters.get(i).decode(data);
+        data = Filters.decode(filters.get(i), data, chunkBytes, i == 0);
       }
 
-      ByteBuffer result = ByteBuffer.wrap(data);
-      result.order(byteOrder);
-      return result;
+      data.order(byteOrder);
+      return data;
     }
   }
 
@@ -0,0 +1,665 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp.zarr;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.IndexIterator;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.MAMath;
+import ucar.ma2.Range;
+import ucar.ma2.Section;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
+import ucar.nc2.Group;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.nc2.filter.Filter;
+import ucar.nc2.filter.Filters;
+import ucar.nc2.filter.UnknownFilterException;
+import ucar.nc2.iosp.netcdf3.N3iosp;
+import ucar.nc2.write.Nc4Chunking;
+import ucar.nc2.write.Nc4ChunkingDefault;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Class to write a CDM object and its data as a Zarr v2 store, in a directory or a zip file.
+ * Chunks are written little endian and in C order, compressed with filters from the ucar.nc2.filter registry.
+ * Chunks that are never written are left out of the store, and read back as the fill value.
+ */
+class ZarrWriter {
+
+  private static final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+  private static final int ZARR_FORMAT = 2;
+  private static final String ZIP_SUFFIX = ".zip";
+  private static final String ARRAY_DIMENSIONS = "_ARRAY_DIMENSIONS"; // xarray convention, used by ZarrHeader
+  private static final String COMPRESSOR_ATTR = "_Compressor"; // added by ZarrHeader, not a real attribute
+
+  private final Path rootPath; // where the store is written; a temporary directory for zip stores
+  private final Path zipFile; // null for directory stores
+  private final Nc4Chunking chunker;
+  private final Map<String, Object> compressorConfig;
+  private final List<Map<String, Object>> filterConfigs;
+  private final Executor executor;
+  private final int maxChunksInFlight;
+
+  private final Map<Variable, ArrayWriter> arrays = new HashMap<>();
+  private final Map<Dimension, Integer> unlimitedLengths = new HashMap<>();
+  private final Map<String, Attribute> rootAttrs = new LinkedHashMap<>();
+  private boolean fill = true;
+  private boolean metadataChanged; // .zarray files are stale
+
+  /**
+   * @param location directory to write, or a file ending in ".zip" to write a zip store
+   * @param chunker chunking and deflate strategy, or null for Nc4ChunkingDefault
+   * @param compressorConfig numcodecs style compressor properties, e.g. {"id": "blosc", "cname": "lz4"};
+   *        if null, zlib is used at the deflate level of the chunker
+   * @param filterConfigs numcodecs style filter properties;
+   *        if null, a shuffle filter is used if the chunker asks for it
+   * @param executor encodes chunks in parallel, or null to encode them on the writing thread
+   * @param maxChunksInFlight maximum number of chunks being encoded at once
+   */
+  ZarrWriter(String location, Nc4Chunking chunker, Map<String, Object> compressorConfig,
+      List<Map<String, Object>> filterConfigs, Executor executor, int maxChunksInFlight) throws IOException {
+    if (location.startsWith("file:")) {
+      location = location.substring("file:".length());
+    }
+    if (location.endsWith(ZIP_SUFFIX)) {
+      this.zipFile = Paths.get(location);
+      this.rootPath = Files.createTempDirectory("zarr");
+    } else {
+      this.zipFile = null;
+      this.rootPath = Paths.get(location);
+      prepareDirectory(this.rootPath);
+    }
+    this.chunker = chunker != null ? chunker : new Nc4ChunkingDefault();
+    this.compressorConfig = compressorConfig;
+    this.filterConfigs = filterConfigs;
+    this.executor = executor;
+    this.maxChunksInFlight = Math.max(maxChunksInFlight, 1);
+  }
+
+  // an existing Zarr store is overwritten, anything else is left alone
+  private static void prepareDirectory(Path dir) throws IOException {
+    if (Files.exists(dir)) {
+      boolean isEmpty;
+      try (Stream<Path> files = Files.list(dir)) {
+        isEmpty = !files.findAny().isPresent();
+      }
+      if (!isEmpty && !Files.exists(dir.resolve(ZarrKeys.ZGROUP))) {
+        throw new IOException("Cannot overwrite " + dir + ": it is not a Zarr store");
+      }
+      deleteTree(dir);
+    }
+    Files.createDirectories(dir);
+  }
+
+  /**
+   * Write the metadata of all groups and variables in ncfile.
+   */
+  void create(NetcdfFile ncfile) throws IOException {
+    Group root = ncfile.getRootGroup();
+    for (Attribute att : root.attributes()) {
+      rootAttrs.put(att.getShortName(), att);
+    }
+    createGroup(root, rootPath, rootAttrs);
+  }
+
+  private void createGroup(Group group, Path dir, Map<String, Attribute> attrs) throws IOException {
+    Files.createDirectories(dir);
+    Map<String, Object> zgroup = new LinkedHashMap<>();
+    zgroup.put(ZarrKeys.ZARR_FORMAT, ZARR_FORMAT);
+    objectMapper.writeValue(dir.resolve(ZarrKeys.ZGROUP).toFile(), zgroup);
+    writeAttributes(dir, attrs, null);
+
+    for (Variable v : group.getVariables()) {
+      ArrayWriter array = new ArrayWriter(v, dir.resolve(v.getShortName()));
+      arrays.put(v, array);
+      array.writeMetadata();
+    }
+
+    for (Group nested : group.getGroups()) {
+      Map<String, Attribute> nestedAttrs = new LinkedHashMap<>();
+      for (Attribute att : nested.attributes()) {
+        nestedAttrs.put(att.getShortName(), att);
+      }
+      createGroup(nested, dir.resolve(nested.getShortName()), nestedAttrs);
+    }
+  }
+
+  /**
+   * Set the fill mode. If true, fill_value is the _FillValue attribute or the netCDF default;
+   * if false, no fill_value is stored. The metadata is rewritten on flush.
+   */
+  void setFill(boolean fill) {
+    if (this.fill != fill) {
+      this.fill = fill;
+      metadataChanged = true;
+    }
+  }
+
+  void writeData(Variable v2, Section section, Array values) throws IOException, InvalidRangeException {
+    getArray(v2).write(section, values);
+  }
+
+  void updateAttribute(Variable v2, Attribute att) throws IOException {
+    if (v2 == null) {
+      rootAttrs.put(att.getShortName(), att);
+      writeAttributes(rootPath, rootAttrs, null);
+    } else {
+      ArrayWriter array = getArray(v2);
+      array.attrs.put(att.getShortName(), att);
+      array.writeMetadata();
+    }
+  }
+
+  /**
+   * Rewrite the array metadata if unlimited dimensions have grown or the fill mode has changed.
+   */
+  void flush() throws IOException {
+    if (metadataChanged) {
+      for (ArrayWriter array : arrays.values()) {
+        array.writeMetadata();
+      }
+      metadataChanged = false;
+    }
+  }
+
+  /**
+   * Flush, and for zip stores, zip the store into place.
+   */
+  void close() throws IOException {
+    flush();
+    if (zipFile != null) {
+      try {
+        writeZip();
+      } finally {
+        deleteTree(rootPath);
+      }
+    }
+  }
+
+  private ArrayWriter getArray(Variable v2) {
+    ArrayWriter array = arrays.get(v2);
+    if (array == null) {
+      throw new IllegalArgumentException("Variable " + v2.getFullName() + " is not in this Zarr store");
+    }
+    return array;
+  }
+
+  // Zarr expects uncompressed (stored) entries, since the chunks are already compressed
+  private void writeZip() throws IOException {
+    List<Path> paths;
+    try (Stream<Path> files = Files.walk(rootPath)) {
+      paths = files.sorted().collect(Collectors.toList());
+    }
+    try (OutputStream out = Files.newOutputStream(zipFile); ZipOutputStream zip = new ZipOutputStream(out)) {
+      for (Path path : paths) {
+        if (path.equals(rootPath)) {
+          continue;
+        }
+        String name = rootPath.relativize(path).toString().replace('\\', '/');
+        byte[] bytes = Files.isDirectory(path) ? new byte[0] : Files.readAllBytes(path);
+        ZipEntry entry = new ZipEntry(Files.isDirectory(path) ? name + "/" : name);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(bytes.length);
+        entry.setCompressedSize(bytes.length);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(bytes);
+        zip.closeEntry();
+      }
+    }
+  }
+
+  private static void deleteTree(Path dir) throws IOException {
+    List<Path> paths;
+    try (Stream<Path> files = Files.walk(dir)) {
+      paths = files.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+    }
+    for (Path path : paths) {
+      Files.delete(path);
+    }
+  }
+
+  private static void writeAttributes(Path dir, Map<String, Attribute> attrs, List<String> dimNames)
+      throws IOException {
+    Map<String, Object> zattrs = new LinkedHashMap<>();
+    if (dimNames != null) {
+      zattrs.put(ARRAY_DIMENSIONS, dimNames);
+    }
+    for (Attribute att : attrs.values()) {
+      String name = att.getShortName();
+      if (!name.equals(ARRAY_DIMENSIONS) && !name.equals(COMPRESSOR_ATTR)) {
+        zattrs.put(name, getAttributeValue(att));
+      }
+    }
+    Path file = dir.resolve(ZarrKeys.ZATTRS);
+    if (zattrs.isEmpty()) {
+      Files.deleteIfExists(file);
+    } else {
+      objectMapper.writeValue(file.toFile(), zattrs);
+    }
+  }
+
+  private static Object getAttributeValue(Attribute att) {
+    List<Object> values = new ArrayList<>();
+    for (int i = 0; i < att.getLength(); i++) {
+      if (att.isString()) {
+        values.add(att.getStringValue(i));
+      } else {
+        Number value = att.getNumericValue(i);
+        values.add(att.getDataType().isUnsigned() ? DataType.widenNumberIfNegative(value) : value);
+      }
+    }
+    return values.size() == 1 ? values.get(0) : values;
+  }
+
+  /**
+   * Get the Zarr dtype for a CDM DataType
+   *
+   * @throws IllegalArgumentException if the type cannot be stored in Zarr
+   */
+  private static String getDtype(DataType dataType) {
+    switch (dataType) {
+      case BOOLEAN:
+        return "|b1";
+      case CHAR:
+        return "|S1";
+      case BYTE:
+      case ENUM1:
+        return "|i1";
+      case UBYTE:
+        return "|u1";
+      case SHORT:
+      case ENUM2:
+        return "<i2";
+      case USHORT:
+        return "<u2";
+      case INT:
+      case ENUM4:
+        return "<i4";
+      case UINT:
+        return "<u4";
+      case LONG:
+        return "<i8";
+      case ULONG:
+        return "<u8";
+      case FLOAT:
+        return "<f4";
+      case DOUBLE:
+        return "<f8";
+      default:
+        throw new IllegalArgumentException("Zarr cannot store data type " + dataType);
+    }
+  }
+
+  private static Filter makeFilter(Map<String, Object> config, int elemSize) throws IOException {
+    // element size is needed by some encoders, but is not part of every filter's stored properties
+    Map<String, Object> props = null; // null filter
+    if (config != null) {
+      props = new HashMap<>(config);
+      props.putIfAbsent(Filters.Keys.ELEM_SIZE, elemSize);
+    }
+    try {
+      return Filters.getFilter(props);
+    } catch (UnknownFilterException ex) {
+      throw new IOException(ex.getMessage(), ex);
+    }
+  }
+
+  private static void await(FutureTask<Void> task) throws IOException {
+    try {
+      task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while encoding Zarr chunk");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * Writes the metadata and chunks of one variable
+   */
+  private class ArrayWriter {
+    private final Variable var;
+    private final Path dir;
+    private final DataType dataType;
+    private final int elemSize;
+    private final int[] chunks;
+    private final List<String> dimNames; // null for scalars, or if some dimension is anonymous
+    private final Map<String, Attribute> attrs = new LinkedHashMap<>();
+    private final Map<String, Object> compressorConfig;
+    private final List<Map<String, Object>> filterConfigs;
+    private final Filter compressor;
+    private final List<Filter> filters = new ArrayList<>();
+
+    ArrayWriter(Variable var, Path dir) throws IOException {
+      this.var = var;
+      this.dir = dir;
+      this.dataType = var.getDataType();
+      this.elemSize = dataType.getSize();
+      getDtype(dataType); // fail early on types Zarr cannot store
+
+      for (Attribute att : var.attributes()) {
+        attrs.put(att.getShortName(), att);
+      }
+
+      List<String> names = new ArrayList<>();
+      for (Dimension dim : var.getDimensions()) {
+        names.add(dim.isShared() ? dim.getShortName() : null);
+      }
+      this.dimNames = names.isEmpty() || names.contains(null) ? null : names;
+
+      int[] shape = var.getShape();
+      this.chunks = new int[shape.length];
+      long[] chunking = chunker.isChunked(var) ? chunker.computeChunking(var) : null;
+      for (int i = 0; i < shape.length; i++) {
+        boolean isUnlimited = var.getDimension(i).isUnlimited();
+        long size = chunking != null && i < chunking.length ? chunking[i] : shape[i];
+        if (!isUnlimited) {
+          size = Math.min(size, shape[i]);
+        }
+        this.chunks[i] = (int) Math.max(size, 1);
+      }
+
+      // compression from the chunker, unless set explicitly
+      if (ZarrWriter.this.compressorConfig != null) {
+        this.compressorConfig = ZarrWriter.this.compressorConfig;
+      } else if (chunker.getDeflateLevel(var) > 0) {
+        this.compressorConfig = new LinkedHashMap<>();
+        this.compressorConfig.put(Filters.Keys.NAME, "zlib");
+        this.compressorConfig.put("level", chunker.getDeflateLevel(var));
+      } else {
+        this.compressorConfig = null;
+      }
+      if (ZarrWriter.this.filterConfigs != null) {
+        this.filterConfigs = ZarrWriter.this.filterConfigs;
+      } else if (ZarrWriter.this.compressorConfig == null && this.compressorConfig != null && elemSize > 1
+          && chunker.isShuffle(var)) {
+        Map<String, Object> shuffle = new LinkedHashMap<>();
+        shuffle.put(Filters.Keys.NAME, "shuffle");
+        shuffle.put(Filters.Keys.ELEM_SIZE, elemSize);
+        this.filterConfigs = Collections.singletonList(shuffle);
+      } else {
+        this.filterConfigs = Collections.emptyList();
+      }
+
+      this.compressor = makeFilter(this.compressorConfig, elemSize);
+      for (Map<String, Object> config : this.filterConfigs) {
+        this.filters.add(makeFilter(config, elemSize));
+      }
+    }
+
+    /**
+     * Current shape; unlimited dimensions have the length written so far
+     */
+    int[] getShape() {
+      int[] shape = var.getShape();
+      for (int i = 0; i < shape.length; i++) {
+        Dimension dim = var.getDimension(i);
+        if (dim.isUnlimited()) {
+          shape[i] = unlimitedLengths.getOrDefault(dim, 0);
+        }
+      }
+      return shape;
+    }
+
+    Number getFillValue() {
+      if (!fill || dataType == DataType.CHAR || dataType == DataType.BOOLEAN) {
+        return null;
+      }
+      Attribute att = attrs.get("_FillValue");
+      Number fillValue = att != null && !att.isString() ? att.getNumericValue() : null;
+      if (fillValue == null) {
+        fillValue = N3iosp.getFillValueDefault(dataType);
+      }
+      return dataType.isUnsigned() && fillValue != null ? DataType.widenNumberIfNegative(fillValue) : fillValue;
+    }
+
+    void writeMetadata() throws IOException {
+      Files.createDirectories(dir);
+      Map<String, Object> zarray = new LinkedHashMap<>();
+      zarray.put(ZarrKeys.CHUNKS, chunks);
+      zarray.put(ZarrKeys.COMPRESSOR, compressorConfig);
+      zarray.put(ZarrKeys.DIMENSION_SEPARATOR, ZArray.DEFAULT_SEPARATOR);
+      zarray.put(ZarrKeys.DTYPE, getDtype(dataType));
+      zarray.put(ZarrKeys.FILL_VALUE, getFillValue());
+      zarray.put(ZarrKeys.FILTERS, filterConfigs.isEmpty() ? null : filterConfigs);
+      zarray.put(ZarrKeys.ORDER, ZArray.Order.C.name());
+      zarray.put(ZarrKeys.SHAPE, getShape());
+      zarray.put(ZarrKeys.ZARR_FORMAT, ZARR_FORMAT);
+      objectMapper.writeValue(dir.resolve(ZarrKeys.ZARRAY).toFile(), zarray);
+      writeAttributes(dir, attrs, dimNames);
+    }
+
+    /**
+     * Write values into the chunks that intersect section, merging with the stored chunk where only part of it is
+     * written.
+     */
+    void write(Section section, Array values) throws IOException, InvalidRangeException {
+      int ndims = chunks.length;
+      if (section.getRank() != ndims) {
+        throw new InvalidRangeException("Section rank " + section.getRank() + " does not match variable rank " + ndims);
+      }
+      int[] origin = section.getOrigin();
+      int[] sectionShape = section.getShape();
+      int[] shape = getShape();
+      for (int i = 0; i < ndims; i++) {
+        Range range = section.getRange(i);
+        if (range.stride() != 1) {
+          throw new InvalidRangeException("Zarr writes must have stride 1: " + section);
+        }
+        if (sectionShape[i] == 0) {
+          return; // nothing to write
+        }
+        if (range.last() >= shape[i]) {
+          Dimension dim = var.getDimension(i);
+          if (!dim.isUnlimited()) {
+            throw new InvalidRangeException("Section " + section + " is outside variable " + var.getFullName());
+          }
+          shape[i] = range.last() + 1;
+          unlimitedLengths.put(dim, shape[i]);
+          metadataChanged = true;
+        }
+      }
+
+      int[] firstChunk = new int[ndims];
+      int[] lastChunk = new int[ndims];
+      for (int i = 0; i < ndims; i++) {
+        firstChunk[i] = origin[i] / chunks[i];
+        lastChunk[i] = (origin[i] + sectionShape[i] - 1) / chunks[i];
+      }
+
+      Deque<FutureTask<Void>> inFlight = new ArrayDeque<>();
+      try {
+        int[] chunkIndex = firstChunk.clone();
+        boolean done = false;
+        while (!done) {
+          int[] index = chunkIndex.clone();
+          if (executor == null) {
+            writeChunk(index, origin, sectionShape, shape, values);
+          } else {
+            FutureTask<Void> task = new FutureTask<>(() -> {
+              writeChunk(index, origin, sectionShape, shape, values);
+              return null;
+            });
+            executor.execute(task);
+            inFlight.add(task);
+            if (inFlight.size() >= maxChunksInFlight) {
+              await(inFlight.remove());
+            }
+          }
+
+          // increment index from inner dimension outward
+          int i = ndims - 1;
+          while (i >= 0 && chunkIndex[i] >= lastChunk[i]) {
+            chunkIndex[i] = firstChunk[i];
+            i--;
+          }
+          if (i < 0) {
+            done = true;
+          } else {
+            chunkIndex[i]++;
+          }
+        }
+        while (!inFlight.isEmpty()) {
+          await(inFlight.remove());
+        }
+      } finally {
+        // only non-empty if a chunk failed
+        for (FutureTask<Void> task : inFlight) {
+          task.cancel(true);
+        }
+      }
+    }
+
+    /**
+     * Encode and write one chunk. Does not touch any shared state, so is safe to call from any thread.
+     */
+    private void writeChunk(int[] chunkIndex, int[] origin, int[] sectionShape, int[] shape, Array values)
+        throws IOException, InvalidRangeException {
+      int ndims = chunkIndex.length;
+      int[] srcOrigin = new int[ndims];
+      int[] dstOrigin = new int[ndims];
+      int[] interShape = new int[ndims];
+      boolean covered = true; // whether the write replaces all of the chunk that is inside the variable
+      for (int i = 0; i < ndims; i++) {
+        int chunkStart = chunkIndex[i] * chunks[i];
+        int chunkEnd = chunkStart + chunks[i];
+        int lo = Math.max(chunkStart, origin[i]);
+        int hi = Math.min(chunkEnd, origin[i] + sectionShape[i]);
+        srcOrigin[i] = lo - origin[i];
+        dstOrigin[i] = lo - chunkStart;
+        interShape[i] = hi - lo;
+        covered &= lo == chunkStart && hi >= Math.min(chunkEnd, shape[i]);
+      }
+
+      Path file = dir.resolve(getChunkKey(chunkIndex));
+      Array chunk = Array.factory(dataType, chunks);
+      if (!covered && Files.exists(file)) {
+        readChunk(file, chunk);
+      } else {
+        fillChunk(chunk);
+      }
+      MAMath.copy(chunk.sectionNoReduce(dstOrigin, interShape, null),
+          values.sectionNoReduce(srcOrigin, interShape, null));
+
+      byte[] data = toBytes(chunk);
+      for (Filter filter : filters) {
+        data = filter.encode(data);
+      }
+      data = compressor.encode(data);
+      Files.write(file, data);
+    }
+
+    private String getChunkKey(int[] chunkIndex) {
+      if (chunkIndex.length == 0) {
+        return "0"; // scalar
+      }
+      return Arrays.stream(chunkIndex).mapToObj(Integer::toString)
+          .collect(Collectors.joining(ZArray.DEFAULT_SEPARATOR));
+    }
+
+    private void readChunk(Path file, Array chunk) throws IOException {
+      byte[] data = compressor.decode(Files.readAllBytes(file));
+      for (int i = filters.size() - 1; i >= 0; i--) {
+        data = filters.get(i).decode(data);
+      }
+      ByteBuffer bb = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+      IndexIterator ii = chunk.getIndexIterator();
+      Class<?> type = dataType.getPrimitiveClassType();
+      while (ii.hasNext() && bb.remaining() >= elemSize) {
+        if (dataType == DataType.CHAR) {
+          ii.setCharNext((char) (bb.get() & 0xff));
+        } else if (dataType == DataType.BOOLEAN) {
+          ii.setBooleanNext(bb.get() != 0);
+        } else if (type == double.class) {
+          ii.setDoubleNext(bb.getDouble());
+        } else if (type == float.class) {
+          ii.setFloatNext(bb.getFloat());
+        } else if (type == long.class) {
+          ii.setLongNext(bb.getLong());
+        } else if (type == int.class) {
+          ii.setIntNext(bb.getInt());
+        } else if (type == short.class) {
+          ii.setShortNext(bb.getShort());
+        } else {
+          ii.setByteNext(bb.get());
+        }
+      }
+    }
+
+    private void fillChunk(Array chunk) {
+      Number fillValue = getFillValue();
+      if (fillValue == null || fillValue.doubleValue() == 0) {
+        return; // arrays are created zeroed
+      }
+      IndexIterator ii = chunk.getIndexIterator();
+      boolean isFloat = dataType.isFloatingPoint();
+      while (ii.hasNext()) {
+        if (isFloat) {
+          ii.setDoubleNext(fillValue.doubleValue());
+        } else {
+          ii.setLongNext(fillValue.longValue());
+        }
+      }
+    }
+
+    private byte[] toBytes(Array chunk) {
+      ByteBuffer bb = ByteBuffer.allocate((int) chunk.getSize() * elemSize).order(ByteOrder.LITTLE_ENDIAN);
+      IndexIterator ii = chunk.getIndexIterator();
+      Class<?> type = dataType.getPrimitiveClassType();
+      while (ii.hasNext()) {
+        if (dataType == DataType.CHAR) {
+          bb.put((byte) ii.getCharNext());
+        } else if (dataType == DataType.BOOLEAN) {
+          bb.put((byte) (ii.getBooleanNext() ? 1 : 0));
+        } else if (type == double.class) {
+          bb.putDouble(ii.getDoubleNext());
+        } else if (type == float.class) {
+          bb.putFloat(ii.getFloatNext());
+        } else if (type == long.class) {
+          bb.putLong(ii.getLongNext());
+        } else if (type == int.class) {
+          bb.putInt(ii.getIntNext());
+        } else if (type == short.class) {
+          bb.putShort(ii.getShortNext());
+        } else {
+          bb.put(ii.getByteNext());
+        }
+      }
+      return bb.array();
+    }
+  }
+}
@@ -20,6 +20,8 @@ import ucar.nc2.filter.Filters;
 import java.io.IOException;
 import java.nio.ByteOrder;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -210,6 +212,48 @@ public class TestZarrIosp {
     ncfile.close();
   }
 
+  @Test
+  public void testReadSinglePoints() throws IOException, InvalidRangeException {
+    // test reads touching a single chunk
+    for (String uri : stores) {
+      _testReadSinglePoints(uri);
+    }
+  }
+
+  private void _testReadSinglePoints(String location) throws IOException, InvalidRangeException {
+    try (NetcdfFile ncfile = NetcdfFiles.open(location)) {
+      for (String name : new String[] {"group_with_dims/var2D", "group_with_attrs/F_order_array"}) {
+        Variable var = ncfile.findVariable(name);
+        Array all = var.read();
+        int[] shape = var.getShape();
+        for (int i = 0; i < shape[0]; i += 3) {
+          for (int j = 0; j < shape[1]; j += 7) {
+            Array data = var.read(new Section(new int[] {i, j}, new int[] {1, 1}));
+            assertThat(data.getInt(0)).isEqualTo(all.getInt(all.getIndex().set(i, j)));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testParallelRead() throws IOException, InvalidRangeException {
+    ExecutorService exec = Executors.newFixedThreadPool(4);
+    try {
+      for (String uri : stores) {
+        ZarrIosp.setExecutor(null);
+        _testRead(uri);
+        _testUninitialized(uri);
+        ZarrIosp.setExecutor(exec, 3);
+        _testRead(uri);
+        _testUninitialized(uri);
+      }
+    } finally {
+      ZarrIosp.setExecutor(null);
+      exec.shutdownNow();
+    }
+  }
+
   @Test
   public void testReadUninitialized() throws IOException, InvalidRangeException {
     for (String uri : stores) {
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp.zarr;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+import ucar.nc2.iosp.ChunkCache;
+import ucar.nc2.write.Nc4ChunkingDefault;
+import ucar.nc2.write.NetcdfCopier;
+import ucar.nc2.write.NetcdfFileFormat;
+import ucar.nc2.write.NetcdfFormatWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Test writing Zarr stores with NetcdfFormatWriter
+ */
+public class TestZarrWriter {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static final int NX = 10;
+  private static final int NY = 7;
+
+  private NetcdfFormatWriter.Builder makeWriter(String location) {
+    NetcdfFormatWriter.Builder writerb = NetcdfFormatWriter.builder().setNewFile(true)
+        .setFormat(NetcdfFileFormat.ZARR).setLocation(location).setChunker(new Nc4ChunkingDefault(3, true));
+    writerb.addDimension("x", NX);
+    writerb.addDimension("y", NY);
+    writerb.addUnlimitedDimension("time");
+    writerb.addAttribute(new Attribute("title", "zarr writer test"));
+    writerb.addVariable("data", DataType.FLOAT, "x y").addAttribute(new Attribute("units", "m"));
+    writerb.addVariable("records", DataType.INT, "time y");
+    writerb.addVariable("scalar", DataType.DOUBLE, "");
+    return writerb;
+  }
+
+  private void writeAndCheck(String location) throws IOException, InvalidRangeException {
+    Array data = Array.makeArray(DataType.FLOAT, NX * NY, 0, 1).reshape(new int[] {NX, NY});
+    try (NetcdfFormatWriter writer = makeWriter(location).build()) {
+      // two writes that share chunks, so chunks are merged with what is already stored
+      writer.write("data", new int[] {0, 0}, data.section(new int[] {0, 0}, new int[] {3, NY}).copy());
+      writer.write("data", new int[] {3, 0}, data.section(new int[] {3, 0}, new int[] {NX - 3, NY}).copy());
+      for (int t = 0; t < 3; t++) {
+        Array record = Array.makeArray(DataType.INT, NY, t * 100, 1).reshape(new int[] {1, NY});
+        writer.write("records", new int[] {t, 0}, record);
+      }
+      writer.write("scalar", Array.factory(DataType.DOUBLE, new int[0], new double[] {3.5}));
+    }
+
+    try (NetcdfFile ncfile = NetcdfFiles.open(location)) {
+      assertThat(ncfile.findGlobalAttribute("title").getStringValue()).isEqualTo("zarr writer test");
+      Variable v = ncfile.findVariable("data");
+      assertThat(v.findAttribute("units").getStringValue()).isEqualTo("m");
+      assertThat(v.getDimensions().get(0).getShortName()).isEqualTo("x");
+      assertThat((float[]) v.read().copyTo1DJavaArray()).isEqualTo((float[]) data.copyTo1DJavaArray());
+
+      Variable records = ncfile.findVariable("records");
+      assertThat(records.getShape()).isEqualTo(new int[] {3, NY});
+      assertThat(records.read("2,0").getInt(0)).isEqualTo(200);
+
+      assertThat(ncfile.findVariable("scalar").read().getDouble(0)).isEqualTo(3.5);
+    }
+  }
+
+  @Test
+  public void testWriteDirectoryStore() throws IOException, InvalidRangeException {
+    writeAndCheck(tempFolder.getRoot().getAbsolutePath() + "/out.zarr");
+  }
+
+  @Test
+  public void testWriteZipStore() throws IOException, InvalidRangeException {
+    writeAndCheck(tempFolder.getRoot().getAbsolutePath() + "/out.zip");
+  }
+
+  @Test
+  public void testParallelWrite() throws IOException, InvalidRangeException {
+    ExecutorService exec = Executors.newFixedThreadPool(4);
+    try {
+      ZarrIosp.setExecutor(exec);
+      writeAndCheck(tempFolder.getRoot().getAbsolutePath() + "/parallel.zarr");
+    } finally {
+      ZarrIosp.setExecutor(null);
+      exec.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testChunkCache() throws IOException, InvalidRangeException {
+    String location = tempFolder.getRoot().getAbsolutePath() + "/cached.zarr";
+    writeAndCheck(location);
+    ChunkCache cache = new ChunkCache(1024 * 1024);
+    ExecutorService exec = Executors.newFixedThreadPool(2);
+    try {
+      ChunkCache.setDefault(cache);
+      try (NetcdfFile ncfile = NetcdfFiles.open(location)) {
+        Variable v = ncfile.findVariable("data");
+        Array first = v.read();
+        assertThat(cache.getMissCount()).isGreaterThan(0L);
+        assertThat(cache.getHitCount()).isEqualTo(0L);
+        assertThat(v.read().toString()).isEqualTo(first.toString());
+        assertThat(cache.getHitCount()).isEqualTo(cache.getMissCount());
+
+        // the parallel reader uses the same cache
+        ZarrIosp.setExecutor(exec);
+        assertThat(v.read().toString()).isEqualTo(first.toString());
+        assertThat(cache.getHitCount()).isEqualTo(2 * cache.getMissCount());
+      }
+    } finally {
+      ChunkCache.setDefault(null);
+      ZarrIosp.setExecutor(null);
+      exec.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testCompressor() throws IOException, InvalidRangeException {
+    String location = tempFolder.getRoot().getAbsolutePath() + "/blosc.zarr";
+    Map<String, Object> blosc = new HashMap<>();
+    blosc.put("id", "blosc");
+    blosc.put("cname", "lz4");
+    blosc.put("shuffle", 1);
+    ZarrIosp iosp = new ZarrIosp();
+    iosp.setCompressor(blosc);
+
+    NetcdfFormatWriter.Builder writerb = makeWriter(location).setIosp(iosp);
+    Array data = Array.makeArray(DataType.FLOAT, NX * NY, 0, 1).reshape(new int[] {NX, NY});
+    try (NetcdfFormatWriter writer = writerb.build()) {
+      writer.write("data", data);
+    }
+
+    try (NetcdfFile ncfile = NetcdfFiles.open(location)) {
+      Variable v = ncfile.findVariable("data");
+      assertThat(v.findAttribute("_Compressor").getStringValue()).isEqualTo("blosc");
+      assertThat((float[]) v.read().copyTo1DJavaArray()).isEqualTo((float[]) data.copyTo1DJavaArray());
+    }
+  }
+
+  @Test
+  public void testChunkerOfSuppliedIosp() throws IOException, InvalidRangeException {
+    String location = tempFolder.getRoot().getAbsolutePath() + "/uncompressed.zarr";
+    // the ZarrIosp default would deflate, so this only holds if the chunker of the builder is passed on
+    NetcdfFormatWriter.Builder writerb =
+        makeWriter(location).setChunker(new Nc4ChunkingDefault(0, false)).setIosp(new ZarrIosp());
+    Array data = Array.makeArray(DataType.FLOAT, NX * NY, 0, 1).reshape(new int[] {NX, NY});
+    try (NetcdfFormatWriter writer = writerb.build()) {
+      writer.write("data", data);
+    }
+
+    try (NetcdfFile ncfile = NetcdfFiles.open(location)) {
+      Variable v = ncfile.findVariable("data");
+      assertThat(v.findAttribute("_Compressor").getStringValue()).isEqualTo("none");
+      assertThat((float[]) v.read().copyTo1DJavaArray()).isEqualTo((float[]) data.copyTo1DJavaArray());
+    }
+  }
+
+  @Test
+  public void testCopy() throws IOException {
+    String location = tempFolder.getRoot().getAbsolutePath() + "/copy.zarr";
+    String input = ZarrTestsCommon.LOCAL_TEST_DATA_PATH + "zarr_test_data.zarr/";
+    try (NetcdfFile ncfile = NetcdfFiles.open(input)) {
+      NetcdfFormatWriter.Builder writerb =
+          NetcdfFormatWriter.builder().setNewFile(true).setFormat(NetcdfFileFormat.ZARR).setLocation(location);
+      NetcdfCopier.create(ncfile, writerb).write(null);
+
+      try (NetcdfFile copy = NetcdfFiles.open(location)) {
+        for (Variable v : ncfile.getVariables()) {
+          Variable vcopy = copy.findVariable(v.getFullNameEscaped());
+          assertThat(vcopy).isNotNull();
+          assertThat(vcopy.read().toString()).isEqualTo(v.read().toString());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDoesNotOverwriteOtherDirectories() throws IOException {
+    File dir = tempFolder.newFolder("notzarr");
+    assertThat(new File(dir, "keep.txt").createNewFile()).isTrue();
+    try {
+      makeWriter(dir.getAbsolutePath()).build().close();
+      fail();
+    } catch (IOException expected) {
+      assertThat(new File(dir, "keep.txt").exists()).isTrue();
+    }
+  }
+}
@@ -31,6 +31,7 @@ public class D4Array {
   protected DapNode template;
   protected Array array = null; // the Array object for the variable
   protected Object storage = null; // The storage underlying Array
+  protected D4DataCompiler compiler = null; // if set, creates array from storage when first needed
 
   //////////////////////////////////////////////////
   // Constructor(s)
@@ -66,7 +67,9 @@ public class D4Array {
     return this.template;
   }
 
-  public Array getArray() {
+  public synchronized Array getArray() {
+    if (this.array == null && this.compiler != null)
+      this.array = this.compiler.createArray((DapVariable) getTemplate(), getStorage());
     return this.array;
   }
 
@@ -88,6 +91,15 @@ public class D4Array {
     return this;
   }
 
+  /**
+   * Defer creating the Array until getArray() is called,
+   * so that variables that are never read are never converted.
+   */
+  public D4Array setCompiler(D4DataCompiler compiler) {
+    this.compiler = compiler;
+    return this;
+  }
+
 
 }
 
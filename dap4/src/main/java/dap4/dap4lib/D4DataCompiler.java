@@ -98,6 +98,8 @@ public class D4DataCompiler {
    * In some cases -- String, Sequence, Structure --
    * significant transforms are applied to the data
    * to make it usable with ucar.ma2.Array.
+   * The Array of a variable is only created when it is
+   * first asked for, see D4Array.getArray().
    *
    * @throws DapException
    */
@@ -106,9 +108,7 @@ public class D4DataCompiler {
     // iterate over the variables represented in the databuffer
     for (DapVariable vv : this.dmr.getTopVariables()) {
       Object storage = compileVar(vv);
-      D4Array data = new D4Array(schemeFor(vv), this.dsp, vv).setStorage(storage);
-      assert data.getArray() == null;
-      data.setArray(createArray(vv, data.getStorage()));
+      D4Array data = new D4Array(schemeFor(vv), this.dsp, vv).setStorage(storage).setCompiler(this);
       this.dsp.addVariableData(vv, data);
     }
   }
@@ -165,15 +165,47 @@ public class D4DataCompiler {
     // All other fixed-size atomic types
     long dimproduct = var.getCount();
     long total = dimproduct * daptype.getSize();
-    byte[] bytes = new byte[(int) total]; // total space required
-    int red = this.stream.read(bytes);
-    if (red <= 0)
-      throw new IOException("D4DataCompiler: read failure");
-    if (red < total)
-      throw new DapException("D4DataCompiler: short read");
-    // Convert to vector of required type
-    Object storage = CDMTypeFcns.bytesAsTypeVec(daptype, bytes);
-    CDMTypeFcns.decodebytes(this.remoteorder, daptype, bytes, storage);
+    if (total > Integer.MAX_VALUE)
+      throw new DapException("D4DataCompiler: variable too large: " + var.getFQN());
+    if (daptype.getTypeSort() == TypeSort.Char) {
+      byte[] bytes = new byte[(int) total]; // total space required
+      int red = this.stream.read(bytes);
+      if (red <= 0)
+        throw new IOException("D4DataCompiler: read failure");
+      if (red < total)
+        throw new DapException("D4DataCompiler: short read");
+      Object storage = CDMTypeFcns.bytesAsTypeVec(daptype, bytes);
+      CDMTypeFcns.decodebytes(this.remoteorder, daptype, bytes, storage);
+      return storage;
+    }
+    return decodeVector(daptype, (int) dimproduct);
+  }
+
+  /**
+   * Decode a vector of a fixed size type straight from the chunks of the stream,
+   * without first copying the serialized form into a byte[].
+   */
+  protected Object decodeVector(DapType daptype, int count) throws IOException {
+    int size = daptype.getSize();
+    Object storage = LibTypeFcns.newVector(daptype, count);
+    byte[] straddle = null; // a value split between two chunks
+    int n = 0;
+    while (n < count) {
+      ByteBuffer slice = this.stream.readSlice((count - n) * size);
+      int whole = slice.remaining() / size;
+      CDMTypeFcns.decodebuffer(daptype, slice, storage, n, whole);
+      n += whole;
+      int partial = slice.remaining();
+      if (partial > 0) {
+        if (straddle == null)
+          straddle = new byte[size];
+        slice.get(straddle, 0, partial);
+        if (this.stream.read(straddle, partial, size - partial) < size - partial)
+          throw new DapException("D4DataCompiler: short read");
+        CDMTypeFcns.decodebuffer(daptype, ByteBuffer.wrap(straddle).order(this.remoteorder), storage, n, 1);
+        n++;
+      }
+    }
     return storage;
   }
 
@@ -164,6 +164,30 @@ public class DeChunkedInputStream extends InputStream {
     return len;
   }
 
+  /**
+   * Consume up to max bytes of the current chunk, reading the next chunk if the current one is used up,
+   * and return them as a view of the chunk, in the remote byte order. Nothing is copied, so the view is
+   * only valid until the next read from this stream.
+   *
+   * @param max the maximum number of bytes to consume; must be > 0
+   * @return a view of at least 1 and at most max bytes
+   * @throws IOException if the stream is at its end
+   */
+  public ByteBuffer readSlice(int max) throws IOException {
+    if (this.chunk.avail == 0) {
+      int red = readChunk(this.chunk); // read next chunk
+      if (red <= 0)
+        throw new IOException("DeChunkedInputStream: IO error");
+    }
+    int toread = Math.min(max, this.chunk.avail);
+    ByteBuffer slice = ByteBuffer.wrap(this.chunk.chunk, this.chunk.pos, toread).slice().order(this.remoteorder);
+    if (checksumming)
+      computeChecksum(this.chunk.chunk, this.chunk.pos, toread);
+    this.chunk.pos += toread;
+    this.chunk.avail -= toread;
+    return slice;
+  }
+
   public long skip(long n) throws IOException {
     long count = n;
     while (count > 0) {
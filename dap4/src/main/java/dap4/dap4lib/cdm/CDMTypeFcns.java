@@ -1441,4 +1441,47 @@ public abstract class CDMTypeFcns {
 
   }
 
+  /**
+   * Decode count values of a fixed size type from bb into vector, starting at vector[offset].
+   * The byte order of bb is used. Char is not supported, since it is decoded as UTF-8.
+   *
+   * @return the number of bytes consumed from bb
+   */
+  public static int decodebuffer(DapType daptype, ByteBuffer bb, Object vector, int offset, int count) {
+    TypeSort tsort = daptype.getTypeSort();
+    switch (tsort) {
+      case Int8:
+      case UInt8:
+        bb.get((byte[]) vector, offset, count);
+        return count;
+      case Int16:
+      case UInt16:
+        bb.asShortBuffer().get((short[]) vector, offset, count);
+        break;
+      case Int32:
+      case UInt32:
+        bb.asIntBuffer().get((int[]) vector, offset, count);
+        break;
+      case Int64:
+      case UInt64:
+        bb.asLongBuffer().get((long[]) vector, offset, count);
+        break;
+      case Float32:
+        bb.asFloatBuffer().get((float[]) vector, offset, count);
+        break;
+      case Float64:
+        bb.asDoubleBuffer().get((double[]) vector, offset, count);
+        break;
+      case Enum:
+        // Coverity[FB.BC_UNCONFIRMED_CAST]
+        return decodebuffer(((DapEnumeration) daptype).getBaseType(), bb, vector, offset, count);
+      default:
+        throw new IllegalArgumentException("Cannot decode type: " + daptype);
+    }
+    // the typed views do not move bb
+    int nbytes = count * daptype.getSize();
+    bb.position(bb.position() + nbytes);
+    return nbytes;
+  }
+
 }
@@ -101,7 +101,7 @@ public class DapNetcdfFile extends NetcdfFile {
   protected boolean daploaded = false; // avoid multiple loads
 
   // Variable map
-  protected Map<Variable, Array> arraymap = null;
+  protected Map<Variable, D4Array> arraymap = null;
 
   /////////////////////////////////////////////////
   // Constructor(s)
@@ -282,7 +282,8 @@ public class DapNetcdfFile extends NetcdfFile {
     // Read and compile the DAP4 data
     // Ensure that the DSP has data
     ensuredata();
-    Array result = arraymap.get(cdmvar);
+    D4Array data = arraymap.get(cdmvar);
+    Array result = (data == null) ? null : data.getArray();
     if (result == null)
       throw new IOException("No data for variable: " + cdmvar.getFullName());
     if (section != null) {
@@ -361,18 +362,14 @@ public class DapNetcdfFile extends NetcdfFile {
       this.dsp.loadContext(this.cxt, RequestMode.DAP);
       if (this.cdmCompiler == null)
         this.cdmCompiler = new CDMCompiler(this, this.dsp);
-      this.cdmCompiler.compileData();
-      // Prepare the array map
+      // Prepare the array map; the Arrays themselves are created when first read
       assert this.arraymap == null;
-      this.arraymap = new HashMap<Variable, Array>();
+      this.arraymap = new HashMap<Variable, D4Array>();
       Map<DapVariable, D4Array> datamap = this.dsp.getVariableDataMap();
       NodeMap<CDMNode, DapNode> nodemap = this.cdmCompiler.getNodeMap();
       for (Map.Entry<DapVariable, D4Array> entry : datamap.entrySet()) {
-        DapVariable dv = entry.getKey();
-        D4Array dc = entry.getValue();
         Variable v = (Variable) nodemap.get(entry.getKey());
-        assert (dc.getArray() != null);
-        arraymap.put(v, dc.getArray());
+        arraymap.put(v, entry.getValue());
       }
     }
   }
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package dap4.dap4lib;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import dap4.core.dmr.DapVariable;
+import dap4.core.util.ChecksumMode;
+import dap4.core.util.DapConstants;
+import dap4.core.util.DapContext;
+import dap4.dap4lib.cdm.nc2.DapNetcdfFile;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.nc2.Variable;
+
+/**
+ * Decode fixed size atomic variables from a hand built chunked DAP4 response,
+ * whose chunks split values in the middle.
+ */
+public class TestChunkedDecode {
+
+  @ClassRule
+  public static final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static final int N = 10;
+  private static final int CHUNK_SIZE = 7; // not a multiple of any value size
+
+  private static final String DMR = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<Dataset name=\"chunked\" dapVersion=\"4.0\" dmrVersion=\"1.0\" xmlns=\"http://xml.opendap.org/ns/DAP/4.0#\">\n"
+      + "  <Dimension name=\"n\" size=\"" + N + "\"/>\n" //
+      + "  <Int32 name=\"vi\"><Dim name=\"/n\"/></Int32>\n" //
+      + "  <Float64 name=\"vd\"><Dim name=\"/n\"/></Float64>\n" //
+      + "  <Int16 name=\"vs\"><Dim name=\"/n\"/></Int16>\n" //
+      + "</Dataset>\n";
+
+  private static int[] ints() {
+    int[] result = new int[N];
+    for (int i = 0; i < N; i++)
+      result[i] = i * 100003 - 7;
+    return result;
+  }
+
+  private static double[] doubles() {
+    double[] result = new double[N];
+    for (int i = 0; i < N; i++)
+      result[i] = i * 1.5 - 3.25;
+    return result;
+  }
+
+  private static short[] shorts() {
+    short[] result = new short[N];
+    for (int i = 0; i < N; i++)
+      result[i] = (short) (i * 1001 - 5000);
+    return result;
+  }
+
+  // the serialized values of each variable, in the order of the DMR
+  private static byte[][] serialize(ByteOrder order) {
+    ByteBuffer vi = ByteBuffer.allocate(4 * N).order(order);
+    ByteBuffer vd = ByteBuffer.allocate(8 * N).order(order);
+    ByteBuffer vs = ByteBuffer.allocate(2 * N).order(order);
+    for (int i = 0; i < N; i++) {
+      vi.putInt(ints()[i]);
+      vd.putDouble(doubles()[i]);
+      vs.putShort(shorts()[i]);
+    }
+    return new byte[][] {vi.array(), vd.array(), vs.array()};
+  }
+
+  private static long crc32(byte[] bytes) {
+    CRC32 crc = new CRC32();
+    crc.update(bytes, 0, bytes.length);
+    return crc.getValue();
+  }
+
+  private static void writeChunk(ByteArrayOutputStream out, int flags, byte[] bytes, int off, int len) {
+    out.write(flags);
+    out.write(len >>> 16);
+    out.write(len >>> 8);
+    out.write(len);
+    out.write(bytes, off, len);
+  }
+
+  // the DMR chunk, then the data in small chunks, each variable followed by its checksum
+  private static byte[] makeResponse(ByteOrder order, boolean checksums) {
+    int endian = (order == ByteOrder.LITTLE_ENDIAN) ? DapConstants.CHUNK_LITTLE_ENDIAN : 0;
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    for (byte[] var : serialize(order)) {
+      data.write(var, 0, var.length);
+      if (checksums) {
+        byte[] crc = ByteBuffer.allocate(4).order(order).putInt((int) crc32(var)).array();
+        data.write(crc, 0, crc.length);
+      }
+    }
+    byte[] bytes = data.toByteArray();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] dmr = DMR.getBytes(StandardCharsets.UTF_8);
+    writeChunk(out, endian, dmr, 0, dmr.length);
+    for (int pos = 0; pos < bytes.length; pos += CHUNK_SIZE) {
+      int len = Math.min(CHUNK_SIZE, bytes.length - pos);
+      int flags = endian | (pos + len == bytes.length ? DapConstants.CHUNK_END : DapConstants.CHUNK_DATA);
+      writeChunk(out, flags, bytes, pos, len);
+    }
+    return out.toByteArray();
+  }
+
+  private static class ResponseDSP extends D4DSP {
+    ResponseDSP(byte[] response, ChecksumMode cmode) throws IOException {
+      this.checksummode = cmode;
+      setStream(new ByteArrayInputStream(response), RequestMode.DAP);
+    }
+
+    @Override
+    public boolean dspMatch(String path, DapContext context) {
+      return false;
+    }
+  }
+
+  private static D4Array getData(D4DSP dsp, String name) {
+    for (DapVariable var : dsp.getDMR().getTopVariables()) {
+      if (var.getShortName().equals(name))
+        return dsp.getVariableDataMap().get(var);
+    }
+    return null;
+  }
+
+  private void checkDecode(ByteOrder order) throws IOException {
+    D4DSP dsp = new ResponseDSP(makeResponse(order, true), ChecksumMode.TRUE);
+    assertThat(dsp.getStream().getRemoteOrder()).isEqualTo(order);
+    dsp.loadDMR();
+    dsp.loadDAP();
+
+    assertThat(getData(dsp, "vi").getStorage()).isEqualTo(ints());
+    assertThat(getData(dsp, "vd").getStorage()).isEqualTo(doubles());
+    assertThat(getData(dsp, "vs").getStorage()).isEqualTo(shorts());
+
+    // the checksums are computed over the values split between chunks
+    byte[][] serialized = serialize(order);
+    String[] names = {"vi", "vd", "vs"};
+    for (int i = 0; i < names.length; i++) {
+      DapVariable var = (DapVariable) getData(dsp, names[i]).getTemplate();
+      assertThat(dsp.getChecksumMap(DapConstants.ChecksumSource.LOCAL).get(var)).isEqualTo(crc32(serialized[i]));
+      assertThat(dsp.getChecksumMap(DapConstants.ChecksumSource.REMOTE).get(var)).isEqualTo(crc32(serialized[i]));
+    }
+  }
+
+  @Test
+  public void testBigEndian() throws IOException {
+    checkDecode(ByteOrder.BIG_ENDIAN);
+  }
+
+  @Test
+  public void testLittleEndian() throws IOException {
+    checkDecode(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  @Test
+  public void testArrayIsLazy() throws IOException {
+    D4DSP dsp = new ResponseDSP(makeResponse(ByteOrder.LITTLE_ENDIAN, false), ChecksumMode.FALSE);
+    dsp.loadDMR();
+    dsp.loadDAP();
+
+    D4Array data = getData(dsp, "vi");
+    assertThat(data.array).isNull();
+    Array array = data.getArray();
+    assertThat(array.getShape()).isEqualTo(new int[] {N});
+    assertThat(array.get1DJavaArray(int.class)).isEqualTo(ints());
+    assertThat(data.getArray()).isSameInstanceAs(array);
+    assertThat(getData(dsp, "vd").array).isNull();
+  }
+
+  // DapNetcdfFile only makes the Array of a variable when it is read
+  @Test
+  public void testReadFromNetcdfFile() throws IOException {
+    File file = tempFolder.newFile("chunked.dap");
+    Files.write(file.toPath(), makeResponse(ByteOrder.BIG_ENDIAN, true));
+    String url = "file://" + file.getAbsolutePath() + "?" + DapConstants.CHECKSUMTAG + "=true";
+    try (DapNetcdfFile ncfile = new DapNetcdfFile(url, null)) {
+      Variable vs = ncfile.findVariable("vs");
+      assertThat(vs).isNotNull();
+      assertThat(vs.read().get1DJavaArray(short.class)).isEqualTo(shorts());
+
+      D4DSP dsp = ncfile.getDSP();
+      assertThat(getData(dsp, "vs").array).isNotNull();
+      assertThat(getData(dsp, "vi").array).isNull();
+      assertThat(ncfile.findVariable("vd").read().get1DJavaArray(double.class)).isEqualTo(doubles());
+    }
+  }
+}
@@ -5,16 +5,19 @@
 
 package ucar.nc2.grib.collection;
 
+import com.google.common.collect.ImmutableList;
 import ucar.nc2.constants.DataFormatType;
 import thredds.featurecollection.FeatureCollectionConfig;
 import ucar.nc2.grib.grib1.*;
 import ucar.nc2.grib.grib1.tables.Grib1Customizer;
 import ucar.nc2.grib.grib1.tables.Grib1ParamTables;
 import ucar.nc2.grib.*;
+import ucar.nc2.iosp.FileSignature;
 import ucar.unidata.io.RandomAccessFile;
 import ucar.unidata.io.http.HTTPRandomAccessFile;
 import java.io.IOException;
 import java.util.Formatter;
+import java.util.List;
 
 /**
  * Grib-1 Collection IOSP.
@@ -26,6 +29,10 @@ import java.util.Formatter;
 public class Grib1Iosp extends GribIosp {
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(Grib2Iosp.class);
 
+  // a GRIB1 data file, or one of its index files
+  private static final List<FileSignature> signatures = ImmutableList.of(Grib1RecordScanner.signature,
+      FileSignature.at(0, Grib1CollectionWriter.MAGIC_START), FileSignature.at(0, Grib1PartitionBuilder.MAGIC_START));
+
   @Override
   public String makeVariableName(GribCollectionImmutable.VariableIndex v) {
     return makeVariableNameFromTables(gribCollection.getCenter(), gribCollection.getSubcenter(), v.getTableVersion(),
@@ -186,6 +193,11 @@ public class Grib1Iosp extends GribIosp {
     return Grib1RecordScanner.isValidFile(raf);
   }
 
+  @Override
+  public List<FileSignature> getFileSignatures() {
+    return signatures;
+  }
+
   @Override
   public String getFileTypeId() {
     return DataFormatType.GRIB1.getDescription();
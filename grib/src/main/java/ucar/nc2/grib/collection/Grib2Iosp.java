@@ -5,14 +5,17 @@
 
 package ucar.nc2.grib.collection;
 
+import com.google.common.collect.ImmutableList;
 import ucar.nc2.constants.DataFormatType;
 import ucar.nc2.grib.grib2.*;
 import ucar.nc2.grib.*;
 import ucar.nc2.grib.grib2.table.Grib2Tables;
+import ucar.nc2.iosp.FileSignature;
 import ucar.unidata.io.RandomAccessFile;
 import ucar.unidata.io.http.HTTPRandomAccessFile;
 import java.io.IOException;
 import java.util.Formatter;
+import java.util.List;
 
 /**
  * Grib-2 Collection IOSP.
@@ -24,6 +27,10 @@ import java.util.Formatter;
 public class Grib2Iosp extends GribIosp {
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(Grib2Iosp.class);
 
+  // a GRIB2 data file, or one of its index files
+  private static final List<FileSignature> signatures = ImmutableList.of(Grib2RecordScanner.signature,
+      FileSignature.at(0, Grib2CollectionWriter.MAGIC_START), FileSignature.at(0, Grib2PartitionBuilder.MAGIC_START));
+
   static String makeVariableNameFromTable(Grib2Tables cust, GribCollectionImmutable gribCollection,
       GribCollectionImmutable.VariableIndex vindex, boolean useGenType) {
 
@@ -204,6 +211,11 @@ public class Grib2Iosp extends GribIosp {
     return Grib2RecordScanner.isValidFile(raf);
   }
 
+  @Override
+  public List<FileSignature> getFileSignatures() {
+    return signatures;
+  }
+
   @Override
   public String getFileTypeId() {
     return DataFormatType.GRIB2.getDescription();
@@ -26,7 +26,15 @@ import ucar.nc2.grib.grib2.table.Grib2Tables;
 import ucar.unidata.io.RandomAccessFile;
 import javax.annotation.concurrent.Immutable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.function.BiPredicate;
 
 /**
  * Grib Data Reader.
@@ -58,6 +66,21 @@ public abstract class GribDataReader {
   public static String currentDataRafFilename;
   private static final boolean show = false; // debug
 
+  // experimental multithreading
+  private static Executor executor;
+
+  /**
+   * Read and decode the records of a read in parallel on the given Executor.
+   * The records are sorted by file and position as usual, then split into batches of consecutive records in the
+   * same file. Each batch is read in file order by one task, and each record is written into its own part of the
+   * result.
+   *
+   * @param exec reads records, or null to read serially on the calling thread (the default)
+   */
+  public static void setExecutor(Executor exec) {
+    executor = exec;
+  }
+
   protected final GribCollectionImmutable gribCollection;
   private final GribCollectionImmutable.VariableIndex vindex;
   private final List<DataRecord> records = new ArrayList<>();
@@ -235,6 +258,11 @@ public abstract class GribDataReader {
    */
   private void read(DataReceiverIF dataReceiver) throws IOException {
     Collections.sort(records);
+    if (useExecutor()) {
+      readParallel(dataReceiver, dr -> gribCollection.getDataRaf(dr.record.fileno),
+          (dr1, dr2) -> dr1.record.fileno == dr2.record.fileno);
+      return;
+    }
 
     int currFile = -1;
     RandomAccessFile rafData = null;
@@ -288,6 +316,14 @@ public abstract class GribDataReader {
 
   private void readPartitioned(DataReceiverIF dataReceiver) throws IOException {
     Collections.sort(records);
+    if (useExecutor()) {
+      readParallel(dataReceiver, dr -> {
+        PartitionCollectionImmutable.DataRecord drp = (PartitionCollectionImmutable.DataRecord) dr;
+        return drp.usePartition.getRaf(drp.partno, dr.record.fileno);
+      }, (dr1, dr2) -> ((PartitionCollectionImmutable.DataRecord) dr2)
+          .usesSameFile((PartitionCollectionImmutable.DataRecord) dr1));
+      return;
+    }
 
     PartitionCollectionImmutable.DataRecord lastRecord = null;
     RandomAccessFile rafData = null;
@@ -332,6 +368,82 @@ public abstract class GribDataReader {
     }
   }
 
+  private boolean useExecutor() {
+    return executor != null && records.size() > 1 && validator == null && !show && !Grib.debugIndexOnly
+        && !Grib.debugGbxIndexOnly;
+  }
+
+  private interface RafOpener {
+    RandomAccessFile open(DataRecord dr) throws IOException;
+  }
+
+  /*
+   * Read the sorted records on the executor, in batches of consecutive records from the same file, about two
+   * batches per processor. Each record goes to its own resultIndex, so batches may complete in any order.
+   */
+  private void readParallel(DataReceiverIF dataReceiver, RafOpener opener, BiPredicate<DataRecord, DataRecord> sameFile)
+      throws IOException {
+    int nbatches = 2 * Runtime.getRuntime().availableProcessors();
+    int batchSize = Math.max(1, (records.size() + nbatches - 1) / nbatches);
+
+    List<ReadBatchTask> tasks = new ArrayList<>();
+    List<DataRecord> batch = new ArrayList<>();
+    for (DataRecord dr : records) {
+      if (!batch.isEmpty() && (batch.size() >= batchSize || !sameFile.test(batch.get(0), dr))) {
+        tasks.add(new ReadBatchTask(batch, opener, dataReceiver));
+        batch = new ArrayList<>();
+      }
+      batch.add(dr);
+    }
+    if (!batch.isEmpty())
+      tasks.add(new ReadBatchTask(batch, opener, dataReceiver));
+
+    CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+    List<Future<Void>> futures = new ArrayList<>();
+    try {
+      for (ReadBatchTask task : tasks)
+        futures.add(completionService.submit(task));
+      for (int done = 0; done < tasks.size(); done++)
+        completionService.take().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted reading " + vindex);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      throw new IOException(cause);
+    } finally {
+      // dont interrupt running reads, which would close the channel of a cached file
+      for (Future<Void> f : futures)
+        f.cancel(false);
+    }
+  }
+
+  private class ReadBatchTask implements Callable<Void> {
+    final List<DataRecord> batch;
+    final RafOpener opener;
+    final DataReceiverIF dataReceiver;
+
+    ReadBatchTask(List<DataRecord> batch, RafOpener opener, DataReceiverIF dataReceiver) {
+      this.batch = batch;
+      this.opener = opener;
+      this.dataReceiver = dataReceiver;
+    }
+
+    public Void call() throws IOException {
+      try (RandomAccessFile rafData = opener.open(batch.get(0))) {
+        for (DataRecord dr : batch) {
+          if (dr.record.pos == GribCollectionMutable.MISSING_RECORD)
+            continue;
+          float[] data = readData(rafData, dr);
+          dataReceiver.addData(data, dr.resultIndex, dr.hcs.nx);
+        }
+      }
+      return null;
+    }
+  }
+
   public static class DataRecord implements Comparable<DataRecord> {
     int resultIndex; // index into the result array
     final GribCollectionImmutable.Record record;
@@ -360,6 +472,7 @@ public abstract class GribDataReader {
   }
 
   public interface DataReceiverIF {
+    // with an executor, called concurrently from several threads, each with a different resultIndex
     void addData(float[] data, int resultIndex, int nx);
 
     void setDataToZero(); // only used when debugging with gbx/ncx only, to fake the data
@@ -206,6 +206,25 @@ public class Grib2DataReader {
    */
 
 
+  private int maxGroupLength(int[] L) {
+    int max = 0;
+    for (int len : L) {
+      max = Math.max(max, len);
+    }
+    return max;
+  }
+
+  // number of points that have data, according to the bitmap
+  private int countBitsSet() {
+    int count = 0;
+    for (int i = 0; i < totalNPoints; i++) {
+      if (GribNumbers.testBitIsSet(bitmap[i / 8], i % 8)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
   // Grid point data - simple packing
   private float[] getData0(RandomAccessFile raf, Grib2Drs.Type0 gdrs) throws IOException {
     int nb = gdrs.numberOfBits;
@@ -229,15 +248,28 @@ public class Grib2DataReader {
     // data[ i ] = (R + ( X1 + X2) * EE)/DD ;
 
     BitReader reader = new BitReader(raf, startPos + 5);
-    if (bitmap == null) {
+    if (nb >= 32) {
+      // unsigned values that dont fit in an int
+      for (int i = 0; i < totalNPoints; i++) {
+        if (bitmap == null || GribNumbers.testBitIsSet(bitmap[i / 8], i % 8)) {
+          data[i] = (R + reader.bits2UInt(nb) * EE) / DD;
+        } else {
+          data[i] = staticMissingValue;
+        }
+      }
+    } else if (bitmap == null) {
+      int[] X2 = new int[totalNPoints];
+      reader.readUInts(nb, X2, 0, totalNPoints);
       for (int i = 0; i < totalNPoints; i++) {
         // data[ i ] = (R + ( X1 + X2) * EE)/DD ;
-        data[i] = (R + reader.bits2UInt(nb) * EE) / DD;
+        data[i] = (R + X2[i] * EE) / DD;
       }
     } else {
-      for (int i = 0; i < totalNPoints; i++) {
+      int[] X2 = new int[countBitsSet()];
+      reader.readUInts(nb, X2, 0, X2.length);
+      for (int i = 0, j = 0; i < totalNPoints; i++) {
         if (GribNumbers.testBitIsSet(bitmap[i / 8], i % 8)) {
-          data[i] = (R + reader.bits2UInt(nb) * EE) / DD;
+          data[i] = (R + X2[j++] * EE) / DD;
         } else {
           data[i] = staticMissingValue;
           // data[i] = R / DD;
@@ -295,9 +327,7 @@ public class Grib2DataReader {
     int[] X1 = new int[NG];
     int nb = gdrs.numberOfBits;
     if (nb != 0) {
-      for (int i = 0; i < NG; i++) {
-        X1[i] = (int) reader.bits2UInt(nb);
-      }
+      reader.readUInts(nb, X1, 0, NG);
     }
 
     // [xx +1 ]-yy Get number of bits used to encode each group
@@ -305,9 +335,7 @@ public class Grib2DataReader {
     nb = gdrs.bitsGroupWidths;
     if (nb != 0) {
       reader.incrByte();
-      for (int i = 0; i < NG; i++) {
-        NB[i] = (int) reader.bits2UInt(nb);
-      }
+      reader.readUInts(nb, NB, 0, NG);
     }
 
     // [yy +1 ]-zz Get the scaled group lengths using formula
@@ -320,8 +348,9 @@ public class Grib2DataReader {
     nb = gdrs.bitsScaledGroupLength;
 
     reader.incrByte();
+    reader.readUInts(nb, L, 0, NG);
     for (int i = 0; i < NG; i++) {
-      L[i] = ref + (int) reader.bits2UInt(nb) * len_inc;
+      L[i] = ref + L[i] * len_inc;
     }
     L[NG - 1] = gdrs.lengthLastGroup; // enter Length of Last Group
 
@@ -339,7 +368,11 @@ public class Grib2DataReader {
     // D = THE DECIMAL SCALE FACTOR
     int count = 0;
     reader.incrByte();
+    int[] X2 = new int[maxGroupLength(L)];
     for (int i = 0; i < NG; i++) {
+      if (NB[i] != 0) {
+        reader.readUInts(NB[i], X2, 0, L[i]);
+      }
       for (int j = 0; j < L[i]; j++) {
         if (NB[i] == 0) {
           if (mvm == 0) { // X2 = 0
@@ -348,15 +381,14 @@ public class Grib2DataReader {
             data[count++] = mv;
           }
         } else {
-          int X2 = (int) reader.bits2UInt(NB[i]);
           if (mvm == 0) {
-            data[count++] = (R + (X1[i] + X2) * EE) / DD;
+            data[count++] = (R + (X1[i] + X2[j]) * EE) / DD;
           } else { // if (mvm == 1) || (mvm == 2 )
             // X2 is also set to missing value if all bits set to 1's
-            if (X2 == bitsmv1[NB[i]]) {
+            if (X2[j] == bitsmv1[NB[i]]) {
               data[count++] = mv;
             } else {
-              data[count++] = (R + (X1[i] + X2) * EE) / DD;
+              data[count++] = (R + (X1[i] + X2[j]) * EE) / DD;
             }
           }
         }
@@ -520,9 +552,7 @@ public class Grib2DataReader {
     int nb = gdrs.numberOfBits;
     if (nb != 0) {
       reader.incrByte();
-      for (int i = 0; i < NG; i++) {
-        X1[i] = (int) reader.bits2UInt(nb);
-      }
+      reader.readUInts(nb, X1, 0, NG);
     }
 
     // [xx +1 ]-yy Get number of bits used to encode each group
@@ -531,9 +561,7 @@ public class Grib2DataReader {
     nb = gdrs.bitsGroupWidths;
     if (nb != 0) {
       reader.incrByte();
-      for (int i = 0; i < NG; i++) {
-        NB[i] = (int) reader.bits2UInt(nb);
-      }
+      reader.readUInts(nb, NB, 0, NG);
     }
 
     int referenceGroupWidths = gdrs.referenceGroupWidths;
@@ -552,9 +580,7 @@ public class Grib2DataReader {
 
     if (nb != 0) {
       reader.incrByte();
-      for (int i = 0; i < NG; i++) {
-        L[i] = (int) reader.bits2UInt(nb);
-      }
+      reader.readUInts(nb, L, 0, NG);
     }
 
     int totalL = 0;
@@ -606,11 +632,13 @@ public class Grib2DataReader {
     reader.incrByte();
     int dataSize = 0;
     boolean[] dataBitMap = null;
+    int[] X2 = new int[maxGroupLength(L)];
     if (mvm == 0) {
       for (int i = 0; i < NG; i++) {
         if (NB[i] != 0) {
+          reader.readUInts(NB[i], X2, 0, L[i]);
           for (int j = 0; j < L[i]; j++) {
-            data[count++] = (int) reader.bits2UInt(NB[i]) + X1[i];
+            data[count++] = X2[j] + X1[i];
           }
         } else {
           for (int j = 0; j < L[i]; j++) {
@@ -627,8 +655,9 @@ public class Grib2DataReader {
         if (NB[i] != 0) {
           int msng1 = bitsmv1[NB[i]];
           int msng2 = msng1 - 1;
+          reader.readUInts(NB[i], X2, 0, L[i]);
           for (int j = 0; j < L[i]; j++) {
-            data[count] = (int) reader.bits2UInt(NB[i]);
+            data[count] = X2[j];
             if (data[count] == msng1 || mvm == 2 && data[count] == msng2) {
               dataBitMap[count] = false;
             } else {
@@ -752,16 +781,6 @@ public class Grib2DataReader {
     float EE = (float) java.lang.Math.pow(2.0, (double) E);
     float ref_val = R / DD;
 
-    Grib2JpegDecoder g2j = null;
-    // try {
-    if (nb != 0) { // there's data to decode
-      g2j = new Grib2JpegDecoder(nb, false);
-      byte[] buf = new byte[dataLength - 5];
-      raf.readFully(buf);
-      g2j.decode(buf);
-      gdrs.hasSignedProblem = g2j.hasSignedProblem();
-    }
-
     float[] result = new float[totalNPoints];
 
     // no data to decode, set to reference value
@@ -772,37 +791,51 @@ public class Grib2DataReader {
       return result;
     }
 
-    int[] idata = g2j.getGdata();
-    if (bitmap == null) { // must be one decoded value in idata for every expected data point
-      if (idata.length != dataNPoints) {
-        logger.debug("Number of points in the data record {} != {} expected from GDS", idata.length, dataNPoints);
-        throw new IllegalStateException("Number of points in the data record {} != expected from GDS");
-      }
+    // there's data to decode
+    Grib2JpegDecoder g2j = Grib2JpegDecoder.getThreadDecoder(nb);
+    try {
+      byte[] buf = new byte[dataLength - 5];
+      raf.readFully(buf);
+      g2j.decode(buf);
+      gdrs.hasSignedProblem = g2j.hasSignedProblem();
 
-      for (int i = 0; i < dataNPoints; i++) {
-        // Y * 10^D = R + (X1 + X2) * 2^E ; // regulation 92.9.4
-        // Y = (R + ( 0 + X2) * EE)/DD ;
-        result[i] = (R + idata[i] * EE) / DD;
-      }
-      return result;
+      // the level shift of unsigned data is added here, instead of in a separate pass over the data
+      int[] idata = g2j.getRawData();
+      int levShift = g2j.getLevelShift();
+      if (bitmap == null) { // must be one decoded value in idata for every expected data point
+        if (idata.length != dataNPoints) {
+          logger.debug("Number of points in the data record {} != {} expected from GDS", idata.length, dataNPoints);
+          throw new IllegalStateException("Number of points in the data record {} != expected from GDS");
+        }
 
-    } else { // use bitmap to skip missing values
-      for (int i = 0, j = 0; i < totalNPoints; i++) {
-        if (GribNumbers.testBitIsSet(bitmap[i / 8], i % 8)) {
-          if (j >= idata.length) {
-            logger.warn("jj2000 data count {} < bitmask count {}, i={}, totalNPoints={}", idata.length, j, i,
-                totalNPoints);
-            break;
+        for (int i = 0; i < dataNPoints; i++) {
+          // Y * 10^D = R + (X1 + X2) * 2^E ; // regulation 92.9.4
+          // Y = (R + ( 0 + X2) * EE)/DD ;
+          result[i] = (R + (idata[i] + levShift) * EE) / DD;
+        }
+        return result;
+
+      } else { // use bitmap to skip missing values
+        for (int i = 0, j = 0; i < totalNPoints; i++) {
+          if (GribNumbers.testBitIsSet(bitmap[i / 8], i % 8)) {
+            if (j >= idata.length) {
+              logger.warn("jj2000 data count {} < bitmask count {}, i={}, totalNPoints={}", idata.length, j, i,
+                  totalNPoints);
+              break;
+            }
+            int indata = idata[j] + levShift;
+            result[i] = (R + indata * EE) / DD;
+            j++;
+          } else {
+            result[i] = staticMissingValue;
           }
-          int indata = idata[j];
-          result[i] = (R + indata * EE) / DD;
-          j++;
-        } else {
-          result[i] = staticMissingValue;
         }
       }
+      return result;
+
+    } finally {
+      g2j.clear();
     }
-    return result;
 
     /*
      * } catch (NullPointerException npe) {
@@ -827,14 +860,17 @@ public class Grib2DataReader {
     }
     int missing_value = (2 << nb - 1) - 1; // all ones - reserved for missing value
 
-    Grib2JpegDecoder g2j;
-    g2j = new Grib2JpegDecoder(nb, false);
+    Grib2JpegDecoder g2j = Grib2JpegDecoder.getThreadDecoder(nb);
     byte[] buf = new byte[dataLength - 5];
     raf.readFully(buf);
-    g2j.decode(buf);
-    gdrs.hasSignedProblem = g2j.hasSignedProblem();
-
-    int[] idata = g2j.getGdata();
+    int[] idata;
+    try {
+      g2j.decode(buf);
+      gdrs.hasSignedProblem = g2j.hasSignedProblem();
+      idata = g2j.getGdata();
+    } finally {
+      g2j.clear();
+    }
 
     if (bitmap == null) { // must be one decoded value in idata for every expected data point
       if (idata.length != totalNPoints) {
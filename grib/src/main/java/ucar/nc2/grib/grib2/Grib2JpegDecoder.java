@@ -36,6 +36,35 @@ import java.io.ByteArrayInputStream;
 public class Grib2JpegDecoder {
   private static final Logger logger = LoggerFactory.getLogger(Grib2JpegDecoder.class);
 
+  // decoders can be reused but are not thread safe, so each thread keeps its own, one for each bit rate
+  private static final ThreadLocal<Map<Integer, Grib2JpegDecoder>> decoders = ThreadLocal.withInitial(HashMap::new);
+
+  /**
+   * Get a decoder for this thread, created the first time it is asked for.
+   * Call {@link #clear()} when done with the decoded data, so the pooled decoder does not hold on to it.
+   *
+   * @param nbits bit rate
+   */
+  static Grib2JpegDecoder getThreadDecoder(int nbits) {
+    return decoders.get().computeIfAbsent(nbits, nb -> new Grib2JpegDecoder(nb, false));
+  }
+
+  // the default parameter list (with modules arguments) is the same for every decoder, so only build it once
+  private static class DefaultParameters {
+    static final ParameterList defpl = makeDefaultParameters();
+
+    private static ParameterList makeDefaultParameters() {
+      ParameterList defpl = new ParameterList();
+      String[][] param = Grib2JpegDecoder.getAllParameters();
+
+      for (int i = param.length - 1; i >= 0; i--) {
+        if (param[i][3] != null)
+          defpl.put(param[i][0], param[i][3]);
+      }
+      return defpl;
+    }
+  }
+
   private boolean debug;
   private final int rate;
 
@@ -84,19 +113,8 @@ public class Grib2JpegDecoder {
 
     // Initialize default parameters
     // System.err.println("calling Grib2JpegDecoder with argv argument");
-    /*
-     * The default parameter list (with modules arguments)
-     */
-    ParameterList defpl = new ParameterList();
-    String[][] param = Grib2JpegDecoder.getAllParameters();
-
-    for (int i = param.length - 1; i >= 0; i--) {
-      if (param[i][3] != null)
-        defpl.put(param[i][0], param[i][3]);
-    }
-
     // Create parameter list using defaults
-    pl = new ParameterList(defpl);
+    pl = new ParameterList(DefaultParameters.defpl);
 
     // Parse arguments from argv
     try {
@@ -149,6 +167,13 @@ public class Grib2JpegDecoder {
     int i;
     int[] depth;
 
+    // forget the previous decode, when reused
+    clear();
+    csMap = null;
+    exitCode = 0;
+    packBytes = 0;
+    hasSignedProblem = false;
+
     try {
 
       // create a ByteArrayInputStream from byte array for ISRandomAccessIO
@@ -293,16 +318,14 @@ public class Grib2JpegDecoder {
           imwriter[i].writeAll(); // write data to array
           ImgWriterArray iwa = (ImgWriterArray) imwriter[i];
           data = iwa.getGdata();
-          // unSigned data processing here
+          levShift = 0;
+          // unSigned data processing here, see getGdata()
           if (!isSigned) {
             // float unSignIt = (float) java.lang.Math.pow((double) 2.0, fnb - 1); // LOOK WTF ?
             int nb = depth[i];
-            int levShift = 1 << (nb - 1); // check
+            levShift = 1 << (nb - 1); // check
             if (nb != rate)
               hasSignedProblem = true;
-
-            for (int j = 0; j < data.length; j++)
-              data[j] += levShift;
           }
           packBytes = iwa.getPackBytes();
         } catch (IOException e) {
@@ -368,10 +391,39 @@ public class Grib2JpegDecoder {
    * Return the "raw" decoded data as an int array
    */
   public int[] getGdata() {
+    if (data != null && levShift != 0) {
+      for (int j = 0; j < data.length; j++)
+        data[j] += levShift;
+      levShift = 0;
+    }
+    return data;
+  }
+
+  /**
+   * Return the decoded data without the level shift, so that the caller can add getLevelShift() while it converts
+   * the data, instead of in a separate pass. Not valid after getGdata() has been called.
+   */
+  int[] getRawData() {
     return data;
   }
 
+  /**
+   * The value to add to each value of getRawData(), 0 if none
+   */
+  int getLevelShift() {
+    return levShift;
+  }
+
+  /**
+   * Drop the decoded data, so that a pooled decoder does not keep it.
+   */
+  void clear() {
+    data = null;
+    levShift = 0;
+  }
+
   private int[] data;
+  private int levShift;
 
   /**
    * Returns all the parameters used in the decoding chain. It calls
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.grib.collection;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+
+public class TestGribDataReaderParallel {
+  private static final String testfile =
+      "../grib/src/test/data/GFS_Global_onedeg_20220627_0000.TotalPrecip.Out48hrs.grib2";
+  private static final String varName = "Total_precipitation_surface_Mixed_intervals_Accumulation";
+
+  private static Array read() throws IOException {
+    try (NetcdfFile nc = NetcdfFiles.open(testfile)) {
+      Variable v = nc.findVariable(varName);
+      assertThat(v).isNotNull();
+      return v.read();
+    }
+  }
+
+  @Test
+  public void testParallelReadMatchesSerial() throws IOException {
+    Array serial = read();
+
+    ExecutorService exec = Executors.newFixedThreadPool(3);
+    try {
+      GribDataReader.setExecutor(exec);
+      Array parallel = read();
+      assertThat(parallel.getShape()).isEqualTo(serial.getShape());
+      assertThat((float[]) parallel.get1DJavaArray(float.class))
+          .isEqualTo((float[]) serial.get1DJavaArray(float.class));
+    } finally {
+      GribDataReader.setExecutor(null);
+      exec.shutdown();
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.grib2;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+import ucar.unidata.io.RandomAccessFile;
+
+/** Test reusing the JPEG 2000 decoder of a thread for more than one template 5.40 record */
+public class TestGrib2JpegDecoder {
+
+  // the JPEG 2000 code stream of a template 5.40 record
+  private static class Codestream {
+    final int nbits;
+    final byte[] bytes;
+
+    Codestream(int nbits, byte[] bytes) {
+      this.nbits = nbits;
+      this.bytes = bytes;
+    }
+  }
+
+  private static Codestream readCodestream(String filename) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile("../grib/src/test/data/" + filename, "r")) {
+      raf.order(RandomAccessFile.BIG_ENDIAN);
+      Grib2RecordScanner scanner = new Grib2RecordScanner(raf);
+      assertThat(scanner.hasNext()).isTrue();
+      Grib2Record gr = scanner.next();
+
+      Grib2SectionDataRepresentation drss = gr.getDataRepresentationSection();
+      assertThat(drss.getDataTemplate()).isEqualTo(40);
+      Grib2Drs.Type40 drs = (Grib2Drs.Type40) drss.getDrs(raf);
+
+      // skip the section length and number
+      Grib2SectionData dataSection = gr.getDataSection();
+      byte[] bytes = new byte[dataSection.getMsgLength() - 5];
+      raf.seek(dataSection.getStartingPosition() + 5);
+      raf.readFully(bytes);
+      return new Codestream(drs.numberOfBits, bytes);
+    }
+  }
+
+  private static int[] decodeWithNewDecoder(Codestream cs) throws IOException {
+    Grib2JpegDecoder g2j = new Grib2JpegDecoder(cs.nbits, false);
+    g2j.decode(cs.bytes);
+    return g2j.getGdata();
+  }
+
+  private static int[] decodeWithThreadDecoder(Codestream cs) throws IOException {
+    Grib2JpegDecoder g2j = Grib2JpegDecoder.getThreadDecoder(cs.nbits);
+    try {
+      g2j.decode(cs.bytes);
+      int[] data = g2j.getRawData().clone();
+      for (int i = 0; i < data.length; i++)
+        data[i] += g2j.getLevelShift();
+      return data;
+    } finally {
+      g2j.clear();
+      assertThat(g2j.getRawData()).isNull();
+    }
+  }
+
+  @Test
+  public void testReuse() throws IOException {
+    Codestream first = readCodestream("sref.pds12.grib2");
+    Codestream second = readCodestream("sref.pds2.grib2");
+    assertThat(first.nbits).isEqualTo(second.nbits); // so the same decoder is used for both
+
+    int[] expectFirst = decodeWithNewDecoder(first);
+    int[] expectSecond = decodeWithNewDecoder(second);
+    assertThat(expectFirst).isNotEqualTo(expectSecond);
+
+    Grib2JpegDecoder g2j = Grib2JpegDecoder.getThreadDecoder(first.nbits);
+    assertThat(decodeWithThreadDecoder(first)).isEqualTo(expectFirst);
+    assertThat(decodeWithThreadDecoder(second)).isEqualTo(expectSecond);
+    assertThat(decodeWithThreadDecoder(first)).isEqualTo(expectFirst);
+    assertThat(Grib2JpegDecoder.getThreadDecoder(first.nbits)).isSameInstanceAs(g2j);
+  }
+
+  @Test
+  public void testBitRates() throws IOException {
+    Codestream sref = readCodestream("sref.pds2.grib2");
+    Codestream rugley = readCodestream("rugley.pds15.grib2");
+    assertThat(sref.nbits).isNotEqualTo(rugley.nbits);
+    assertThat(Grib2JpegDecoder.getThreadDecoder(sref.nbits))
+        .isNotSameInstanceAs(Grib2JpegDecoder.getThreadDecoder(rugley.nbits));
+
+    int[] expectSref = decodeWithNewDecoder(sref);
+    int[] expectRugley = decodeWithNewDecoder(rugley);
+    assertThat(decodeWithThreadDecoder(rugley)).isEqualTo(expectRugley);
+    assertThat(decodeWithThreadDecoder(sref)).isEqualTo(expectSref);
+    assertThat(decodeWithThreadDecoder(rugley)).isEqualTo(expectRugley);
+  }
+
+  @Test
+  public void testOtherThread() throws Exception {
+    Codestream cs = readCodestream("sref.pds12.grib2");
+    int[] expect = decodeWithNewDecoder(cs);
+    Grib2JpegDecoder mine = Grib2JpegDecoder.getThreadDecoder(cs.nbits);
+
+    ExecutorService exec = Executors.newSingleThreadExecutor();
+    try {
+      assertThat(exec.submit(() -> Grib2JpegDecoder.getThreadDecoder(cs.nbits)).get()).isNotSameInstanceAs(mine);
+      assertThat(exec.submit(() -> decodeWithThreadDecoder(cs)).get()).isEqualTo(expect);
+    } finally {
+      exec.shutdown();
+    }
+  }
+}
@@ -91,6 +91,26 @@ public class DSequence extends DConstructor implements ClientIO {
    */
   private int level;
 
+  /**
+   * If not null, receives the rows as they are deserialized, instead of <code>allValues</code>.
+   */
+  private RowHandler rowHandler;
+
+  /**
+   * Receives the rows of a <code>DSequence</code> as they are deserialized.
+   *
+   * @see #setRowHandler(RowHandler)
+   */
+  public interface RowHandler {
+    /**
+     * Handle one row of the sequence.
+     *
+     * @param row the row, a <code>Vector</code> of <code>BaseType</code>.
+     * @throws DataReadException to stop the deserialization.
+     */
+    void handleRow(Vector row) throws DataReadException;
+  }
+
   /**
    * Constructs a new <code>DSequence</code>.
    */
@@ -119,6 +139,17 @@ public class DSequence extends DConstructor implements ClientIO {
     return "Sequence";
   }
 
+  /**
+   * Pass each row to a handler as it is deserialized, instead of keeping it in this sequence, so that a
+   * client can stream a large sequence in bounded memory. The rows are then not available from
+   * <code>getRow</code>. Must be set before <code>deserialize</code> is called.
+   *
+   * @param rowHandler receives the rows, or null to keep them in this sequence.
+   */
+  public void setRowHandler(RowHandler rowHandler) {
+    this.rowHandler = rowHandler;
+  }
+
   /**
    * Sets the level of this sequence.
    *
@@ -526,8 +557,11 @@ public class DSequence extends DConstructor implements ClientIO {
       ClientIO bt = (ClientIO) e.nextElement();
       bt.deserialize(source, sv, statusUI);
     }
-    // add the new instance to the allValues vector
-    allValues.addElement(newInstance);
+    // add the new instance to the allValues vector, or hand it off
+    if (rowHandler != null)
+      rowHandler.handleRow(newInstance);
+    else
+      allValues.addElement(newInstance);
   }
 
   /**
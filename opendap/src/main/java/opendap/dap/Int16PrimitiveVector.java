@@ -160,14 +160,11 @@ public class Int16PrimitiveVector extends PrimitiveVector {
    */
   public synchronized void deserialize(DataInputStream source, ServerVersion sv, StatusUI statusUI)
       throws IOException, EOFException, DataReadException {
-    for (int i = 0; i < vals.length; i++) {
-      vals[i] = (short) source.readInt();
-      if (statusUI != null) {
-        statusUI.incrementByteCount(4);
-        if (statusUI.userCancelled())
-          throw new DataReadException("User cancelled");
-      }
-    }
+    // 16 bit values are sent as 32 bit integers
+    deserializeBlocks(source, vals.length, 4, statusUI, (block, start, count) -> {
+      for (int i = 0; i < count; i++)
+        vals[start + i] = (short) block.getInt(4 * i);
+    });
   }
 
   /**
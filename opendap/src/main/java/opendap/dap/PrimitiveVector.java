@@ -41,6 +41,7 @@
 package opendap.dap;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 /**
  * A helper class for <code>DVector</code>. It allows <code>DVector</code>,
@@ -121,6 +122,46 @@ public abstract class PrimitiveVector extends DAPNode implements ClientIO {
   public abstract void deserialize(DataInputStream source, ServerVersion sv, StatusUI statusUI)
       throws IOException, EOFException, DataReadException;
 
+  /**
+   * Size in bytes of the blocks in which the <code>deserialize</code> methods of the numeric vectors read their
+   * values. Each block is decoded at once from its XDR (big endian) representation, instead of reading the
+   * values one at a time from the <code>DataInputStream</code>.
+   */
+  static final int DESERIALIZE_BLOCK_SIZE = 64 * 1024;
+
+  /**
+   * Read XDR encoded values in blocks, and pass each block to a decoder.
+   *
+   * @param source a <code>DataInputStream</code> to read from.
+   * @param n number of values to read.
+   * @param elemSize size in bytes of each value in the stream.
+   * @param statusUI updated after each block, may be null.
+   * @param decoder converts the values of each block, given the block, the index of its first value, and the number
+   *        of values in it.
+   */
+  static void deserializeBlocks(DataInputStream source, int n, int elemSize, StatusUI statusUI, BlockDecoder decoder)
+      throws IOException, DataReadException {
+    int blockValues = DESERIALIZE_BLOCK_SIZE / elemSize;
+    byte[] block = new byte[Math.min(n, blockValues) * elemSize];
+    ByteBuffer bb = ByteBuffer.wrap(block); // big endian by default, as XDR is
+    for (int start = 0; start < n; start += blockValues) {
+      int count = Math.min(blockValues, n - start);
+      source.readFully(block, 0, count * elemSize);
+      bb.clear();
+      bb.limit(count * elemSize);
+      decoder.decode(bb, start, count);
+      if (statusUI != null) {
+        statusUI.incrementByteCount(count * elemSize);
+        if (statusUI.userCancelled())
+          throw new DataReadException("User cancelled");
+      }
+    }
+  }
+
+  interface BlockDecoder {
+    void decode(ByteBuffer block, int start, int count);
+  }
+
   /**
    * Writes data to a <code>DataOutputStream</code>. This method is used
    * primarily by GUI clients which need to download OPeNDAP data, manipulate
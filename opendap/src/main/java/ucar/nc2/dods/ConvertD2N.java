@@ -362,6 +362,29 @@ public class ConvertD2N {
     }
   }
 
+  /**
+   * Convert one row of a sequence whose members are primitive scalars or arrays, as it is streamed.
+   *
+   * @param row the deserialized members of the row
+   * @param members the members of the sequence, from Structure.makeStructureMembers()
+   * @return the row as StructureData
+   * @throws DAP2Exception if a member of the row is not in members
+   */
+  StructureData convertSequenceRow(Vector row, StructureMembers members) throws DAP2Exception {
+    StructureDataW sdata = new StructureDataW(members);
+    for (int j = 0; j < row.size(); j++) {
+      BaseType member_data = (BaseType) row.elementAt(j);
+      StructureMembers.Member member = members.findMember(DODSNetcdfFile.makeShortName(member_data.getClearName()));
+      if (member == null) {
+        throw new DAP2Exception("Cant find member " + member_data.getEncodedName() + " of " + members.getName());
+      }
+      Array data = Array.factory(member.getDataType(), member.getShape());
+      iconvertData(member_data, data.getIndexIterator());
+      sdata.setMemberData(member, data);
+    }
+    return sdata;
+  }
+
   private void iconvertDataStructure(DConstructor ds, StructureMembers members) throws DAP2Exception {
     List<StructureMembers.Member> mlist = members.getMembers();
     for (StructureMembers.Member member : mlist) {
@@ -22,6 +22,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.channels.WritableByteChannel;
 import java.util.*;
+import java.util.concurrent.Executor;
 
 /**
  * Access to DODS datasets through the Netcdf API.
@@ -128,6 +129,23 @@ public class DODSNetcdfFile extends ucar.nc2.NetcdfFile {
     preloadCoordVarSize = size;
   }
 
+  private static Executor sequenceExecutor;
+
+  /**
+   * Set the executor used to stream sequences. When set, the getStructureIterator() methods of a top level sequence
+   * with primitive members download it in a task on this executor, and return the rows as they arrive, so that only
+   * a bounded number of rows are in memory at once. Otherwise the whole sequence is read before iterating.
+   *
+   * @param exec stream sequences with this executor, or null (the default) to not stream them.
+   */
+  public static void setSequenceExecutor(Executor exec) {
+    sequenceExecutor = exec;
+  }
+
+  static Executor getSequenceExecutor() {
+    return sequenceExecutor;
+  }
+
   /**
    * Create the canonical form of the URL.
    * If the urlName starts with "http:" or "https:", change it to start with "dods:", otherwise
@@ -1487,6 +1505,39 @@ public class DODSNetcdfFile extends ucar.nc2.NetcdfFile {
     return data;
   }
 
+  /**
+   * Read the data for a constraint expression, passing the rows of its sequences to the handler as they are read,
+   * rather than keeping them. This uses its own connection, so other reads of this file are not blocked while the
+   * rows are consumed.
+   *
+   * @param CE constraint expression, selecting sequences with primitive members only
+   * @param handler receives the rows of the sequences
+   * @param statusUI checked for cancellation, may be null
+   */
+  void readSequenceRows(String CE, DSequence.RowHandler handler, StatusUI statusUI)
+      throws IOException, DAP2Exception {
+    if (!CE.startsWith("?"))
+      CE = "?" + CE;
+    DConnect2 connection = new DConnect2(dodsConnection.URL(), accept_compress);
+    try {
+      connection.getData(CE, statusUI, new DefaultFactory() {
+        @Override
+        public DSequence newDSequence() {
+          return newDSequence(null);
+        }
+
+        @Override
+        public DSequence newDSequence(String n) {
+          DSequence seq = super.newDSequence(n);
+          seq.setRowHandler(handler);
+          return seq;
+        }
+      });
+    } finally {
+      connection.close();
+    }
+  }
+
   ///////////////////////////////////////////////////////////////////
   // ALL the I/O goes through these routines
   // called from ucar.nc2.Variable
@@ -9,6 +9,7 @@ import ucar.nc2.*;
 import ucar.nc2.dods.DODSNode;
 import opendap.dap.*;
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.io.IOException;
 
 /**
@@ -108,7 +109,45 @@ public class DODSStructure extends ucar.nc2.Structure implements DODSNode {
    * @throws java.io.IOException on io error
    */
   public StructureDataIterator getStructureIterator(String CE) throws java.io.IOException {
-    return new SequenceIterator(CE);
+    StructureDataIterator stream = streamSequence();
+    return (stream != null) ? stream : new SequenceIterator(CE);
+  }
+
+  /**
+   * Iterate over all the data. A top level sequence with only primitive members is streamed if an executor has been
+   * set with DODSNetcdfFile.setSequenceExecutor(): the rows are returned as they are downloaded. Otherwise all the
+   * data is read first, as for any Structure.
+   *
+   * @param bufferSize size in bytes to buffer, set < 0 to use default size; not used when streaming
+   * @return StructureDataIterator over type StructureData
+   * @throws java.io.IOException on read error
+   */
+  @Override
+  public StructureDataIterator getStructureIterator(int bufferSize) throws java.io.IOException {
+    StructureDataIterator stream = streamSequence();
+    return (stream != null) ? stream : super.getStructureIterator(bufferSize);
+  }
+
+  // an iterator that streams the rows, or null if this cant be streamed
+  private StructureDataIterator streamSequence() {
+    Executor exec = DODSNetcdfFile.getSequenceExecutor();
+    if (exec == null || !canStream())
+      return null;
+    return new SequenceStreamIterator(exec,
+        (handler, statusUI) -> dodsfile.readSequenceRows(DODSNetcdfFile.getDODSConstraintName(this), handler,
+            statusUI),
+        makeStructureMembers(), getFullName());
+  }
+
+  // a top level sequence with only primitive members, not already read
+  private boolean canStream() {
+    if (!(ds instanceof DSequence) || getParentStructure() != null || hasCachedData())
+      return false;
+    for (Variable v : getVariables()) {
+      if (v instanceof Structure)
+        return false;
+    }
+    return true;
   }
 
   private class SequenceIterator implements StructureDataIterator {
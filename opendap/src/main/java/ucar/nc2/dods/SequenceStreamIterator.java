@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.dods;
+
+import opendap.dap.DAP2Exception;
+import opendap.dap.DSequence;
+import opendap.dap.DataReadException;
+import opendap.dap.StatusUI;
+import ucar.ma2.StructureData;
+import ucar.ma2.StructureDataIterator;
+import ucar.ma2.StructureMembers;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.ref.WeakReference;
+import java.util.NoSuchElementException;
+import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams the rows of a sequence: a task on the executor reads the response and converts each row as it is
+ * deserialized, handing it to the iterator through a bounded queue. Closing the iterator cancels the download.
+ * The download only holds a weak reference to the iterator, so an iterator that is dropped without being closed also
+ * cancels it, once it is garbage collected.
+ */
+class SequenceStreamIterator implements StructureDataIterator {
+  private static final int QUEUE_SIZE = 1000; // max number of rows read ahead
+  private static final long POLL_MSECS = 100; // how often a blocked download checks if it was cancelled
+  private static final Object END = new Object();
+
+  /** Reads the rows of a sequence, handing each one to the handler as it is deserialized. */
+  interface RowReader {
+    void readRows(DSequence.RowHandler handler, StatusUI statusUI) throws IOException, DAP2Exception;
+  }
+
+  private final Executor exec;
+  private final RowReader reader;
+  private final StructureMembers members;
+  private final String name;
+
+  private BlockingQueue<Object> queue; // StructureData, then END or the exception that stopped the download
+  private Download download;
+  private Object next;
+  private int row;
+
+  /**
+   * @param exec runs the download
+   * @param reader reads the rows
+   * @param members the rows are converted to StructureData with these members
+   * @param name name of the sequence, for error messages
+   */
+  SequenceStreamIterator(Executor exec, RowReader reader, StructureMembers members, String name) {
+    this.exec = exec;
+    this.reader = reader;
+    this.members = members;
+    this.name = name;
+    start();
+  }
+
+  private void start() {
+    queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    download = new Download(this, queue, reader, members);
+    next = null;
+    row = 0;
+    exec.execute(download);
+  }
+
+  @Override
+  public boolean hasNext() throws IOException {
+    if (next == null) {
+      try {
+        next = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted reading sequence " + name);
+      }
+      if (next instanceof Exception) {
+        Exception e = (Exception) next;
+        next = END;
+        throw (e instanceof IOException) ? (IOException) e : new IOException(e.getMessage(), e);
+      }
+    }
+    return next != END;
+  }
+
+  @Override
+  public StructureData next() throws IOException {
+    if (!hasNext())
+      throw new NoSuchElementException();
+    StructureData sdata = (StructureData) next;
+    next = null;
+    row++;
+    return sdata;
+  }
+
+  @Override
+  public StructureDataIterator reset() {
+    close();
+    start();
+    return this;
+  }
+
+  @Override
+  public int getCurrentRecno() {
+    return row - 1;
+  }
+
+  @Override
+  public void close() {
+    download.cancelled = true;
+    queue.clear(); // unblock the download, so it sees it was cancelled
+  }
+
+  // must not refer to the iterator, except weakly
+  private static class Download implements Runnable, DSequence.RowHandler, StatusUI {
+    private final WeakReference<SequenceStreamIterator> owner;
+    private final BlockingQueue<Object> queue;
+    private final RowReader reader;
+    private final StructureMembers members;
+    private final ConvertD2N convertD2N = new ConvertD2N();
+    private volatile boolean cancelled;
+
+    Download(SequenceStreamIterator owner, BlockingQueue<Object> queue, RowReader reader, StructureMembers members) {
+      this.owner = new WeakReference<>(owner);
+      this.queue = queue;
+      this.reader = reader;
+      this.members = members;
+    }
+
+    @Override
+    public void run() {
+      Object last = END;
+      try {
+        reader.readRows(this, this);
+      } catch (Exception e) {
+        last = e;
+      }
+      try {
+        put(last);
+      } catch (DataReadException e) {
+        // cancelled, no one is waiting
+      }
+    }
+
+    @Override
+    public void handleRow(Vector row) throws DataReadException {
+      try {
+        put(convertD2N.convertSequenceRow(row, members));
+      } catch (DataReadException e) {
+        throw e;
+      } catch (DAP2Exception e) {
+        throw new DataReadException(e.getMessage());
+      }
+    }
+
+    private void put(Object o) throws DataReadException {
+      try {
+        while (!queue.offer(o, POLL_MSECS, TimeUnit.MILLISECONDS)) {
+          if (userCancelled())
+            throw new DataReadException("User cancelled");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new DataReadException("Interrupted");
+      }
+    }
+
+    @Override
+    public void incrementByteCount(int bytes) {}
+
+    @Override
+    public boolean userCancelled() {
+      return cancelled || owner.get() == null;
+    }
+
+    @Override
+    public void finished() {}
+  }
+}
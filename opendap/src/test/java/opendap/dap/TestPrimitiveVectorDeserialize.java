@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package opendap.dap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.Test;
+
+/** Round trip the numeric vectors through externalize and deserialize, with more than one block of values. */
+public class TestPrimitiveVectorDeserialize {
+  private static final int N = 3 * PrimitiveVector.DESERIALIZE_BLOCK_SIZE / 4 + 7;
+
+  private static void roundTrip(PrimitiveVector from, PrimitiveVector to) throws IOException, DataReadException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bos)) {
+      from.externalize(out);
+      out.writeInt(12345); // make sure nothing past the vector is read
+    }
+    to.setLength(from.getLength());
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+      to.deserialize(in, null, null);
+      assertThat(in.readInt()).isEqualTo(12345);
+    }
+  }
+
+  @Test
+  public void testFloat32() throws IOException, DataReadException {
+    Float32PrimitiveVector from = new Float32PrimitiveVector(new DFloat32());
+    from.setLength(N);
+    for (int i = 0; i < N; i++)
+      from.setValue(i, i * 1.5f - 100);
+    Float32PrimitiveVector to = new Float32PrimitiveVector(new DFloat32());
+    roundTrip(from, to);
+    assertThat((float[]) to.getInternalStorage()).isEqualTo(from.getInternalStorage());
+  }
+
+  @Test
+  public void testFloat64() throws IOException, DataReadException {
+    Float64PrimitiveVector from = new Float64PrimitiveVector(new DFloat64());
+    from.setLength(N);
+    for (int i = 0; i < N; i++)
+      from.setValue(i, i * 1.0e-3 - 7);
+    Float64PrimitiveVector to = new Float64PrimitiveVector(new DFloat64());
+    roundTrip(from, to);
+    assertThat((double[]) to.getInternalStorage()).isEqualTo(from.getInternalStorage());
+  }
+
+  @Test
+  public void testInt32() throws IOException, DataReadException {
+    Int32PrimitiveVector from = new Int32PrimitiveVector(new DInt32());
+    from.setLength(N);
+    for (int i = 0; i < N; i++)
+      from.setValue(i, i * 65537 - N);
+    Int32PrimitiveVector to = new Int32PrimitiveVector(new DInt32());
+    roundTrip(from, to);
+    assertThat((int[]) to.getInternalStorage()).isEqualTo(from.getInternalStorage());
+  }
+
+  @Test
+  public void testInt16() throws IOException, DataReadException {
+    Int16PrimitiveVector from = new Int16PrimitiveVector(new DInt16());
+    from.setLength(N);
+    for (int i = 0; i < N; i++)
+      from.setValue(i, (short) (i - N / 2));
+    Int16PrimitiveVector to = new Int16PrimitiveVector(new DInt16());
+    roundTrip(from, to);
+    assertThat((short[]) to.getInternalStorage()).isEqualTo(from.getInternalStorage());
+  }
+
+  @Test
+  public void testByte() throws IOException, DataReadException {
+    BytePrimitiveVector from = new BytePrimitiveVector(new DByte());
+    from.setLength(N);
+    for (int i = 0; i < N; i++)
+      from.setValue(i, (byte) i);
+    BytePrimitiveVector to = new BytePrimitiveVector(new DByte());
+    roundTrip(from, to);
+    assertThat((byte[]) to.getInternalStorage()).isEqualTo(from.getInternalStorage());
+  }
+}
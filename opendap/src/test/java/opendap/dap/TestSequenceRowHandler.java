@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package opendap.dap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+import org.junit.Test;
+
+/** A sequence with a RowHandler hands off its rows as they are deserialized, instead of keeping them. */
+public class TestSequenceRowHandler {
+  private static final int NROWS = 100;
+
+  private static DSequence makeSequence() {
+    DSequence seq = new DSequence("seq");
+    seq.addVariable(new DInt32("id"));
+    seq.addVariable(new DFloat64("val"));
+    return seq;
+  }
+
+  private static byte[] makeResponse() throws IOException {
+    DSequence seq = makeSequence();
+    for (int i = 0; i < NROWS; i++) {
+      DInt32 id = new DInt32("id");
+      id.setValue(i);
+      DFloat64 val = new DFloat64("val");
+      val.setValue(i * 0.5);
+      Vector<BaseType> row = new Vector<>();
+      row.add(id);
+      row.add(val);
+      seq.addRow(row);
+    }
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bos)) {
+      seq.externalize(out);
+    }
+    return bos.toByteArray();
+  }
+
+  @Test
+  public void testRowHandler() throws IOException, DataReadException {
+    List<Integer> ids = new ArrayList<>();
+    List<Double> vals = new ArrayList<>();
+    DSequence seq = makeSequence();
+    seq.setRowHandler(row -> {
+      ids.add(((DInt32) row.get(0)).getValue());
+      vals.add(((DFloat64) row.get(1)).getValue());
+    });
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(makeResponse()))) {
+      seq.deserialize(in, new ServerVersion(3, 2), null);
+    }
+
+    assertThat(seq.getRowCount()).isEqualTo(0);
+    assertThat(ids).hasSize(NROWS);
+    for (int i = 0; i < NROWS; i++) {
+      assertThat(ids.get(i)).isEqualTo(i);
+      assertThat(vals.get(i)).isEqualTo(i * 0.5);
+    }
+  }
+
+  @Test
+  public void testRowHandlerStops() throws IOException {
+    DSequence seq = makeSequence();
+    seq.setRowHandler(row -> {
+      if (((DInt32) row.get(0)).getValue() == 10)
+        throw new DataReadException("stop");
+    });
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(makeResponse()))) {
+      seq.deserialize(in, new ServerVersion(3, 2), null);
+      throw new AssertionError("expected DataReadException");
+    } catch (DataReadException e) {
+      assertThat(e.getMessage()).isEqualTo("stop");
+    }
+  }
+}
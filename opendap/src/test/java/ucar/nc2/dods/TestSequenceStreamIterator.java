@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2021 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.dods;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import opendap.dap.BaseType;
+import opendap.dap.DAP2Exception;
+import opendap.dap.DFloat64;
+import opendap.dap.DInt32;
+import opendap.dap.DSequence;
+import opendap.dap.DataReadException;
+import opendap.dap.StatusUI;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.DataType;
+import ucar.ma2.StructureData;
+import ucar.ma2.StructureDataIterator;
+import ucar.ma2.StructureMembers;
+import ucar.nc2.Structure;
+
+/** Test SequenceStreamIterator without a server */
+public class TestSequenceStreamIterator {
+  @Rule
+  public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final ExecutorService exec = Executors.newCachedThreadPool();
+  private final StructureMembers members = makeMembers();
+
+  private static StructureMembers makeMembers() {
+    StructureMembers.Builder builder = StructureMembers.builder().setName("seq");
+    builder.addMember("id", null, null, DataType.INT, new int[0]);
+    builder.addMember("val", null, null, DataType.DOUBLE, new int[0]);
+    return builder.build();
+  }
+
+  // hands out nrows rows, then throws failure if not null
+  private static class FakeReader implements SequenceStreamIterator.RowReader {
+    final int nrows;
+    final IOException failure;
+    final CountDownLatch done = new CountDownLatch(1);
+    volatile int handed;
+    volatile boolean cancelled;
+
+    FakeReader(int nrows, IOException failure) {
+      this.nrows = nrows;
+      this.failure = failure;
+    }
+
+    @Override
+    public void readRows(DSequence.RowHandler handler, StatusUI statusUI) throws IOException, DAP2Exception {
+      try {
+        for (int i = 0; i < nrows; i++) {
+          DInt32 id = new DInt32("id");
+          id.setValue(i);
+          DFloat64 val = new DFloat64("val");
+          val.setValue(i * 0.5);
+          Vector<BaseType> row = new Vector<>();
+          row.add(id);
+          row.add(val);
+          handler.handleRow(row);
+          handed++;
+        }
+        if (failure != null)
+          throw failure;
+      } catch (DataReadException e) {
+        cancelled = true;
+        throw e;
+      } finally {
+        done.countDown();
+      }
+    }
+  }
+
+  @After
+  public void shutdown() {
+    DODSNetcdfFile.setSequenceExecutor(null);
+    exec.shutdownNow();
+  }
+
+  // a file holding the DAP2 data response of the sequence seq, with nrows rows
+  private File makeResponse(int nrows) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    String dds = "Dataset {\n    Sequence {\n        Int32 id;\n        Float64 val;\n    } seq;\n} test;\nData:\n";
+    out.write(dds.getBytes(StandardCharsets.UTF_8));
+    for (int i = 0; i < nrows; i++) {
+      out.writeInt(0x5A000000); // start of instance
+      out.writeInt(i);
+      out.writeDouble(i * 0.5);
+    }
+    out.writeInt(0xA5000000); // end of sequence
+    out.flush();
+    File file = tempFolder.newFile("seq.dods");
+    Files.write(file.toPath(), bytes.toByteArray());
+    return file;
+  }
+
+  private static void checkRows(StructureDataIterator iter, int from, int to) throws IOException {
+    for (int i = from; i < to; i++) {
+      assertThat(iter.hasNext()).isTrue();
+      StructureData sdata = iter.next();
+      assertThat(iter.getCurrentRecno()).isEqualTo(i);
+      assertThat(sdata.getScalarInt("id")).isEqualTo(i);
+      assertThat(sdata.getScalarDouble("val")).isEqualTo(i * 0.5);
+    }
+  }
+
+  @Test
+  public void testStream() throws Exception {
+    FakeReader reader = new FakeReader(2500, null); // more than fit in the queue
+    StructureDataIterator iter = new SequenceStreamIterator(exec, reader, members, "seq");
+    checkRows(iter, 0, 2500);
+    assertThat(iter.hasNext()).isFalse();
+    assertThat(iter.hasNext()).isFalse();
+    iter.close();
+    assertThat(reader.done.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(reader.cancelled).isFalse();
+  }
+
+  @Test
+  public void testReset() throws Exception {
+    FakeReader reader = new FakeReader(100, null);
+    StructureDataIterator iter = new SequenceStreamIterator(exec, reader, members, "seq");
+    checkRows(iter, 0, 10);
+
+    // starts a new download
+    iter.reset();
+    checkRows(iter, 0, 100);
+    assertThat(iter.hasNext()).isFalse();
+    iter.close();
+  }
+
+  @Test
+  public void testCloseCancels() throws Exception {
+    FakeReader reader = new FakeReader(100 * 1000, null);
+    StructureDataIterator iter = new SequenceStreamIterator(exec, reader, members, "seq");
+    checkRows(iter, 0, 10);
+    iter.close();
+    assertThat(reader.done.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(reader.cancelled).isTrue();
+    assertThat(reader.handed).isLessThan(100 * 1000);
+  }
+
+  @Test
+  public void testErrorIsThrown() throws Exception {
+    FakeReader reader = new FakeReader(5, new IOException("lost the connection"));
+    StructureDataIterator iter = new SequenceStreamIterator(exec, reader, members, "seq");
+    checkRows(iter, 0, 5);
+    IOException e = Assert.assertThrows(IOException.class, iter::hasNext);
+    assertThat(e.getMessage()).isEqualTo("lost the connection");
+    assertThat(iter.hasNext()).isFalse();
+    iter.close();
+  }
+
+  @Test
+  public void testDroppedIteratorCancels() throws Exception {
+    FakeReader reader = new FakeReader(100 * 1000, null);
+    StructureDataIterator iter = new SequenceStreamIterator(exec, reader, members, "seq");
+    assertThat(iter.hasNext()).isTrue();
+
+    // never closed, so the download only stops once the iterator is garbage collected
+    iter = null;
+    for (int i = 0; i < 100 && !reader.done.await(100, TimeUnit.MILLISECONDS); i++) {
+      System.gc();
+    }
+    assertThat(reader.cancelled).isTrue();
+  }
+
+  @Test
+  public void testGetStructureIterator() throws Exception {
+    File file = makeResponse(2500);
+    try (DODSNetcdfFile ncfile = new DODSNetcdfFile("file:" + file.getAbsolutePath())) {
+      Structure seq = (Structure) ncfile.findVariable("seq");
+      assertThat(seq).isNotNull();
+
+      DODSNetcdfFile.setSequenceExecutor(exec);
+      try (StructureDataIterator iter = seq.getStructureIterator()) {
+        assertThat(iter).isInstanceOf(SequenceStreamIterator.class);
+        checkRows(iter, 0, 2500);
+        assertThat(iter.hasNext()).isFalse();
+      }
+
+      // without an executor, the sequence is read first
+      DODSNetcdfFile.setSequenceExecutor(null);
+      try (StructureDataIterator iter = seq.getStructureIterator()) {
+        assertThat(iter).isNotInstanceOf(SequenceStreamIterator.class);
+      }
+    }
+  }
+}